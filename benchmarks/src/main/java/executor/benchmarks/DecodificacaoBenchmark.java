@@ -0,0 +1,53 @@
+package executor.benchmarks;
+
+import executor.Instrucao;
+import executor.Maquina;
+import executor.Memoria;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Vazão de Instrucao.decodificar percorrendo o código de cada núcleo. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecodificacaoBenchmark {
+
+    @Param({"cargaArmazenamento", "ula", "formato2", "desvios"})
+    public String nucleo;
+
+    private Memoria memoria;
+    private int[] enderecos;
+    private int indice;
+
+    @Setup
+    public void preparar() {
+        Maquina maquina = new Maquina(4096);
+        maquina.carregarProgramaHex(PassoBenchmark.nucleo(nucleo), 0x0000);
+        memoria = maquina.getMemoria();
+
+        // endereços de início de cada instrução, seguindo o fluxo linear do código
+        List<Integer> lista = new java.util.ArrayList<>();
+        int pc = 0;
+        while (pc < ProgramasBenchmark.CONTADOR) {
+            Instrucao inst = Instrucao.decodificar(memoria, pc);
+            if (inst.opcode == 0 && inst.disp == 0) {
+                break; // chegou ao preenchimento com zeros
+            }
+            lista.add(pc);
+            pc += inst.tamanhoBytes;
+        }
+        enderecos = lista.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Benchmark
+    public Instrucao decodificar() {
+        int i = indice;
+        indice = (i + 1 == enderecos.length) ? 0 : i + 1;
+        return Instrucao.decodificar(memoria, enderecos[i]);
+    }
+}
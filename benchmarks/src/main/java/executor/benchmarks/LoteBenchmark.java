@@ -0,0 +1,55 @@
+package executor.benchmarks;
+
+import executor.CPU;
+import executor.ExecutorLote;
+import executor.MotorExecucao;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Vazão do ExecutorLote (entradas por segundo) rodando somaLaco com um
+ * valor inicial diferente por entrada. Comparar os valores de paralelismo
+ * mostra quão perto da escala linear o lote chega nesta máquina.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoteBenchmark {
+
+    private static final int ENTRADAS_POR_CHAMADA = 1024;
+
+    @Param({"1", "2", "4", "8"})
+    public int paralelismo;
+
+    @Param({"COMPILADO"})
+    public MotorExecucao motor;
+
+    private ExecutorLote lote;
+
+    @Setup
+    public void preparar() {
+        List<String> programa = ProgramasBenchmark.somaLaco(8);
+        lote = new ExecutorLote(programa, motor, 100_000_000L,
+                List.of(new int[] { ProgramasBenchmark.RESULTADO, 3 }), paralelismo);
+    }
+
+    @TearDown
+    public void encerrar() {
+        lote.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTRADAS_POR_CHAMADA)
+    public long executar() {
+        return lote.executar(IntStream.range(0, ENTRADAS_POR_CHAMADA)
+                        .mapToObj(i -> new ExecutorLote.Entrada().palavra(ProgramasBenchmark.RESULTADO, i)))
+                .mapToLong(s -> s.getRegistrador(CPU.COD_A))
+                .sum();
+    }
+}
@@ -0,0 +1,53 @@
+package executor.benchmarks;
+
+import executor.Memoria;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Vazão de lerPalavraPorByte/escreverPalavraPorByte em endereços alinhados e desalinhados. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MemoriaBenchmark {
+
+    private static final int NUM_PALAVRAS = 4096;
+
+    // 3 = sempre alinhado em palavra; 1 = percorre também endereços desalinhados
+    @Param({"3", "1"})
+    public int passoEndereco;
+
+    private Memoria memoria;
+    private int limite;
+    private int endereco;
+    private int valor;
+
+    @Setup
+    public void preparar() {
+        memoria = new Memoria(NUM_PALAVRAS);
+        limite = memoria.getTamanhoEmBytes() - 3;
+        for (int a = 0; a <= limite; a += 3) {
+            memoria.escreverPalavraPorByte(a, a * 31);
+        }
+    }
+
+    private int proximoEndereco() {
+        int a = endereco + passoEndereco;
+        if (a > limite) a = 0;
+        endereco = a;
+        return a;
+    }
+
+    @Benchmark
+    public int lerPalavraPorByte() {
+        return memoria.lerPalavraPorByte(proximoEndereco());
+    }
+
+    @Benchmark
+    public void escreverPalavraPorByte() {
+        memoria.escreverPalavraPorByte(proximoEndereco(), valor++);
+    }
+}
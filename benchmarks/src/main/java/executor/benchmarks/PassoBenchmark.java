@@ -0,0 +1,46 @@
+package executor.benchmarks;
+
+import executor.Maquina;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vazão de Maquina.passo() por classe de instrução. Cada núcleo é um laço
+ * infinito, então a máquina nunca precisa ser reiniciada durante a medição.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PassoBenchmark {
+
+    @Param({"cargaArmazenamento", "ula", "formato2", "desvios"})
+    public String nucleo;
+
+    private Maquina maquina;
+
+    @Setup
+    public void preparar() {
+        maquina = new Maquina(4096);
+        maquina.carregarProgramaHex(nucleo(nucleo), 0x0000);
+    }
+
+    @Benchmark
+    public void passo() {
+        maquina.passo();
+    }
+
+    static List<String> nucleo(String nome) {
+        switch (nome) {
+            case "cargaArmazenamento": return ProgramasBenchmark.cargaArmazenamento();
+            case "ula":                return ProgramasBenchmark.ula();
+            case "formato2":           return ProgramasBenchmark.formato2();
+            case "desvios":            return ProgramasBenchmark.desvios();
+            default: throw new IllegalArgumentException("Núcleo desconhecido: " + nome);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package executor.benchmarks;
+
+import executor.Instantaneo;
+import executor.Maquina;
+import executor.MotorExecucao;
+import executor.ResultadoExecucao;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Programa inteiro do carregamento até a parada, com Maquina.executar. O
+ * contador auxiliar "instrucoes" sai como instruções por segundo; dividido
+ * por 10^6 dá os MIPS do interpretador.
+ *
+ * "executar" recarrega o programa a cada chamada; "executarRestaurando"
+ * volta ao instantâneo tirado logo após o carregamento, como um executor em
+ * lote que roda o mesmo programa muitas vezes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ProgramaCompletoBenchmark {
+
+    private static final long LIMITE_PASSOS = 100_000_000L;
+
+    // "programa.txt" é procurado no diretório atual e no diretório pai
+    @Param({"programa.txt", "somaLaco", "copiaBytes", "copiaPalavras"})
+    public String programa;
+
+    @Param({"INTERPRETADOR", "BLOCOS", "COMPILADO"})
+    public MotorExecucao motor;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Contadores {
+        public long instrucoes;
+
+        @Setup(Level.Iteration)
+        public void zerar() {
+            instrucoes = 0;
+        }
+    }
+
+    private List<String> palavras;
+    private Maquina maquina;
+    private Instantaneo carregado;
+
+    @Setup
+    public void preparar() throws IOException {
+        palavras = ProgramasBenchmark.porNome(programa);
+        maquina = new Maquina(4096, motor);
+        maquina.carregarProgramaHex(palavras, 0x0000);
+        carregado = maquina.capturar();
+    }
+
+    @Benchmark
+    public ResultadoExecucao executar(Contadores contadores) {
+        maquina.getCpu().limparTodos();
+        maquina.carregarProgramaHex(palavras, 0x0000);
+        ResultadoExecucao r = maquina.executar(LIMITE_PASSOS);
+        contadores.instrucoes += r.getPassosExecutados();
+        return r;
+    }
+
+    @Benchmark
+    public ResultadoExecucao executarRestaurando(Contadores contadores) {
+        maquina.restaurar(carregado);
+        ResultadoExecucao r = maquina.executar(LIMITE_PASSOS);
+        contadores.instrucoes += r.getPassosExecutados();
+        return r;
+    }
+}
@@ -0,0 +1,286 @@
+package executor.benchmarks;
+
+import executor.Opcode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Programas SIC/XE usados pelos benchmarks, montados aqui mesmo byte a byte
+ * e devolvidos no formato de programa.txt (uma palavra hex de 6 caracteres
+ * por linha).
+ */
+final class ProgramasBenchmark {
+
+    // endereços de dados dos laços (fora do código, múltiplos de 3). Ficam
+    // abaixo de 0x800 porque o disp de 12 bits do formato 3 tem sinal.
+    static final int DADOS = 0x300;
+    static final int CONTADOR = 0x2F7;
+    static final int RESULTADO = 0x2FA;
+    static final int TAMANHO_TABELA = 0x100; // em palavras
+
+    private final List<Integer> bytes = new ArrayList<>();
+
+    private ProgramasBenchmark() {
+    }
+
+    // =========================
+    //  Núcleos de laço infinito (um por classe de instrução)
+    // =========================
+
+    /** LDA/STA/LDX/STX/LDCH/STCH com endereçamento direto, seguido de J para o início. */
+    static List<String> cargaArmazenamento() {
+        ProgramasBenchmark p = new ProgramasBenchmark();
+        int inicio = p.pos();
+        for (int i = 0; i < 4; i++) {
+            p.f3(Opcode.LDA, 3, 0, DADOS + 3 * i);
+            p.f3(Opcode.STA, 3, 0, DADOS + 0x30 + 3 * i);
+            p.f3(Opcode.LDX, 3, 0, DADOS + 3 * i);
+            p.f3(Opcode.STX, 3, 0, DADOS + 0x60 + 3 * i);
+            p.f3(Opcode.LDCH, 3, 0, DADOS + i);
+            p.f3(Opcode.STCH, 3, 0, DADOS + 0x90 + i);
+        }
+        p.saltoRelativo(Opcode.J, inicio);
+        return p.comDados();
+    }
+
+    /** ADD/SUB/MUL/DIV/AND/OR/COMP com operandos imediatos e em memória. */
+    static List<String> ula() {
+        ProgramasBenchmark p = new ProgramasBenchmark();
+        int inicio = p.pos();
+        p.f3(Opcode.LDA, 1, 0, 7);
+        for (int i = 0; i < 3; i++) {
+            p.f3(Opcode.ADD, 3, 0, DADOS);
+            p.f3(Opcode.SUB, 1, 0, 3);
+            p.f3(Opcode.MUL, 1, 0, 5);
+            p.f3(Opcode.DIV, 1, 0, 3);
+            p.f3(Opcode.AND, 1, 0, 0x7FF);
+            p.f3(Opcode.OR, 3, 0, DADOS + 3);
+            p.f3(Opcode.COMP, 1, 0, 100);
+        }
+        p.saltoRelativo(Opcode.J, inicio);
+        return p.comDados();
+    }
+
+    /** Operações de formato 2 entre registradores. */
+    static List<String> formato2() {
+        ProgramasBenchmark p = new ProgramasBenchmark();
+        p.f3(Opcode.LDS, 1, 0, 3);
+        p.f3(Opcode.LDT, 1, 0, 0x7FF);
+        int inicio = p.pos();
+        p.f3(Opcode.LDA, 1, 0, 11);
+        p.f3(Opcode.LDX, 1, 0, 0);
+        for (int i = 0; i < 3; i++) {
+            p.f2(Opcode.ADDR, 4, 0);   // A ← A + S
+            p.f2(Opcode.SUBR, 4, 0);   // A ← A - S
+            p.f2(Opcode.MULR, 4, 0);   // A ← A * S
+            p.f2(Opcode.DIVR, 4, 0);   // A ← A / S
+            p.f2(Opcode.COMPR, 0, 5);  // A : T
+            p.f2(Opcode.RMO, 0, 3);    // B ← A
+            p.f2(Opcode.SHIFTL, 3, 2); // B << 3
+            p.f2(Opcode.SHIFTR, 3, 2); // B >> 3
+            p.f2(Opcode.CLEAR, 3, 0);  // B ← 0
+            p.f2(Opcode.TIXR, 5, 0);   // X++ : T
+        }
+        p.saltoRelativo(Opcode.J, inicio);
+        return p.comDados();
+    }
+
+    /** J/JEQ/JGT/JLT (tomados e não tomados) e JSUB/RSUB. */
+    static List<String> desvios() {
+        ProgramasBenchmark p = new ProgramasBenchmark();
+        int inicio = p.pos();
+        p.f3(Opcode.LDA, 1, 0, 5);
+        for (int i = 0; i < 2; i++) {
+            p.f3(Opcode.COMP, 1, 0, 5);
+            p.saltoRelativo(Opcode.JEQ, p.pos() + 3);   // tomado
+            p.saltoRelativo(Opcode.JGT, p.pos() + 6);   // não tomado
+            p.saltoRelativo(Opcode.JLT, p.pos() + 3);   // não tomado
+            p.f3(Opcode.COMP, 1, 0, 9);
+            p.saltoRelativo(Opcode.JLT, p.pos() + 3);   // tomado
+            p.saltoRelativo(Opcode.J, p.pos() + 3);
+        }
+        int jsub = p.pos();
+        p.f3(Opcode.JSUB, 3, 2, 0); // destino ajustado abaixo
+        p.saltoRelativo(Opcode.J, inicio);
+        int sub = p.pos();
+        p.f3(Opcode.RSUB, 3, 0, 0);
+        p.ajustarRelativo(jsub, Opcode.JSUB, sub);
+        return p.comDados();
+    }
+
+    // =========================
+    //  Programas completos (terminam em "J *")
+    // =========================
+
+    /**
+     * Soma as palavras da tabela (ADD indexado, TIX, JLT) e repete a varredura
+     * {@code repeticoes} vezes (no máximo 4095) com um contador externo em T.
+     */
+    static List<String> somaLaco(int repeticoes) {
+        ProgramasBenchmark p = new ProgramasBenchmark();
+        p.f3(Opcode.LDS, 1, 0, repeticoes & 0xFFF);
+        p.f3(Opcode.LDT, 1, 0, 0);
+        int externo = p.pos();
+        p.f3(Opcode.LDX, 1, 0, 0);
+        p.f3(Opcode.LDA, 3, 0, RESULTADO);   // o contador externo usa A
+        int laco = p.pos();
+        p.f3(Opcode.ADD, 3, 8, DADOS);      // ADD DADOS,X
+        p.f3(Opcode.TIX, 3, 0, CONTADOR);
+        p.saltoRelativo(Opcode.JLT, laco);
+        p.f3(Opcode.STA, 3, 0, RESULTADO);
+        p.contadorExterno(externo);
+        p.saltoRelativo(Opcode.J, p.pos());  // J *
+        return p.comContador(TAMANHO_TABELA);
+    }
+
+    /** Copia a tabela byte a byte (LDCH/STCH indexados), {@code repeticoes} vezes (no máximo 4095). */
+    static List<String> copiaBytes(int repeticoes) {
+        ProgramasBenchmark p = new ProgramasBenchmark();
+        p.f3(Opcode.LDS, 1, 0, repeticoes & 0xFFF);
+        p.f3(Opcode.LDT, 1, 0, 0);
+        int externo = p.pos();
+        p.f3(Opcode.LDX, 1, 0, 0);
+        int laco = p.pos();
+        p.f3(Opcode.LDCH, 3, 8, DADOS);          // LDCH DADOS,X
+        p.f3(Opcode.STCH, 3, 8, DADOS + 0x300);  // STCH DADOS+0x300,X
+        p.f3(Opcode.TIX, 3, 0, CONTADOR);
+        p.saltoRelativo(Opcode.JLT, laco);
+        p.contadorExterno(externo);
+        p.saltoRelativo(Opcode.J, p.pos());  // J *
+        return p.comContador(TAMANHO_TABELA * 3);
+    }
+
+    /**
+     * Copia a tabela palavra a palavra (LDA/STA indexados, 4 por volta, X
+     * avançando com ADDR B,X), {@code repeticoes} vezes (no máximo 4095).
+     */
+    static List<String> copiaPalavras(int repeticoes) {
+        ProgramasBenchmark p = new ProgramasBenchmark();
+        p.f3(Opcode.LDS, 1, 0, repeticoes & 0xFFF);
+        p.f3(Opcode.LDT, 1, 0, 0);
+        p.f3(Opcode.LDB, 1, 0, 12);
+        p.f3(Opcode.LDL, 1, 0, TAMANHO_TABELA * 3);
+        int externo = p.pos();
+        p.f3(Opcode.LDX, 1, 0, 0);
+        int laco = p.pos();
+        for (int i = 0; i < 4; i++) {
+            p.f3(Opcode.LDA, 3, 8, DADOS + 3 * i);           // LDA DADOS+3i,X
+            p.f3(Opcode.STA, 3, 8, DADOS + 0x300 + 3 * i);   // STA DADOS+0x300+3i,X
+        }
+        p.f2(Opcode.ADDR, 3, 1);     // X ← X + B
+        p.f2(Opcode.COMPR, 1, 2);    // X : L
+        p.saltoRelativo(Opcode.JLT, laco);
+        p.contadorExterno(externo);
+        p.saltoRelativo(Opcode.J, p.pos());  // J *
+        return p.comDados();
+    }
+
+    static List<String> porNome(String nome) throws IOException {
+        switch (nome) {
+            case "somaLaco":      return somaLaco(1000);
+            case "copiaBytes":    return copiaBytes(1000);
+            case "copiaPalavras": return copiaPalavras(1000);
+            default:           return lerArquivo(Paths.get(nome));
+        }
+    }
+
+    /** Lê um arquivo no formato de programa.txt (procurando também na pasta pai). */
+    static List<String> lerArquivo(Path caminho) throws IOException {
+        if (!Files.exists(caminho) && caminho.getParent() == null) {
+            caminho = Paths.get("..").resolve(caminho);
+        }
+        List<String> programa = new ArrayList<>();
+        for (String linha : Files.readAllLines(caminho)) {
+            linha = linha.trim();
+            if (!linha.isEmpty()) {
+                programa.add(linha);
+            }
+        }
+        return programa;
+    }
+
+    // =========================
+    //  Montagem
+    // =========================
+
+    private int pos() {
+        return bytes.size();
+    }
+
+    private void emitir(int b) {
+        bytes.add(b & 0xFF);
+    }
+
+    /** Formato 3; ni = bits n/i (3 = simples, 1 = imediato), xbpe = bits x/b/p/e. */
+    private void f3(int opcode, int ni, int xbpe, int disp) {
+        emitir(opcode | ni);
+        emitir((xbpe << 4) | ((disp >> 8) & 0x0F));
+        emitir(disp);
+    }
+
+    private void f2(int opcode, int r1, int r2) {
+        emitir(opcode);
+        emitir((r1 << 4) | r2);
+    }
+
+    /** Formato 3 relativo ao PC (p = 1). */
+    private void saltoRelativo(int opcode, int destino) {
+        int proximo = pos() + 3;
+        f3(opcode, 3, 0x2, destino - proximo);
+    }
+
+    private void ajustarRelativo(int endereco, int opcode, int destino) {
+        int disp = destino - (endereco + 3);
+        bytes.set(endereco, opcode | 3);
+        bytes.set(endereco + 1, 0x20 | ((disp >> 8) & 0x0F));
+        bytes.set(endereco + 2, disp & 0xFF);
+    }
+
+    /** T ← T + 1; volta para {@code destino} enquanto T < S. */
+    private void contadorExterno(int destino) {
+        f2(Opcode.RMO, 5, 0);        // A ← T
+        f3(Opcode.ADD, 1, 0, 1);
+        f2(Opcode.RMO, 0, 5);        // T ← A
+        f2(Opcode.COMPR, 5, 4);      // T : S
+        saltoRelativo(Opcode.JLT, destino);
+    }
+
+    private List<String> comContador(int n) {
+        verificarEspaco();
+        while (pos() < CONTADOR) emitir(0);
+        emitir(n >> 16);
+        emitir(n >> 8);
+        emitir(n);
+        return comDados();
+    }
+
+    private void verificarEspaco() {
+        if (pos() > DADOS || (pos() > CONTADOR && pos() < CONTADOR + 3)) {
+            throw new IllegalStateException("Código invade a área de dados");
+        }
+    }
+
+    /** Completa até DADOS e acrescenta uma tabela de palavras. */
+    private List<String> comDados() {
+        verificarEspaco();
+        while (pos() < DADOS) emitir(0);
+        for (int i = 0; i < TAMANHO_TABELA; i++) {
+            int v = i * 7 + 1;
+            emitir(v >> 16);
+            emitir(v >> 8);
+            emitir(v);
+        }
+        while (pos() % 3 != 0) emitir(0);
+
+        List<String> palavras = new ArrayList<>(bytes.size() / 3);
+        for (int i = 0; i < bytes.size(); i += 3) {
+            palavras.add(String.format("%02X%02X%02X", bytes.get(i), bytes.get(i + 1), bytes.get(i + 2)));
+        }
+        return palavras;
+    }
+}
@@ -1,5 +1,7 @@
 package executor;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -14,22 +16,99 @@ public class CPU {
     public static final String REG_PC = "PC";
     public static final String REG_SW = "SW";
 
+    // códigos de registrador do SIC/XE (índices do banco de registradores)
+    public static final int COD_A  = 0;
+    public static final int COD_X  = 1;
+    public static final int COD_L  = 2;
+    public static final int COD_B  = 3;
+    public static final int COD_S  = 4;
+    public static final int COD_T  = 5;
+    public static final int COD_PC = 8;
+    public static final int COD_SW = 9;
+
+    /**
+     * Banco de registradores: valores de 24 bits (sem sinal) indexados pelo
+     * código SIC/XE. O SW não é guardado aqui, ver {@link #getCC()}.
+     */
+    private final int[] regs = new int[10];
+
+    // resultado cru da última comparação; o CC só é resolvido quando alguém lê
+    private int ultimaComparacao;
+
+    // registrador de ponto flutuante, 48 bits (ver PontoFlutuante)
+    private long f;
+
+    // visões usadas pela interface gráfica
+    private final Registrador[] visoes = new Registrador[10];
     private final Map<String, Registrador> registradores = new LinkedHashMap<>();
 
     public CPU() {
-        registradores.put(REG_A,  new Registrador(REG_A, 0));
-        registradores.put(REG_X,  new Registrador(REG_X, 1));
-        registradores.put(REG_L,  new Registrador(REG_L, 2));
-        registradores.put(REG_B,  new Registrador(REG_B, 3));
-        registradores.put(REG_S,  new Registrador(REG_S, 4));
-        registradores.put(REG_T,  new Registrador(REG_T, 5));
-        // códigos especiais para PC e SW
-        registradores.put(REG_PC, new Registrador(REG_PC, -1));
-        registradores.put(REG_SW, new Registrador(REG_SW, -2));
+        criarVisao(REG_A,  COD_A);
+        criarVisao(REG_X,  COD_X);
+        criarVisao(REG_L,  COD_L);
+        criarVisao(REG_B,  COD_B);
+        criarVisao(REG_S,  COD_S);
+        criarVisao(REG_T,  COD_T);
+        criarVisao(REG_PC, COD_PC);
+        criarVisao(REG_SW, COD_SW);
+    }
+
+    private void criarVisao(String nome, int codigo) {
+        Registrador r = new Registrador(nome, codigo, this);
+        visoes[codigo] = r;
+        registradores.put(nome, r);
+    }
+
+    // =========================
+    //  ACESSO DIRETO (caminho rápido)
+    // =========================
+
+    /** Valor de 24 bits sem sinal. */
+    public int ler(int codigo) {
+        return regs[codigo];
+    }
+
+    /** Valor de 24 bits com extensão de sinal para 32 bits. */
+    public int lerComSinal(int codigo) {
+        return (regs[codigo] << 8) >> 8;
+    }
+
+    public void escrever(int codigo, int valor) {
+        regs[codigo] = valor & 0xFFFFFF;
+    }
+
+    /** O próprio banco de registradores, para o código gerado pelo CompiladorBlocos. */
+    int[] banco() {
+        return regs;
     }
 
+    /** Resultado cru da última comparação (o CC ainda não resolvido). */
+    int getComparacao() {
+        return ultimaComparacao;
+    }
+
+    /** Registrador F: 48 bits (sinal, expoente de 11 bits, fração de 36 bits). */
+    public long lerF() {
+        return f;
+    }
+
+    public void escreverF(long valor) {
+        f = valor & MASCARA_F;
+    }
+
+    public static final long MASCARA_F = (1L << 48) - 1;
+
+    /** Códigos aceitos como operando nas instruções de formato 2 (A, X, L, B, S, T). */
+    public static boolean codigoGeral(int codigo) {
+        return codigo >= COD_A && codigo <= COD_T;
+    }
+
+    // =========================
+    //  VISÕES (interface gráfica)
+    // =========================
+
     public Map<String, Registrador> getMapaRegistradores() {
-        return registradores;
+        return Collections.unmodifiableMap(registradores);
     }
 
     public Registrador getRegistrador(String nome) {
@@ -41,53 +120,57 @@ public class CPU {
     }
 
     // atalhos úteis
-    public Registrador A()  { return getRegistrador(REG_A); }
-    public Registrador X()  { return getRegistrador(REG_X); }
-    public Registrador L()  { return getRegistrador(REG_L); }
-    public Registrador B()  { return getRegistrador(REG_B); }
-    public Registrador S()  { return getRegistrador(REG_S); }
-    public Registrador T()  { return getRegistrador(REG_T); }
-    public Registrador PC() { return getRegistrador(REG_PC); }
-    public Registrador SW() { return getRegistrador(REG_SW); }
+    public Registrador A()  { return visoes[COD_A]; }
+    public Registrador X()  { return visoes[COD_X]; }
+    public Registrador L()  { return visoes[COD_L]; }
+    public Registrador B()  { return visoes[COD_B]; }
+    public Registrador S()  { return visoes[COD_S]; }
+    public Registrador T()  { return visoes[COD_T]; }
+    public Registrador PC() { return visoes[COD_PC]; }
+    public Registrador SW() { return visoes[COD_SW]; }
 
     // =========================
     //  CÓDIGO DE CONDIÇÃO (CC)
     // =========================
 
     /**
-     * Define o CC (-1, 0, 1) com base no resultado de uma comparação.
+     * Guarda o resultado de uma comparação. O CC (-1, 0, 1) é derivado
+     * apenas quando lido:
      * valor < 0 → CC = -1  (menor)
      * valor = 0 → CC = 0   (igual)
      * valor > 0 → CC = 1   (maior)
      */
     public void setCCFromCompare(int resultado) {
-        int cc;
-        if (resultado < 0)      cc = -1;
-        else if (resultado > 0) cc = 1;
-        else                    cc = 0;
-        SW().setValor(cc);
+        ultimaComparacao = resultado;
     }
 
     public int getCC() {
-        return SW().getValor();
+        return Integer.signum(ultimaComparacao);
+    }
+
+    // CC nos bits 6 e 7 do SW (contando do mais significativo): 00 menor, 01 igual, 10 maior
+    private static final int DESLOCAMENTO_CC_SW = 16;
+    private static final int MASCARA_CC_SW = 3 << DESLOCAMENTO_CC_SW;
+
+    /** SW completo: os bits guardados no banco com o CC atual nos bits 6 e 7 (STSW). */
+    public int lerSW() {
+        return (regs[COD_SW] & ~MASCARA_CC_SW) | ((getCC() + 1) << DESLOCAMENTO_CC_SW);
+    }
+
+    /** Carrega o SW inteiro, inclusive o CC (LPS). */
+    public void escreverSW(int valor) {
+        regs[COD_SW] = valor & ~MASCARA_CC_SW & 0xFFFFFF;
+        setCCFromCompare(Math.min((valor & MASCARA_CC_SW) >>> DESLOCAMENTO_CC_SW, 2) - 1);
     }
 
     public void limparTodos() {
-        for (Registrador r : registradores.values()) {
-            r.limpar();
-        }
+        Arrays.fill(regs, 0);
+        ultimaComparacao = 0;
+        f = 0;
     }
 
     public Registrador getRegistradorPorCodigo(int codigo) {
-        switch (codigo) {
-            case 0: return A();
-            case 1: return X();
-            case 2: return L();
-            case 3: return B();
-            case 4: return S();
-            case 5: return T();
-            default: return null;
-        }
+        return codigoGeral(codigo) ? visoes[codigo] : null;
     }
 
 
@@ -0,0 +1,175 @@
+package executor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Carregador do formato de programa.txt: uma palavra de 24 bits por linha,
+ * em 6 dígitos hexadecimais. Espaços nas pontas e linhas em branco são
+ * ignorados.
+ *
+ * Lê os bytes do arquivo (mapeado em memória) em blocos, decodifica os
+ * dígitos por tabela e junta as palavras num buffer que vai para a
+ * {@link Memoria} com {@link Memoria#escreverBytes} — nenhuma String ou
+ * objeto por palavra. Uma linha inválida só interrompe o laço; a exceção
+ * ({@link ErroCarregamento}, com linha e coluna) é lançada depois dele.
+ *
+ * As palavras já lidas antes da linha inválida ficam na memória.
+ */
+public final class CarregadorHex {
+
+    private static final int TAMANHO_BLOCO_LEITURA = 64 * 1024; // também o maior tamanho de linha aceito
+    private static final int PALAVRAS_POR_ESCRITA = 4096;
+
+    private final Memoria memoria;
+    private int endereco;      // onde vai a próxima palavra
+    private long palavras;
+
+    private final byte[] dados = new byte[TAMANHO_BLOCO_LEITURA];
+    private int preenchidos;
+    private long linha;
+
+    private final byte[] saida = new byte[PALAVRAS_POR_ESCRITA * 3];
+    private int pendentes;     // bytes em saida ainda não escritos
+    private int enderecoPendentes;
+
+    // primeiro erro encontrado (linha 0 = nenhum)
+    private long linhaErro;
+    private int colunaErro;
+    private String mensagemErro;
+
+    private CarregadorHex(Memoria memoria, int enderecoInicial) {
+        this.memoria = memoria;
+        this.endereco = enderecoInicial;
+        this.enderecoPendentes = enderecoInicial;
+    }
+
+    /** Carrega o arquivo a partir de enderecoInicialByte e põe o PC lá; devolve quantas palavras foram lidas. */
+    public static long carregar(Maquina maquina, Path arquivo, int enderecoInicialByte) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            return carregar(maquina, canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()), enderecoInicialByte,
+                    arquivo.toString());
+        }
+    }
+
+    /** Como {@link #carregar(Maquina, Path, int)}, lendo entre position e limit do buffer (que é consumido). */
+    public static long carregar(Maquina maquina, ByteBuffer conteudo, int enderecoInicialByte) {
+        return carregar(maquina, conteudo, enderecoInicialByte, "buffer");
+    }
+
+    private static long carregar(Maquina maquina, ByteBuffer conteudo, int enderecoInicialByte, String origem) {
+        EventosJfr.Carregamento evento = new EventosJfr.Carregamento();
+        evento.begin();
+        CarregadorHex c = new CarregadorHex(maquina.getMemoria(), enderecoInicialByte);
+        while (conteudo.hasRemaining() && c.linhaErro == 0) {
+            int n = Math.min(conteudo.remaining(), c.dados.length - c.preenchidos);
+            conteudo.get(c.dados, c.preenchidos, n);
+            c.preenchidos += n;
+            c.consumir(!conteudo.hasRemaining());
+        }
+        c.descarregar();
+        if (c.linhaErro != 0) {
+            throw new ErroCarregamento(c.linhaErro, c.colunaErro, c.mensagemErro);
+        }
+        maquina.getCpu().escrever(CPU.COD_PC, enderecoInicialByte);
+        if (evento.shouldCommit()) {
+            evento.formato = "hex";
+            evento.origem = origem;
+            evento.palavras = c.palavras;
+            evento.bytes = c.palavras * 3;
+            evento.commit();
+        }
+        return c.palavras;
+    }
+
+    /** Processa as linhas completas do bloco e guarda a incompleta para o próximo. */
+    private void consumir(boolean ultimoBloco) {
+        int inicio = 0;
+        for (int i = 0; i < preenchidos; i++) {
+            if (dados[i] == '\n') {
+                if (!processarLinha(inicio, i)) {
+                    return;
+                }
+                inicio = i + 1;
+            }
+        }
+        if (ultimoBloco && inicio < preenchidos) {
+            if (!processarLinha(inicio, preenchidos)) {
+                return;
+            }
+            inicio = preenchidos;
+        }
+        System.arraycopy(dados, inicio, dados, 0, preenchidos - inicio);
+        preenchidos -= inicio;
+        if (preenchidos == dados.length) {
+            registrarErro(linha + 1, 1, "linha longa demais");
+        }
+    }
+
+    /** Decodifica uma linha; devolve false (e registra o erro) se ela for inválida. */
+    private boolean processarLinha(int inicio, int fim) {
+        linha++;
+        int comecoLinha = inicio;
+        while (inicio < fim && branco(dados[inicio])) inicio++;
+        while (fim > inicio && branco(dados[fim - 1])) fim--;
+        if (inicio == fim) {
+            return true;
+        }
+        if (fim - inicio != 6) {
+            return registrarErro(linha, inicio - comecoLinha + 1,
+                    "esperados 6 dígitos hexadecimais, encontrados " + (fim - inicio) + " caracteres");
+        }
+
+        int valor = 0;
+        int invalido = 0;
+        for (int k = inicio; k < fim; k++) {
+            int n = Hex.nibble(dados[k]);
+            invalido |= n; // -1 liga o bit de sinal
+            valor = (valor << 4) | (n & 0xF);
+        }
+        if (invalido < 0) {
+            int k = inicio;
+            while (Hex.nibble(dados[k]) >= 0) k++;
+            return registrarErro(linha, k - comecoLinha + 1,
+                    "dígito hexadecimal inválido '" + (char) (dados[k] & 0xFF) + "'");
+        }
+
+        if (endereco < 0 || endereco + 3 > memoria.getTamanhoEmBytes()) {
+            return registrarErro(linha, inicio - comecoLinha + 1,
+                    String.format("palavra fora da memória (endereço %06X)", endereco));
+        }
+        if (pendentes == saida.length) {
+            descarregar();
+        }
+        saida[pendentes]     = (byte) (valor >> 16);
+        saida[pendentes + 1] = (byte) (valor >> 8);
+        saida[pendentes + 2] = (byte) valor;
+        pendentes += 3;
+        endereco += 3;
+        palavras++;
+        return true;
+    }
+
+    private void descarregar() {
+        if (pendentes == 0) {
+            return;
+        }
+        memoria.escreverBytes(enderecoPendentes, saida, 0, pendentes);
+        enderecoPendentes += pendentes;
+        pendentes = 0;
+    }
+
+    private boolean registrarErro(long linhaErro, int coluna, String mensagem) {
+        this.linhaErro = linhaErro;
+        this.colunaErro = coluna;
+        this.mensagemErro = mensagem;
+        return false;
+    }
+
+    private static boolean branco(byte c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+}
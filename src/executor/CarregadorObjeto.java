@@ -0,0 +1,399 @@
+package executor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Carregador de programas objeto SIC/XE (registros H, T, M e E), com
+ * relocação para um endereço base qualquer.
+ *
+ * Aceita o formato de colunas fixas do livro-texto
+ * ({@code HCOPY  00100000107A}) e também campos separados por '^'
+ * ({@code H^COPY^001000^00107A}). Registros D e R e linhas em branco são
+ * ignorados.
+ *
+ * O arquivo é lido direto dos bytes (mapeado em memória ou em blocos de um
+ * canal), sem montar uma String por linha: cada registro T é decodificado
+ * num buffer reaproveitado e copiado para a {@link Memoria} de uma vez.
+ * Registros M somam (ou subtraem) o deslocamento da carga ao campo indicado,
+ * desde que o símbolo, se houver, seja o nome do próprio programa.
+ *
+ * Com {@link #ENDERECO_DO_CABECALHO} como endereço base o programa vai para o
+ * endereço inicial do próprio registro H, sem relocação.
+ *
+ * Ao final o PC aponta para o endereço do registro E (ou para o início do
+ * programa, se o E não trouxer endereço).
+ */
+public final class CarregadorObjeto {
+
+    /** Informações do registro H, já relocadas, e o ponto de entrada. */
+    public static final class Resultado {
+        private final String nome;
+        private final int enderecoCarga;
+        private final int tamanho;
+        private final int enderecoExecucao;
+
+        Resultado(String nome, int enderecoCarga, int tamanho, int enderecoExecucao) {
+            this.nome = nome;
+            this.enderecoCarga = enderecoCarga;
+            this.tamanho = tamanho;
+            this.enderecoExecucao = enderecoExecucao;
+        }
+
+        public String getNome() {
+            return nome;
+        }
+
+        public int getEnderecoCarga() {
+            return enderecoCarga;
+        }
+
+        public int getTamanho() {
+            return tamanho;
+        }
+
+        public int getEnderecoExecucao() {
+            return enderecoExecucao;
+        }
+    }
+
+    /** Endereço base que carrega o programa onde o registro H diz. */
+    public static final int ENDERECO_DO_CABECALHO = -1;
+
+    private static final int TAMANHO_BLOCO_LEITURA = 64 * 1024; // também o maior tamanho de linha aceito
+    private static final byte SEPARADOR = '^';
+
+    private final Maquina maquina;
+    private final Memoria memoria;
+    private int base; // ENDERECO_DO_CABECALHO até ler o registro H
+    private final String origem;
+    private final EventosJfr.Carregamento evento = new EventosJfr.Carregamento();
+
+    // estado do arquivo
+    private long linha;
+    private boolean temCabecalho;
+    private boolean terminou;
+    private byte[] nome = new byte[0];
+    private int inicioDeclarado;
+    private int tamanhoDeclarado;
+    private int enderecoExecucao;
+    private long bytesCarregados;
+
+    // bloco de leitura: [0, preenchidos) são bytes do arquivo ainda não processados
+    private final byte[] dados = new byte[TAMANHO_BLOCO_LEITURA];
+    private int preenchidos;
+
+    // linha atual: [inicioLinha, fimLinha) de dados, cursor em pos
+    private int inicioLinha;
+    private int fimLinha;
+    private int pos;
+
+    private final byte[] texto = new byte[256]; // um registro T tem no máximo 255 bytes
+
+    private CarregadorObjeto(Maquina maquina, int base, String origem) {
+        this.maquina = maquina;
+        this.memoria = maquina.getMemoria();
+        this.base = base;
+        this.origem = origem;
+        evento.begin();
+    }
+
+    // =========================
+    //  Entradas
+    // =========================
+
+    /** Carrega um arquivo objeto mapeando-o em memória. */
+    public static Resultado carregar(Maquina maquina, Path arquivo, int enderecoBase) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer conteudo = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            return carregar(maquina, conteudo, enderecoBase, arquivo.toString());
+        }
+    }
+
+    /** Carrega o programa objeto entre position e limit do buffer, consumindo-o. */
+    public static Resultado carregar(Maquina maquina, ByteBuffer conteudo, int enderecoBase) {
+        return carregar(maquina, conteudo, enderecoBase, "buffer");
+    }
+
+    private static Resultado carregar(Maquina maquina, ByteBuffer conteudo, int enderecoBase, String origem) {
+        CarregadorObjeto c = new CarregadorObjeto(maquina, enderecoBase, origem);
+        while (conteudo.hasRemaining()) {
+            int n = Math.min(conteudo.remaining(), c.dados.length - c.preenchidos);
+            conteudo.get(c.dados, c.preenchidos, n);
+            c.preenchidos += n;
+            c.consumir(!conteudo.hasRemaining());
+        }
+        return c.concluir();
+    }
+
+    /** Carrega lendo o canal em blocos; só a linha incompleta do fim de cada bloco é guardada. */
+    public static Resultado carregar(Maquina maquina, ReadableByteChannel canal, int enderecoBase) throws IOException {
+        CarregadorObjeto c = new CarregadorObjeto(maquina, enderecoBase, "canal");
+        ByteBuffer janela = ByteBuffer.wrap(c.dados);
+        while (true) {
+            janela.limit(c.dados.length).position(c.preenchidos);
+            if (canal.read(janela) < 0) {
+                c.consumir(true);
+                break;
+            }
+            c.preenchidos = janela.position();
+            c.consumir(false);
+        }
+        return c.concluir();
+    }
+
+    /**
+     * Processa as linhas completas do bloco e move a linha incompleta do fim
+     * para o começo. Se {@code ultimoBloco}, o resto conta como a última linha.
+     */
+    private void consumir(boolean ultimoBloco) {
+        int inicio = 0;
+        for (int i = 0; i < preenchidos; i++) {
+            if (dados[i] == '\n') {
+                processarLinha(inicio, i);
+                inicio = i + 1;
+            }
+        }
+        if (ultimoBloco && inicio < preenchidos) {
+            processarLinha(inicio, preenchidos);
+            inicio = preenchidos;
+        }
+        System.arraycopy(dados, inicio, dados, 0, preenchidos - inicio);
+        preenchidos -= inicio;
+        if (preenchidos == dados.length) {
+            throw new ErroCarregamento(linha + 1, 1, "linha longa demais");
+        }
+    }
+
+    private Resultado concluir() {
+        if (!temCabecalho) {
+            throw new ErroCarregamento(Math.max(linha, 1), 1, "programa objeto sem registro H");
+        }
+        if (!terminou) {
+            enderecoExecucao = base;
+        }
+        maquina.getCpu().escrever(CPU.COD_PC, enderecoExecucao);
+        if (evento.shouldCommit()) {
+            evento.formato = "objeto";
+            evento.origem = origem;
+            evento.palavras = (bytesCarregados + 2) / 3;
+            evento.bytes = bytesCarregados;
+            evento.commit();
+        }
+        return new Resultado(new String(nome, StandardCharsets.US_ASCII), base, tamanhoDeclarado, enderecoExecucao);
+    }
+
+    // =========================
+    //  Registros
+    // =========================
+
+    private void processarLinha(int inicio, int fim) {
+        linha++;
+        if (fim > inicio && dados[fim - 1] == '\r') {
+            fim--;
+        }
+        inicioLinha = inicio;
+        fimLinha = fim;
+        pos = inicio;
+        pularEspacos();
+        if (pos == fimLinha) {
+            return;
+        }
+
+        byte tipo = dados[pos++];
+        if (terminou && tipo != 'D' && tipo != 'R') {
+            pos--;
+            throw erro("registro depois do registro E");
+        }
+        switch (tipo) {
+            case 'H': registroH(); break;
+            case 'T': exigirCabecalho(); registroT(); break;
+            case 'M': exigirCabecalho(); registroM(); break;
+            case 'E': exigirCabecalho(); registroE(); break;
+            case 'D': case 'R': break;
+            default:
+                pos--;
+                throw erro("tipo de registro desconhecido");
+        }
+    }
+
+    private void registroH() {
+        if (temCabecalho) {
+            throw erro("registro H repetido");
+        }
+        temCabecalho = true;
+
+        // nome: até o separador ou 6 colunas fixas
+        int inicioNome;
+        int fimNome;
+        if (pos < fimLinha && dados[pos] == SEPARADOR) {
+            inicioNome = ++pos;
+            while (pos < fimLinha && dados[pos] != SEPARADOR) pos++;
+            fimNome = pos;
+        } else {
+            inicioNome = pos;
+            pos = Math.min(fimLinha, pos + 6);
+            fimNome = pos;
+        }
+        while (fimNome > inicioNome && dados[fimNome - 1] == ' ') fimNome--;
+        nome = new byte[fimNome - inicioNome];
+        for (int k = 0; k < nome.length; k++) {
+            nome[k] = dados[inicioNome + k];
+        }
+
+        inicioDeclarado = campoHex(6, "endereço inicial");
+        tamanhoDeclarado = campoHex(6, "tamanho do programa");
+        exigirFimDaLinha();
+        if (base == ENDERECO_DO_CABECALHO) {
+            base = inicioDeclarado;
+        }
+        if ((long) base + tamanhoDeclarado > memoria.getTamanhoEmBytes()) {
+            throw erro("programa de " + tamanhoDeclarado + " bytes não cabe a partir de " + base);
+        }
+    }
+
+    private void registroT() {
+        int endereco = relocar(campoHex(6, "endereço do registro T"));
+        int quantidade = campoHex(2, "tamanho do registro T");
+        for (int k = 0; k < quantidade; k++) {
+            pularSeparadores();
+            int alto = digito();
+            int baixo = digito();
+            texto[k] = (byte) ((alto << 4) | baixo);
+        }
+        exigirFimDaLinha();
+        try {
+            memoria.escreverBytes(endereco, texto, 0, quantidade);
+            bytesCarregados += quantidade;
+        } catch (IndexOutOfBoundsException e) {
+            throw erro("registro T fora da memória: " + e.getMessage());
+        }
+    }
+
+    private void registroM() {
+        int endereco = relocar(campoHex(6, "endereço do registro M"));
+        int meiosBytes = campoHex(2, "tamanho do campo do registro M");
+        if (meiosBytes < 1 || meiosBytes > 6) {
+            throw erro("campo de " + meiosBytes + " meios-bytes não suportado");
+        }
+
+        int sinal = 1;
+        pularSeparadores();
+        if (pos < fimLinha && (dados[pos] == '+' || dados[pos] == '-')) {
+            sinal = dados[pos] == '-' ? -1 : 1;
+            pos++;
+            int inicioSimbolo = pos;
+            int fimSimbolo = fimLinha;
+            while (fimSimbolo > inicioSimbolo && dados[fimSimbolo - 1] == ' ') fimSimbolo--;
+            if (!mesmoNome(inicioSimbolo, fimSimbolo)) {
+                throw erro("símbolo externo não suportado (só o nome do próprio programa)");
+            }
+            pos = fimLinha;
+        }
+        exigirFimDaLinha();
+
+        int bytes = (meiosBytes + 1) / 2;
+        int mascara = (1 << (4 * meiosBytes)) - 1;
+        int deslocamento = base - inicioDeclarado;
+        try {
+            int valor = 0;
+            for (int k = 0; k < bytes; k++) {
+                valor = (valor << 8) | memoria.lerByte(endereco + k);
+            }
+            int campo = (valor + sinal * deslocamento) & mascara;
+            valor = (valor & ~mascara) | campo;
+            for (int k = bytes - 1; k >= 0; k--) {
+                memoria.escreverByte(endereco + k, valor & 0xFF);
+                valor >>>= 8;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw erro("registro M fora da memória: " + e.getMessage());
+        }
+    }
+
+    private void registroE() {
+        pularSeparadores();
+        enderecoExecucao = (pos < fimLinha) ? relocar(campoHex(6, "endereço de execução")) : base;
+        exigirFimDaLinha();
+        terminou = true;
+    }
+
+    // =========================
+    //  Campos
+    // =========================
+
+    private int relocar(int endereco) {
+        return (endereco - inicioDeclarado + base) & 0xFFFFFF;
+    }
+
+    private void exigirCabecalho() {
+        if (!temCabecalho) {
+            pos--;
+            throw erro("registro antes do registro H");
+        }
+    }
+
+    private int campoHex(int digitos, String descricao) {
+        pularSeparadores();
+        int valor = 0;
+        for (int k = 0; k < digitos; k++) {
+            if (pos >= fimLinha) {
+                throw erro("linha termina no meio do campo " + descricao);
+            }
+            valor = (valor << 4) | digito();
+        }
+        return valor;
+    }
+
+    private int digito() {
+        if (pos >= fimLinha) {
+            throw erro("faltam dígitos hexadecimais");
+        }
+        int v = Hex.nibble(dados[pos]);
+        if (v < 0) {
+            throw erro("dígito hexadecimal inválido '" + (char) (dados[pos] & 0xFF) + "'");
+        }
+        pos++;
+        return v;
+    }
+
+    private void pularSeparadores() {
+        while (pos < fimLinha && (dados[pos] == SEPARADOR || dados[pos] == ' ' || dados[pos] == '\t')) {
+            pos++;
+        }
+    }
+
+    private void pularEspacos() {
+        while (pos < fimLinha && (dados[pos] == ' ' || dados[pos] == '\t')) {
+            pos++;
+        }
+    }
+
+    private void exigirFimDaLinha() {
+        pularSeparadores();
+        if (pos < fimLinha) {
+            throw erro("conteúdo a mais no fim do registro");
+        }
+    }
+
+    private boolean mesmoNome(int inicio, int fim) {
+        if (fim - inicio != nome.length) {
+            return false;
+        }
+        for (int k = 0; k < nome.length; k++) {
+            if (dados[inicio + k] != nome[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ErroCarregamento erro(String mensagem) {
+        return new ErroCarregamento(linha, pos - inicioLinha + 1, mensagem);
+    }
+}
@@ -0,0 +1,18 @@
+package executor;
+
+/**
+ * Bloco básico compilado para bytecode da JVM pelo {@link CompiladorBlocos}.
+ * As implementações são classes ocultas geradas em tempo de execução.
+ */
+interface CodigoCompilado {
+
+    /**
+     * Executa o bloco a partir do seu início, repetindo-o enquanto ele saltar
+     * para si mesmo e houver passos em maxInstrucoes. Ao sair, os
+     * registradores, o CC e o PC já estão gravados na CPU, inclusive quando
+     * uma instrução lança exceção (o PC fica nela, como no interpretador).
+     *
+     * @return quantas instruções SIC/XE foram executadas
+     */
+    int executar(CPU cpu, Memoria memoria, MotorBlocos motor, int maxInstrucoes);
+}
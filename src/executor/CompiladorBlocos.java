@@ -0,0 +1,604 @@
+package executor;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static executor.EscritorClasse.*;
+
+/**
+ * Compila um bloco básico quente para bytecode da JVM (classe oculta via
+ * {@link MethodHandles.Lookup#defineHiddenClass}), usado pelo motor
+ * {@link MotorExecucao#COMPILADO}.
+ *
+ * A, X, L, B, S, T e o resultado da última comparação ficam em variáveis
+ * locais durante todo o bloco e só voltam para a CPU na saída. Um bloco que
+ * termina saltando para o próprio início vira um laço dentro do método
+ * gerado, limitado pelo número de passos recebido.
+ *
+ * Saídas antecipadas:
+ * - escrita sobre código traduzido: sai logo após a instrução que escreveu,
+ *   com o PC na instrução seguinte;
+ * - exceção: um tratador grava os registradores com o PC na instrução que
+ *   falhou, avisa o motor de quantas instruções já tinham rodado em voltas
+ *   completas e relança a exceção (o motor então volta a interpretar o bloco).
+ */
+final class CompiladorBlocos {
+
+    private static final String CPU_ = "executor/CPU";
+    private static final String MEMORIA = "executor/Memoria";
+    private static final String MOTOR = "executor/MotorBlocos";
+    private static final String COMPILADOR = "executor/CompiladorBlocos";
+
+    // variáveis locais do método gerado
+    private static final int L_CPU = 1;
+    private static final int L_MEMORIA = 2;
+    private static final int L_MOTOR = 3;
+    private static final int L_MAX = 4;
+    private static final int L_BANCO = 5;
+    private static final int L_REG0 = 6;     // A..T em 6..11, pelo código do registrador
+    private static final int L_CC = 12;      // resultado cru da última comparação
+    private static final int L_CONTADOR = 13;
+    private static final int L_PC = 14;      // PC de saída ou da instrução que pode falhar
+    private static final int L_TEMP = 15;
+    private static final int L_EXCECAO = 16;
+    private static final int MAX_LOCAIS = 17;
+    private static final int MAX_PILHA = 8;
+
+    private static final int MASCARA = 0xFFFFFF;
+
+    private final Instrucao[] instrucoes;
+    private final int[] pcs;
+    private final boolean terminaEmDesvio;
+    private final int pcSeguinte;
+    private final int n;
+
+    private final EscritorClasse classe = new EscritorClasse("executor/BlocoCompilado", "executor/CodigoCompilado");
+    private final EscritorClasse.Codigo c = classe.new Codigo();
+    private final EscritorClasse.Rotulo inicio = new EscritorClasse.Rotulo();
+    private final EscritorClasse.Rotulo saida = new EscritorClasse.Rotulo();
+
+    private CompiladorBlocos(Instrucao[] instrucoes, int[] pcs, boolean terminaEmDesvio, int pcSeguinte) {
+        this.instrucoes = instrucoes;
+        this.pcs = pcs;
+        this.terminaEmDesvio = terminaEmDesvio;
+        this.pcSeguinte = pcSeguinte;
+        this.n = instrucoes.length;
+    }
+
+    /**
+     * Classes já geradas, pelo conteúdo do bloco. Recarregar o mesmo programa
+     * (ou rodá-lo em outra Maquina) reaproveita o código que a JVM já
+     * otimizou, em vez de recomeçar de uma classe fria. O código gerado não
+     * guarda estado, então pode ser compartilhado entre máquinas.
+     */
+    private static final int MAX_CLASSES_EM_CACHE = 4096;
+    private static final Map<Chave, CodigoCompilado> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Compila o bloco; devolve null se ele não vale a pena ("J *") ou se a
+     * JVM recusar a classe gerada.
+     */
+    static CodigoCompilado compilar(Instrucao[] instrucoes, int[] pcs, boolean terminaEmDesvio, int pcSeguinte) {
+        if (instrucoes.length == 1 && instrucoes[0].opcode == Opcode.J) {
+            return null; // "J *" é tratado pela detecção de parada
+        }
+        Chave chave = new Chave(instrucoes, pcs[0], terminaEmDesvio, pcSeguinte);
+        CodigoCompilado existente = cache.get(chave);
+        if (existente != null) {
+            return existente;
+        }
+        try {
+            byte[] bytes = new CompiladorBlocos(instrucoes, pcs, terminaEmDesvio, pcSeguinte).gerar();
+            MethodHandles.Lookup definida = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            CodigoCompilado codigo = (CodigoCompilado) definida
+                    .findConstructor(definida.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+            if (cache.size() >= MAX_CLASSES_EM_CACHE) {
+                cache.clear();
+            }
+            cache.put(chave, codigo);
+            return codigo;
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    /** Identifica um bloco pelas instruções empacotadas e pelos endereços de entrada e saída. */
+    private static final class Chave {
+        private final long[] conteudo;
+        private final int hash;
+
+        Chave(Instrucao[] instrucoes, int pcInicial, boolean terminaEmDesvio, int pcSeguinte) {
+            conteudo = new long[instrucoes.length + 1];
+            for (int k = 0; k < instrucoes.length; k++) {
+                conteudo[k] = instrucoes[k].empacotar();
+            }
+            conteudo[instrucoes.length] = ((long) pcInicial << 32) | ((long) pcSeguinte << 1) | (terminaEmDesvio ? 1 : 0);
+            hash = Arrays.hashCode(conteudo);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Chave && Arrays.equals(conteudo, ((Chave) o).conteudo);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // chamados pelo código gerado, com as mesmas mensagens do interpretador
+    static int dividirDIV(int dividendo, int divisor) {
+        if (divisor == 0) {
+            throw new ArithmeticException("Divisão por zero em DIV");
+        }
+        return dividendo / divisor;
+    }
+
+    static int dividirDIVR(int dividendo, int divisor) {
+        if (divisor == 0) {
+            throw new ArithmeticException("Divisão por zero em DIVR");
+        }
+        return dividendo / divisor;
+    }
+
+    // =========================
+    //  Geração
+    // =========================
+
+    private byte[] gerar() {
+        // prólogo: banco de registradores para as locais
+        c.aload(L_CPU);
+        c.invocar(INVOKEVIRTUAL, CPU_, "banco", "()[I");
+        c.astore(L_BANCO);
+        for (int r = CPU.COD_A; r <= CPU.COD_T; r++) {
+            c.aload(L_BANCO);
+            c.constante(r);
+            c.op(IALOAD);
+            c.istore(L_REG0 + r);
+        }
+        c.aload(L_CPU);
+        c.invocar(INVOKEVIRTUAL, CPU_, "getComparacao", "()I");
+        c.istore(L_CC);
+        c.constante(0);
+        c.istore(L_CONTADOR);
+        c.constante(pcs[0]);
+        c.istore(L_PC);
+
+        c.marcar(inicio);
+        for (int k = 0; k < n; k++) {
+            gerarInstrucao(k);
+        }
+        if (!terminaEmDesvio) {
+            sair(pcSeguinte, n);
+        }
+        EscritorClasse.Rotulo fimCorpo = new EscritorClasse.Rotulo();
+        c.marcar(fimCorpo);
+
+        // saída normal: PC em L_PC
+        c.marcar(saida);
+        gravarEstado();
+        c.iload(L_CONTADOR);
+        c.op(IRETURN);
+
+        // exceção: PC da instrução que falhou já está em L_PC
+        EscritorClasse.Rotulo tratador = new EscritorClasse.Rotulo();
+        c.marcar(tratador);
+        c.astore(L_EXCECAO);
+        gravarEstado();
+        c.aload(L_MOTOR);
+        c.iload(L_CONTADOR);
+        c.invocar(INVOKEVIRTUAL, MOTOR, "falhouCompilado", "(I)V");
+        c.aload(L_EXCECAO);
+        c.op(ATHROW);
+
+        c.protegerTudo(inicio, fimCorpo, tratador);
+
+        return classe.gerar("executar", "(Lexecutor/CPU;Lexecutor/Memoria;Lexecutor/MotorBlocos;I)I",
+                c, MAX_PILHA, MAX_LOCAIS);
+    }
+
+    private void gravarEstado() {
+        for (int r = CPU.COD_A; r <= CPU.COD_T; r++) {
+            c.aload(L_BANCO);
+            c.constante(r);
+            c.iload(L_REG0 + r);
+            c.op(IASTORE);
+        }
+        c.aload(L_BANCO);
+        c.constante(CPU.COD_PC);
+        c.iload(L_PC);
+        c.op(IASTORE);
+        c.aload(L_CPU);
+        c.iload(L_CC);
+        c.invocar(INVOKEVIRTUAL, CPU_, "setCCFromCompare", "(I)V");
+    }
+
+    private void gerarInstrucao(int k) {
+        Instrucao inst = instrucoes[k];
+        int pc = pcs[k];
+        int proximoPC = (pc + inst.tamanhoBytes) & MASCARA;
+
+        if (inst.formato == 2) {
+            gerarFormato2(inst, pc);
+            return;
+        }
+
+        MotorBlocos.Endereco e = new MotorBlocos.Endereco(inst, proximoPC);
+        switch (inst.opcode) {
+            case Opcode.LDA: case Opcode.LDX: case Opcode.LDL:
+            case Opcode.LDB: case Opcode.LDS: case Opcode.LDT:
+                marcarPossivelFalha(pc);
+                operando(e);
+                c.istore(L_REG0 + registradorDeCarga(inst.opcode));
+                break;
+
+            case Opcode.STA: case Opcode.STX: case Opcode.STL:
+            case Opcode.STB: case Opcode.STS: case Opcode.STT:
+                marcarPossivelFalha(pc);
+                c.aload(L_MEMORIA);
+                alvo(e);
+                c.iload(L_REG0 + registradorDeArmazenamento(inst.opcode));
+                c.invocar(INVOKEVIRTUAL, MEMORIA, "escreverPalavraPorByte", "(II)V");
+                verificarInvalidacao(proximoPC, k);
+                break;
+
+            case Opcode.ADD:
+            case Opcode.SUB:
+            case Opcode.MUL:
+                marcarPossivelFalha(pc);
+                comSinal(CPU.COD_A);
+                operando(e);
+                c.op(inst.opcode == Opcode.ADD ? IADD : inst.opcode == Opcode.SUB ? ISUB : IMUL);
+                mascararEGuardar(CPU.COD_A);
+                break;
+
+            case Opcode.DIV:
+                marcarPossivelFalha(pc);
+                comSinal(CPU.COD_A);
+                operando(e);
+                c.invocar(INVOKESTATIC, COMPILADOR, "dividirDIV", "(II)I");
+                mascararEGuardar(CPU.COD_A);
+                break;
+
+            case Opcode.AND:
+                marcarPossivelFalha(pc);
+                c.iload(L_REG0 + CPU.COD_A);
+                operando(e);
+                c.constante(MASCARA);
+                c.op(IAND);
+                c.op(IAND);
+                c.istore(L_REG0 + CPU.COD_A);
+                break;
+
+            case Opcode.OR:
+                marcarPossivelFalha(pc);
+                c.iload(L_REG0 + CPU.COD_A);
+                operando(e);
+                c.constante(MASCARA);
+                c.op(IAND);
+                c.op(IOR);
+                c.istore(L_REG0 + CPU.COD_A);
+                break;
+
+            case Opcode.COMP:
+                marcarPossivelFalha(pc);
+                comSinal(CPU.COD_A);
+                operando(e);
+                c.op(ISUB);
+                c.istore(L_CC);
+                break;
+
+            case Opcode.TIX:
+                // lê m antes de incrementar X (o endereço pode ser indexado)
+                marcarPossivelFalha(pc);
+                c.aload(L_MEMORIA);
+                enderecoEfetivo(e);
+                c.invocar(INVOKEVIRTUAL, MEMORIA, "lerPalavraPorByte", "(I)I");
+                c.istore(L_TEMP);
+                incrementarX();
+                comSinal(CPU.COD_X);
+                c.iload(L_TEMP);
+                c.op(ISUB);
+                c.istore(L_CC);
+                break;
+
+            case Opcode.LDCH:
+                marcarPossivelFalha(pc);
+                c.iload(L_REG0 + CPU.COD_A);
+                c.constante(0xFFFF00);
+                c.op(IAND);
+                c.aload(L_MEMORIA);
+                enderecoEfetivo(e);
+                c.invocar(INVOKEVIRTUAL, MEMORIA, "lerByte", "(I)I");
+                c.constante(0xFF);
+                c.op(IAND);
+                c.op(IOR);
+                c.istore(L_REG0 + CPU.COD_A);
+                break;
+
+            case Opcode.STCH:
+                marcarPossivelFalha(pc);
+                c.aload(L_MEMORIA);
+                alvo(e);
+                c.iload(L_REG0 + CPU.COD_A);
+                c.constante(0xFF);
+                c.op(IAND);
+                c.invocar(INVOKEVIRTUAL, MEMORIA, "escreverByte", "(II)V");
+                verificarInvalidacao(proximoPC, k);
+                break;
+
+            case Opcode.J:
+                saltoTomado(e, pc, k);
+                break;
+
+            case Opcode.JEQ:
+            case Opcode.JGT:
+            case Opcode.JLT: {
+                EscritorClasse.Rotulo naoTomado = new EscritorClasse.Rotulo();
+                c.iload(L_CC);
+                c.saltar(inst.opcode == Opcode.JEQ ? IFNE : inst.opcode == Opcode.JGT ? IFLE : IFGE, naoTomado);
+                saltoTomado(e, pc, k);
+                c.marcar(naoTomado);
+                sair(proximoPC, k + 1);
+                break;
+            }
+
+            case Opcode.JSUB:
+                if (e.modo == MotorBlocos.MODO_INDIRETO) {
+                    marcarPossivelFalha(pc);
+                }
+                alvo(e);
+                c.istore(L_PC);
+                c.constante(proximoPC);
+                c.istore(L_REG0 + CPU.COD_L);
+                c.iinc(L_CONTADOR, k + 1);
+                c.saltar(GOTO, saida);
+                break;
+
+            case Opcode.RSUB:
+                c.iload(L_REG0 + CPU.COD_L);
+                c.istore(L_PC);
+                c.iinc(L_CONTADOR, k + 1);
+                c.saltar(GOTO, saida);
+                break;
+
+            default:
+                throw new IllegalStateException(String.format("Opcode sem compilação: 0x%02X", inst.opcode));
+        }
+    }
+
+    private void gerarFormato2(Instrucao inst, int pc) {
+        int r1 = inst.r1;
+        int r2 = inst.r2;
+        boolean validos = CPU.codigoGeral(r1) && CPU.codigoGeral(r2);
+
+        switch (inst.opcode) {
+            case Opcode.ADDR:
+            case Opcode.SUBR:
+            case Opcode.MULR:
+                if (validos) {
+                    comSinal(r2);
+                    comSinal(r1);
+                    c.op(inst.opcode == Opcode.ADDR ? IADD : inst.opcode == Opcode.SUBR ? ISUB : IMUL);
+                    mascararEGuardar(r2);
+                }
+                break;
+
+            case Opcode.DIVR:
+                if (validos) {
+                    marcarPossivelFalha(pc);
+                    comSinal(r2);
+                    comSinal(r1);
+                    c.invocar(INVOKESTATIC, COMPILADOR, "dividirDIVR", "(II)I");
+                    mascararEGuardar(r2);
+                }
+                break;
+
+            case Opcode.COMPR:
+                if (validos) {
+                    comSinal(r1);
+                    comSinal(r2);
+                    c.op(ISUB);
+                    c.istore(L_CC);
+                }
+                break;
+
+            case Opcode.RMO:
+                if (validos) {
+                    c.iload(L_REG0 + r1);
+                    c.istore(L_REG0 + r2);
+                }
+                break;
+
+            case Opcode.SHIFTL:
+            case Opcode.SHIFTR: {
+                int desloc = r2 & 0x0F;
+                if (CPU.codigoGeral(r1) && desloc > 0) {
+                    c.iload(L_REG0 + r1);
+                    c.constante(desloc);
+                    if (inst.opcode == Opcode.SHIFTL) {
+                        c.op(ISHL);
+                        mascararEGuardar(r1);
+                    } else {
+                        c.op(IUSHR);
+                        c.istore(L_REG0 + r1);
+                    }
+                }
+                break;
+            }
+
+            case Opcode.CLEAR:
+                if (CPU.codigoGeral(r1)) {
+                    c.constante(0);
+                    c.istore(L_REG0 + r1);
+                }
+                break;
+
+            case Opcode.TIXR:
+                incrementarX();
+                if (CPU.codigoGeral(r1)) {
+                    comSinal(CPU.COD_X);
+                    comSinal(r1);
+                    c.op(ISUB);
+                    c.istore(L_CC);
+                }
+                break;
+
+            default:
+                throw new IllegalStateException(String.format("Opcode sem compilação: 0x%02X", inst.opcode));
+        }
+    }
+
+    // =========================
+    //  Trechos reutilizados
+    // =========================
+
+    private void marcarPossivelFalha(int pc) {
+        c.constante(pc);
+        c.istore(L_PC);
+    }
+
+    private void comSinal(int reg) {
+        c.iload(L_REG0 + reg);
+        c.constante(8);
+        c.op(ISHL);
+        c.constante(8);
+        c.op(ISHR);
+    }
+
+    private void mascararEGuardar(int reg) {
+        c.constante(MASCARA);
+        c.op(IAND);
+        c.istore(L_REG0 + reg);
+    }
+
+    private void incrementarX() {
+        comSinal(CPU.COD_X);
+        c.constante(1);
+        c.op(IADD);
+        mascararEGuardar(CPU.COD_X);
+    }
+
+    private void enderecoEfetivo(MotorBlocos.Endereco e) {
+        if (!e.usaBase && !e.indexado) {
+            c.constante(e.constante & MASCARA);
+            return;
+        }
+        c.constante(e.constante);
+        if (e.usaBase) {
+            c.iload(L_REG0 + CPU.COD_B);
+            c.op(IADD);
+        }
+        if (e.indexado) {
+            c.iload(L_REG0 + CPU.COD_X);
+            c.op(IADD);
+        }
+        c.constante(MASCARA);
+        c.op(IAND);
+    }
+
+    private void operando(MotorBlocos.Endereco e) {
+        switch (e.modo) {
+            case MotorBlocos.MODO_IMEDIATO:
+                enderecoEfetivo(e);
+                break;
+            case MotorBlocos.MODO_INDIRETO:
+                c.aload(L_MEMORIA);
+                c.aload(L_MEMORIA);
+                enderecoEfetivo(e);
+                c.invocar(INVOKEVIRTUAL, MEMORIA, "lerPalavraPorByte", "(I)I");
+                c.invocar(INVOKEVIRTUAL, MEMORIA, "lerPalavraPorByte", "(I)I");
+                break;
+            default:
+                c.aload(L_MEMORIA);
+                enderecoEfetivo(e);
+                c.invocar(INVOKEVIRTUAL, MEMORIA, "lerPalavraPorByte", "(I)I");
+                break;
+        }
+    }
+
+    /** Destino de um armazenamento ou desvio: no modo indireto, a palavra no endereço efetivo. */
+    private void alvo(MotorBlocos.Endereco e) {
+        if (e.modo == MotorBlocos.MODO_INDIRETO) {
+            c.aload(L_MEMORIA);
+            enderecoEfetivo(e);
+            c.invocar(INVOKEVIRTUAL, MEMORIA, "lerPalavraPorByte", "(I)I");
+        } else {
+            enderecoEfetivo(e);
+        }
+    }
+
+    /** Depois de uma escrita: se ela atingiu código traduzido, sai com o PC na instrução seguinte. */
+    private void verificarInvalidacao(int proximoPC, int k) {
+        EscritorClasse.Rotulo segue = new EscritorClasse.Rotulo();
+        c.aload(L_MOTOR);
+        c.invocar(INVOKEVIRTUAL, MOTOR, "codigoInvalidado", "()Z");
+        c.saltar(IFEQ, segue);
+        sair(proximoPC, k + 1);
+        c.marcar(segue);
+    }
+
+    /** Salto tomado pela instrução k (a última do bloco), no endereço {@code pc}. */
+    private void saltoTomado(MotorBlocos.Endereco e, int pc, int k) {
+        boolean paraOInicio = e.modo != MotorBlocos.MODO_INDIRETO
+                && !e.usaBase && !e.indexado && (e.constante & MASCARA) == pcs[0];
+        if (!paraOInicio) {
+            if (e.modo == MotorBlocos.MODO_INDIRETO) {
+                marcarPossivelFalha(pc); // a leitura do ponteiro pode falhar
+            }
+            alvo(e);
+            c.istore(L_PC);
+            c.iinc(L_CONTADOR, k + 1);
+            c.saltar(GOTO, saida);
+            return;
+        }
+
+        // laço: repete o bloco enquanto couber mais uma volta inteira no limite
+        EscritorClasse.Rotulo semPassos = new EscritorClasse.Rotulo();
+        c.iinc(L_CONTADOR, n);
+        c.iload(L_CONTADOR);
+        c.constante(n);
+        c.op(IADD);
+        c.iload(L_MAX);
+        c.saltar(IF_ICMPGT, semPassos);
+        c.saltar(GOTO, inicio);
+        c.marcar(semPassos);
+        c.constante(pcs[0]);
+        c.istore(L_PC);
+        c.saltar(GOTO, saida);
+    }
+
+    private void sair(int pc, int instrucoesExecutadas) {
+        c.constante(pc);
+        c.istore(L_PC);
+        c.iinc(L_CONTADOR, instrucoesExecutadas);
+        c.saltar(GOTO, saida);
+    }
+
+    private static int registradorDeCarga(int opcode) {
+        switch (opcode) {
+            case Opcode.LDA: return CPU.COD_A;
+            case Opcode.LDX: return CPU.COD_X;
+            case Opcode.LDL: return CPU.COD_L;
+            case Opcode.LDB: return CPU.COD_B;
+            case Opcode.LDS: return CPU.COD_S;
+            default:         return CPU.COD_T;
+        }
+    }
+
+    private static int registradorDeArmazenamento(int opcode) {
+        switch (opcode) {
+            case Opcode.STA: return CPU.COD_A;
+            case Opcode.STX: return CPU.COD_X;
+            case Opcode.STL: return CPU.COD_L;
+            case Opcode.STB: return CPU.COD_B;
+            case Opcode.STS: return CPU.COD_S;
+            default:         return CPU.COD_T;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package executor;
+
+import java.util.function.ToIntFunction;
+
+/** Analisador descendente recursivo que monta uma {@link CondicaoParada} com lambdas. */
+final class CompiladorCondicao {
+    private final String texto;
+    private int pos;
+
+    CompiladorCondicao(String texto) {
+        this.texto = texto;
+    }
+
+    CondicaoParada compilar() {
+        CondicaoParada c = ou();
+        pularEspacos();
+        if (pos < texto.length()) {
+            throw erro("sobra '" + texto.substring(pos) + "'");
+        }
+        return c;
+    }
+
+    private CondicaoParada ou() {
+        CondicaoParada c = e();
+        while (consumir("||")) {
+            CondicaoParada esquerda = c;
+            CondicaoParada direita = e();
+            c = cpu -> esquerda.avaliar(cpu) || direita.avaliar(cpu);
+        }
+        return c;
+    }
+
+    private CondicaoParada e() {
+        CondicaoParada c = unaria();
+        while (consumir("&&")) {
+            CondicaoParada esquerda = c;
+            CondicaoParada direita = unaria();
+            c = cpu -> esquerda.avaliar(cpu) && direita.avaliar(cpu);
+        }
+        return c;
+    }
+
+    private CondicaoParada unaria() {
+        if (consumir("!")) {
+            CondicaoParada c = unaria();
+            return cpu -> !c.avaliar(cpu);
+        }
+        if (consumir("(")) {
+            CondicaoParada c = ou();
+            if (!consumir(")")) {
+                throw erro("esperado ')'");
+            }
+            return c;
+        }
+        return comparacao();
+    }
+
+    private CondicaoParada comparacao() {
+        ToIntFunction<CPU> esquerda = operando();
+        String op;
+        if (consumir("==")) op = "==";
+        else if (consumir("!=")) op = "!=";
+        else if (consumir("<=")) op = "<=";
+        else if (consumir(">=")) op = ">=";
+        else if (consumir("<")) op = "<";
+        else if (consumir(">")) op = ">";
+        else throw erro("esperado operador de comparação");
+        ToIntFunction<CPU> direita = operando();
+
+        switch (op) {
+            case "==": return cpu -> esquerda.applyAsInt(cpu) == direita.applyAsInt(cpu);
+            case "!=": return cpu -> esquerda.applyAsInt(cpu) != direita.applyAsInt(cpu);
+            case "<=": return cpu -> esquerda.applyAsInt(cpu) <= direita.applyAsInt(cpu);
+            case ">=": return cpu -> esquerda.applyAsInt(cpu) >= direita.applyAsInt(cpu);
+            case "<":  return cpu -> esquerda.applyAsInt(cpu) < direita.applyAsInt(cpu);
+            default:   return cpu -> esquerda.applyAsInt(cpu) > direita.applyAsInt(cpu);
+        }
+    }
+
+    private ToIntFunction<CPU> operando() {
+        pularEspacos();
+        int inicio = pos;
+        if (pos < texto.length() && Character.isLetter(texto.charAt(pos))) {
+            while (pos < texto.length() && Character.isLetter(texto.charAt(pos))) pos++;
+            String nome = texto.substring(inicio, pos).toUpperCase();
+            switch (nome) {
+                case "A":  return registrador(CPU.COD_A);
+                case "X":  return registrador(CPU.COD_X);
+                case "L":  return registrador(CPU.COD_L);
+                case "B":  return registrador(CPU.COD_B);
+                case "S":  return registrador(CPU.COD_S);
+                case "T":  return registrador(CPU.COD_T);
+                case "PC": return cpu -> cpu.ler(CPU.COD_PC);
+                case "CC": return CPU::getCC;
+                default:
+                    pos = inicio;
+                    throw erro("registrador desconhecido '" + nome + "'");
+            }
+        }
+        int valor = numero();
+        return cpu -> valor;
+    }
+
+    private static ToIntFunction<CPU> registrador(int codigo) {
+        return cpu -> cpu.lerComSinal(codigo);
+    }
+
+    private int numero() {
+        boolean negativo = consumir("-");
+        pularEspacos();
+        int inicio = pos;
+        int base = 10;
+        if (texto.startsWith("0x", pos) || texto.startsWith("0X", pos)) {
+            base = 16;
+            pos += 2;
+            inicio = pos;
+        }
+        while (pos < texto.length() && Character.digit(texto.charAt(pos), base) >= 0) pos++;
+        if (pos == inicio) {
+            throw erro("esperado registrador ou número");
+        }
+        int valor;
+        try {
+            valor = Integer.parseInt(texto.substring(inicio, pos), base);
+        } catch (NumberFormatException ex) {
+            throw erro("número grande demais");
+        }
+        return negativo ? -valor : valor;
+    }
+
+    private boolean consumir(String simbolo) {
+        pularEspacos();
+        if (texto.startsWith(simbolo, pos)) {
+            pos += simbolo.length();
+            return true;
+        }
+        return false;
+    }
+
+    private void pularEspacos() {
+        while (pos < texto.length() && Character.isWhitespace(texto.charAt(pos))) pos++;
+    }
+
+    private IllegalArgumentException erro(String mensagem) {
+        return new IllegalArgumentException("Condição inválida na coluna " + (pos + 1) + ": " + mensagem);
+    }
+}
@@ -0,0 +1,23 @@
+package executor;
+
+/**
+ * Condição sobre o estado da CPU, avaliada pela {@link Maquina} depois de
+ * cada passo quando há pontos de parada condicionais (ver {@link PontosParada}).
+ *
+ * Além de lambdas, condições podem ser escritas como texto e compiladas uma
+ * única vez com {@link #compilar(String)}, por exemplo
+ * {@code "A == 0x10 && X >= 3"} ou {@code "CC < 0 || (S != T && PC > 0x30)"}.
+ * Registradores: A, X, L, B, S, T (com sinal, 24 bits), PC e CC (-1, 0 ou 1).
+ * Números em decimal ou hexadecimal com prefixo 0x; comparações
+ * {@code == != < <= > >=}, combinadas com {@code ! && ||} e parênteses.
+ */
+@FunctionalInterface
+public interface CondicaoParada {
+
+    boolean avaliar(CPU cpu);
+
+    /** Compila a expressão numa condição; lança IllegalArgumentException se ela for inválida. */
+    static CondicaoParada compilar(String expressao) {
+        return new CompiladorCondicao(expressao).compilar();
+    }
+}
@@ -0,0 +1,269 @@
+package executor;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Thread dona de uma {@link Maquina}, comandada por outras threads (a
+ * interface gráfica, por exemplo).
+ *
+ * Só a thread do controlador toca a máquina: comandos ({@link #executar},
+ * {@link #pausar}, {@link #passo}, {@link #enviar}...) entram numa fila e
+ * são atendidos entre fatias de execução de alguns milissegundos. O estado
+ * da máquina é publicado como um {@link Estado} imutável, com um
+ * {@link Instantaneo} que divide as páginas de memória em vez de copiá-las,
+ * no máximo {@value #PUBLICACOES_POR_SEGUNDO} vezes por segundo durante a
+ * execução e sempre que ela para. Quem lê {@link #getEstado()} vê sempre um
+ * estado coerente, e a execução não espera por quem lê. A velocidade é a
+ * do motor da máquina quando ela não tem {@link HistoricoExecucao} nem
+ * pontos de parada ativos; com eles, é a do interpretador.
+ */
+public final class ControladorExecucao implements AutoCloseable {
+
+    static final int PUBLICACOES_POR_SEGUNDO = 30;
+    private static final long NANOS_ENTRE_PUBLICACOES = 1_000_000_000L / PUBLICACOES_POR_SEGUNDO;
+    private static final long NANOS_POR_FATIA = 10_000_000; // tempo máximo sem atender comandos
+
+    /** Estado publicado; imutável. */
+    public static final class Estado {
+        private final long versao;
+        private final Instantaneo instantaneo;
+        private final boolean executando;
+        private final long passos;
+        private final ResultadoExecucao ultimoResultado;
+        private final RuntimeException erro;
+
+        Estado(long versao, Instantaneo instantaneo, boolean executando, long passos,
+               ResultadoExecucao ultimoResultado, RuntimeException erro) {
+            this.versao = versao;
+            this.instantaneo = instantaneo;
+            this.executando = executando;
+            this.passos = passos;
+            this.ultimoResultado = ultimoResultado;
+            this.erro = erro;
+        }
+
+        /** Cresce a cada publicação. */
+        public long getVersao() {
+            return versao;
+        }
+
+        /** Registradores e memória neste momento. */
+        public Instantaneo getInstantaneo() {
+            return instantaneo;
+        }
+
+        /** true enquanto um {@link #executar} está em andamento. */
+        public boolean isExecutando() {
+            return executando;
+        }
+
+        /** Passos executados pelo controlador desde a criação ou o último reinício, descontados os desfeitos. */
+        public long getPassos() {
+            return passos;
+        }
+
+        /** Como terminou a última execução ou passo (null se não terminou ainda, ou com erro). */
+        public ResultadoExecucao getUltimoResultado() {
+            return ultimoResultado;
+        }
+
+        /** Exceção que interrompeu a última execução ou passo, ou null. */
+        public RuntimeException getErro() {
+            return erro;
+        }
+    }
+
+    private final Maquina maquina;
+    private final Instantaneo estadoInicial;
+    private final LinkedBlockingQueue<Runnable> comandos = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile Estado estado;
+    private volatile boolean fechado;
+
+    // só usados pela thread do controlador
+    private boolean executando;
+    private boolean paraTras;
+    private boolean comPontosParada;
+    private long passos;
+    private long versao;
+    private long ultimaPublicacaoNanos;
+
+    /** A máquina já deve estar com o programa carregado; o estado atual vira o ponto de {@link #reiniciar}. */
+    public ControladorExecucao(Maquina maquina) {
+        this.maquina = maquina;
+        this.estadoInicial = maquina.capturar();
+        this.estado = new Estado(0, estadoInicial, false, 0, null, null);
+        this.thread = new Thread(this::laco, "sicxe-simulador");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /** Último estado publicado. Pode ser chamado de qualquer thread. */
+    public Estado getEstado() {
+        return estado;
+    }
+
+    // =========================
+    //  Comandos
+    // =========================
+
+    /**
+     * Executa até o programa terminar, uma falha ou {@link #pausar}; com
+     * {@code comPontosParada}, também nos pontos de parada da máquina.
+     */
+    public void executar(boolean comPontosParada) {
+        iniciar(false, comPontosParada);
+    }
+
+    /**
+     * Como {@link #executar}, mas desfazendo passos até um ponto de parada ou
+     * o início do histórico; a máquina precisa de um {@link HistoricoExecucao}.
+     */
+    public void voltar(boolean comPontosParada) {
+        iniciar(true, comPontosParada);
+    }
+
+    private void iniciar(boolean paraTras, boolean comPontosParada) {
+        comandos.add(() -> {
+            this.paraTras = paraTras;
+            this.comPontosParada = comPontosParada;
+            executando = true;
+            publicar(null, null);
+        });
+    }
+
+    public void pausar() {
+        comandos.add(() -> {
+            if (executando) {
+                executando = false;
+                publicar(null, null);
+            }
+        });
+    }
+
+    /** Executa uma instrução (se não estiver executando). */
+    public void passo() {
+        passoUnico(false);
+    }
+
+    /** Desfaz uma instrução (se não estiver executando); a máquina precisa de um {@link HistoricoExecucao}. */
+    public void passoAtras() {
+        passoUnico(true);
+    }
+
+    private void passoUnico(boolean paraTras) {
+        comandos.add(() -> {
+            if (executando) {
+                return;
+            }
+            try {
+                maquina.getPontosParada().setHabilitados(false);
+                ResultadoExecucao r = paraTras ? maquina.voltar(1, 0) : maquina.executar(1);
+                passos += paraTras ? -r.getPassosExecutados() : r.getPassosExecutados();
+                publicar(r, null);
+            } catch (RuntimeException e) {
+                publicar(null, e);
+            } finally {
+                maquina.getPontosParada().setHabilitados(true);
+            }
+        });
+    }
+
+    /** Para a execução e volta ao estado em que a máquina foi entregue ao controlador. */
+    public void reiniciar() {
+        comandos.add(() -> {
+            executando = false;
+            maquina.restaurar(estadoInicial);
+            passos = 0;
+            publicar(null, null);
+        });
+    }
+
+    /**
+     * Roda uma ação sobre a máquina na thread do controlador, entre fatias de
+     * execução (para mexer em pontos de parada, memória...). O estado é
+     * republicado depois dela.
+     */
+    public void enviar(Consumer<Maquina> acao) {
+        comandos.add(() -> {
+            acao.accept(maquina);
+            publicar(estado.ultimoResultado, estado.erro);
+        });
+    }
+
+    /** Encerra a thread do controlador. */
+    @Override
+    public void close() {
+        fechado = true;
+        thread.interrupt();
+    }
+
+    // =========================
+    //  Thread do controlador
+    // =========================
+
+    private void laco() {
+        try {
+            while (!fechado) {
+                Runnable comando = executando ? comandos.poll() : comandos.poll(1, TimeUnit.SECONDS);
+                if (comando != null) {
+                    try {
+                        comando.run();
+                    } catch (RuntimeException e) {
+                        // um comando com defeito (de enviar, por exemplo) não pode derrubar a thread
+                        executando = false;
+                        publicar(null, e);
+                    }
+                    continue;
+                }
+                if (executando) {
+                    executarFatia();
+                }
+            }
+        } catch (InterruptedException e) {
+            // close()
+        }
+    }
+
+    private void executarFatia() {
+        ResultadoExecucao r;
+        try {
+            maquina.getPontosParada().setHabilitados(comPontosParada);
+            r = paraTras
+                    ? maquina.voltar(Long.MAX_VALUE, NANOS_POR_FATIA)
+                    : maquina.executar(Long.MAX_VALUE, NANOS_POR_FATIA);
+        } catch (RuntimeException e) {
+            executando = false;
+            publicar(null, e);
+            return;
+        } finally {
+            maquina.getPontosParada().setHabilitados(true);
+        }
+        passos += paraTras ? -r.getPassosExecutados() : r.getPassosExecutados();
+
+        if (r.getMotivo() != MotivoParada.PRAZO_ESGOTADO && r.getMotivo() != MotivoParada.LIMITE_DE_PASSOS) {
+            executando = false;
+            publicar(r, null);
+        } else if (System.nanoTime() - ultimaPublicacaoNanos >= NANOS_ENTRE_PUBLICACOES) {
+            publicar(null, null);
+        }
+    }
+
+    private void publicar(ResultadoExecucao resultado, RuntimeException erro) {
+        try {
+            maquina.getDispositivos().descarregar(); // a saída dos dispositivos aparece junto com o estado
+        } catch (RuntimeException e) {
+            executando = false;
+            if (erro == null) {
+                erro = e;
+                resultado = null;
+            } else {
+                erro.addSuppressed(e);
+            }
+        }
+        estado = new Estado(++versao, maquina.capturar(), executando, passos, resultado, erro);
+        ultimaPublicacaoNanos = System.nanoTime();
+    }
+}
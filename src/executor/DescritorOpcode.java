@@ -0,0 +1,374 @@
+package executor;
+
+/**
+ * Tabela do conjunto de instruções do SIC/XE: uma entrada por opcode (os 6
+ * bits altos do primeiro byte), com o mnemônico, o formato, o tipo de
+ * operando e o tratador que executa a instrução.
+ *
+ * A mesma tabela decide o tamanho da instrução na decodificação
+ * ({@link Instrucao#decodificar}) e a semântica na execução
+ * ({@link Maquina}); um byte cujo opcode não está nela é uma instrução
+ * inválida, e não um formato 3 presumido.
+ *
+ * Partes do SIC/XE que dependem de um sistema operacional não são simuladas:
+ * não há modo supervisor, interrupções, proteção de memória nem canais de
+ * E/S. Por isso SSK e STI só validam o operando, SIO e HIO não fazem nada,
+ * TIO sempre encontra o canal livre (CC "&lt;") e SVC para a execução com
+ * {@link MotivoParada#CHAMADA_AO_SUPERVISOR} para que o hospedeiro atenda a
+ * chamada. TD, RD e WD usam os {@link Dispositivos} da máquina.
+ */
+final class DescritorOpcode {
+
+    /** O que vem depois do mnemônico, e como a instrução usa o operando. */
+    enum Operando {
+        /** Formato 1, ou RSUB. */
+        NENHUM,
+        /** r1, r2. */
+        REGISTRADORES,
+        /** r1. */
+        REGISTRADOR,
+        /** r1, n (SHIFTL/SHIFTR). */
+        REGISTRADOR_E_CONTAGEM,
+        /** n (SVC). */
+        NUMERO,
+        /** Palavra de 3 bytes em m (ou o valor imediato). */
+        MEMORIA,
+        /** Byte em m. */
+        MEMORIA_BYTE,
+        /** Valor de 6 bytes em m. */
+        MEMORIA_FLUTUANTE,
+        /** m é o destino do desvio. */
+        DESVIO
+    }
+
+    /** Executa a instrução já decodificada; proximoPC é o endereço logo depois dela. */
+    @FunctionalInterface
+    interface Tratador {
+        void executar(Maquina maquina, Instrucao inst, int proximoPC);
+    }
+
+    final int opcode;
+    final String mnemonico;
+    final int formato; // 1, 2 ou 3 (3/4, decidido pelo bit e)
+    final Operando operando;
+    final Tratador tratador;
+
+    private DescritorOpcode(int opcode, String mnemonico, int formato, Operando operando, Tratador tratador) {
+        this.opcode = opcode;
+        this.mnemonico = mnemonico;
+        this.formato = formato;
+        this.operando = operando;
+        this.tratador = tratador;
+    }
+
+    private static final DescritorOpcode[] TABELA = new DescritorOpcode[64];
+
+    /** Descritor do opcode (os 2 bits baixos são ignorados), ou null se ele não existe. */
+    static DescritorOpcode de(int opcode) {
+        return TABELA[(opcode >>> 2) & 0x3F];
+    }
+
+    /** Descritor pelo mnemônico (sem "+"), ou null. */
+    static DescritorOpcode de(String mnemonico) {
+        for (DescritorOpcode d : TABELA) {
+            if (d != null && d.mnemonico.equalsIgnoreCase(mnemonico)) {
+                return d;
+            }
+        }
+        return null;
+    }
+
+    private static void registrar(int opcode, String mnemonico, int formato, Operando operando, Tratador tratador) {
+        TABELA[opcode >>> 2] = new DescritorOpcode(opcode, mnemonico, formato, operando, tratador);
+    }
+
+    static {
+        // -------- cargas e armazenamentos --------
+        registrar(Opcode.LDA, "LDA", 3, Operando.MEMORIA, (m, i, p) -> carregar(m, CPU.COD_A, i, p));
+        registrar(Opcode.LDX, "LDX", 3, Operando.MEMORIA, (m, i, p) -> carregar(m, CPU.COD_X, i, p));
+        registrar(Opcode.LDL, "LDL", 3, Operando.MEMORIA, (m, i, p) -> carregar(m, CPU.COD_L, i, p));
+        registrar(Opcode.LDB, "LDB", 3, Operando.MEMORIA, (m, i, p) -> carregar(m, CPU.COD_B, i, p));
+        registrar(Opcode.LDS, "LDS", 3, Operando.MEMORIA, (m, i, p) -> carregar(m, CPU.COD_S, i, p));
+        registrar(Opcode.LDT, "LDT", 3, Operando.MEMORIA, (m, i, p) -> carregar(m, CPU.COD_T, i, p));
+
+        registrar(Opcode.STA, "STA", 3, Operando.MEMORIA, (m, i, p) -> armazenar(m, CPU.COD_A, i, p));
+        registrar(Opcode.STX, "STX", 3, Operando.MEMORIA, (m, i, p) -> armazenar(m, CPU.COD_X, i, p));
+        registrar(Opcode.STL, "STL", 3, Operando.MEMORIA, (m, i, p) -> armazenar(m, CPU.COD_L, i, p));
+        registrar(Opcode.STB, "STB", 3, Operando.MEMORIA, (m, i, p) -> armazenar(m, CPU.COD_B, i, p));
+        registrar(Opcode.STS, "STS", 3, Operando.MEMORIA, (m, i, p) -> armazenar(m, CPU.COD_S, i, p));
+        registrar(Opcode.STT, "STT", 3, Operando.MEMORIA, (m, i, p) -> armazenar(m, CPU.COD_T, i, p));
+        registrar(Opcode.STSW, "STSW", 3, Operando.MEMORIA, (m, i, p) -> {
+            m.escreverPalavra(m.calcularEnderecoAlvo(i, p), m.getCpu().lerSW());
+            m.getCpu().escrever(CPU.COD_PC, p);
+        });
+
+        registrar(Opcode.LDCH, "LDCH", 3, Operando.MEMORIA_BYTE, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            int byteLido = m.lerByte(m.calcularEnderecoEfetivo(i, p));
+            cpu.escrever(CPU.COD_A, (cpu.ler(CPU.COD_A) & 0xFFFF00) | byteLido); // mantém 16 bits altos
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.STCH, "STCH", 3, Operando.MEMORIA_BYTE, (m, i, p) -> {
+            m.escreverByte(m.calcularEnderecoAlvo(i, p), m.getCpu().ler(CPU.COD_A) & 0xFF);
+            m.getCpu().escrever(CPU.COD_PC, p);
+        });
+
+        // -------- aritmética e lógica com memória --------
+        registrar(Opcode.ADD, "ADD", 3, Operando.MEMORIA, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            cpu.escrever(CPU.COD_A, cpu.lerComSinal(CPU.COD_A) + m.lerOperandoMemoria(i, p));
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.SUB, "SUB", 3, Operando.MEMORIA, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            cpu.escrever(CPU.COD_A, cpu.lerComSinal(CPU.COD_A) - m.lerOperandoMemoria(i, p));
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.MUL, "MUL", 3, Operando.MEMORIA, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            cpu.escrever(CPU.COD_A, cpu.lerComSinal(CPU.COD_A) * m.lerOperandoMemoria(i, p));
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.DIV, "DIV", 3, Operando.MEMORIA, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            int operando = m.lerOperandoMemoria(i, p);
+            if (operando == 0) {
+                throw new ArithmeticException("Divisão por zero em DIV");
+            }
+            cpu.escrever(CPU.COD_A, cpu.lerComSinal(CPU.COD_A) / operando);
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.AND, "AND", 3, Operando.MEMORIA, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            cpu.escrever(CPU.COD_A, cpu.ler(CPU.COD_A) & (m.lerOperandoMemoria(i, p) & 0xFFFFFF));
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.OR, "OR", 3, Operando.MEMORIA, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            cpu.escrever(CPU.COD_A, cpu.ler(CPU.COD_A) | (m.lerOperandoMemoria(i, p) & 0xFFFFFF));
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.COMP, "COMP", 3, Operando.MEMORIA, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            cpu.setCCFromCompare(cpu.lerComSinal(CPU.COD_A) - m.lerOperandoMemoria(i, p));
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.TIX, "TIX", 3, Operando.MEMORIA, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            int valor = m.lerPalavra(m.calcularEnderecoEfetivo(i, p));
+            cpu.escrever(CPU.COD_X, cpu.lerComSinal(CPU.COD_X) + 1);
+            cpu.setCCFromCompare(cpu.lerComSinal(CPU.COD_X) - valor);
+            cpu.escrever(CPU.COD_PC, p);
+        });
+
+        // -------- desvios --------
+        registrar(Opcode.J, "J", 3, Operando.DESVIO, (m, i, p) ->
+                m.getCpu().escrever(CPU.COD_PC, m.calcularEnderecoAlvo(i, p)));
+        registrar(Opcode.JEQ, "JEQ", 3, Operando.DESVIO, (m, i, p) -> desviarSe(m, 0, i, p));
+        registrar(Opcode.JGT, "JGT", 3, Operando.DESVIO, (m, i, p) -> desviarSe(m, 1, i, p));
+        registrar(Opcode.JLT, "JLT", 3, Operando.DESVIO, (m, i, p) -> desviarSe(m, -1, i, p));
+        registrar(Opcode.JSUB, "JSUB", 3, Operando.DESVIO, (m, i, p) -> {
+            int alvo = m.calcularEnderecoAlvo(i, p);
+            m.getCpu().escrever(CPU.COD_L, p);
+            m.getCpu().escrever(CPU.COD_PC, alvo);
+        });
+        registrar(Opcode.RSUB, "RSUB", 3, Operando.NENHUM, (m, i, p) ->
+                m.getCpu().escrever(CPU.COD_PC, m.getCpu().ler(CPU.COD_L)));
+
+        // -------- formato 2 --------
+        registrar(Opcode.ADDR, "ADDR", 2, Operando.REGISTRADORES, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            if (CPU.codigoGeral(i.r1) && CPU.codigoGeral(i.r2)) {
+                cpu.escrever(i.r2, cpu.lerComSinal(i.r2) + cpu.lerComSinal(i.r1));
+            }
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.SUBR, "SUBR", 2, Operando.REGISTRADORES, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            if (CPU.codigoGeral(i.r1) && CPU.codigoGeral(i.r2)) {
+                cpu.escrever(i.r2, cpu.lerComSinal(i.r2) - cpu.lerComSinal(i.r1));
+            }
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.MULR, "MULR", 2, Operando.REGISTRADORES, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            if (CPU.codigoGeral(i.r1) && CPU.codigoGeral(i.r2)) {
+                cpu.escrever(i.r2, cpu.lerComSinal(i.r2) * cpu.lerComSinal(i.r1));
+            }
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.DIVR, "DIVR", 2, Operando.REGISTRADORES, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            if (CPU.codigoGeral(i.r1) && CPU.codigoGeral(i.r2)) {
+                int divisor = cpu.lerComSinal(i.r1);
+                if (divisor == 0) {
+                    throw new ArithmeticException("Divisão por zero em DIVR");
+                }
+                cpu.escrever(i.r2, cpu.lerComSinal(i.r2) / divisor);
+            }
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.COMPR, "COMPR", 2, Operando.REGISTRADORES, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            if (CPU.codigoGeral(i.r1) && CPU.codigoGeral(i.r2)) {
+                cpu.setCCFromCompare(cpu.lerComSinal(i.r1) - cpu.lerComSinal(i.r2));
+            }
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.SHIFTL, "SHIFTL", 2, Operando.REGISTRADOR_E_CONTAGEM, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            int n = i.r2 & 0x0F;
+            if (CPU.codigoGeral(i.r1) && n > 0) {
+                cpu.escrever(i.r1, cpu.ler(i.r1) << n); // escrever mantém 24 bits
+            }
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.SHIFTR, "SHIFTR", 2, Operando.REGISTRADOR_E_CONTAGEM, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            int n = i.r2 & 0x0F;
+            if (CPU.codigoGeral(i.r1) && n > 0) {
+                cpu.escrever(i.r1, cpu.ler(i.r1) >>> n); // deslocamento lógico à direita
+            }
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.RMO, "RMO", 2, Operando.REGISTRADORES, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            if (CPU.codigoGeral(i.r1) && CPU.codigoGeral(i.r2)) {
+                cpu.escrever(i.r2, cpu.ler(i.r1));
+            }
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.CLEAR, "CLEAR", 2, Operando.REGISTRADOR, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            if (CPU.codigoGeral(i.r1)) {
+                cpu.escrever(i.r1, 0);
+            }
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.TIXR, "TIXR", 2, Operando.REGISTRADOR, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            cpu.escrever(CPU.COD_X, cpu.lerComSinal(CPU.COD_X) + 1);
+            if (CPU.codigoGeral(i.r1)) {
+                cpu.setCCFromCompare(cpu.lerComSinal(CPU.COD_X) - cpu.lerComSinal(i.r1));
+            }
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.SVC, "SVC", 2, Operando.NUMERO, (m, i, p) -> {
+            m.registrarChamadaSupervisor(i.r1);
+            m.getCpu().escrever(CPU.COD_PC, p);
+        });
+
+        // -------- ponto flutuante --------
+        registrar(Opcode.LDF, "LDF", 3, Operando.MEMORIA_FLUTUANTE, (m, i, p) -> {
+            m.getCpu().escreverF(m.lerOperandoFlutuante(i, p));
+            m.getCpu().escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.STF, "STF", 3, Operando.MEMORIA_FLUTUANTE, (m, i, p) -> {
+            m.escreverFlutuante(m.calcularEnderecoAlvo(i, p), m.getCpu().lerF());
+            m.getCpu().escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.ADDF, "ADDF", 3, Operando.MEMORIA_FLUTUANTE, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            double operando = PontoFlutuante.paraDouble(m.lerOperandoFlutuante(i, p));
+            cpu.escreverF(PontoFlutuante.deDouble(PontoFlutuante.paraDouble(cpu.lerF()) + operando));
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.SUBF, "SUBF", 3, Operando.MEMORIA_FLUTUANTE, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            double operando = PontoFlutuante.paraDouble(m.lerOperandoFlutuante(i, p));
+            cpu.escreverF(PontoFlutuante.deDouble(PontoFlutuante.paraDouble(cpu.lerF()) - operando));
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.MULF, "MULF", 3, Operando.MEMORIA_FLUTUANTE, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            double operando = PontoFlutuante.paraDouble(m.lerOperandoFlutuante(i, p));
+            cpu.escreverF(PontoFlutuante.deDouble(PontoFlutuante.paraDouble(cpu.lerF()) * operando));
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.DIVF, "DIVF", 3, Operando.MEMORIA_FLUTUANTE, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            double operando = PontoFlutuante.paraDouble(m.lerOperandoFlutuante(i, p));
+            if (operando == 0) {
+                throw new ArithmeticException("Divisão por zero em DIVF");
+            }
+            cpu.escreverF(PontoFlutuante.deDouble(PontoFlutuante.paraDouble(cpu.lerF()) / operando));
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.COMPF, "COMPF", 3, Operando.MEMORIA_FLUTUANTE, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            double operando = PontoFlutuante.paraDouble(m.lerOperandoFlutuante(i, p));
+            cpu.setCCFromCompare(Double.compare(PontoFlutuante.paraDouble(cpu.lerF()), operando));
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.FLOAT, "FLOAT", 1, Operando.NENHUM, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            cpu.escreverF(PontoFlutuante.deDouble(cpu.lerComSinal(CPU.COD_A)));
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.FIX, "FIX", 1, Operando.NENHUM, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            cpu.escrever(CPU.COD_A, (int) PontoFlutuante.paraDouble(cpu.lerF()));
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.NORM, "NORM", 1, Operando.NENHUM, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            cpu.escreverF(PontoFlutuante.deDouble(PontoFlutuante.paraDouble(cpu.lerF())));
+            cpu.escrever(CPU.COD_PC, p);
+        });
+
+        // -------- sistema --------
+        registrar(Opcode.LPS, "LPS", 3, Operando.MEMORIA, (m, i, p) -> m.carregarEstadoProcessador(m.calcularEnderecoEfetivo(i, p)));
+        registrar(Opcode.STI, "STI", 3, Operando.MEMORIA, (m, i, p) -> {
+            m.lerOperandoMemoria(i, p); // sem temporizador: só valida o operando
+            m.getCpu().escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.SSK, "SSK", 3, Operando.MEMORIA, (m, i, p) -> {
+            m.calcularEnderecoEfetivo(i, p); // sem proteção de memória: só calcula o endereço
+            m.getCpu().escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.SIO, "SIO", 1, Operando.NENHUM, (m, i, p) -> m.getCpu().escrever(CPU.COD_PC, p));
+        registrar(Opcode.HIO, "HIO", 1, Operando.NENHUM, (m, i, p) -> m.getCpu().escrever(CPU.COD_PC, p));
+        registrar(Opcode.TIO, "TIO", 1, Operando.NENHUM, (m, i, p) -> {
+            m.getCpu().setCCFromCompare(-1); // canal livre
+            m.getCpu().escrever(CPU.COD_PC, p);
+        });
+
+        // -------- dispositivos --------
+        registrar(Opcode.TD, "TD", 3, Operando.MEMORIA_BYTE, (m, i, p) -> {
+            Dispositivo dispositivo = m.dispositivoDaInstrucao(i, p);
+            m.getCpu().setCCFromCompare(dispositivo.pronto() ? -1 : 0); // "<" pronto, "=" ocupado
+            m.getCpu().escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.RD, "RD", 3, Operando.MEMORIA_BYTE, (m, i, p) -> {
+            CPU cpu = m.getCpu();
+            int byteLido = Math.max(m.dispositivoDaInstrucao(i, p).ler(), 0); // fim da entrada lê 0
+            cpu.escrever(CPU.COD_A, (cpu.ler(CPU.COD_A) & 0xFFFF00) | byteLido);
+            cpu.escrever(CPU.COD_PC, p);
+        });
+        registrar(Opcode.WD, "WD", 3, Operando.MEMORIA_BYTE, (m, i, p) -> {
+            m.dispositivoDaInstrucao(i, p).escrever(m.getCpu().ler(CPU.COD_A) & 0xFF);
+            m.getCpu().escrever(CPU.COD_PC, p);
+        });
+    }
+
+    private static void carregar(Maquina m, int registrador, Instrucao inst, int proximoPC) {
+        m.getCpu().escrever(registrador, m.lerOperandoMemoria(inst, proximoPC));
+        m.getCpu().escrever(CPU.COD_PC, proximoPC);
+    }
+
+    private static void armazenar(Maquina m, int registrador, Instrucao inst, int proximoPC) {
+        m.escreverPalavra(m.calcularEnderecoAlvo(inst, proximoPC), m.getCpu().ler(registrador));
+        m.getCpu().escrever(CPU.COD_PC, proximoPC);
+    }
+
+    /** JEQ/JGT/JLT: desvia se o CC vale {@code cc}. */
+    private static void desviarSe(Maquina m, int cc, Instrucao inst, int proximoPC) {
+        if (m.getCpu().getCC() == cc) {
+            m.getCpu().escrever(CPU.COD_PC, m.calcularEnderecoAlvo(inst, proximoPC));
+            m.contarDesvioTomado(inst, proximoPC);
+        } else {
+            m.calcularEnderecoEfetivo(inst, proximoPC); // o ponteiro de um '@' só é lido se o desvio for tomado
+            m.getCpu().escrever(CPU.COD_PC, proximoPC);
+        }
+    }
+}
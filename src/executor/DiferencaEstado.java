@@ -0,0 +1,104 @@
+package executor;
+
+import java.util.Arrays;
+
+/**
+ * Diferenças entre dois estados de máquina, de
+ * {@link ResumoEstado#diferencas}: quais registradores diferem e, na
+ * memória, trechos de bytes (no máximo um por página, do primeiro ao último
+ * byte diferente dela, como em {@link Memoria.Imagem#compararCom}).
+ */
+public final class DiferencaEstado {
+
+    static final int BIT_F = 1 << 10;
+    static final int BIT_CC = 1 << 11;
+
+    private final int registradores;   // bit = código de CPU, mais BIT_F e BIT_CC
+    private final int[] trechos;       // pares endereço, quantidade, em ordem de endereço
+
+    private DiferencaEstado(int registradores, int[] trechos) {
+        this.registradores = registradores;
+        this.trechos = trechos;
+    }
+
+    /** Nada difere. */
+    public boolean vazia() {
+        return registradores == 0 && trechos.length == 0;
+    }
+
+    /** Se o registrador (código de {@link CPU}) difere. */
+    public boolean registradorDiferente(int codigo) {
+        return (registradores & (1 << codigo)) != 0;
+    }
+
+    public boolean fDiferente() {
+        return (registradores & BIT_F) != 0;
+    }
+
+    public boolean ccDiferente() {
+        return (registradores & BIT_CC) != 0;
+    }
+
+    public int getQuantidadeTrechos() {
+        return trechos.length / 2;
+    }
+
+    public int getEnderecoTrecho(int k) {
+        return trechos[2 * k];
+    }
+
+    public int getTamanhoTrecho(int k) {
+        return trechos[2 * k + 1];
+    }
+
+    /** Repassa cada trecho de memória diferente, em ordem de endereço. */
+    public void trechosDeMemoria(Memoria.OuvinteDiferenca ouvinte) {
+        for (int k = 0; k < trechos.length; k += 2) {
+            ouvinte.trechoDiferente(trechos[k], trechos[k + 1]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (vazia()) {
+            return "sem diferenças";
+        }
+        StringBuilder sb = new StringBuilder();
+        String[] nomes = { "A", "X", "L", "B", "S", "T", null, null, "PC", "SW" };
+        for (int r = 0; r < nomes.length; r++) {
+            if (nomes[r] != null && registradorDiferente(r)) {
+                sb.append(sb.length() > 0 ? ", " : "").append(nomes[r]);
+            }
+        }
+        if (fDiferente()) {
+            sb.append(sb.length() > 0 ? ", " : "").append("F");
+        }
+        if (ccDiferente()) {
+            sb.append(sb.length() > 0 ? ", " : "").append("CC");
+        }
+        for (int k = 0; k < trechos.length; k += 2) {
+            sb.append(sb.length() > 0 ? ", " : "")
+              .append(String.format("%06X+%d", trechos[k], trechos[k + 1]));
+        }
+        return sb.toString();
+    }
+
+    /** Junta os trechos vindos da descida pela árvore. */
+    static final class Construtor implements Memoria.OuvinteDiferenca {
+        private int[] trechos = new int[8];
+        private int quantidade;
+
+        @Override
+        public void trechoDiferente(int enderecoByte, int quantidadeBytes) {
+            if (quantidade == trechos.length) {
+                trechos = Arrays.copyOf(trechos, quantidade * 2);
+            }
+            trechos[quantidade++] = enderecoByte;
+            trechos[quantidade++] = quantidadeBytes;
+        }
+
+        DiferencaEstado construir(int registradores) {
+            return new DiferencaEstado(registradores, Arrays.copyOf(trechos, quantidade));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package executor;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Dispositivo de E/S do SIC/XE, conectado a um número de dispositivo em
+ * {@link Dispositivos} e usado pelas instruções TD, RD e WD.
+ *
+ * As chamadas vêm da thread que executa a máquina, uma instrução por byte,
+ * então as implementações devem ser baratas por chamada: {@link #pronto()}
+ * não deve fazer chamadas ao sistema e {@link #ler()}/{@link #escrever(int)}
+ * devem trabalhar sobre buffers. Falhas de E/S saem como
+ * {@link java.io.UncheckedIOException} e interrompem a execução.
+ */
+public interface Dispositivo extends Closeable {
+
+    /** TD: true se o dispositivo aceita RD/WD agora (CC "&lt;"); false deixa o CC "=". */
+    boolean pronto();
+
+    /** RD: o próximo byte (0..255), ou -1 no fim da entrada. */
+    default int ler() {
+        throw new UnsupportedOperationException("Dispositivo só de saída");
+    }
+
+    /** WD: escreve o byte mais baixo de valor. */
+    default void escrever(int valor) {
+        throw new UnsupportedOperationException("Dispositivo só de entrada");
+    }
+
+    /** Passa adiante o que ainda está em buffer, sem esperar que chegue ao destino. */
+    default void descarregar() {
+    }
+
+    /** Descarrega, espera a saída chegar ao destino e libera o dispositivo. */
+    @Override
+    default void close() throws IOException {
+        descarregar();
+    }
+}
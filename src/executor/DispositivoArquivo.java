@@ -0,0 +1,197 @@
+package executor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Dispositivos ligados a arquivos por {@link FileChannel}s, com buffers de
+ * {@value #TAMANHO_BUFFER} bytes: RD e WD só chegam ao sistema uma vez a
+ * cada buffer, e TD sempre responde "pronto" sem consultar nada.
+ *
+ * A entrada lê um buffer inteiro de cada vez. A saída usa dois buffers: a
+ * máquina enche um enquanto uma thread de fundo grava o outro; se o
+ * gravador fica para trás, quem executa espera por ele ao trocar de buffer.
+ * {@link #descarregar()} entrega ao gravador o buffer parcial sem esperar a
+ * gravação; {@link #close()} espera.
+ */
+public final class DispositivoArquivo {
+
+    static final int TAMANHO_BUFFER = 64 * 1024;
+
+    private DispositivoArquivo() {
+    }
+
+    /** Dispositivo de entrada que lê o arquivo do início ao fim. */
+    public static Dispositivo entrada(Path arquivo) throws IOException {
+        return new Entrada(FileChannel.open(arquivo, StandardOpenOption.READ));
+    }
+
+    /** Dispositivo de saída que cria (ou trunca) o arquivo. */
+    public static Dispositivo saida(Path arquivo) throws IOException {
+        return saida(arquivo, false);
+    }
+
+    /** Dispositivo de saída que cria o arquivo ou, com {@code acrescentar}, escreve no fim dele. */
+    public static Dispositivo saida(Path arquivo, boolean acrescentar) throws IOException {
+        return new Saida(FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                acrescentar ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING), arquivo);
+    }
+
+    private static final class Entrada implements Dispositivo {
+
+        private final FileChannel canal;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+        private boolean fim;
+
+        Entrada(FileChannel canal) {
+            this.canal = canal;
+            buffer.limit(0);
+        }
+
+        @Override
+        public boolean pronto() {
+            return true;
+        }
+
+        @Override
+        public int ler() {
+            if (!buffer.hasRemaining() && !encher()) {
+                return -1;
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        private boolean encher() {
+            if (fim) {
+                return false;
+            }
+            buffer.clear();
+            try {
+                int lidos;
+                do {
+                    lidos = canal.read(buffer);
+                } while (lidos == 0);
+                fim = lidos < 0;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha lendo o dispositivo", e);
+            } finally {
+                buffer.flip();
+            }
+            return buffer.hasRemaining();
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+    }
+
+    private static final class Saida implements Dispositivo {
+
+        private static final ByteBuffer FIM = ByteBuffer.allocate(0);
+
+        private final FileChannel canal;
+        private final ArrayBlockingQueue<ByteBuffer> cheios = new ArrayBlockingQueue<>(3);
+        private final ArrayBlockingQueue<ByteBuffer> livres = new ArrayBlockingQueue<>(2);
+        private final Thread gravador;
+        private ByteBuffer atual = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+        private volatile IOException falha;
+        private boolean fechado;
+
+        Saida(FileChannel canal, Path arquivo) {
+            this.canal = canal;
+            livres.add(ByteBuffer.allocateDirect(TAMANHO_BUFFER));
+            this.gravador = new Thread(this::gravar, "sicxe-dispositivo-" + arquivo.getFileName());
+            this.gravador.setDaemon(true);
+            this.gravador.start();
+        }
+
+        @Override
+        public boolean pronto() {
+            return true;
+        }
+
+        @Override
+        public void escrever(int valor) {
+            if (!atual.hasRemaining()) {
+                entregar();
+            }
+            atual.put((byte) valor);
+        }
+
+        @Override
+        public void descarregar() {
+            if (atual.position() > 0) {
+                entregar();
+            }
+        }
+
+        /** Entrega o buffer atual ao gravador e pega o livre (esperando se preciso). */
+        private void entregar() {
+            if (fechado) {
+                throw new IllegalStateException("Dispositivo já fechado");
+            }
+            if (falha != null) {
+                throw new UncheckedIOException("Falha gravando o dispositivo", falha);
+            }
+            atual.flip();
+            try {
+                cheios.put(atual);
+                atual = livres.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrompido esperando o gravador do dispositivo", e);
+            }
+        }
+
+        private void gravar() {
+            try {
+                while (true) {
+                    ByteBuffer buffer = cheios.take();
+                    if (buffer == FIM) {
+                        return;
+                    }
+                    try {
+                        while (falha == null && buffer.hasRemaining()) {
+                            canal.write(buffer);
+                        }
+                    } catch (IOException e) {
+                        falha = e; // continua devolvendo buffers para quem executa não ficar preso
+                    }
+                    buffer.clear();
+                    livres.put(buffer);
+                }
+            } catch (InterruptedException e) {
+                // close() interrompido
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fechado) {
+                return;
+            }
+            try {
+                descarregar();
+            } finally {
+                fechado = true;
+                try {
+                    cheios.put(FIM);
+                    gravador.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    canal.close();
+                }
+            }
+            if (falha != null) {
+                throw falha;
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package executor;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Gravação e reprodução de E/S, para repetir uma execução exatamente.
+ *
+ * Gravando, repassa cada TD, RD e WD a um dispositivo real e anota o
+ * resultado (dois bytes por evento). Reproduzindo, não usa dispositivo
+ * nenhum: TD e RD devolvem o que foi gravado e WD confere o byte escrito.
+ * Como a máquina é determinística, a reprodução segue o mesmo caminho; se o
+ * programa ou o estado inicial forem outros e a sequência de eventos
+ * divergir, a instrução lança IllegalStateException.
+ */
+public final class DispositivoGravado implements Dispositivo {
+
+    private static final byte TD = 'T';
+    private static final byte RD = 'R';
+    private static final byte RD_FIM = 'F';
+    private static final byte WD = 'W';
+
+    private final Dispositivo real; // null reproduzindo
+    private byte[] eventos;
+    private int tamanho;
+    private int posicao;
+
+    private DispositivoGravado(Dispositivo real, byte[] eventos, int tamanho) {
+        this.real = real;
+        this.eventos = eventos;
+        this.tamanho = tamanho;
+    }
+
+    /** Grava os eventos de E/S no dispositivo real (que é fechado junto com este). */
+    public static DispositivoGravado gravando(Dispositivo real) {
+        return new DispositivoGravado(real, new byte[1024], 0);
+    }
+
+    /** Reproduz uma gravação obtida com {@link #getGravacao()}. */
+    public static DispositivoGravado reproduzindo(byte[] gravacao) {
+        if ((gravacao.length & 1) != 0) {
+            throw new IllegalArgumentException("Gravação de E/S truncada");
+        }
+        return new DispositivoGravado(null, gravacao.clone(), gravacao.length);
+    }
+
+    public boolean isReproduzindo() {
+        return real == null;
+    }
+
+    /** Eventos gravados até agora (ou a gravação sendo reproduzida). */
+    public byte[] getGravacao() {
+        return Arrays.copyOf(eventos, tamanho);
+    }
+
+    @Override
+    public boolean pronto() {
+        if (real == null) {
+            return proximo(TD, "TD") != 0;
+        }
+        boolean pronto = real.pronto();
+        anotar(TD, pronto ? 1 : 0);
+        return pronto;
+    }
+
+    @Override
+    public int ler() {
+        if (real == null) {
+            if (posicao < tamanho && eventos[posicao] == RD_FIM) {
+                posicao += 2;
+                return -1;
+            }
+            return proximo(RD, "RD") & 0xFF;
+        }
+        int valor = real.ler();
+        anotar(valor < 0 ? RD_FIM : RD, valor);
+        return valor;
+    }
+
+    @Override
+    public void escrever(int valor) {
+        if (real == null) {
+            int gravado = proximo(WD, "WD") & 0xFF;
+            if (gravado != (valor & 0xFF)) {
+                throw new IllegalStateException(String.format(
+                        "Reprodução divergiu: WD escreveu %02X, gravado %02X", valor & 0xFF, gravado));
+            }
+            return;
+        }
+        real.escrever(valor);
+        anotar(WD, valor);
+    }
+
+    @Override
+    public void descarregar() {
+        if (real != null) {
+            real.descarregar();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (real != null) {
+            real.close();
+        }
+    }
+
+    private void anotar(byte tipo, int valor) {
+        if (tamanho + 2 > eventos.length) {
+            eventos = Arrays.copyOf(eventos, eventos.length * 2);
+        }
+        eventos[tamanho] = tipo;
+        eventos[tamanho + 1] = (byte) valor;
+        tamanho += 2;
+    }
+
+    private byte proximo(byte tipo, String instrucao) {
+        if (posicao >= tamanho) {
+            throw new IllegalStateException("Reprodução divergiu: " + instrucao + " depois do fim da gravação");
+        }
+        if (eventos[posicao] != tipo) {
+            throw new IllegalStateException(String.format(
+                    "Reprodução divergiu: %s onde foi gravado %c", instrucao, (char) eventos[posicao]));
+        }
+        byte valor = eventos[posicao + 1];
+        posicao += 2;
+        return valor;
+    }
+}
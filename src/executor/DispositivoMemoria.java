@@ -0,0 +1,54 @@
+package executor;
+
+import java.util.Arrays;
+
+/**
+ * Dispositivo em memória: a entrada vem de um array fixo e a saída vai para
+ * um array que cresce. Serve para testes e para rodar programas com E/S
+ * sem arquivos; TD responde "pronto" sempre.
+ */
+public final class DispositivoMemoria implements Dispositivo {
+
+    private final byte[] entrada;
+    private int posicaoEntrada;
+    private byte[] saida = new byte[256];
+    private int tamanhoSaida;
+
+    /** Só saída (RD encontra o fim da entrada). */
+    public DispositivoMemoria() {
+        this(new byte[0]);
+    }
+
+    /** Entrada com os bytes dados (copiados) e saída vazia. */
+    public DispositivoMemoria(byte[] entrada) {
+        this.entrada = entrada.clone();
+    }
+
+    @Override
+    public boolean pronto() {
+        return true;
+    }
+
+    @Override
+    public int ler() {
+        return posicaoEntrada < entrada.length ? entrada[posicaoEntrada++] & 0xFF : -1;
+    }
+
+    @Override
+    public void escrever(int valor) {
+        if (tamanhoSaida == saida.length) {
+            saida = Arrays.copyOf(saida, saida.length * 2);
+        }
+        saida[tamanhoSaida++] = (byte) valor;
+    }
+
+    /** Bytes de entrada ainda não lidos. */
+    public int getRestanteEntrada() {
+        return entrada.length - posicaoEntrada;
+    }
+
+    /** Cópia do que foi escrito até agora. */
+    public byte[] getSaida() {
+        return Arrays.copyOf(saida, tamanhoSaida);
+    }
+}
@@ -0,0 +1,87 @@
+package executor;
+
+import java.io.IOException;
+
+/**
+ * Tabela de dispositivos de uma {@link Maquina}: os números de dispositivo
+ * do SIC/XE (um byte, como em {@code RD =X'F1'}) ligados a
+ * {@link Dispositivo}s. Nenhum está conectado de início; TD, RD ou WD num
+ * número sem dispositivo interrompem a execução com IllegalStateException.
+ *
+ * RD no fim da entrada põe 0 no byte baixo de A, o marcador de fim de
+ * registro usual dos programas SIC.
+ *
+ * A execução reversa não desfaz E/S (ver {@link HistoricoExecucao}).
+ */
+public final class Dispositivos implements AutoCloseable {
+
+    public static final int QUANTIDADE = 256;
+
+    private final Dispositivo[] tabela = new Dispositivo[QUANTIDADE];
+
+    /** Conecta o dispositivo ao número e devolve o que estava lá (que não é fechado), ou null. */
+    public Dispositivo conectar(int numero, Dispositivo dispositivo) {
+        Dispositivo anterior = tabela[validar(numero)];
+        tabela[numero] = dispositivo;
+        return anterior;
+    }
+
+    /** Desconecta e devolve o dispositivo do número (sem fechá-lo), ou null. */
+    public Dispositivo desconectar(int numero) {
+        return conectar(numero, null);
+    }
+
+    public Dispositivo get(int numero) {
+        return tabela[validar(numero)];
+    }
+
+    /** Dispositivo usado por uma instrução: o número é sempre um byte. */
+    Dispositivo exigir(int numero) {
+        Dispositivo dispositivo = tabela[numero & 0xFF];
+        if (dispositivo == null) {
+            throw new IllegalStateException(String.format("Dispositivo %02X não conectado", numero & 0xFF));
+        }
+        return dispositivo;
+    }
+
+    /** Passa adiante a saída em buffer de todos os dispositivos. */
+    public void descarregar() {
+        for (Dispositivo dispositivo : tabela) {
+            if (dispositivo != null) {
+                dispositivo.descarregar();
+            }
+        }
+    }
+
+    /** Fecha e desconecta todos os dispositivos; a primeira falha é relançada depois de tentar todos. */
+    @Override
+    public void close() throws IOException {
+        IOException falha = null;
+        for (int numero = 0; numero < QUANTIDADE; numero++) {
+            Dispositivo dispositivo = tabela[numero];
+            tabela[numero] = null;
+            if (dispositivo == null) {
+                continue;
+            }
+            try {
+                dispositivo.close();
+            } catch (IOException e) {
+                if (falha == null) {
+                    falha = e;
+                } else {
+                    falha.addSuppressed(e);
+                }
+            }
+        }
+        if (falha != null) {
+            throw falha;
+        }
+    }
+
+    private static int validar(int numero) {
+        if (numero < 0 || numero >= QUANTIDADE) {
+            throw new IllegalArgumentException("Número de dispositivo fora de 0..255: " + numero);
+        }
+        return numero;
+    }
+}
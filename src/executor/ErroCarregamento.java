@@ -0,0 +1,25 @@
+package executor;
+
+/**
+ * Erro de formato num arquivo de programa, com a linha e a coluna (ambas a
+ * partir de 1) onde o problema foi encontrado.
+ */
+public class ErroCarregamento extends IllegalArgumentException {
+
+    private final long linha;
+    private final int coluna;
+
+    public ErroCarregamento(long linha, int coluna, String mensagem) {
+        super("Linha " + linha + ", coluna " + coluna + ": " + mensagem);
+        this.linha = linha;
+        this.coluna = coluna;
+    }
+
+    public long getLinha() {
+        return linha;
+    }
+
+    public int getColuna() {
+        return coluna;
+    }
+}
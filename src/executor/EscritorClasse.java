@@ -0,0 +1,317 @@
+package executor;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escritor mínimo de arquivos .class, só com o necessário para o
+ * {@link CompiladorBlocos}: um pool de constantes, um construtor vazio e um
+ * único método com tabela de exceções.
+ *
+ * Gera a versão 49 do formato (Java 5), que não exige StackMapTable; a
+ * verificação é feita por inferência de tipos, o que nos poupa de calcular
+ * quadros de pilha para cada destino de salto.
+ */
+final class EscritorClasse {
+
+    private static final int VERSAO_CLASSE = 49;
+
+    // opcodes da JVM usados pelo compilador
+    static final int ICONST_0 = 0x03;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int ILOAD = 0x15;
+    static final int ALOAD = 0x19;
+    static final int IALOAD = 0x2E;
+    static final int ISTORE = 0x36;
+    static final int ASTORE = 0x3A;
+    static final int IASTORE = 0x4F;
+    static final int POP = 0x57;
+    static final int DUP = 0x59;
+    static final int IADD = 0x60;
+    static final int ISUB = 0x64;
+    static final int IMUL = 0x68;
+    static final int ISHL = 0x78;
+    static final int ISHR = 0x7A;
+    static final int IUSHR = 0x7C;
+    static final int IAND = 0x7E;
+    static final int IOR = 0x80;
+    static final int IINC = 0x84;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9A;
+    static final int IFLT = 0x9B;
+    static final int IFGE = 0x9C;
+    static final int IFGT = 0x9D;
+    static final int IFLE = 0x9E;
+    static final int IF_ICMPGT = 0xA3;
+    static final int GOTO = 0xA7;
+    static final int IRETURN = 0xAC;
+    static final int RETURN = 0xB1;
+    static final int INVOKEVIRTUAL = 0xB6;
+    static final int INVOKESPECIAL = 0xB7;
+    static final int INVOKESTATIC = 0xB8;
+    static final int ATHROW = 0xBF;
+
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final Map<String, Integer> indicesPool = new HashMap<>();
+    private int proximoIndice = 1;
+
+    private final String nome;
+    private final String interfaceImplementada;
+
+    EscritorClasse(String nome, String interfaceImplementada) {
+        this.nome = nome;
+        this.interfaceImplementada = interfaceImplementada;
+    }
+
+    // =========================
+    //  Pool de constantes
+    // =========================
+
+    private int utf8(String s) {
+        return indice("U" + s, () -> {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            pool.write(1);
+            escreverU2(pool, bytes.length);
+            pool.write(bytes, 0, bytes.length);
+        });
+    }
+
+    int classe(String nomeInterno) {
+        int u = utf8(nomeInterno);
+        return indice("C" + nomeInterno, () -> {
+            pool.write(7);
+            escreverU2(pool, u);
+        });
+    }
+
+    int inteiro(int valor) {
+        return indice("I" + valor, () -> {
+            pool.write(3);
+            escreverU4(pool, valor);
+        });
+    }
+
+    private int nomeETipo(String nomeMembro, String descritor) {
+        int n = utf8(nomeMembro);
+        int d = utf8(descritor);
+        return indice("N" + nomeMembro + ":" + descritor, () -> {
+            pool.write(12);
+            escreverU2(pool, n);
+            escreverU2(pool, d);
+        });
+    }
+
+    int metodo(String dono, String nomeMetodo, String descritor) {
+        int c = classe(dono);
+        int nt = nomeETipo(nomeMetodo, descritor);
+        return indice("M" + dono + "." + nomeMetodo + descritor, () -> {
+            pool.write(10);
+            escreverU2(pool, c);
+            escreverU2(pool, nt);
+        });
+    }
+
+    private int indice(String chave, Runnable escrever) {
+        Integer existente = indicesPool.get(chave);
+        if (existente != null) {
+            return existente;
+        }
+        escrever.run();
+        int i = proximoIndice++;
+        indicesPool.put(chave, i);
+        return i;
+    }
+
+    // =========================
+    //  Código de um método
+    // =========================
+
+    static final class Rotulo {
+        int posicao = -1;
+        final List<Integer> pendentes = new ArrayList<>();
+    }
+
+    final class Codigo {
+        private byte[] bytes = new byte[512];
+        private int tamanho;
+        private final List<int[]> excecoes = new ArrayList<>(); // {inicio, fim, tratador}
+
+        int posicao() {
+            return tamanho;
+        }
+
+        private void u1(int v) {
+            if (tamanho == bytes.length) {
+                bytes = Arrays.copyOf(bytes, tamanho * 2);
+            }
+            bytes[tamanho++] = (byte) v;
+        }
+
+        private void u2(int v) {
+            u1(v >> 8);
+            u1(v);
+        }
+
+        void op(int opcode) {
+            u1(opcode);
+        }
+
+        void op(int opcode, int operandoU1) {
+            u1(opcode);
+            u1(operandoU1);
+        }
+
+        void constante(int v) {
+            if (v >= -1 && v <= 5) {
+                op(ICONST_0 + v);
+            } else if (v >= Byte.MIN_VALUE && v <= Byte.MAX_VALUE) {
+                op(BIPUSH, v & 0xFF);
+            } else if (v >= Short.MIN_VALUE && v <= Short.MAX_VALUE) {
+                op(SIPUSH);
+                u2(v);
+            } else {
+                op(LDC_W);
+                u2(inteiro(v));
+            }
+        }
+
+        void iload(int local)  { op(ILOAD, local); }
+        void istore(int local) { op(ISTORE, local); }
+        void aload(int local)  { op(ALOAD, local); }
+        void astore(int local) { op(ASTORE, local); }
+
+        void iinc(int local, int incremento) {
+            op(IINC, local);
+            u1(incremento);
+        }
+
+        void invocar(int opcode, String dono, String nomeMetodo, String descritor) {
+            op(opcode);
+            u2(metodo(dono, nomeMetodo, descritor));
+        }
+
+        void saltar(int opcode, Rotulo destino) {
+            int origem = posicao();
+            op(opcode);
+            if (destino.posicao >= 0) {
+                u2(destino.posicao - origem);
+            } else {
+                destino.pendentes.add(origem);
+                u2(0);
+            }
+        }
+
+        void marcar(Rotulo rotulo) {
+            rotulo.posicao = posicao();
+            for (int origem : rotulo.pendentes) {
+                int deslocamento = rotulo.posicao - origem;
+                if (deslocamento > Short.MAX_VALUE) {
+                    throw new IllegalStateException("Salto longo demais no código gerado");
+                }
+                bytes[origem + 1] = (byte) (deslocamento >> 8);
+                bytes[origem + 2] = (byte) deslocamento;
+            }
+            rotulo.pendentes.clear();
+        }
+
+        /** Protege [inicio, fim) com um tratador para qualquer Throwable. */
+        void protegerTudo(Rotulo inicio, Rotulo fim, Rotulo tratador) {
+            excecoes.add(new int[] { inicio.posicao, fim.posicao, tratador.posicao });
+        }
+
+        byte[] bytes() {
+            return Arrays.copyOf(bytes, tamanho);
+        }
+    }
+
+    // =========================
+    //  Montagem da classe
+    // =========================
+
+    /**
+     * Devolve os bytes da classe: construtor público sem argumentos e o
+     * método dado, público e não estático.
+     */
+    byte[] gerar(String nomeMetodo, String descritor, Codigo codigo, int maxPilha, int maxLocais) {
+        int esta = classe(nome);
+        int superclasse = classe("java/lang/Object");
+        int interfaceIdx = classe(interfaceImplementada);
+        int nomeInit = utf8("<init>");
+        int descInit = utf8("()V");
+        int initObject = metodo("java/lang/Object", "<init>", "()V");
+        int nomeM = utf8(nomeMetodo);
+        int descM = utf8(descritor);
+        int atributoCode = utf8("Code");
+
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        escreverU4(saida, 0xCAFEBABE);
+        escreverU2(saida, 0);
+        escreverU2(saida, VERSAO_CLASSE);
+        escreverU2(saida, proximoIndice);
+        byte[] bytesPool = pool.toByteArray();
+        saida.write(bytesPool, 0, bytesPool.length);
+
+        escreverU2(saida, 0x0030); // ACC_FINAL | ACC_SUPER
+        escreverU2(saida, esta);
+        escreverU2(saida, superclasse);
+        escreverU2(saida, 1);
+        escreverU2(saida, interfaceIdx);
+        escreverU2(saida, 0); // campos
+
+        escreverU2(saida, 2); // métodos
+
+        // public <init>() { super(); }
+        escreverU2(saida, 0x0001);
+        escreverU2(saida, nomeInit);
+        escreverU2(saida, descInit);
+        escreverU2(saida, 1);
+        byte[] init = { 0x2A, (byte) INVOKESPECIAL, (byte) (initObject >> 8), (byte) initObject, (byte) RETURN };
+        escreverAtributoCode(saida, atributoCode, init, 1, 1, new ArrayList<>());
+
+        escreverU2(saida, 0x0001);
+        escreverU2(saida, nomeM);
+        escreverU2(saida, descM);
+        escreverU2(saida, 1);
+        escreverAtributoCode(saida, atributoCode, codigo.bytes(), maxPilha, maxLocais, codigo.excecoes);
+
+        escreverU2(saida, 0); // atributos da classe
+        return saida.toByteArray();
+    }
+
+    private static void escreverAtributoCode(ByteArrayOutputStream saida, int nomeAtributo, byte[] codigo,
+                                             int maxPilha, int maxLocais, List<int[]> excecoes) {
+        escreverU2(saida, nomeAtributo);
+        escreverU4(saida, 2 + 2 + 4 + codigo.length + 2 + 8 * excecoes.size() + 2);
+        escreverU2(saida, maxPilha);
+        escreverU2(saida, maxLocais);
+        escreverU4(saida, codigo.length);
+        saida.write(codigo, 0, codigo.length);
+        escreverU2(saida, excecoes.size());
+        for (int[] e : excecoes) {
+            escreverU2(saida, e[0]);
+            escreverU2(saida, e[1]);
+            escreverU2(saida, e[2]);
+            escreverU2(saida, 0); // qualquer Throwable
+        }
+        escreverU2(saida, 0);
+    }
+
+    private static void escreverU2(ByteArrayOutputStream s, int v) {
+        s.write((v >> 8) & 0xFF);
+        s.write(v & 0xFF);
+    }
+
+    private static void escreverU4(ByteArrayOutputStream s, int v) {
+        s.write((v >> 24) & 0xFF);
+        s.write((v >> 16) & 0xFF);
+        s.write((v >> 8) & 0xFF);
+        s.write(v & 0xFF);
+    }
+}
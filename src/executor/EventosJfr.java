@@ -0,0 +1,108 @@
+package executor;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Eventos do JDK Flight Recorder emitidos pelo simulador, para cruzar a
+ * execução do programa convidado com GC, JIT e CPU do processo hospedeiro.
+ *
+ * Nenhum evento é emitido por instrução, e sem gravação ativa cada ponto
+ * de emissão custa só a checagem de {@code isEnabled()}. As fatias de
+ * execução são agrupadas pela {@link Maquina}, no máximo uma a cada
+ * {@value #INTERVALO_FATIA_MS} ms por máquina; a fatia ainda aberta de uma
+ * máquina que deixa de ser usada logo depois de emitir outra fica sem
+ * evento. Capturas e restaurações (uma por execução no
+ * {@link ExecutorLote}) só são gravadas a partir de 1 ms, limite que a
+ * configuração da gravação pode mudar.
+ *
+ * Para gravar: {@code java -XX:StartFlightRecording:filename=sim.jfr ...}
+ */
+final class EventosJfr {
+
+    static final String CATEGORIA = "Simulador SIC/XE";
+
+    /** Intervalo mínimo entre duas fatias de execução de uma mesma máquina. */
+    static final long INTERVALO_FATIA_MS = 20;
+
+    private EventosJfr() {
+    }
+
+    @Name("executor.Carregamento")
+    @Label("Carregamento de programa")
+    @Category(CATEGORIA)
+    @StackTrace(false)
+    static final class Carregamento extends Event {
+        @Label("Formato")
+        String formato;
+
+        @Label("Origem")
+        String origem;
+
+        @Label("Palavras")
+        long palavras;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("executor.FatiaExecucao")
+    @Label("Fatia de execução")
+    @Description("Chamadas seguidas de executar() numa máquina, agrupadas para limitar a taxa de eventos")
+    @Category(CATEGORIA)
+    @StackTrace(false)
+    static final class FatiaExecucao extends Event {
+        @Label("Motor")
+        String motor;
+
+        @Label("Chamadas")
+        long chamadas;
+
+        @Label("Passos")
+        long passos;
+
+        @Label("Tempo executando")
+        @Timespan
+        long nanosExecutando;
+
+        @Label("Motivo da parada")
+        @Description("Motivo da última chamada da fatia")
+        String motivo;
+    }
+
+    @Name("executor.Instantaneo")
+    @Label("Captura ou restauração de estado")
+    @Category(CATEGORIA)
+    @StackTrace(false)
+    @Threshold("1 ms")
+    static final class Instantaneo extends Event {
+        @Label("Operação")
+        String operacao;
+
+        @Label("Páginas alocadas")
+        int paginasAlocadas;
+    }
+
+    @Name("executor.Falha")
+    @Label("Falha do programa convidado")
+    @Description("Exceção lançada por uma instrução (divisão por zero, acesso fora da memória...)")
+    @Category(CATEGORIA)
+    static final class Falha extends Event {
+        @Label("Tipo")
+        String tipo;
+
+        @Label("Mensagem")
+        String mensagem;
+
+        @Label("PC")
+        int pc;
+    }
+}
@@ -0,0 +1,292 @@
+package executor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Roda o mesmo programa sobre muitas entradas, em paralelo.
+ *
+ * O programa é carregado uma única vez e capturado num {@link Instantaneo}.
+ * Cada thread do executor tem a sua própria {@link Maquina}, reaproveitada
+ * entre execuções: antes de cada entrada a máquina volta ao instantâneo
+ * (só as páginas sujas são trocadas), recebe os remendos da entrada e roda
+ * até parar. Os blocos compilados pelo motor {@link MotorExecucao#COMPILADO}
+ * são compartilhados entre as threads.
+ *
+ * As entradas são despachadas em grupos de {@value #ENTRADAS_POR_TAREFA},
+ * com no máximo algumas tarefas em voo por thread, e as saídas voltam na
+ * ordem das entradas.
+ *
+ * Uso:
+ * <pre>
+ * try (ExecutorLote lote = new ExecutorLote(programa, MotorExecucao.COMPILADO, 1_000_000,
+ *                                           List.of(new int[] { 0x300, 3 }))) {
+ *     lote.executar(entradas).forEach(saida -> ...);
+ * }
+ * </pre>
+ */
+public final class ExecutorLote implements AutoCloseable {
+
+    static final int ENTRADAS_POR_TAREFA = 64;
+    private static final int TAREFAS_EM_VOO_POR_THREAD = 4;
+
+    private final MotorExecucao motor;
+    private final long maxPassos;
+    private final int[][] regioesSaida;
+    private final Instantaneo carregado;
+    private final int paralelismo;
+    private final ExecutorService threads;
+    private final ThreadLocal<Maquina> maquinas;
+
+    public ExecutorLote(List<String> programaHex, MotorExecucao motor, long maxPassos, List<int[]> regioesSaida) {
+        this(programaHex, motor, maxPassos, regioesSaida, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param regioesSaida trechos de memória copiados para cada {@link Saida},
+     *                     como pares {enderecoByte, quantidadeBytes}
+     */
+    public ExecutorLote(List<String> programaHex, MotorExecucao motor, long maxPassos,
+                        List<int[]> regioesSaida, int paralelismo) {
+        if (paralelismo <= 0) {
+            throw new IllegalArgumentException("Paralelismo deve ser positivo.");
+        }
+        this.motor = motor;
+        this.maxPassos = maxPassos;
+
+        Maquina modelo = new Maquina(Memoria.PALAVRAS_ENDERECAVEIS, MotorExecucao.INTERPRETADOR);
+        modelo.carregarProgramaHex(programaHex, 0x0000);
+        this.carregado = modelo.capturar();
+
+        this.regioesSaida = new int[regioesSaida.size()][];
+        for (int i = 0; i < this.regioesSaida.length; i++) {
+            int[] r = regioesSaida.get(i);
+            if (r.length != 2 || r[0] < 0 || r[1] < 0
+                    || (long) r[0] + r[1] > modelo.getMemoria().getTamanhoEmBytes()) {
+                throw new IllegalArgumentException("Região de saída inválida; use {endereço, quantidade} dentro da memória.");
+            }
+            this.regioesSaida[i] = r.clone();
+        }
+
+        this.paralelismo = paralelismo;
+        AtomicInteger numero = new AtomicInteger();
+        this.threads = Executors.newFixedThreadPool(paralelismo, r -> {
+            Thread t = new Thread(r, "sicxe-lote-" + numero.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.maquinas = ThreadLocal.withInitial(() -> new Maquina(Memoria.PALAVRAS_ENDERECAVEIS, this.motor));
+    }
+
+    // =========================
+    //  Entrada e saída
+    // =========================
+
+    /** Remendos aplicados à memória (e opcionalmente aos registradores) antes de uma execução. */
+    public static final class Entrada {
+        private final List<Integer> enderecos = new ArrayList<>();
+        private final List<byte[]> conteudos = new ArrayList<>();
+        private final int[] registradores = new int[CPU.COD_T + 1];
+        private int registradoresDefinidos; // bit r ligado = registrador r definido
+
+        public Entrada bytes(int enderecoByte, byte[] conteudo) {
+            enderecos.add(enderecoByte);
+            conteudos.add(conteudo.clone());
+            return this;
+        }
+
+        public Entrada palavra(int enderecoByte, int valor) {
+            return bytes(enderecoByte, new byte[] { (byte) (valor >> 16), (byte) (valor >> 8), (byte) valor });
+        }
+
+        public Entrada registrador(int codigo, int valor) {
+            if (!CPU.codigoGeral(codigo)) {
+                throw new IllegalArgumentException("Registrador inválido para entrada: " + codigo);
+            }
+            registradores[codigo] = valor;
+            registradoresDefinidos |= 1 << codigo;
+            return this;
+        }
+
+        void aplicar(Maquina maquina) {
+            for (int i = 0; i < enderecos.size(); i++) {
+                maquina.getMemoria().escreverBytes(enderecos.get(i), conteudos.get(i));
+            }
+            for (int r = CPU.COD_A; r <= CPU.COD_T; r++) {
+                if ((registradoresDefinidos & (1 << r)) != 0) {
+                    maquina.getCpu().escrever(r, registradores[r]);
+                }
+            }
+        }
+    }
+
+    /** Resultado de uma entrada: como a execução parou, os registradores e as regiões pedidas. */
+    public static final class Saida {
+        private final long indice;
+        private final ResultadoExecucao resultado;
+        private final RuntimeException erro;
+        private final int[] registradores;
+        private final int cc;
+        private final byte[][] regioes;
+
+        Saida(long indice, ResultadoExecucao resultado, RuntimeException erro,
+              int[] registradores, int cc, byte[][] regioes) {
+            this.indice = indice;
+            this.resultado = resultado;
+            this.erro = erro;
+            this.registradores = registradores;
+            this.cc = cc;
+            this.regioes = regioes;
+        }
+
+        /** Posição da entrada no fluxo original (a partir de 0). */
+        public long getIndice() {
+            return indice;
+        }
+
+        /** null se a execução terminou com erro. */
+        public ResultadoExecucao getResultado() {
+            return resultado;
+        }
+
+        /** Exceção lançada pela execução (divisão por zero, endereço inválido...), ou null. */
+        public RuntimeException getErro() {
+            return erro;
+        }
+
+        /** Valor de 24 bits do registrador (A..T, PC) ao fim da execução. */
+        public int getRegistrador(int codigo) {
+            return registradores[codigo];
+        }
+
+        public int getCC() {
+            return cc;
+        }
+
+        /** Cópia da i-ésima região de saída. */
+        public byte[] getRegiao(int i) {
+            return regioes[i];
+        }
+    }
+
+    // =========================
+    //  Execução
+    // =========================
+
+    /**
+     * Devolve as saídas na mesma ordem das entradas. O fluxo é preguiçoso:
+     * as entradas são consumidas à medida que as saídas são pedidas, com um
+     * número limitado de execuções adiantadas.
+     */
+    public Stream<Saida> executar(Stream<Entrada> entradas) {
+        Iterator<Entrada> fonte = entradas.iterator();
+        Iterator<Saida> saidas = new Iterator<Saida>() {
+            private final ArrayDeque<Future<Saida[]>> emVoo = new ArrayDeque<>();
+            private Saida[] grupoAtual = new Saida[0];
+            private int posicao;
+            private long proximoIndice;
+
+            private void encher() {
+                while (emVoo.size() < paralelismo * TAREFAS_EM_VOO_POR_THREAD && fonte.hasNext()) {
+                    List<Entrada> grupo = new ArrayList<>(ENTRADAS_POR_TAREFA);
+                    while (grupo.size() < ENTRADAS_POR_TAREFA && fonte.hasNext()) {
+                        grupo.add(fonte.next());
+                    }
+                    long primeiro = proximoIndice;
+                    proximoIndice += grupo.size();
+                    emVoo.add(threads.submit(() -> rodarGrupo(primeiro, grupo)));
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                if (posicao < grupoAtual.length) {
+                    return true;
+                }
+                encher();
+                return !emVoo.isEmpty();
+            }
+
+            @Override
+            public Saida next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (posicao == grupoAtual.length) {
+                    grupoAtual = aguardar(emVoo.poll());
+                    posicao = 0;
+                    encher(); // mantém as threads ocupadas enquanto o chamador consome este grupo
+                }
+                return grupoAtual[posicao++];
+            }
+        };
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(saidas, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(entradas::close);
+    }
+
+    private static Saida[] aguardar(Future<Saida[]> tarefa) {
+        try {
+            return tarefa.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido esperando o lote", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha no executor do lote", e.getCause());
+        }
+    }
+
+    private Saida[] rodarGrupo(long primeiroIndice, List<Entrada> grupo) {
+        Maquina maquina = maquinas.get();
+        Saida[] saidas = new Saida[grupo.size()];
+        for (int i = 0; i < saidas.length; i++) {
+            saidas[i] = rodar(maquina, primeiroIndice + i, grupo.get(i));
+        }
+        return saidas;
+    }
+
+    private Saida rodar(Maquina maquina, long indice, Entrada entrada) {
+        maquina.restaurar(carregado);
+
+        ResultadoExecucao resultado = null;
+        RuntimeException erro = null;
+        try {
+            entrada.aplicar(maquina);
+            resultado = maquina.executar(maxPassos);
+        } catch (RuntimeException e) {
+            erro = e;
+        }
+
+        CPU cpu = maquina.getCpu();
+        int[] registradores = new int[CPU.COD_PC + 1];
+        for (int r = CPU.COD_A; r <= CPU.COD_T; r++) {
+            registradores[r] = cpu.ler(r);
+        }
+        registradores[CPU.COD_PC] = cpu.ler(CPU.COD_PC);
+
+        byte[][] regioes = new byte[regioesSaida.length][];
+        for (int i = 0; i < regioes.length; i++) {
+            regioes[i] = new byte[regioesSaida[i][1]];
+            maquina.getMemoria().lerBytes(regioesSaida[i][0], regioes[i]);
+        }
+        return new Saida(indice, resultado, erro, registradores, cpu.getCC(), regioes);
+    }
+
+    /** Encerra as threads do executor; execuções já despachadas terminam normalmente. */
+    @Override
+    public void close() {
+        threads.shutdown();
+    }
+}
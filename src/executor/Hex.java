@@ -0,0 +1,23 @@
+package executor;
+
+/** Decodificação de dígitos hexadecimais por tabela, sem criar Strings. */
+final class Hex {
+
+    /** Valor de cada byte ASCII como dígito hexadecimal, ou -1. */
+    private static final byte[] NIBBLE = new byte[256];
+
+    static {
+        java.util.Arrays.fill(NIBBLE, (byte) -1);
+        for (int c = '0'; c <= '9'; c++) NIBBLE[c] = (byte) (c - '0');
+        for (int c = 'A'; c <= 'F'; c++) NIBBLE[c] = (byte) (c - 'A' + 10);
+        for (int c = 'a'; c <= 'f'; c++) NIBBLE[c] = (byte) (c - 'a' + 10);
+    }
+
+    private Hex() {
+    }
+
+    /** Valor do dígito (0..15) ou -1 se o byte não é um dígito hexadecimal. */
+    static int nibble(byte c) {
+        return NIBBLE[c & 0xFF];
+    }
+}
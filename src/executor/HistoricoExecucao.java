@@ -0,0 +1,245 @@
+package executor;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Histórico para execução reversa de uma {@link Maquina} (ver
+ * {@link Maquina#voltar}).
+ *
+ * Cada passo guarda só o que sobrescreveu: os registradores que mudaram e os
+ * bytes de memória escritos, com os valores antigos, num anel de ints de
+ * tamanho fixo. Voltar um passo custa o que ele escreveu, então voltar N
+ * passos custa proporcional a N, qualquer que seja o tamanho do programa.
+ * Quando o anel enche, os passos mais antigos são descartados; para ir além
+ * deles ficam instantâneos completos a cada tantos passos, e a máquina volta
+ * ao instantâneo anterior e refaz o caminho até o passo pedido (no máximo um
+ * intervalo de passos, já que a execução é determinística).
+ *
+ * A memória usada é limitada pelo tamanho do anel mais os instantâneos, que
+ * dividem com a memória as páginas que não mudaram (copy-on-write).
+ * Qualquer mudança de estado fora de um passo (carregar um programa,
+ * {@link Maquina#restaurar}, escrever na memória entre execuções) limpa o
+ * histórico; mudanças diretas nos registradores não são percebidas. E/S
+ * em {@link Dispositivos} não é desfeita, e o histórico não refaz passos a
+ * partir de um instantâneo anterior à última instrução de E/S.
+ */
+public final class HistoricoExecucao {
+
+    public static final int INTERVALO_INSTANTANEOS_PADRAO = 100_000;
+    public static final int MAX_INSTANTANEOS_PADRAO = 8;
+
+    // entradas do anel; um passo é gravado como suas entradas seguidas de um
+    // cabeçalho com o número de ints delas, e lido de trás para frente
+    private static final int TIPO_MEMORIA = 0;            // endereço << 8 | byte antigo
+    private static final int TIPO_REGISTRADOR = 1 << 30;  // código << 24 | valor antigo
+    private static final int TIPO_COMPARACAO = 2 << 30;   // precedido do valor antigo, inteiro
+    private static final int TIPO_F = 3 << 30;            // precedido das metades alta e baixa do F antigo
+    private static final int MASCARA_TIPO = 3 << 30;
+
+    private final int[] anel;
+    private final int mascara;
+    private final int intervaloInstantaneos;
+    private final int maxInstantaneos;
+    private final TreeMap<Long, Instantaneo> instantaneos = new TreeMap<>();
+
+    private long fim;        // posição absoluta da próxima entrada
+    private long descartado; // posições abaixo desta já foram sobrescritas
+    private long passo;      // passos desde o início do histórico
+    private long passoEntradaSaida = -1; // último passo com TD/RD/WD: não pode ser refeito
+
+    // passo em andamento
+    private boolean noPasso;
+    private long inicioPasso;
+    private final int[] registradoresAntes = new int[10];
+    private int comparacaoAntes;
+    private long fAntes;
+
+    // a Maquina está desfazendo ou refazendo passos: escritas não limpam o histórico
+    boolean voltando;
+
+    /** Anel de {@code capacidadeBytes} e instantâneos nos intervalos padrão. */
+    public HistoricoExecucao(int capacidadeBytes) {
+        this(capacidadeBytes, INTERVALO_INSTANTANEOS_PADRAO, MAX_INSTANTANEOS_PADRAO);
+    }
+
+    /**
+     * @param capacidadeBytes       tamanho do anel de passos (arredondado para baixo a uma potência de 2)
+     * @param intervaloInstantaneos passos entre dois instantâneos completos
+     * @param maxInstantaneos       instantâneos guardados; os mais antigos são descartados
+     */
+    public HistoricoExecucao(int capacidadeBytes, int intervaloInstantaneos, int maxInstantaneos) {
+        if (capacidadeBytes < 64 || intervaloInstantaneos <= 0 || maxInstantaneos <= 0) {
+            throw new IllegalArgumentException("Capacidade mínima de 64 bytes e intervalos positivos.");
+        }
+        this.anel = new int[Integer.highestOneBit(capacidadeBytes / 4)];
+        this.mascara = anel.length - 1;
+        this.intervaloInstantaneos = intervaloInstantaneos;
+        this.maxInstantaneos = maxInstantaneos;
+    }
+
+    public int getCapacidadeBytes() {
+        return anel.length * 4;
+    }
+
+    /** Passos executados desde o início do histórico (diminui ao voltar). */
+    public long getPasso() {
+        return passo;
+    }
+
+    /** Se ainda há algum passo para voltar, pelo anel ou por um instantâneo. */
+    public boolean podeVoltar() {
+        if (passo == 0) {
+            return false;
+        }
+        long cabecalho = fim - 1;
+        if (noPasso || (cabecalho >= descartado && cabecalho - anel[(int) cabecalho & mascara] >= descartado)) {
+            return true;
+        }
+        return instantaneoAte(passo - 1) != null;
+    }
+
+    /** Esquece todos os passos e instantâneos; o estado atual vira o passo 0. */
+    public void limpar() {
+        fim = 0;
+        descartado = 0;
+        passo = 0;
+        noPasso = false;
+        passoEntradaSaida = -1;
+        instantaneos.clear();
+    }
+
+    // =========================
+    //  Gravação (chamada pela Maquina)
+    // =========================
+
+    /** Se é hora de guardar um instantâneo antes do próximo passo. */
+    boolean querInstantaneo() {
+        return passo % intervaloInstantaneos == 0 && !instantaneos.containsKey(passo);
+    }
+
+    void guardarInstantaneo(Instantaneo instantaneo) {
+        instantaneos.put(passo, instantaneo);
+        if (instantaneos.size() > maxInstantaneos) {
+            instantaneos.pollFirstEntry();
+        }
+    }
+
+    void antesDoPasso(CPU cpu) {
+        if (noPasso) {
+            fecharPasso(cpu); // o passo anterior lançou exceção no meio: vale como passo
+        }
+        System.arraycopy(cpu.banco(), 0, registradoresAntes, 0, registradoresAntes.length);
+        comparacaoAntes = cpu.getComparacao();
+        fAntes = cpu.lerF();
+        inicioPasso = fim;
+        noPasso = true;
+    }
+
+    void depoisDoPasso(CPU cpu) {
+        fecharPasso(cpu);
+    }
+
+    private void fecharPasso(CPU cpu) {
+        int[] banco = cpu.banco();
+        for (int codigo = 0; codigo < registradoresAntes.length; codigo++) {
+            if (banco[codigo] != registradoresAntes[codigo]) {
+                gravar(TIPO_REGISTRADOR | codigo << 24 | registradoresAntes[codigo]);
+            }
+        }
+        if (cpu.getComparacao() != comparacaoAntes) {
+            gravar(comparacaoAntes);
+            gravar(TIPO_COMPARACAO);
+        }
+        if (cpu.lerF() != fAntes) {
+            gravar((int) (fAntes >>> 24));
+            gravar((int) fAntes & 0xFFFFFF);
+            gravar(TIPO_F);
+        }
+        gravar((int) (fim - inicioPasso));
+        noPasso = false;
+        passo++;
+    }
+
+    /** O passo em andamento usa um dispositivo; refazê-lo repetiria a E/S. */
+    void marcarEntradaSaida() {
+        passoEntradaSaida = passo;
+    }
+
+    /** Antes de uma escrita na memória: dentro de um passo guarda os bytes antigos; fora dele, o histórico perde o sentido. */
+    void aoEscrever(Memoria memoria, int enderecoByte, int quantidadeBytes) {
+        if (noPasso) {
+            for (int i = 0; i < quantidadeBytes; i++) {
+                gravar(TIPO_MEMORIA | (enderecoByte + i) << 8 | memoria.lerByteSemObservar(enderecoByte + i));
+            }
+        } else if (!voltando) {
+            limpar();
+        }
+    }
+
+    private void gravar(int entrada) {
+        anel[(int) fim & mascara] = entrada;
+        fim++;
+        if (fim - descartado > anel.length) {
+            descartado = fim - anel.length;
+        }
+    }
+
+    // =========================
+    //  Volta (chamada pela Maquina)
+    // =========================
+
+    /**
+     * Desfaz o último passo, se ele ainda está inteiro no anel. As escritas
+     * na memória passam pela Memoria (e portanto pelos caches de código e
+     * pela observação de pontos de parada).
+     */
+    boolean desfazer(CPU cpu, Memoria memoria) {
+        if (noPasso) {
+            fecharPasso(cpu);
+        }
+        long cabecalho = fim - 1;
+        if (passo == 0 || cabecalho < descartado) {
+            return false;
+        }
+        long inicio = cabecalho - anel[(int) cabecalho & mascara];
+        if (inicio < descartado) {
+            return false;
+        }
+        for (long p = cabecalho - 1; p >= inicio; p--) {
+            int entrada = anel[(int) p & mascara];
+            switch (entrada & MASCARA_TIPO) {
+                case TIPO_MEMORIA:
+                    memoria.escreverByte(entrada >>> 8, entrada & 0xFF);
+                    break;
+                case TIPO_REGISTRADOR:
+                    cpu.escrever((entrada >>> 24) & 0xF, entrada & 0xFFFFFF);
+                    break;
+                case TIPO_COMPARACAO:
+                    p--;
+                    cpu.setCCFromCompare(anel[(int) p & mascara]);
+                    break;
+                default: // TIPO_F
+                    p -= 2;
+                    cpu.escreverF((long) anel[(int) p & mascara] << 24 | anel[(int) (p + 1) & mascara]);
+            }
+        }
+        fim = inicio;
+        passo--;
+        return true;
+    }
+
+    /** Último instantâneo até o passo dado, ou null se não há nenhum ou se refazer dele repetiria E/S. */
+    Map.Entry<Long, Instantaneo> instantaneoAte(long alvo) {
+        Map.Entry<Long, Instantaneo> anterior = instantaneos.floorEntry(alvo);
+        return anterior != null && anterior.getKey() > passoEntradaSaida ? anterior : null;
+    }
+
+    /** Depois de restaurar o instantâneo do passo dado: o anel recomeça vazio dali. */
+    void recomecarEm(long passoDoInstantaneo) {
+        fim = 0;
+        descartado = 0;
+        noPasso = false;
+        passo = passoDoInstantaneo;
+    }
+}
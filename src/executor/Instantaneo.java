@@ -0,0 +1,51 @@
+package executor;
+
+/**
+ * Estado completo de uma {@link Maquina} (registradores, F, CC, ciclos e memória),
+ * obtido com {@link Maquina#capturar()} e devolvido com
+ * {@link Maquina#restaurar(Instantaneo)}.
+ *
+ * É imutável: o mesmo instantâneo pode ser restaurado muitas vezes e em
+ * várias máquinas com memória do mesmo tamanho. A memória é guardada como
+ * uma {@link Memoria.Imagem}, que divide as páginas em vez de copiá-las.
+ */
+public final class Instantaneo {
+
+    final int[] registradores;
+    final long f;
+    final int comparacao;
+    final long ciclos;
+    final Memoria.Imagem memoria;
+
+    Instantaneo(int[] registradores, long f, int comparacao, long ciclos, Memoria.Imagem memoria) {
+        this.registradores = registradores;
+        this.f = f;
+        this.comparacao = comparacao;
+        this.ciclos = ciclos;
+        this.memoria = memoria;
+    }
+
+    /** Valor de 24 bits do registrador (códigos de {@link CPU}). */
+    public int getRegistrador(int codigo) {
+        return registradores[codigo];
+    }
+
+    /** Registrador F, 48 bits. */
+    public long getF() {
+        return f;
+    }
+
+    /** CC: -1, 0 ou 1. */
+    public int getCC() {
+        return Integer.signum(comparacao);
+    }
+
+    /** Ciclos simulados contados pela máquina até a captura (ver {@link ModeloCiclos}). */
+    public long getCiclos() {
+        return ciclos;
+    }
+
+    public Memoria.Imagem getMemoria() {
+        return memoria;
+    }
+}
@@ -8,26 +8,89 @@ public class Instrucao {
     public int disp;         // deslocamento com sinal (formato 3) ou endereço (formato 4)
     public int r1, r2;       // formato 2
     public int tamanhoBytes;
+    public int ciclos;       // custo no ModeloCiclos da Maquina (0 sem modelo)
+
+    // =========================
+    //  FORMA EMPACOTADA (cache de decodificação)
+    // =========================
+    //
+    //  bits  0..7   opcode
+    //  bits  8..10  formato
+    //  bits 11..13  tamanho em bytes
+    //  bits 14..19  n, i, x, b, p, e
+    //  bits 20..23  r1
+    //  bits 24..27  r2
+    //  bit  31      entrada válida (0 = posição vazia no cache)
+    //  bits 32..55  disp (24 bits)
+    //  bits 56..63  ciclos
+
+    static final long EMPACOTADA_VALIDA = 1L << 31;
+
+    public long empacotar() {
+        long v = opcode & 0xFF;
+        v |= (long) (formato & 0x7) << 8;
+        v |= (long) (tamanhoBytes & 0x7) << 11;
+        v |= (long) (n & 1) << 14;
+        v |= (long) (i & 1) << 15;
+        v |= (long) (x & 1) << 16;
+        v |= (long) (b & 1) << 17;
+        v |= (long) (p & 1) << 18;
+        v |= (long) (e & 1) << 19;
+        v |= (long) (r1 & 0xF) << 20;
+        v |= (long) (r2 & 0xF) << 24;
+        v |= EMPACOTADA_VALIDA;
+        v |= (long) (disp & 0xFFFFFF) << 32;
+        v |= (long) (ciclos & 0xFF) << 56;
+        return v;
+    }
+
+    /** Preenche esta instrução a partir da forma empacotada, sem alocar. */
+    public void desempacotar(long v) {
+        opcode       = (int) (v & 0xFF);
+        formato      = (int) ((v >>> 8) & 0x7);
+        tamanhoBytes = (int) ((v >>> 11) & 0x7);
+        n  = (int) ((v >>> 14) & 1);
+        i  = (int) ((v >>> 15) & 1);
+        x  = (int) ((v >>> 16) & 1);
+        b  = (int) ((v >>> 17) & 1);
+        p  = (int) ((v >>> 18) & 1);
+        e  = (int) ((v >>> 19) & 1);
+        r1 = (int) ((v >>> 20) & 0xF);
+        r2 = (int) ((v >>> 24) & 0xF);
+
+        int d = (int) ((v >>> 32) & 0xFFFFFF);
+        if (formato == 3 && (d & 0x800) != 0) {
+            d |= 0xFFFFF000; // formato 3: deslocamento com sinal
+        }
+        disp = d;
+        ciclos = (int) (v >>> 56);
+    }
 
     public static Instrucao decodificar(Memoria memoria, int pcByte) {
         Instrucao inst = new Instrucao();
 
-        int b1 = memoria.lerByte(pcByte);
+        int b1 = memoria.lerByteSemObservar(pcByte);
         int op = b1 & 0xFC; // zera 2 bits menos significativos
 
         inst.opcode = op;
 
-        int formatoBase = getFormatoBase(op);
+        DescritorOpcode descritor = DescritorOpcode.de(op);
+        if (descritor == null) {
+            // opcode inexistente: formato 0, a execução acusa o erro
+            inst.formato = 0;
+            inst.tamanhoBytes = 1;
+            return inst;
+        }
 
-        if (formatoBase == 1) {
+        if (descritor.formato == 1) {
             inst.formato = 1;
             inst.tamanhoBytes = 1;
             return inst;
         }
 
-        if (formatoBase == 2) {
+        if (descritor.formato == 2) {
             inst.formato = 2;
-            int b2 = memoria.lerByte(pcByte + 1);
+            int b2 = memoria.lerByteSemObservar(pcByte + 1);
             inst.r1 = (b2 >> 4) & 0x0F;
             inst.r2 = b2 & 0x0F;
             inst.tamanhoBytes = 2;
@@ -35,8 +98,8 @@ public class Instrucao {
         }
 
         // formato 3/4
-        int b2 = memoria.lerByte(pcByte + 1);
-        int b3 = memoria.lerByte(pcByte + 2);
+        int b2 = memoria.lerByteSemObservar(pcByte + 1);
+        int b3 = memoria.lerByteSemObservar(pcByte + 2);
 
         inst.n = (b1 >> 1) & 0x1;
         inst.i = b1 & 0x1;
@@ -59,7 +122,7 @@ public class Instrucao {
         } else {
             // formato 4
             inst.formato = 4;
-            int b4 = memoria.lerByte(pcByte + 3);
+            int b4 = memoria.lerByteSemObservar(pcByte + 3);
             int addr20 = ((b2 & 0x0F) << 16) | (b3 << 8) | b4;
             inst.disp = addr20; // disp como endereço direto
             inst.tamanhoBytes = 4;
@@ -67,39 +130,4 @@ public class Instrucao {
 
         return inst;
     }
-
-    private static int getFormatoBase(int opcode) {
-        switch (opcode) {
-            // formato 3/4
-            case Opcode.LDA: case Opcode.LDX: case Opcode.LDL:
-            case Opcode.LDB: case Opcode.LDS: case Opcode.LDT:
-            case Opcode.LDCH:
-            case Opcode.STA: case Opcode.STX: case Opcode.STL:
-            case Opcode.STB: case Opcode.STS: case Opcode.STT:
-            case Opcode.STCH:
-            case Opcode.ADD: case Opcode.SUB:
-            case Opcode.MUL: case Opcode.DIV:
-            case Opcode.COMP:
-            case Opcode.AND: case Opcode.OR:
-            case Opcode.J: case Opcode.JEQ: case Opcode.JGT: case Opcode.JLT:
-            case Opcode.JSUB:
-            case Opcode.RSUB:
-            case Opcode.TIX:
-                return 3;
-
-            // formato 2
-            case Opcode.ADDR: case Opcode.SUBR:
-            case Opcode.MULR: case Opcode.DIVR:
-            case Opcode.COMPR:
-            case Opcode.SHIFTL: case Opcode.SHIFTR:
-            case Opcode.RMO:
-            case Opcode.CLEAR:
-            case Opcode.TIXR:
-                return 2;
-
-            default:
-                return 3;
-        }
-    }
-
 }
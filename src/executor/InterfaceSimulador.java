@@ -2,40 +2,56 @@ package executor;
 
 import javax.swing.*;
 import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 
 public class InterfaceSimulador extends JFrame {
 
-    private final Maquina maquina;
-    private final Path caminhoPrograma;
-    private final int totalInstrucoes;
+    // a máquina só é tocada pela thread do controlador; a interface lê os
+    // estados que ele publica, a esta taxa
+    private static final int ATUALIZACOES_POR_SEGUNDO = 30;
+
+    // memória máxima do anel de "Passo atrás" (fora os instantâneos periódicos)
+    private static final int TAMANHO_HISTORICO = 32 << 20;
+
+    private final ControladorExecucao controlador;
+    private long versaoMostrada = -1;
+    private long passosMostrados;
+    private ResultadoExecucao resultadoMostrado;
+    private RuntimeException erroMostrado;
 
     private final Map<String, JTextField> camposRegs = new LinkedHashMap<>();
     private final TabelaMemoriaModel modeloMemoria;
     private final JTable tabelaMemoria;
+    private final JLabel lblStatus = new JLabel(" ");
 
-    public InterfaceSimulador(Maquina maquina, Path caminhoPrograma, List<String> programaOriginal) {
+    /**
+     * A máquina já deve estar com o programa carregado; o estado atual vira o
+     * ponto de "Reiniciar". Daqui em diante ela pertence à interface.
+     */
+    public InterfaceSimulador(Maquina maquina, Path caminhoPrograma) {
         super("Simulador SIC/XE");
 
-        this.maquina = maquina;
-        this.caminhoPrograma = caminhoPrograma;
-        this.totalInstrucoes = programaOriginal.size();
+        setTitle("Simulador SIC/XE - " + caminhoPrograma.getFileName());
 
-        this.maquina.carregarProgramaHex(programaOriginal, 0x0000);
+        maquina.setHistorico(new HistoricoExecucao(TAMANHO_HISTORICO));
+        this.controlador = new ControladorExecucao(maquina);
 
-        this.modeloMemoria = new TabelaMemoriaModel(maquina.getMemoria());
+        this.modeloMemoria = new TabelaMemoriaModel(controlador.getEstado().getInstantaneo().getMemoria());
         this.tabelaMemoria = new JTable(modeloMemoria);
+        this.tabelaMemoria.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        this.tabelaMemoria.setDefaultRenderer(Object.class, new RenderizadorMemoria());
 
         inicializarComponentes();
         atualizarInterface();
+
+        new Timer(1000 / ATUALIZACOES_POR_SEGUNDO, e -> atualizarInterface()).start();
     }
 
     private void inicializarComponentes() {
@@ -47,14 +63,20 @@ public class InterfaceSimulador extends JFrame {
         add(painelRegs, BorderLayout.NORTH);
 
         // Painel de memória (centro)
-        JScrollPane scrollMemoria = new JScrollPane(tabelaMemoria);
-        add(scrollMemoria, BorderLayout.CENTER);
-
-        // Painel de botões (baixo)
-        JPanel painelBotoes = criarPainelBotoes();
-        add(painelBotoes, BorderLayout.SOUTH);
-
-        setSize(900, 600);
+        JPanel painelMemoria = new JPanel(new BorderLayout());
+        JCheckBox chkPalavras = new JCheckBox("Mostrar palavras");
+        chkPalavras.addActionListener(e -> modeloMemoria.setPorPalavras(chkPalavras.isSelected()));
+        painelMemoria.add(chkPalavras, BorderLayout.NORTH);
+        painelMemoria.add(new JScrollPane(tabelaMemoria), BorderLayout.CENTER);
+        add(painelMemoria, BorderLayout.CENTER);
+
+        // Painéis de pontos de parada e de botões (baixo)
+        JPanel painelInferior = new JPanel(new GridLayout(2, 1));
+        painelInferior.add(criarPainelPontosParada());
+        painelInferior.add(criarPainelBotoes());
+        add(painelInferior, BorderLayout.SOUTH);
+
+        setSize(1100, 600);
         setLocationRelativeTo(null);
     }
 
@@ -63,7 +85,7 @@ public class InterfaceSimulador extends JFrame {
     // =========================
 
     private JPanel criarPainelRegistradores() {
-        JPanel painel = new JPanel(new GridLayout(2, 4, 8, 4));
+        JPanel painel = new JPanel(new GridLayout(2, 5, 8, 4));
 
         adicionarCampoReg(painel, "A");
         adicionarCampoReg(painel, "X");
@@ -73,6 +95,7 @@ public class InterfaceSimulador extends JFrame {
         adicionarCampoReg(painel, "T");
         adicionarCampoReg(painel, "PC");
         adicionarCampoReg(painel, "CC");
+        adicionarCampoReg(painel, "F");
 
         return painel;
     }
@@ -96,121 +119,222 @@ public class InterfaceSimulador extends JFrame {
     private JPanel criarPainelBotoes() {
         JPanel painel = new JPanel(new FlowLayout(FlowLayout.CENTER));
 
+        JButton btnVoltarAteParada = new JButton("Voltar até parada");
+        JButton btnPassoAtras = new JButton("Passo atrás");
         JButton btnPasso = new JButton("Passo");
+        JButton btnExecutarAteParada = new JButton("Executar até parada");
         JButton btnExecutarTudo = new JButton("Executar tudo");
+        JButton btnPausar = new JButton("Pausar");
         JButton btnReiniciar = new JButton("Reiniciar");
+        JCheckBox chkHistorico = new JCheckBox("Histórico", true);
+
+        // "Executar tudo" ignora os pontos de parada; com o histórico desligado roda
+        // no motor da máquina, senão no interpretador (o histórico grava cada passo)
+        btnVoltarAteParada.addActionListener(e -> controlador.voltar(true));
+        btnPassoAtras.addActionListener(e -> controlador.passoAtras());
+        btnPasso.addActionListener(e -> controlador.passo());
+        btnExecutarAteParada.addActionListener(e -> controlador.executar(true));
+        btnExecutarTudo.addActionListener(e -> controlador.executar(false));
+        btnPausar.addActionListener(e -> controlador.pausar());
+        btnReiniciar.addActionListener(e -> {
+            controlador.reiniciar();
+            atualizarStatus("Execução reiniciada.");
+        });
+        chkHistorico.addActionListener(e -> {
+            boolean ligado = chkHistorico.isSelected();
+            btnVoltarAteParada.setEnabled(ligado);
+            btnPassoAtras.setEnabled(ligado);
+            controlador.enviar(m -> m.setHistorico(ligado ? new HistoricoExecucao(TAMANHO_HISTORICO) : null));
+        });
 
-        btnPasso.addActionListener(this::acaoPasso);
-        btnExecutarTudo.addActionListener(this::acaoExecutarTudo);
-        btnReiniciar.addActionListener(e -> reiniciarExecucao());
-
+        painel.add(btnVoltarAteParada);
+        painel.add(btnPassoAtras);
         painel.add(btnPasso);
+        painel.add(btnExecutarAteParada);
         painel.add(btnExecutarTudo);
+        painel.add(btnPausar);
         painel.add(btnReiniciar);
+        painel.add(chkHistorico);
 
         return painel;
     }
 
     // =========================
-    //  Ações dos botões
+    //  Painel de pontos de parada
     // =========================
 
-    private void acaoPasso(ActionEvent e) {
-        try {
-            maquina.passo();
-            atualizarInterface();
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                    "Erro ao executar passo: " + ex.getMessage(),
-                    "Erro",
-                    JOptionPane.ERROR_MESSAGE);
-        }
-    }
+    private JPanel criarPainelPontosParada() {
+        JPanel painel = new JPanel(new FlowLayout(FlowLayout.CENTER));
 
-    private void acaoExecutarTudo(ActionEvent e) {
-        // Executa EXATAMENTE o número de instruções do programa (uma por linha do .txt)
-        new Thread(() -> {
-            try {
-                for (int i = 0; i < totalInstrucoes; i++) {
-                    maquina.passo();
-                    SwingUtilities.invokeLater(this::atualizarInterface);
-                    Thread.sleep(5);
-                }
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
-                        "Execução interrompida: " + ex.getMessage(),
-                        "Aviso",
-                        JOptionPane.WARNING_MESSAGE));
-            }
-        }).start();
-    }
+        // "000045" ou "000045 se X > 2"
+        JTextField campoPonto = new JTextField(16);
+        campoPonto.setToolTipText("Endereço em hexadecimal, opcionalmente seguido de \"se <condição>\", ex.: 000045 se X > 2");
+        JButton btnPonto = new JButton("Alternar ponto de parada");
+        btnPonto.addActionListener(e -> alternarPontoParada(campoPonto.getText()));
+
+        // "000300" ou "000300 3" (endereço e quantidade de bytes)
+        JTextField campoObservar = new JTextField(10);
+        campoObservar.setToolTipText("Endereço em hexadecimal e, opcionalmente, quantidade de bytes (padrão 3)");
+        JButton btnEscrita = new JButton("Observar escrita");
+        JButton btnLeitura = new JButton("Observar leitura");
+        btnEscrita.addActionListener(e -> observarMemoria(campoObservar.getText(), true));
+        btnLeitura.addActionListener(e -> observarMemoria(campoObservar.getText(), false));
+
+        JButton btnLimpar = new JButton("Limpar");
+        btnLimpar.addActionListener(e -> {
+            controlador.enviar(m -> m.getPontosParada().limpar());
+            atualizarStatus("Pontos de parada removidos.");
+        });
 
-    private void reiniciarExecucao() {
-        try {
-            // Zera todos os registradores
-            maquina.getCpu().limparTodos();
+        painel.add(campoPonto);
+        painel.add(btnPonto);
+        painel.add(campoObservar);
+        painel.add(btnEscrita);
+        painel.add(btnLeitura);
+        painel.add(btnLimpar);
+        painel.add(lblStatus);
 
-            // Zera toda a memória
-            Memoria mem = maquina.getMemoria();
-            for (int i = 0; i < mem.getTamanhoEmBytes(); i++) {
-                mem.escreverByte(i, 0x00);
-            }
+        return painel;
+    }
 
-            // Recarrega o programa do arquivo
-            List<String> linhas = Files.readAllLines(caminhoPrograma);
-            List<String> programa = new ArrayList<>();
-            for (String linha : linhas) {
-                linha = linha.trim();
-                if (!linha.isEmpty()) {
-                    if (linha.length() != 6) {
-                        throw new RuntimeException("Linha inválida no arquivo: " + linha);
+    private void alternarPontoParada(String texto) {
+        try {
+            String[] partes = texto.trim().split("\\s+(?i:se)\\s+", 2);
+            int endereco = Integer.parseInt(partes[0].trim(), 16);
+            validarFaixa(endereco, 1);
+            if (partes.length == 2) {
+                CondicaoParada condicao = CondicaoParada.compilar(partes[1]);
+                controlador.enviar(m -> m.getPontosParada().adicionar(endereco, condicao));
+                atualizarStatus(String.format("Ponto em %06X se %s", endereco, partes[1].trim()));
+            } else {
+                controlador.enviar(m -> {
+                    PontosParada pontos = m.getPontosParada();
+                    boolean remover = pontos.contem(endereco);
+                    if (remover) {
+                        pontos.remover(endereco);
+                    } else {
+                        pontos.adicionar(endereco);
                     }
-                    programa.add(linha);
-                }
+                    SwingUtilities.invokeLater(() -> atualizarStatus(
+                            String.format(remover ? "Ponto em %06X removido" : "Ponto em %06X", endereco)));
+                });
             }
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Ponto de parada inválido", JOptionPane.ERROR_MESSAGE);
+        }
+    }
 
-            // Carrega novamente o programa a partir do endereço 0
-            maquina.carregarProgramaHex(programa, 0x0000);
-
-            atualizarInterface();
-
-            JOptionPane.showMessageDialog(this,
-                    "Execução reiniciada com sucesso!",
-                    "Reiniciar",
-                    JOptionPane.INFORMATION_MESSAGE);
+    private void observarMemoria(String texto, boolean escrita) {
+        try {
+            String[] partes = texto.trim().split("\\s+");
+            int endereco = Integer.parseInt(partes[0], 16);
+            int quantidade = partes.length > 1 ? Integer.parseInt(partes[1]) : 3;
+            validarFaixa(endereco, quantidade);
+            if (escrita) {
+                controlador.enviar(m -> m.getPontosParada().observarEscrita(endereco, quantidade));
+            } else {
+                controlador.enviar(m -> m.getPontosParada().observarLeitura(endereco, quantidade));
+            }
+            atualizarStatus(String.format("Observando %s de %06X-%06X", escrita ? "escrita" : "leitura",
+                    endereco, endereco + quantidade - 1));
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Endereço inválido", JOptionPane.ERROR_MESSAGE);
+        }
+    }
 
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                    "Erro ao reiniciar: " + ex.getMessage(),
-                    "Erro",
-                    JOptionPane.ERROR_MESSAGE);
+    /** Recusa aqui, antes de chegar ao controlador, endereços e quantidades fora da memória. */
+    private void validarFaixa(int endereco, int quantidade) {
+        int tamanho = controlador.getEstado().getInstantaneo().getMemoria().getTamanhoEmBytes();
+        if (endereco < 0 || endereco >= tamanho) {
+            throw new IllegalArgumentException(String.format("Endereço fora da memória (000000-%06X)", tamanho - 1));
+        }
+        if (quantidade <= 0 || quantidade > tamanho - endereco) {
+            throw new IllegalArgumentException("Quantidade de bytes deve ir de 1 até o fim da memória");
         }
     }
 
+    private void atualizarStatus(String texto) {
+        lblStatus.setText(texto);
+    }
+
     // =========================
     //  Atualização da interface
     // =========================
 
+    /** Mostra o último estado publicado pelo controlador, se ele mudou desde a última vez. */
     private void atualizarInterface() {
-        CPU c = maquina.getCpu();
-
-        setTextoReg("A", c.A().getValorUnsigned());
-        setTextoReg("X", c.X().getValorUnsigned());
-        setTextoReg("L", c.L().getValorUnsigned());
-        setTextoReg("B", c.B().getValorUnsigned());
-        setTextoReg("S", c.S().getValorUnsigned());
-        setTextoReg("T", c.T().getValorUnsigned());
-        setTextoReg("PC", c.PC().getValorUnsigned());
+        ControladorExecucao.Estado estado = controlador.getEstado();
+        if (estado.getVersao() == versaoMostrada) {
+            return;
+        }
+        boolean primeiraVez = versaoMostrada < 0;
+        versaoMostrada = estado.getVersao();
+
+        Instantaneo c = estado.getInstantaneo();
+        setTextoReg("A", c.getRegistrador(CPU.COD_A));
+        setTextoReg("X", c.getRegistrador(CPU.COD_X));
+        setTextoReg("L", c.getRegistrador(CPU.COD_L));
+        setTextoReg("B", c.getRegistrador(CPU.COD_B));
+        setTextoReg("S", c.getRegistrador(CPU.COD_S));
+        setTextoReg("T", c.getRegistrador(CPU.COD_T));
+        setTextoReg("PC", c.getRegistrador(CPU.COD_PC));
 
         JTextField campoCC = camposRegs.get("CC");
         if (campoCC != null) {
             campoCC.setText(String.valueOf(c.getCC())); // -1, 0 ou 1
         }
+        JTextField campoF = camposRegs.get("F");
+        if (campoF != null) {
+            campoF.setText(String.format("%012X", c.getF()));
+        }
 
-        modeloMemoria.fireTableDataChanged();
+        modeloMemoria.setImagem(c.getMemoria());
+
+        // a linha de status só muda com a execução (não com pontos de parada adicionados, por exemplo)
+        boolean mudou = estado.isExecutando() || estado.getPassos() != passosMostrados
+                || estado.getUltimoResultado() != resultadoMostrado || estado.getErro() != erroMostrado;
+        passosMostrados = estado.getPassos();
+        resultadoMostrado = estado.getUltimoResultado();
+        erroMostrado = estado.getErro();
+        if (primeiraVez || !mudou) {
+            return;
+        }
+        if (estado.isExecutando()) {
+            atualizarStatus(String.format("Executando... %d passos", estado.getPassos()));
+        } else if (estado.getErro() != null) {
+            atualizarStatus("Execução interrompida.");
+            JOptionPane.showMessageDialog(this,
+                    "Execução interrompida: " + estado.getErro().getMessage(),
+                    "Aviso",
+                    JOptionPane.WARNING_MESSAGE);
+        } else {
+            mostrarParada(estado.getUltimoResultado(), estado.getPassos(), c);
+        }
+    }
+
+    private void mostrarParada(ResultadoExecucao r, long passos, Instantaneo c) {
+        MotivoParada motivo = r != null ? r.getMotivo() : MotivoParada.LIMITE_DE_PASSOS;
+        switch (motivo) {
+            case PONTO_DE_PARADA:
+            case CONDICAO_DE_PARADA:
+                atualizarStatus(String.format("Parou em %06X após %d passos", c.getRegistrador(CPU.COD_PC), passos));
+                break;
+            case MEMORIA_OBSERVADA:
+                atualizarStatus(String.format("Memória observada acessada, PC=%06X", c.getRegistrador(CPU.COD_PC)));
+                break;
+            case CHAMADA_AO_SUPERVISOR:
+                atualizarStatus(String.format("Chamada ao supervisor (SVC), PC=%06X", c.getRegistrador(CPU.COD_PC)));
+                break;
+            case INICIO_DO_HISTORICO:
+                atualizarStatus(String.format("Início do histórico, %d passos", passos));
+                break;
+            case LACO_DE_PARADA:
+            case RETORNO_COM_L_ZERO:
+                atualizarStatus(String.format("Fim (%s) após %d passos", motivo, passos));
+                break;
+            default:
+                atualizarStatus(String.format("Parado após %d passos", passos));
+        }
     }
 
     private void setTextoReg(String nomeCampo, int valor) {
@@ -224,38 +348,130 @@ public class InterfaceSimulador extends JFrame {
     //  Modelo da tabela de memória
     // =========================
 
+    /**
+     * Dump hexadecimal da memória: 16 bytes por linha ou, na visão por
+     * palavras, 8 palavras (24 bytes). A cada imagem nova só as linhas que
+     * mudaram (e as que estavam destacadas) são avisadas à tabela, e os
+     * textos das células ficam guardados por linha até ela mudar; com 1 MB
+     * de memória um passo custa algumas linhas, não a tabela inteira.
+     */
     private static class TabelaMemoriaModel extends AbstractTableModel {
 
-        private final Memoria memoria;
+        private static final int BYTES_POR_LINHA = 16;
+        private static final int PALAVRAS_POR_LINHA = 8;
+        private static final String[] TEXTO_BYTE = new String[256];
+
+        static {
+            for (int i = 0; i < 256; i++) {
+                TEXTO_BYTE[i] = String.format("%02X", i);
+            }
+        }
+
+        private Memoria.Imagem memoria;
+        private boolean porPalavras;
+        private int bytesPorLinha = BYTES_POR_LINHA;
+        private String[][] linhas; // textos das células por linha (endereço na coluna 0); null = formatar de novo
+        private final BitSet alterados = new BitSet();     // bytes que mudaram na última imagem
+        private final BitSet linhasAvisadas = new BitSet(); // reaproveitado a cada imagem
 
-        public TabelaMemoriaModel(Memoria memoria) {
+        public TabelaMemoriaModel(Memoria.Imagem memoria) {
             this.memoria = memoria;
+            this.linhas = new String[getRowCount()][];
+        }
+
+        void setImagem(Memoria.Imagem nova) {
+            Memoria.Imagem anterior = memoria;
+            memoria = nova;
+            if (nova == anterior) {
+                return;
+            }
+
+            // as linhas destacadas antes também precisam ser redesenhadas
+            linhasAvisadas.clear();
+            for (int b = alterados.nextSetBit(0); b >= 0; b = alterados.nextSetBit(b + 1)) {
+                linhasAvisadas.set(b / bytesPorLinha);
+            }
+            alterados.clear();
+            nova.compararCom(anterior, (inicio, quantidade) -> {
+                alterados.set(inicio, inicio + quantidade);
+                int primeira = inicio / bytesPorLinha;
+                int ultima = (inicio + quantidade - 1) / bytesPorLinha;
+                linhasAvisadas.set(primeira, ultima + 1);
+                Arrays.fill(linhas, primeira, ultima + 1, null);
+            });
+
+            // um aviso por trecho contínuo de linhas
+            for (int l = linhasAvisadas.nextSetBit(0); l >= 0; ) {
+                int fim = linhasAvisadas.nextClearBit(l);
+                fireTableRowsUpdated(l, fim - 1);
+                l = linhasAvisadas.nextSetBit(fim);
+            }
+        }
+
+        /** Alterna entre bytes e palavras de 3 bytes por célula. */
+        void setPorPalavras(boolean porPalavras) {
+            this.porPalavras = porPalavras;
+            this.bytesPorLinha = porPalavras ? 3 * PALAVRAS_POR_LINHA : BYTES_POR_LINHA;
+            this.linhas = new String[getRowCount()][];
+            fireTableStructureChanged();
+        }
+
+        /** Se algum byte da célula mudou na última imagem. */
+        boolean alterada(int rowIndex, int columnIndex) {
+            if (columnIndex == 0) {
+                return false;
+            }
+            int inicio = inicioCelula(rowIndex, columnIndex);
+            int b = alterados.nextSetBit(inicio);
+            return b >= 0 && b < inicio + (porPalavras ? 3 : 1);
+        }
+
+        private int inicioCelula(int rowIndex, int columnIndex) {
+            return rowIndex * bytesPorLinha + (columnIndex - 1) * (porPalavras ? 3 : 1);
         }
 
         @Override
         public int getRowCount() {
-            return memoria.getTamanhoEmBytes();
+            return (memoria.getTamanhoEmBytes() + bytesPorLinha - 1) / bytesPorLinha;
         }
 
         @Override
         public int getColumnCount() {
-            return 2; // Endereço, Valor
+            return 1 + (porPalavras ? PALAVRAS_POR_LINHA : BYTES_POR_LINHA);
         }
 
         @Override
         public String getColumnName(int column) {
-            if (column == 0) return "Endereço (byte)";
-            else return "Valor (hex)";
+            if (column == 0) return "Endereço";
+            return String.format("+%X", (column - 1) * (porPalavras ? 3 : 1));
         }
 
         @Override
         public Object getValueAt(int rowIndex, int columnIndex) {
-            if (columnIndex == 0) {
-                return String.format("%06X", rowIndex);
-            } else {
-                int v = memoria.lerByte(rowIndex);
-                return String.format("%02X", v);
+            String[] linha = linhas[rowIndex];
+            if (linha == null) {
+                linha = formatarLinha(rowIndex);
+                linhas[rowIndex] = linha;
+            }
+            return linha[columnIndex];
+        }
+
+        private String[] formatarLinha(int rowIndex) {
+            String[] linha = new String[getColumnCount()];
+            linha[0] = String.format("%06X", rowIndex * bytesPorLinha);
+            int tamanho = memoria.getTamanhoEmBytes();
+            for (int c = 1; c < linha.length; c++) {
+                int a = inicioCelula(rowIndex, c);
+                if (!porPalavras) {
+                    linha[c] = a < tamanho ? TEXTO_BYTE[memoria.lerByte(a)] : "";
+                } else if (a + 2 < tamanho) {
+                    linha[c] = TEXTO_BYTE[memoria.lerByte(a)] + TEXTO_BYTE[memoria.lerByte(a + 1)]
+                            + TEXTO_BYTE[memoria.lerByte(a + 2)];
+                } else {
+                    linha[c] = "";
+                }
             }
+            return linha;
         }
 
         @Override
@@ -264,6 +480,23 @@ public class InterfaceSimulador extends JFrame {
         }
     }
 
+    /** Destaca as células que mudaram na última atualização. */
+    private static class RenderizadorMemoria extends DefaultTableCellRenderer {
+
+        private static final Color COR_ALTERADA = new Color(255, 230, 150);
+
+        @Override
+        public Component getTableCellRendererComponent(JTable tabela, Object valor, boolean selecionada,
+                                                       boolean foco, int linha, int coluna) {
+            super.getTableCellRendererComponent(tabela, valor, selecionada, foco, linha, coluna);
+            if (!selecionada) {
+                TabelaMemoriaModel modelo = (TabelaMemoriaModel) tabela.getModel();
+                setBackground(modelo.alterada(linha, coluna) ? COR_ALTERADA : tabela.getBackground());
+            }
+            return this;
+        }
+    }
+
     // =========================
     //  MAIN – lê programa.txt e abre a GUI
     // =========================
@@ -271,23 +504,12 @@ public class InterfaceSimulador extends JFrame {
     public static void main(String[] args) throws Exception {
         // Arquivo de programa em hex (cada linha = 6 caracteres = 3 bytes)
         Path caminho = Paths.get("programa.txt");
-        List<String> linhas = Files.readAllLines(caminho);
-        List<String> programa = new ArrayList<>();
-
-        for (String linha : linhas) {
-            linha = linha.trim();
-            if (!linha.isEmpty()) {
-                if (linha.length() != 6) {
-                    throw new RuntimeException("Linha inválida no arquivo: " + linha);
-                }
-                programa.add(linha);
-            }
-        }
 
-        Maquina maquina = new Maquina(4096);
+        Maquina maquina = new Maquina(Memoria.PALAVRAS_ENDERECAVEIS);
+        CarregadorHex.carregar(maquina, caminho, 0x0000);
 
         SwingUtilities.invokeLater(() -> {
-            InterfaceSimulador janela = new InterfaceSimulador(maquina, caminho, programa);
+            InterfaceSimulador janela = new InterfaceSimulador(maquina, caminho);
             janela.setVisible(true);
         });
     }
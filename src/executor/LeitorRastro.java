@@ -0,0 +1,187 @@
+package executor;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Lê um arquivo gravado pelo {@link Rastreador}, um passo por vez.
+ *
+ * Como ferramenta ({@code java executor.LeitorRastro rastro.bin}) imprime
+ * os passos no mesmo formato da saída passo a passo do {@link Main}.
+ */
+public final class LeitorRastro implements AutoCloseable {
+
+    private final DataInputStream entrada;
+    private final int[] atual = new int[Rastreador.CAMPOS];
+    private long passos;
+
+    public LeitorRastro(Path arquivo) throws IOException {
+        this(Files.newInputStream(arquivo));
+    }
+
+    public LeitorRastro(InputStream entrada) throws IOException {
+        this.entrada = new DataInputStream(new BufferedInputStream(entrada, 64 * 1024));
+        if (this.entrada.readInt() != Rastreador.MAGICO) {
+            throw new IOException("Arquivo não é um rastro do simulador");
+        }
+        int versao = this.entrada.readUnsignedByte();
+        if (versao != Rastreador.VERSAO) {
+            throw new IOException("Versão de rastro não suportada: " + versao);
+        }
+        atual[Rastreador.CAMPO_EA] = -1;
+    }
+
+    /** Avança para o próximo passo; false no fim do arquivo. */
+    public boolean proximo() throws IOException {
+        int mascara;
+        int primeiro = entrada.read();
+        if (primeiro < 0) {
+            return false;
+        }
+        mascara = lerVarint(primeiro);
+
+        int pcAnterior = atual[Rastreador.CAMPO_PC_DEPOIS];
+        atual[Rastreador.CAMPO_PC] = pcAnterior + Rastreador.deszigzag(lerVarint(entrada.readUnsignedByte()));
+        atual[Rastreador.CAMPO_PC_DEPOIS] = atual[Rastreador.CAMPO_PC]
+                + Rastreador.deszigzag(lerVarint(entrada.readUnsignedByte()));
+        if ((mascara & Rastreador.MUDOU_OPCODE) != 0) {
+            atual[Rastreador.CAMPO_OPCODE] = entrada.readUnsignedByte();
+        }
+        if ((mascara & Rastreador.MUDOU_EA) != 0) {
+            atual[Rastreador.CAMPO_EA] += Rastreador.deszigzag(lerVarint(entrada.readUnsignedByte()));
+        }
+        for (int k = CPU.COD_A; k <= CPU.COD_T; k++) {
+            if ((mascara & (Rastreador.MUDOU_REG0 << k)) != 0) {
+                atual[Rastreador.CAMPO_REG0 + k] += Rastreador.deszigzag(lerVarint(entrada.readUnsignedByte()));
+            }
+        }
+        if ((mascara & Rastreador.MUDOU_CC) != 0) {
+            atual[Rastreador.CAMPO_CC] = entrada.readByte();
+        }
+        if ((mascara & Rastreador.ESCREVEU_MEMORIA) != 0) {
+            atual[Rastreador.CAMPO_MEM_ENDERECO] += Rastreador.deszigzag(lerVarint(entrada.readUnsignedByte()));
+            int bytes = entrada.readUnsignedByte();
+            if (bytes > Rastreador.MAX_BYTES_ESCRITOS) {
+                throw new IOException("Escrita de " + bytes + " bytes no passo " + passos);
+            }
+            long valor = 0;
+            for (int k = 0; k < bytes; k++) {
+                valor = (valor << 8) | entrada.readUnsignedByte();
+            }
+            atual[Rastreador.CAMPO_MEM_BYTES] = bytes;
+            atual[Rastreador.CAMPO_MEM_VALOR] = (int) valor;
+            atual[Rastreador.CAMPO_MEM_VALOR_ALTO] = (int) (valor >>> 32);
+        } else {
+            atual[Rastreador.CAMPO_MEM_BYTES] = 0;
+            atual[Rastreador.CAMPO_MEM_VALOR] = 0;
+            atual[Rastreador.CAMPO_MEM_VALOR_ALTO] = 0;
+        }
+        passos++;
+        return true;
+    }
+
+    private int lerVarint(int primeiro) throws IOException {
+        int v = primeiro & 0x7F;
+        int desloc = 7;
+        int b = primeiro;
+        while ((b & 0x80) != 0) {
+            b = entrada.read();
+            if (b < 0) {
+                throw new EOFException("Rastro truncado");
+            }
+            v |= (b & 0x7F) << desloc;
+            desloc += 7;
+        }
+        return v;
+    }
+
+    // =========================
+    //  Passo atual
+    // =========================
+
+    /** Número do passo atual, a partir de 0. */
+    public long getPasso() {
+        return passos - 1;
+    }
+
+    /** Endereço da instrução executada. */
+    public int getPc() {
+        return atual[Rastreador.CAMPO_PC];
+    }
+
+    public int getOpcode() {
+        return atual[Rastreador.CAMPO_OPCODE];
+    }
+
+    /** Endereço efetivo calculado pela instrução, ou -1. */
+    public int getEnderecoEfetivo() {
+        return atual[Rastreador.CAMPO_EA];
+    }
+
+    /** Registradores A..T e PC depois do passo. */
+    public int getRegistrador(int codigo) {
+        return codigo == CPU.COD_PC ? atual[Rastreador.CAMPO_PC_DEPOIS] : atual[Rastreador.CAMPO_REG0 + codigo];
+    }
+
+    public int getCC() {
+        return atual[Rastreador.CAMPO_CC];
+    }
+
+    /**
+     * Bytes escritos na memória neste passo: 0, 1 (STCH), 3 (STA, STSW...)
+     * ou 6 (STF). Se a instrução escreveu mais de uma vez, é o trecho do
+     * primeiro ao último byte escrito.
+     */
+    public int getBytesEscritos() {
+        return atual[Rastreador.CAMPO_MEM_BYTES];
+    }
+
+    public int getEnderecoEscrito() {
+        return atual[Rastreador.CAMPO_MEM_ENDERECO];
+    }
+
+    /** Os bytes escritos, o de menor endereço mais significativo (48 bits no STF); 0 sem escrita. */
+    public long getValorEscrito() {
+        return ((long) atual[Rastreador.CAMPO_MEM_VALOR_ALTO] << 32)
+                | (atual[Rastreador.CAMPO_MEM_VALOR] & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public void close() throws IOException {
+        entrada.close();
+    }
+
+    // =========================
+    //  Ferramenta de linha de comando
+    // =========================
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Uso: java executor.LeitorRastro <arquivo de rastro>");
+            System.exit(2);
+        }
+        StringBuilder sb = new StringBuilder(256);
+        try (LeitorRastro leitor = new LeitorRastro(Paths.get(args[0]))) {
+            while (leitor.proximo()) {
+                sb.setLength(0);
+                sb.append("\n-- Passo ").append(leitor.getPasso()).append(" --\n");
+                sb.append(Main.formatarEstado(
+                        leitor.getRegistrador(CPU.COD_PC),
+                        leitor.getRegistrador(CPU.COD_A),
+                        leitor.getRegistrador(CPU.COD_X),
+                        leitor.getRegistrador(CPU.COD_L),
+                        leitor.getRegistrador(CPU.COD_B),
+                        leitor.getRegistrador(CPU.COD_S),
+                        leitor.getRegistrador(CPU.COD_T),
+                        leitor.getCC()));
+                System.out.println(sb);
+            }
+        }
+    }
+}
@@ -1,50 +1,386 @@
 package executor;
 
-import java.nio.file.*;
-import java.util.*;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
+/**
+ * Executor de linha de comando. Carrega um programa (hex de programa.txt,
+ * objeto H/T/M/E ou fonte para o {@link Montador}), executa até ele parar ou
+ * até o limite de passos e imprime o que as opções pedirem.
+ *
+ * Toda a saída passa por um único PrintWriter com buffer, descarregado no
+ * fim. Com --silencioso a execução é uma só chamada a
+ * {@link Maquina#executar(long)}, sem nenhuma E/S no laço; só os despejos
+ * pedidos são impressos depois dela. --passo-a-passo imprime o estado após
+ * cada instrução, como o executor antigo.
+ *
+ * Sai com 0 depois de executar, 1 se o programa não carregar ou a execução
+ * falhar e 2 para opções inválidas.
+ */
 public class Main {
 
-    public static void main(String[] args) throws Exception {
+    // segurança contra programas que nunca chegam a "J *" nem a RSUB com L = 0
+    private static final long LIMITE_PASSOS = 100_000;
 
-        Path caminho = Paths.get("programa.txt");
+    private static final String USO = String.join("\n",
+            "Uso: java executor.Main [opções] [programa]",
+            "",
+            "  programa                   arquivo a carregar (padrão: programa.txt)",
+            "  --formato hex|objeto|asm   formato do programa (padrão: pela extensão;",
+            "                             .obj = objeto, .asm/.sic = asm, o resto = hex)",
+            "  --endereco <hex>           endereço de carga (padrão: 0; no objeto, o do registro H;",
+            "                             no asm, o do START)",
+            "  --memoria <palavras>       tamanho da memória (padrão: " + Memoria.PALAVRAS_ENDERECAVEIS + ")",
+            "  --passos <n>               limite de passos (padrão: " + LIMITE_PASSOS + ")",
+            "  --motor interpretador|blocos|compilado",
+            "  --silencioso               não imprime nada além dos despejos pedidos",
+            "  --resumo                   estado final, motivo da parada e velocidade (padrão)",
+            "  --passo-a-passo            estado depois de cada passo",
+            "  --registradores            despeja os registradores no fim",
+            "  --despejar <inicio>:<fim>  despeja a memória de inicio até fim (hex, fim exclusivo)",
+            "  --entrada <disp>:<arquivo> liga um dispositivo de entrada (disp em hex)",
+            "  --saida <disp>:<arquivo>   liga um dispositivo de saída",
+            "  --ciclos                   conta ciclos com o ModeloCiclos padrão",
+            "  --resumos <n>:<arquivo>    grava o resumo do estado a cada n passos (ver ResumosExecucao)",
+            "  --rastro <arquivo>         grava o rastro binário da execução",
+            "  --perfil                   imprime o perfil de execução");
 
-        //Lê todas as linhas e filtra vazias
-        List<String> linhas = Files.readAllLines(caminho);
-        List<String> programa = new ArrayList<>();
+    private enum Verbosidade { SILENCIOSO, RESUMO, PASSO_A_PASSO }
 
-        for (String linha : linhas) {
-            linha = linha.trim();
-            if (!linha.isEmpty()) {
-                if (linha.length() != 6) {
-                    throw new RuntimeException("Linha inválida no arquivo: " + linha);
+    private enum Formato { HEX, OBJETO, ASM }
+
+    private static final class Opcoes {
+        Path programa = Paths.get("programa.txt");
+        Formato formato;
+        int endereco = -1;
+        int palavras = Memoria.PALAVRAS_ENDERECAVEIS;
+        long passos = LIMITE_PASSOS;
+        MotorExecucao motor = MotorExecucao.INTERPRETADOR;
+        Verbosidade verbosidade = Verbosidade.RESUMO;
+        boolean registradores;
+        final List<int[]> despejos = new ArrayList<>();
+        final List<String> entradas = new ArrayList<>();
+        final List<String> saidas = new ArrayList<>();
+        boolean ciclos;
+        long intervaloResumos;
+        Path arquivoResumos;
+        Path rastro;
+        boolean perfil;
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 1 && (args[0].equals("--help") || args[0].equals("-h"))) {
+            System.out.println(USO);
+            return;
+        }
+        Opcoes opcoes;
+        try {
+            opcoes = lerOpcoes(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USO);
+            System.exit(2);
+            return;
+        }
+
+        PrintWriter saida = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(FileDescriptor.out)), 1 << 16), false);
+        int status;
+        try {
+            status = executar(opcoes, saida);
+        } finally {
+            saida.flush();
+        }
+        System.exit(status);
+    }
+
+    private static Opcoes lerOpcoes(String[] args) {
+        Opcoes o = new Opcoes();
+        boolean temPrograma = false;
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            switch (a) {
+                case "--formato":
+                    o.formato = Formato.valueOf(valor(args, ++i, a).toUpperCase(Locale.ROOT));
+                    break;
+                case "--endereco":
+                    o.endereco = hex(valor(args, ++i, a), a);
+                    break;
+                case "--memoria":
+                    o.palavras = Integer.parseInt(valor(args, ++i, a));
+                    if (o.palavras <= 0 || o.palavras > Memoria.PALAVRAS_ENDERECAVEIS) {
+                        throw new IllegalArgumentException("--memoria fora de 1.." + Memoria.PALAVRAS_ENDERECAVEIS);
+                    }
+                    break;
+                case "--passos":
+                    o.passos = Long.parseLong(valor(args, ++i, a));
+                    break;
+                case "--motor":
+                    o.motor = MotorExecucao.valueOf(valor(args, ++i, a).toUpperCase(Locale.ROOT));
+                    break;
+                case "--silencioso": case "-q":
+                    o.verbosidade = Verbosidade.SILENCIOSO;
+                    break;
+                case "--resumo":
+                    o.verbosidade = Verbosidade.RESUMO;
+                    break;
+                case "--passo-a-passo":
+                    o.verbosidade = Verbosidade.PASSO_A_PASSO;
+                    break;
+                case "--registradores":
+                    o.registradores = true;
+                    break;
+                case "--despejar": {
+                    String faixa = valor(args, ++i, a);
+                    int dois = faixa.indexOf(':');
+                    if (dois < 0) {
+                        throw new IllegalArgumentException("--despejar espera <inicio>:<fim>");
+                    }
+                    int inicio = hex(faixa.substring(0, dois), a);
+                    int fim = hex(faixa.substring(dois + 1), a);
+                    if (fim < inicio) {
+                        throw new IllegalArgumentException("--despejar com fim antes do início");
+                    }
+                    o.despejos.add(new int[] { inicio, fim });
+                    break;
+                }
+                case "--entrada":
+                    o.entradas.add(valor(args, ++i, a));
+                    break;
+                case "--saida":
+                    o.saidas.add(valor(args, ++i, a));
+                    break;
+                case "--ciclos":
+                    o.ciclos = true;
+                    break;
+                case "--resumos": {
+                    String resumos = valor(args, ++i, a);
+                    int dois = resumos.indexOf(':');
+                    if (dois < 0) {
+                        throw new IllegalArgumentException("--resumos espera <n>:<arquivo>");
+                    }
+                    o.intervaloResumos = Long.parseLong(resumos.substring(0, dois));
+                    if (o.intervaloResumos <= 0) {
+                        throw new IllegalArgumentException("--resumos com intervalo não positivo");
+                    }
+                    o.arquivoResumos = Paths.get(resumos.substring(dois + 1));
+                    break;
                 }
-                programa.add(linha);
+                case "--rastro":
+                    o.rastro = Paths.get(valor(args, ++i, a));
+                    break;
+                case "--perfil":
+                    o.perfil = true;
+                    break;
+                default:
+                    if (a.startsWith("-") || temPrograma) {
+                        throw new IllegalArgumentException("Opção inválida: " + a);
+                    }
+                    o.programa = Paths.get(a);
+                    temPrograma = true;
+                    break;
             }
         }
+        if (o.arquivoResumos != null && o.verbosidade == Verbosidade.PASSO_A_PASSO) {
+            throw new IllegalArgumentException("--resumos não combina com --passo-a-passo");
+        }
+        if (o.formato == null) {
+            String nome = o.programa.getFileName().toString().toLowerCase(Locale.ROOT);
+            o.formato = nome.endsWith(".obj") ? Formato.OBJETO
+                    : nome.endsWith(".asm") || nome.endsWith(".sic") ? Formato.ASM
+                    : Formato.HEX;
+        }
+        return o;
+    }
 
-        Maquina maquina = new Maquina(4096);
+    private static String valor(String[] args, int i, String opcao) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Falta o valor de " + opcao);
+        }
+        return args[i];
+    }
 
-        maquina.carregarProgramaHex(programa, 0x0000);
+    private static int hex(String s, String opcao) {
+        try {
+            int v = Integer.parseInt(s.startsWith("0x") || s.startsWith("0X") ? s.substring(2) : s, 16);
+            if (v < 0 || v > Memoria.TAMANHO_ENDERECAVEL) {
+                throw new NumberFormatException();
+            }
+            return v;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(opcao + ": endereço hexadecimal inválido '" + s + "'");
+        }
+    }
+
+    private static int executar(Opcoes o, PrintWriter saida) {
+        Maquina maquina = new Maquina(o.palavras, o.motor);
+        try (Dispositivos dispositivos = maquina.getDispositivos()) {
+            try {
+                carregar(maquina, o, saida);
+                for (String e : o.entradas) {
+                    conectar(dispositivos, e, true);
+                }
+                for (String s : o.saidas) {
+                    conectar(dispositivos, s, false);
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Erro carregando " + o.programa + ": " + e.getMessage());
+                return 1;
+            }
+            if (o.ciclos) {
+                maquina.setModeloCiclos(ModeloCiclos.padrao());
+            }
+            if (o.verbosidade == Verbosidade.PASSO_A_PASSO) {
+                saida.println("== PROGRAMA CARREGADO ==\n");
+                saida.println(estado(maquina));
+                saida.println("\n== EXECUÇÃO ==");
+            }
+
+            Perfil perfil = o.perfil ? new Perfil() : null;
+            ResultadoExecucao resultado;
+            try {
+                resultado = executarComInstrumentos(maquina, o, perfil, saida);
+            } catch (IOException | RuntimeException e) {
+                saida.flush();
+                System.err.println("Falha na execução (PC=" + String.format("%06X", maquina.getCpu().ler(CPU.COD_PC))
+                        + "): " + e);
+                return 1;
+            }
 
-        System.out.println("== PROGRAMA CARREGADO ==\n");
-        imprimirEstado(maquina);
+            if (o.verbosidade != Verbosidade.SILENCIOSO) {
+                saida.println("\n== FIM DA EXECUÇÃO ==");
+                saida.println(estado(maquina));
+                saida.println("Parada: " + resultado.getMotivo()
+                        + (resultado.getMotivo() == MotivoParada.CHAMADA_AO_SUPERVISOR
+                                ? " " + maquina.getCodigoChamadaSupervisor() : ""));
+            }
+            if (o.verbosidade == Verbosidade.RESUMO) {
+                double segundos = resultado.getNanosDecorridos() / 1e9;
+                saida.printf("Passos: %d em %.3f ms (%.1f milhões de instruções/s)%n",
+                        resultado.getPassosExecutados(), segundos * 1e3,
+                        segundos > 0 ? resultado.getPassosExecutados() / segundos / 1e6 : 0.0);
+                if (o.ciclos) {
+                    saida.println("Ciclos: " + maquina.getCiclos());
+                }
+                saida.println("Resumo do estado: " + maquina.resumir());
+            }
+            if (o.rastro != null && o.verbosidade != Verbosidade.SILENCIOSO) {
+                saida.println("Rastro gravado em " + o.rastro + " (" + resultado.getPassosExecutados() + " passos)");
+            }
+            if (perfil != null) {
+                saida.println("\n== PERFIL ==");
+                saida.print(perfil.relatorio(15));
+            }
+            if (o.registradores) {
+                despejarRegistradores(maquina, saida);
+            }
+            for (int[] faixa : o.despejos) {
+                despejarMemoria(maquina.getMemoria(), faixa[0], faixa[1], saida);
+            }
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Erro fechando dispositivos: " + e.getMessage());
+            return 1;
+        }
+    }
 
-        System.out.println("\n== EXECUÇÃO ==");
+    private static void carregar(Maquina maquina, Opcoes o, PrintWriter saida) throws IOException {
+        int endereco = Math.max(o.endereco, 0);
+        switch (o.formato) {
+            case HEX:
+                CarregadorHex.carregar(maquina, o.programa, endereco);
+                break;
+            case OBJETO:
+                CarregadorObjeto.carregar(maquina, o.programa,
+                        o.endereco < 0 ? CarregadorObjeto.ENDERECO_DO_CABECALHO : o.endereco);
+                break;
+            case ASM: {
+                Montador.Programa programa = Montador.montar(o.programa);
+                if (o.endereco < 0) {
+                    programa.carregar(maquina);
+                } else {
+                    // em outro endereço, passa pelos registros M do programa objeto
+                    StringBuilder objeto = new StringBuilder();
+                    programa.escreverObjeto(objeto);
+                    CarregadorObjeto.carregar(maquina,
+                            ByteBuffer.wrap(objeto.toString().getBytes(StandardCharsets.US_ASCII)), o.endereco);
+                }
+                break;
+            }
+            default:
+                throw new IllegalStateException(o.formato.toString());
+        }
+    }
 
-        for (int passo = 0; passo < programa.size(); passo++) {
-            System.out.println("\n-- Passo " + passo + " --");
-            maquina.passo();
-            imprimirEstado(maquina);
+    private static void conectar(Dispositivos dispositivos, String especificacao, boolean entrada) throws IOException {
+        int dois = especificacao.indexOf(':');
+        if (dois < 0) {
+            throw new IllegalArgumentException("dispositivo deve ser <disp>:<arquivo>: " + especificacao);
         }
+        int numero = hex(especificacao.substring(0, dois), entrada ? "--entrada" : "--saida");
+        Path arquivo = Paths.get(especificacao.substring(dois + 1));
+        dispositivos.conectar(numero, entrada ? DispositivoArquivo.entrada(arquivo) : DispositivoArquivo.saida(arquivo));
+    }
+
+    private static ResultadoExecucao executarComInstrumentos(Maquina maquina, Opcoes o, Perfil perfil,
+                                                             PrintWriter saida) throws IOException {
+        Rastreador rastreador = o.rastro != null ? new Rastreador(o.rastro) : null;
+        try {
+            maquina.setPerfil(perfil);
+            maquina.setRastreador(rastreador);
+            if (o.arquivoResumos != null) {
+                ResumosExecucao resumos = ResumosExecucao.gravar(maquina, o.intervaloResumos, o.passos);
+                try (BufferedWriter arquivo = Files.newBufferedWriter(o.arquivoResumos,
+                        StandardCharsets.US_ASCII)) {
+                    resumos.escrever(arquivo);
+                }
+                return resumos.getResultado();
+            }
+            if (o.verbosidade != Verbosidade.PASSO_A_PASSO) {
+                return maquina.executar(o.passos);
+            }
 
-        System.out.println("\n== FIM DA EXECUÇÃO ==\n");
+            long passos = 0;
+            long nanos = 0;
+            long ciclos = 0;
+            MotivoParada motivo = MotivoParada.LIMITE_DE_PASSOS;
+            while (passos < o.passos) {
+                saida.println("\n-- Passo " + passos + " --");
+                ResultadoExecucao r = maquina.executar(1);
+                passos += r.getPassosExecutados();
+                nanos += r.getNanosDecorridos();
+                ciclos += r.getCiclos();
+                saida.println(estado(maquina));
+                if (r.getMotivo() != MotivoParada.LIMITE_DE_PASSOS) {
+                    motivo = r.getMotivo();
+                    break;
+                }
+            }
+            return new ResultadoExecucao(motivo, passos, nanos, ciclos);
+        } finally {
+            maquina.setRastreador(null);
+            maquina.setPerfil(null);
+            if (rastreador != null) {
+                rastreador.close();
+            }
+        }
     }
 
-    private static void imprimirEstado(Maquina m) {
+    private static String estado(Maquina m) {
         CPU c = m.getCpu();
-        System.out.printf(
-            "PC=%06X  A=%06X  X=%06X  L=%06X  B=%06X  S=%06X  T=%06X  CC=%d%n",
+        return formatarEstado(
             c.PC().getValorUnsigned(),
             c.A().getValorUnsigned(),
             c.X().getValorUnsigned(),
@@ -55,4 +391,41 @@ public class Main {
             c.getCC()
         );
     }
+
+    private static void despejarRegistradores(Maquina m, PrintWriter saida) {
+        CPU c = m.getCpu();
+        saida.println("\n== REGISTRADORES ==");
+        saida.printf("A=%06X  X=%06X  L=%06X  B=%06X  S=%06X  T=%06X%n",
+                c.ler(CPU.COD_A), c.ler(CPU.COD_X), c.ler(CPU.COD_L),
+                c.ler(CPU.COD_B), c.ler(CPU.COD_S), c.ler(CPU.COD_T));
+        saida.printf("F=%012X  PC=%06X  SW=%06X  CC=%d%n", c.lerF(), c.ler(CPU.COD_PC), c.lerSW(), c.getCC());
+    }
+
+    /** 16 bytes por linha: endereço, os bytes em hex e os imprimíveis em ASCII. */
+    private static void despejarMemoria(Memoria memoria, int inicio, int fim, PrintWriter saida) {
+        fim = Math.min(fim, memoria.getTamanhoEmBytes());
+        saida.printf("%n== MEMÓRIA %06X..%06X ==%n", inicio, fim);
+        StringBuilder linha = new StringBuilder(80);
+        for (int base = inicio; base < fim; base += 16) {
+            linha.setLength(0);
+            linha.append(String.format("%06X ", base));
+            StringBuilder texto = new StringBuilder(16);
+            for (int k = 0; k < 16; k++) {
+                if (base + k < fim) {
+                    int b = memoria.lerByte(base + k);
+                    linha.append(String.format(" %02X", b));
+                    texto.append(b >= 0x20 && b < 0x7F ? (char) b : '.');
+                } else {
+                    linha.append("   ");
+                }
+            }
+            saida.append(linha).append("  |").append(texto).append("|\n");
+        }
+    }
+
+    /** Linha de estado usada aqui e pelo {@link LeitorRastro}. */
+    static String formatarEstado(int pc, int a, int x, int l, int b, int s, int t, int cc) {
+        return String.format("PC=%06X  A=%06X  X=%06X  L=%06X  B=%06X  S=%06X  T=%06X  CC=%d",
+                pc, a, x, l, b, s, t, cc);
+    }
 }
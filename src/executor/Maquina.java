@@ -1,15 +1,67 @@
 package executor;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 public class Maquina {
 
+    // potência de 2: o prazo de executar() é conferido só a cada tantos passos
+    static final int PASSOS_ENTRE_CONSULTAS_RELOGIO = 4096;
+
     private final CPU cpu;
     private final Memoria memoria;
 
+    // cache de decodificação: uma instrução empacotada por endereço de byte
+    // (0 = vazio), em páginas (long[4096], 32 KB) alocadas só onde há código
+    private final long[][] cacheDecodificacao;
+    private final Instrucao instrucaoAtual = new Instrucao();
+
+    private final MotorExecucao motor;
+    private final MotorBlocos motorBlocos; // null no modo INTERPRETADOR
+
+    // instrumentação: com ela ligada, executar() usa sempre o interpretador
+    private Rastreador rastreador;
+    private Perfil perfil;
+    private HistoricoExecucao historico;
+    private final PontosParada pontosParada = new PontosParada();
+    private final Dispositivos dispositivos = new Dispositivos();
+
+    // fatia de execução ainda não emitida ao JFR (ver EventosJfr)
+    private EventosJfr.FatiaExecucao fatiaAberta;
+    private long inicioFatiaNanos;
+    private long inicioChamadaNanos;
+    private long fimFatiaNanos;
+    private long fechamentoFatiaNanos = System.nanoTime() - EventosJfr.INTERVALO_FATIA_MS * 1_000_000;
+
+    // efeitos do último passo, para a instrumentação
+    private int enderecoEfetivo;
+    private int enderecoEscrito;
+    private int bytesEscritos;
+
+    private int codigoChamadaSupervisor;
+
+    // contagem de ciclos simulados; custos é a tabela do ModeloCiclos (null sem modelo)
+    private ModeloCiclos modeloCiclos;
+    private int[] custos;
+    private long ciclos;
+
+    // último resumo de estado: as páginas que não mudaram desde ele não são lidas de novo
+    private ResumoEstado ultimoResumo;
+
     public Maquina(int numPalavrasMemoria) {
+        this(numPalavrasMemoria, MotorExecucao.INTERPRETADOR);
+    }
+
+    public Maquina(int numPalavrasMemoria, MotorExecucao motor) {
         this.cpu = new CPU();
         this.memoria = new Memoria(numPalavrasMemoria);
+        this.cacheDecodificacao = new long[(memoria.getTamanhoEmBytes() + Memoria.MASCARA_PAGINA) >>> Memoria.BITS_PAGINA][];
+        this.motor = motor;
+        this.motorBlocos = (motor == MotorExecucao.INTERPRETADOR)
+                ? null
+                : new MotorBlocos(this, motor == MotorExecucao.COMPILADO);
+        this.memoria.setOuvinteEscrita(this::aoEscreverMemoria);
     }
 
     public CPU getCpu() {
@@ -20,389 +72,622 @@ public class Maquina {
         return memoria;
     }
 
-    public void carregarProgramaHex(List<String> linhas, int enderecoInicialByte) {
-        int addr = enderecoInicialByte;
-
-        for (String linha : linhas) {
-            String hex = linha.trim();
-            if (hex.isEmpty()) continue;
+    public MotorExecucao getMotor() {
+        return motor;
+    }
 
-            int valor = Integer.parseInt(hex, 16); // 24 bits
-            memoria.escreverPalavraPorByte(addr, valor);
-            addr += 3;
-        }
+    /** Liga (ou, com null, desliga) a gravação do rastro de execução. Quem criou o Rastreador o fecha. */
+    public void setRastreador(Rastreador rastreador) {
+        this.rastreador = rastreador;
+    }
 
-        cpu.PC().setValor(enderecoInicialByte); // PC em bytes
+    public Rastreador getRastreador() {
+        return rastreador;
     }
 
-    public void passo() {
-        int pc = cpu.PC().getValorUnsigned();
+    /** Liga (ou, com null, desliga) a contagem de execução no perfil dado. */
+    public void setPerfil(Perfil perfil) {
+        this.perfil = perfil;
+    }
 
-        // busca e decodifica
-        Instrucao inst = Instrucao.decodificar(memoria, pc);
-        int proximoPC = (pc + inst.tamanhoBytes) & 0xFFFFFF;
+    public Perfil getPerfil() {
+        return perfil;
+    }
 
-        executarInstrucao(inst, proximoPC);
+    /**
+     * Liga (ou, com null, desliga) o histórico que permite {@link #voltar}.
+     * O histórico começa no estado atual.
+     */
+    public void setHistorico(HistoricoExecucao historico) {
+        if (historico != null) {
+            historico.limpar();
+        }
+        this.historico = historico;
     }
 
-    private void executarInstrucao(Instrucao inst, int proximoPC) {
-        int op = inst.opcode;
+    public HistoricoExecucao getHistorico() {
+        return historico;
+    }
 
-        switch (op) {
-            case Opcode.LDA: {
-                int operando = lerOperandoMemoria(inst, proximoPC);
-                cpu.A().setValor(operando);
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    /** Pontos de parada, observações de memória e condições desta máquina (nenhum, de início). */
+    public PontosParada getPontosParada() {
+        return pontosParada;
+    }
 
-            case Opcode.LDX: {
-                int operando = lerOperandoMemoria(inst, proximoPC);
-                cpu.X().setValor(operando);
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    /**
+     * Liga (ou, com null, desliga) a contagem de ciclos com o modelo dado. O
+     * custo de cada instrução é calculado na decodificação e guardado com
+     * ela, então o modelo é lido só aqui: mudanças posteriores nele valem a
+     * partir do próximo setModeloCiclos. Funciona com todos os motores.
+     */
+    public void setModeloCiclos(ModeloCiclos modelo) {
+        this.custos = modelo != null ? modelo.tabela() : null;
+        this.modeloCiclos = modelo;
+        Arrays.fill(cacheDecodificacao, null);
+        if (motorBlocos != null) {
+            motorBlocos.descartarTudo();
+        }
+    }
 
-            case Opcode.LDL: {
-                int operando = lerOperandoMemoria(inst, proximoPC);
-                cpu.L().setValor(operando);
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    public ModeloCiclos getModeloCiclos() {
+        return modeloCiclos;
+    }
 
-            case Opcode.LDB: {
-                int operando = lerOperandoMemoria(inst, proximoPC);
-                cpu.B().setValor(operando);
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    /** Ciclos simulados desde a criação, o último {@link #zerarCiclos()} ou o instantâneo restaurado. */
+    public long getCiclos() {
+        return ciclos;
+    }
 
-            case Opcode.LDS: {
-                int operando = lerOperandoMemoria(inst, proximoPC);
-                cpu.S().setValor(operando);
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    public void zerarCiclos() {
+        ciclos = 0;
+    }
 
-            case Opcode.LDT: {
-                int operando = lerOperandoMemoria(inst, proximoPC);
-                cpu.T().setValor(operando);
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    /** Custo da instrução no modelo atual (0 sem modelo ou para instrução inválida). */
+    int custoCiclos(Instrucao inst) {
+        if (custos == null || inst.formato == 0) {
+            return 0;
+        }
+        return custos[ModeloCiclos.indice(inst.opcode, inst.formato, inst.n << 1 | inst.i, inst.x)];
+    }
 
-            case Opcode.STA: {
-                int ea = calcularEnderecoEfetivo(inst, proximoPC);
-                memoria.escreverPalavraPorByte(ea, cpu.A().getValorUnsigned());
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    void somarCiclos(long quantidade) {
+        ciclos += quantidade;
+    }
 
-            case Opcode.STX: {
-                int ea = calcularEnderecoEfetivo(inst, proximoPC);
-                memoria.escreverPalavraPorByte(ea, cpu.X().getValorUnsigned());
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    /** Dispositivos usados por TD, RD e WD (nenhum conectado, de início). */
+    public Dispositivos getDispositivos() {
+        return dispositivos;
+    }
 
-            case Opcode.STL: {
-                int ea = calcularEnderecoEfetivo(inst, proximoPC);
-                memoria.escreverPalavraPorByte(ea, cpu.L().getValorUnsigned());
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    /** true se algum recurso precisa ver cada passo, o que impede os motores por blocos. */
+    private boolean instrumentada() {
+        return rastreador != null || perfil != null || historico != null || pontosParada.ativos();
+    }
 
-            case Opcode.STB: {
-                int ea = calcularEnderecoEfetivo(inst, proximoPC);
-                memoria.escreverPalavraPorByte(ea, cpu.B().getValorUnsigned());
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    /**
+     * Carrega uma palavra de 24 bits por String (em hexadecimal) a partir de
+     * enderecoInicialByte e põe o PC lá. Para arquivos, ver {@link CarregadorHex}.
+     */
+    public void carregarProgramaHex(List<String> linhas, int enderecoInicialByte) {
+        EventosJfr.Carregamento evento = new EventosJfr.Carregamento();
+        evento.begin();
+        byte[] bytes = new byte[linhas.size() * 3];
+        int n = 0;
 
-            case Opcode.STS: {
-                int ea = calcularEnderecoEfetivo(inst, proximoPC);
-                memoria.escreverPalavraPorByte(ea, cpu.S().getValorUnsigned());
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+        for (String linha : linhas) {
+            String hex = linha.trim();
+            if (hex.isEmpty()) continue;
 
-            case Opcode.STT: {
-                int ea = calcularEnderecoEfetivo(inst, proximoPC);
-                memoria.escreverPalavraPorByte(ea, cpu.T().getValorUnsigned());
-                cpu.PC().setValor(proximoPC);
-                break;
+            int valor = 0;
+            for (int i = 0; i < hex.length(); i++) {
+                char c = hex.charAt(i);
+                int nibble = (c < 128) ? Hex.nibble((byte) c) : -1;
+                if (nibble < 0) {
+                    throw new NumberFormatException("Palavra hexadecimal inválida: " + hex);
+                }
+                valor = (valor << 4) | nibble;
             }
+            bytes[n]     = (byte) (valor >> 16); // 24 bits
+            bytes[n + 1] = (byte) (valor >> 8);
+            bytes[n + 2] = (byte) valor;
+            n += 3;
+        }
 
-            case Opcode.ADD: {
-                int operando = lerOperandoMemoria(inst, proximoPC);
-                int resultado = cpu.A().getValor() + operando;
-                cpu.A().setValor(resultado);
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+        memoria.escreverBytes(enderecoInicialByte, bytes, 0, n);
+        cpu.escrever(CPU.COD_PC, enderecoInicialByte); // PC em bytes
 
-            case Opcode.SUB: {
-                int operando = lerOperandoMemoria(inst, proximoPC);
-                int resultado = cpu.A().getValor() - operando;
-                cpu.A().setValor(resultado);
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+        if (evento.shouldCommit()) {
+            evento.formato = "hex";
+            evento.origem = "lista de strings";
+            evento.palavras = n / 3;
+            evento.bytes = n;
+            evento.commit();
+        }
+    }
 
-            case Opcode.COMP: {
-                int operando = lerOperandoMemoria(inst, proximoPC);
-                int resultado = cpu.A().getValor() - operando;
-                cpu.setCCFromCompare(resultado);
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    /** Captura registradores e memória; custa uma cópia do banco de registradores e da tabela de páginas. */
+    public Instantaneo capturar() {
+        EventosJfr.Instantaneo evento = new EventosJfr.Instantaneo();
+        evento.begin();
+        Instantaneo instantaneo = new Instantaneo(cpu.banco().clone(), cpu.lerF(), cpu.getComparacao(), ciclos, memoria.capturar());
+        registrarInstantaneo(evento, "captura");
+        return instantaneo;
+    }
 
-            case Opcode.J: {
-                int ea = calcularEnderecoEfetivo(inst, proximoPC);
-                cpu.PC().setValor(ea);
-                break;
-            }
+    /**
+     * Captura o estado e resume-o (ver {@link ResumoEstado}). Só as páginas
+     * escritas desde o resumo anterior desta máquina são lidas; o custo fixo
+     * é o de {@link #capturar()}.
+     */
+    public ResumoEstado resumir() {
+        ultimoResumo = ResumoEstado.de(capturar(), ultimoResumo);
+        return ultimoResumo;
+    }
 
-            case Opcode.JEQ: {
-                int ea = calcularEnderecoEfetivo(inst, proximoPC);
-                if (cpu.getCC() == 0) {
-                    cpu.PC().setValor(ea);
-                } else {
-                    cpu.PC().setValor(proximoPC);
-                }
-                break;
-            }
+    /**
+     * Volta ao estado capturado. Só as páginas de memória escritas desde a
+     * captura são trocadas, e só os trechos que mudaram invalidam
+     * instruções decodificadas e blocos traduzidos.
+     */
+    public void restaurar(Instantaneo instantaneo) {
+        EventosJfr.Instantaneo evento = new EventosJfr.Instantaneo();
+        evento.begin();
+        memoria.restaurar(instantaneo.memoria);
+        System.arraycopy(instantaneo.registradores, 0, cpu.banco(), 0, instantaneo.registradores.length);
+        cpu.escreverF(instantaneo.f);
+        cpu.setCCFromCompare(instantaneo.comparacao);
+        ciclos = instantaneo.ciclos;
+        if (historico != null) {
+            historico.limpar();
+        }
+        pontosParada.esquecerTermino();
+        registrarInstantaneo(evento, "restauração");
+    }
 
-            case Opcode.JSUB: {
-                int ea = calcularEnderecoEfetivo(inst, proximoPC);
-                cpu.L().setValor(proximoPC);
-                cpu.PC().setValor(ea);
-                break;
-            }
+    private void registrarInstantaneo(EventosJfr.Instantaneo evento, String operacao) {
+        if (evento.shouldCommit()) {
+            evento.operacao = operacao;
+            evento.paginasAlocadas = memoria.getPaginasAlocadas();
+            evento.commit();
+        }
+    }
 
-            case Opcode.RSUB: {
-                int newPC = cpu.L().getValorUnsigned();
-                cpu.PC().setValor(newPC);
-                break;
-            }
+    public void passo() {
+        try {
+            passoVerificandoParada();
+        } catch (RuntimeException e) {
+            registrarFalha(e);
+            throw e;
+        } finally {
+            pontosParada.terminarExecucao(cpu);
+        }
+    }
 
-            case Opcode.TIX: {
-                int ea = calcularEnderecoEfetivo(inst, proximoPC);
-                int m = memoria.lerPalavraPorByte(ea);
+    public ResultadoExecucao executar(long maxPassos) {
+        return executar(maxPassos, 0);
+    }
 
-                int novoX = cpu.X().getValor() + 1;
-                cpu.X().setValor(novoX);
+    /**
+     * Executa até o programa parar sozinho ("J *", RSUB com L = 0 ou SVC), até
+     * completar maxPassos ou até esgotar prazoNanos (0 = sem prazo). O prazo
+     * é conferido a cada {@value #PASSOS_ENTRE_CONSULTAS_RELOGIO} passos.
+     */
+    public ResultadoExecucao executar(long maxPassos, long prazoNanos) {
+        EventosJfr.FatiaExecucao fatia = abrirFatia();
+        ResultadoExecucao resultado;
+        try {
+            if (motorBlocos != null && !instrumentada()) {
+                resultado = motorBlocos.executar(maxPassos, prazoNanos);
+            } else {
+                resultado = interpretar(maxPassos, prazoNanos);
+            }
+        } catch (RuntimeException e) {
+            if (fatia.isEnabled()) {
+                fatia.chamadas++;
+                fatia.end();
+                fecharFatia(fatia, "FALHA", System.nanoTime());
+            }
+            registrarFalha(e);
+            throw e;
+        } finally {
+            pontosParada.terminarExecucao(cpu);
+        }
+        if (fatia.isEnabled()) {
+            acumularFatia(fatia, resultado);
+        }
+        return resultado;
+    }
 
-                int resultado = cpu.X().getValor() - m;
-                cpu.setCCFromCompare(resultado);
+    private ResultadoExecucao interpretar(long maxPassos, long prazoNanos) {
+        long inicio = System.nanoTime();
+        boolean temPrazo = prazoNanos > 0;
+        long passos = 0;
+        long ciclosAntes = ciclos;
+        MotivoParada motivo = MotivoParada.LIMITE_DE_PASSOS;
+
+        // a única checagem por passo sem pontos de parada é o "if (pontos != null)"
+        PontosParada pontos = pontosParada.ativos() ? pontosParada : null;
+        if (pontos != null) {
+            pontos.ligar(memoria);
+        }
+        try {
+            MotivoParada parada = pontos != null && maxPassos > 0 ? pontos.verificarPartida(cpu) : null;
+            if (parada != null) {
+                motivo = parada;
+            }
+            while (parada == null && passos < maxPassos) {
+                if (temPrazo && (passos & (PASSOS_ENTRE_CONSULTAS_RELOGIO - 1)) == 0
+                        && System.nanoTime() - inicio >= prazoNanos) {
+                    motivo = MotivoParada.PRAZO_ESGOTADO;
+                    break;
+                }
 
-                cpu.PC().setValor(proximoPC);
-                break;
+                parada = passoVerificandoParada();
+                passos++;
+                if (parada == null && pontos != null) {
+                    parada = pontos.verificar(cpu);
+                }
+                if (parada != null) {
+                    motivo = parada;
+                    break;
+                }
             }
+        } finally {
+            if (pontos != null) {
+                pontos.desligar(memoria);
+            }
+        }
 
-            case Opcode.LDCH: {
-                int ea = calcularEnderecoEfetivo(inst, proximoPC);
-                int byteLido = memoria.lerByte(ea);
-
-                int a = cpu.A().getValorUnsigned();
-                a = (a & 0xFFFF00) | (byteLido & 0xFF); // mantém 16 bits altos
-                cpu.A().setValor(a);
+        return new ResultadoExecucao(motivo, passos, System.nanoTime() - inicio, ciclos - ciclosAntes);
+    }
 
-                cpu.PC().setValor(proximoPC);
-                break;
+    // =========================
+    //  Execução reversa
+    // =========================
+
+    /**
+     * Desfaz até maxPassos passos usando o {@link HistoricoExecucao}, parando
+     * antes se esgotar prazoNanos (0 = sem prazo), se o histórico acabar ou
+     * num ponto de parada: um endereço de parada alcançado pelo PC, uma
+     * condição que passe a valer ou uma escrita desfeita em memória
+     * observada (leituras observadas não são percebidas ao voltar).
+     */
+    public ResultadoExecucao voltar(long maxPassos, long prazoNanos) {
+        if (historico == null) {
+            throw new IllegalStateException("Máquina sem histórico de execução.");
+        }
+        long inicio = System.nanoTime();
+        boolean temPrazo = prazoNanos > 0;
+        long passos = 0;
+        long ciclosAntes = ciclos;
+        MotivoParada motivo = MotivoParada.LIMITE_DE_PASSOS;
+
+        PontosParada pontos = pontosParada.ativos() ? pontosParada : null;
+        if (pontos != null) {
+            pontos.ligar(memoria);
+        }
+        try {
+            while (passos < maxPassos) {
+                if (temPrazo && (passos & (PASSOS_ENTRE_CONSULTAS_RELOGIO - 1)) == 0
+                        && System.nanoTime() - inicio >= prazoNanos) {
+                    motivo = MotivoParada.PRAZO_ESGOTADO;
+                    break;
+                }
+                if (!voltarUmPasso(pontos)) {
+                    motivo = MotivoParada.INICIO_DO_HISTORICO;
+                    break;
+                }
+                passos++;
+                MotivoParada parada = pontos != null ? pontos.verificar(cpu) : null;
+                if (parada != null) {
+                    motivo = parada;
+                    break;
+                }
+            }
+        } finally {
+            if (pontos != null) {
+                pontos.desligar(memoria);
             }
+            pontosParada.terminarExecucao(cpu);
+        }
+        return new ResultadoExecucao(motivo, passos, System.nanoTime() - inicio, ciclos - ciclosAntes);
+    }
 
-            case Opcode.STCH: {
-                int ea = calcularEnderecoEfetivo(inst, proximoPC);
-                int a = cpu.A().getValorUnsigned();
-                int byteA = a & 0xFF;
-                memoria.escreverByte(ea, byteA);
+    /** Desfaz um passo; {@code pontos}, se não for null, está ligado à memória. */
+    private boolean voltarUmPasso(PontosParada pontos) {
+        long alvo = historico.getPasso() - 1;
+        historico.voltando = true;
+        try {
+            if (historico.desfazer(cpu, memoria)) {
+                ciclos -= buscarInstrucao(cpu.ler(CPU.COD_PC)).ciclos;
+                return true;
+            }
+            // o passo já saiu do anel: volta ao instantâneo anterior e refaz o caminho
+            Map.Entry<Long, Instantaneo> anterior = historico.instantaneoAte(alvo);
+            if (alvo < 0 || anterior == null) {
+                return false;
+            }
+            Instantaneo instantaneo = anterior.getValue();
+            memoria.restaurar(instantaneo.memoria);
+            System.arraycopy(instantaneo.registradores, 0, cpu.banco(), 0, instantaneo.registradores.length);
+            cpu.escreverF(instantaneo.f);
+            cpu.setCCFromCompare(instantaneo.comparacao);
+            ciclos = instantaneo.ciclos;
+            historico.recomecarEm(anterior.getKey());
+        } finally {
+            historico.voltando = false;
+        }
 
-                cpu.PC().setValor(proximoPC);
-                break;
+        // refaz sem contar de novo no perfil nem no rastro, e sem observar a
+        // memória: os acessos refeitos não são paradas
+        Perfil perfilSalvo = perfil;
+        Rastreador rastreadorSalvo = rastreador;
+        perfil = null;
+        rastreador = null;
+        if (pontos != null) {
+            pontos.desligar(memoria);
+        }
+        try {
+            while (historico.getPasso() < alvo) {
+                passoVerificandoParada();
             }
-
-            case Opcode.MUL: {
-                int operando = lerOperandoMemoria(inst, proximoPC);
-                int resultado = cpu.A().getValor() * operando;
-                cpu.A().setValor(resultado);
-                cpu.PC().setValor(proximoPC);
-                break;
+        } finally {
+            perfil = perfilSalvo;
+            rastreador = rastreadorSalvo;
+            if (pontos != null) {
+                pontos.ligar(memoria); // e descarta um acesso que tenha ficado pendente
             }
+        }
+        return true;
+    }
 
-            case Opcode.DIV: {
-                int operando = lerOperandoMemoria(inst, proximoPC);
-                if (operando == 0) {
-                    throw new ArithmeticException("Divisão por zero em DIV");
-                }
-                int resultado = cpu.A().getValor() / operando;
-                cpu.A().setValor(resultado);
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    // =========================
+    //  Eventos JFR
+    // =========================
+
+    /**
+     * Continua a fatia aberta ou começa outra. Chamadas seguidas de executar()
+     * (como as de executar(1) num laço) viram um evento só; uma pausa maior
+     * que o intervalo fecha a fatia anterior antes.
+     */
+    private EventosJfr.FatiaExecucao abrirFatia() {
+        EventosJfr.FatiaExecucao fatia = fatiaAberta;
+        if (fatia != null) {
+            inicioChamadaNanos = System.nanoTime();
+            if (inicioChamadaNanos - fimFatiaNanos < EventosJfr.INTERVALO_FATIA_MS * 1_000_000) {
+                return fatia;
+            }
+            fecharFatia(fatia, fatia.motivo, inicioChamadaNanos);
+        }
+        fatia = new EventosJfr.FatiaExecucao();
+        if (fatia.isEnabled()) {
+            fatia.begin();
+            fatia.motor = instrumentada() ? MotorExecucao.INTERPRETADOR.name() : motor.name();
+            inicioFatiaNanos = System.nanoTime();
+            inicioChamadaNanos = inicioFatiaNanos;
+        }
+        return fatia;
+    }
 
-            case Opcode.AND: {
-                int operando = lerOperandoMemoria(inst, proximoPC);
-                int resultado = cpu.A().getValorUnsigned() & (operando & 0xFFFFFF);
-                cpu.A().setValor(resultado);
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    private void acumularFatia(EventosJfr.FatiaExecucao fatia, ResultadoExecucao resultado) {
+        fatia.chamadas++;
+        fatia.passos += resultado.getPassosExecutados();
+        fatia.nanosExecutando += resultado.getNanosDecorridos();
+        fatia.end();
+        fimFatiaNanos = inicioChamadaNanos + resultado.getNanosDecorridos(); // sem ler o relógio de novo
+        // o fim do programa fecha a fatia, desde que a última não tenha sido fechada há pouco
+        long desde = resultado.terminou() ? fechamentoFatiaNanos : inicioFatiaNanos;
+        if (fimFatiaNanos - desde >= EventosJfr.INTERVALO_FATIA_MS * 1_000_000) {
+            fecharFatia(fatia, resultado.getMotivo().name(), fimFatiaNanos);
+        } else {
+            fatia.motivo = resultado.getMotivo().name();
+            fatiaAberta = fatia;
+        }
+    }
 
-            case Opcode.OR: {
-                int operando = lerOperandoMemoria(inst, proximoPC);
-                int resultado = cpu.A().getValorUnsigned() | (operando & 0xFFFFFF);
-                cpu.A().setValor(resultado);
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    private void fecharFatia(EventosJfr.FatiaExecucao fatia, String motivo, long agoraNanos) {
+        fatia.motivo = motivo;
+        fatia.commit();
+        fatiaAberta = null;
+        fechamentoFatiaNanos = agoraNanos;
+    }
 
-            case Opcode.JGT: {
-                int ea = calcularEnderecoEfetivo(inst, proximoPC);
-                if (cpu.getCC() > 0) {
-                    cpu.PC().setValor(ea);
-                } else {
-                    cpu.PC().setValor(proximoPC);
-                }
-                break;
-            }
+    private void registrarFalha(RuntimeException e) {
+        EventosJfr.Falha falha = new EventosJfr.Falha();
+        if (falha.isEnabled()) {
+            falha.tipo = e.getClass().getName();
+            falha.mensagem = e.getMessage();
+            falha.pc = cpu.ler(CPU.COD_PC);
+            falha.commit();
+        }
+    }
 
-            case Opcode.JLT: {
-                int ea = calcularEnderecoEfetivo(inst, proximoPC);
-                if (cpu.getCC() < 0) {
-                    cpu.PC().setValor(ea);
-                } else {
-                    cpu.PC().setValor(proximoPC);
-                }
-                break;
-            }
+    /** Executa uma instrução e devolve o motivo de parada, se ela encerrou o programa. */
+    MotivoParada passoVerificandoParada() {
+        int pc = cpu.ler(CPU.COD_PC);
 
-            case Opcode.ADDR: {
-                Registrador r1 = cpu.getRegistradorPorCodigo(inst.r1);
-                Registrador r2 = cpu.getRegistradorPorCodigo(inst.r2);
-                if (r1 != null && r2 != null) {
-                    int resultado = r2.getValor() + r1.getValor();
-                    r2.setValor(resultado);
-                }
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+        // busca e decodifica (reaproveitando o cache quando possível)
+        Instrucao inst = buscarInstrucao(pc);
+        int op = inst.opcode;
+        int custo = inst.ciclos;
+        enderecoEfetivo = -1;
+        bytesEscritos = 0;
+
+        if (historico != null) {
+            if (historico.querInstantaneo()) {
+                historico.guardarInstantaneo(capturar());
+            }
+            historico.antesDoPasso(cpu);
+            ciclos += custo; // contado ao despachar, mesmo que a instrução falhe
+            executarInstrucao(inst, (pc + inst.tamanhoBytes) & 0xFFFFFF);
+            historico.depoisDoPasso(cpu);
+        } else {
+            ciclos += custo;
+            executarInstrucao(inst, (pc + inst.tamanhoBytes) & 0xFFFFFF);
+        }
 
-            case Opcode.SUBR: {
-                Registrador r1 = cpu.getRegistradorPorCodigo(inst.r1);
-                Registrador r2 = cpu.getRegistradorPorCodigo(inst.r2);
-                if (r1 != null && r2 != null) {
-                    int resultado = r2.getValor() - r1.getValor();
-                    r2.setValor(resultado);
-                }
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+        if (perfil != null) {
+            perfil.contarInstrucao(pc, op, custo);
+        }
+        if (rastreador != null) {
+            registrarRastro(pc, op);
+        }
+        return verificarParada(op, pc);
+    }
 
-            case Opcode.MULR: {
-                Registrador r1 = cpu.getRegistradorPorCodigo(inst.r1);
-                Registrador r2 = cpu.getRegistradorPorCodigo(inst.r2);
-                if (r1 != null && r2 != null) {
-                    int resultado = r2.getValor() * r1.getValor();
-                    r2.setValor(resultado);
-                }
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    private void registrarRastro(int pc, int opcode) {
+        int quantidade = Math.min(bytesEscritos, Rastreador.MAX_BYTES_ESCRITOS);
+        long valorEscrito = 0;
+        for (int k = 0; k < quantidade; k++) {
+            valorEscrito = (valorEscrito << 8) | memoria.lerByteSemObservar(enderecoEscrito + k);
+        }
+        rastreador.registrar(pc, opcode, enderecoEfetivo, cpu.banco(), cpu.getCC(),
+                enderecoEscrito, quantidade, valorEscrito);
+    }
 
-            case Opcode.DIVR: {
-                Registrador r1 = cpu.getRegistradorPorCodigo(inst.r1);
-                Registrador r2 = cpu.getRegistradorPorCodigo(inst.r2);
-                if (r1 != null && r2 != null) {
-                    int divisor = r1.getValor();
-                    if (divisor == 0) {
-                        throw new ArithmeticException("Divisão por zero em DIVR");
-                    }
-                    int resultado = r2.getValor() / divisor;
-                    r2.setValor(resultado);
-                }
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    /** "J *", RSUB com L = 0 ou SVC, olhando o PC depois de executar a instrução em pcAnterior. */
+    MotivoParada verificarParada(int opcode, int pcAnterior) {
+        if (opcode == Opcode.J && cpu.ler(CPU.COD_PC) == pcAnterior) {
+            return MotivoParada.LACO_DE_PARADA;
+        }
+        if (opcode == Opcode.RSUB && cpu.ler(CPU.COD_PC) == 0) {
+            return MotivoParada.RETORNO_COM_L_ZERO;
+        }
+        if (opcode == Opcode.SVC) {
+            return MotivoParada.CHAMADA_AO_SUPERVISOR;
+        }
+        return null;
+    }
 
-            case Opcode.COMPR: {
-                Registrador r1 = cpu.getRegistradorPorCodigo(inst.r1);
-                Registrador r2 = cpu.getRegistradorPorCodigo(inst.r2);
-                if (r1 != null && r2 != null) {
-                    int diff = r1.getValor() - r2.getValor();
-                    cpu.setCCFromCompare(diff);
-                }
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    private Instrucao buscarInstrucao(int pc) {
+        if (pc >= memoria.getTamanhoEmBytes()) {
+            return Instrucao.decodificar(memoria, pc); // fora da memória: deixa a decodificação acusar o erro
+        }
+        long[] pagina = cacheDecodificacao[pc >>> Memoria.BITS_PAGINA];
+        if (pagina == null) {
+            pagina = new long[Memoria.TAMANHO_PAGINA];
+            cacheDecodificacao[pc >>> Memoria.BITS_PAGINA] = pagina;
+        }
+        long empacotada = pagina[pc & Memoria.MASCARA_PAGINA];
+        if (empacotada == 0) {
+            Instrucao decodificada = Instrucao.decodificar(memoria, pc);
+            decodificada.ciclos = custoCiclos(decodificada);
+            empacotada = decodificada.empacotar();
+            pagina[pc & Memoria.MASCARA_PAGINA] = empacotada;
+        }
+        instrucaoAtual.desempacotar(empacotada);
+        return instrucaoAtual;
+    }
 
-            case Opcode.SHIFTL: {
-                Registrador r1 = cpu.getRegistradorPorCodigo(inst.r1);
-                int n = inst.r2 & 0x0F; 
-                if (r1 != null && n > 0) {
-                    int v = r1.getValorUnsigned();
-                    v = (v << n) & 0xFFFFFF; // mantém 24 bits
-                    r1.setValor(v);
-                }
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    private void aoEscreverMemoria(int enderecoByte, int quantidadeBytes) {
+        // um passo pode escrever mais de uma vez (STF: duas palavras); guarda o trecho todo
+        if (bytesEscritos == 0) {
+            enderecoEscrito = enderecoByte;
+            bytesEscritos = quantidadeBytes;
+        } else {
+            int fim = Math.max(enderecoEscrito + bytesEscritos, enderecoByte + quantidadeBytes);
+            enderecoEscrito = Math.min(enderecoEscrito, enderecoByte);
+            bytesEscritos = fim - enderecoEscrito;
+        }
+        if (historico != null) {
+            historico.aoEscrever(memoria, enderecoByte, quantidadeBytes);
+        }
+        invalidarDecodificacao(enderecoByte, quantidadeBytes);
+        if (motorBlocos != null) {
+            motorBlocos.aoEscrever(enderecoByte, quantidadeBytes);
+        }
+    }
 
-            case Opcode.SHIFTR: {
-                Registrador r1 = cpu.getRegistradorPorCodigo(inst.r1);
-                int n = inst.r2 & 0x0F;
-                if (r1 != null && n > 0) {
-                    int v = r1.getValorUnsigned();
-                    v = v >>> n;       // deslocamento lógico à direita
-                    v &= 0xFFFFFF;     // garante 24 bits
-                    r1.setValor(v);
-                }
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    /**
+     * Chamado antes de cada escrita na memória. Uma instrução tem no máximo
+     * 4 bytes, então qualquer entrada que comece até 3 bytes antes do trecho
+     * escrito pode ter sido afetada.
+     */
+    private void invalidarDecodificacao(int enderecoByte, int quantidadeBytes) {
+        int inicio = Math.max(0, enderecoByte - 3);
+        int fim = Math.min(memoria.getTamanhoEmBytes(), enderecoByte + quantidadeBytes);
+        for (int a = inicio; a < fim; ) {
+            int p = a >>> Memoria.BITS_PAGINA;
+            int fimPagina = Math.min(fim, (p + 1) << Memoria.BITS_PAGINA);
+            if (cacheDecodificacao[p] != null) {
+                Arrays.fill(cacheDecodificacao[p], a & Memoria.MASCARA_PAGINA,
+                        ((fimPagina - 1) & Memoria.MASCARA_PAGINA) + 1, 0L);
+            }
+            a = fimPagina;
+        }
+    }
 
-            case Opcode.RMO: {
-                Registrador r1 = cpu.getRegistradorPorCodigo(inst.r1);
-                Registrador r2 = cpu.getRegistradorPorCodigo(inst.r2);
+    /** Executa a instrução pelo tratador de {@link DescritorOpcode}. */
+    void executarInstrucao(Instrucao inst, int proximoPC) {
+        DescritorOpcode descritor = DescritorOpcode.de(inst.opcode);
+        if (descritor == null) {
+            throw new UnsupportedOperationException(
+                String.format("Opcode não existente: 0x%02X", inst.opcode)
+            );
+        }
+        descritor.tratador.executar(this, inst, proximoPC);
+    }
 
-                if (r1 != null && r2 != null) {
-                    r2.setValor(r1.getValorUnsigned()); // copia mantendo 24 bits
-                }
+    // =========================
+    //  Operações usadas pelos tratadores de DescritorOpcode
+    // =========================
 
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    /** Desvio condicional tomado (para o perfil). */
+    void contarDesvioTomado(Instrucao inst, int proximoPC) {
+        if (perfil != null) {
+            perfil.contarDesvioTomado((proximoPC - inst.tamanhoBytes) & 0xFFFFFF, inst.opcode);
+        }
+    }
 
-            case Opcode.CLEAR: {
-                Registrador r1 = cpu.getRegistradorPorCodigo(inst.r1);
-                if (r1 != null) {
-                    r1.limpar();
-                }
-                cpu.PC().setValor(proximoPC);
-                break;
-            }
+    /**
+     * Dispositivo de TD/RD/WD: o número é o byte em m (ou o valor imediato).
+     * Avisa o histórico, que não pode refazer E/S.
+     */
+    Dispositivo dispositivoDaInstrucao(Instrucao inst, int proximoPC) {
+        int ea = calcularEnderecoEfetivo(inst, proximoPC);
+        int numero = (inst.n == 0 && inst.i == 1) ? ea : lerByte(ea);
+        if (historico != null) {
+            historico.marcarEntradaSaida();
+        }
+        return dispositivos.exigir(numero);
+    }
+
+    /** SVC n: guarda n e para a execução depois da instrução. */
+    void registrarChamadaSupervisor(int codigo) {
+        codigoChamadaSupervisor = codigo;
+    }
 
-            case Opcode.TIXR: {
-                Registrador r1 = cpu.getRegistradorPorCodigo(inst.r1);
-                int novoX = cpu.X().getValor() + 1;
-                cpu.X().setValor(novoX);
+    /**
+     * Código n da última instrução "SVC n" executada, para o hospedeiro
+     * atender a chamada quando a execução parar com
+     * {@link MotivoParada#CHAMADA_AO_SUPERVISOR}.
+     */
+    public int getCodigoChamadaSupervisor() {
+        return codigoChamadaSupervisor;
+    }
 
-                if (r1 != null) {
-                    int resultado = cpu.X().getValor() - r1.getValor();
-                    cpu.setCCFromCompare(resultado);
-                }
-                cpu.PC().setValor(proximoPC);
-                break;
+    /**
+     * LPS: carrega os registradores da área de trabalho em m, na ordem SW,
+     * PC, A, X, L, B, S, T (uma palavra cada) e F (6 bytes).
+     */
+    void carregarEstadoProcessador(int enderecoByte) {
+        int[] ordem = {CPU.COD_SW, CPU.COD_PC, CPU.COD_A, CPU.COD_X, CPU.COD_L, CPU.COD_B, CPU.COD_S, CPU.COD_T};
+        int[] valores = new int[ordem.length];
+        for (int k = 0; k < ordem.length; k++) {
+            valores[k] = lerPalavra(enderecoByte + 3 * k);
+        }
+        long f = lerFlutuante(enderecoByte + 3 * ordem.length);
+        for (int k = 0; k < ordem.length; k++) {
+            if (ordem[k] == CPU.COD_SW) {
+                cpu.escreverSW(valores[k]);
+            } else {
+                cpu.escrever(ordem[k], valores[k]);
             }
-
-            default:
-                throw new UnsupportedOperationException(
-                    String.format("Opcode não existente: 0x%02X", op)
-                );
         }
+        cpu.escreverF(f);
     }
 
-    private int calcularEnderecoEfetivo(Instrucao inst, int proximoPC) {
+    int calcularEnderecoEfetivo(Instrucao inst, int proximoPC) {
         if (inst.formato != 3 && inst.formato != 4) {
             throw new IllegalArgumentException("Endereço efetivo só para formatos 3/4.");
         }
@@ -414,7 +699,7 @@ public class Maquina {
             if (inst.p == 1) {
                 ea = proximoPC + disp; // PC-relative
             } else if (inst.b == 1) {
-                ea = cpu.B().getValorUnsigned() + disp;
+                ea = cpu.ler(CPU.COD_B) + disp;
             } else {
                 ea = disp & 0xFFFFF; // direto
             }
@@ -422,7 +707,7 @@ public class Maquina {
             // formato 4 – disp = endereço de 20 bits
             int addr = inst.disp & 0xFFFFF;
             if (inst.b == 1) {
-                ea = cpu.B().getValorUnsigned() + addr;
+                ea = cpu.ler(CPU.COD_B) + addr;
             } else if (inst.p == 1) {
                 ea = proximoPC + addr; // nem sempre usado, mas deixo aqui
             } else {
@@ -431,28 +716,93 @@ public class Maquina {
         }
 
         if (inst.x == 1) {
-            ea += cpu.X().getValorUnsigned();
+            ea += cpu.ler(CPU.COD_X);
         }
 
-        return ea & 0xFFFFFF;
+        enderecoEfetivo = ea & 0xFFFFFF;
+        return enderecoEfetivo;
     }
 
-    private int lerOperandoMemoria(Instrucao inst, int proximoPC) {
+    /**
+     * Endereço onde um armazenamento escreve ou para onde um desvio vai: o
+     * efetivo ou, no modo indireto (n=1, i=0), a palavra guardada nele.
+     */
+    int calcularEnderecoAlvo(Instrucao inst, int proximoPC) {
+        int ea = calcularEnderecoEfetivo(inst, proximoPC);
+        return inst.n == 1 && inst.i == 0 ? lerPalavra(ea) : ea;
+    }
+
+    int lerOperandoMemoria(Instrucao inst, int proximoPC) {
         int ea = calcularEnderecoEfetivo(inst, proximoPC);
 
         boolean n = inst.n == 1;
         boolean i = inst.i == 1;
 
         if (n && i) { // simples (direto)
-            return memoria.lerPalavraPorByte(ea);
+            return lerPalavra(ea);
         } else if (!n && i) { // imediato
             return ea; // o valor é o próprio campo
         } else if (n && !i) { // indireto
-            int ptr = memoria.lerPalavraPorByte(ea);
-            return memoria.lerPalavraPorByte(ptr);
+            int ptr = lerPalavra(ea);
+            return lerPalavra(ptr);
         } else {
             // caso 0 e 0, trata como simples
-            return memoria.lerPalavraPorByte(ea);
+            return lerPalavra(ea);
+        }
+    }
+
+    /** Escrita de dados de uma instrução (contada no perfil, se houver). */
+    void escreverPalavra(int enderecoByte, int valor) {
+        memoria.escreverPalavraPorByte(enderecoByte, valor);
+        if (perfil != null) {
+            perfil.contarEscrita(enderecoByte);
+        }
+    }
+
+    /** Leitura de dados de uma instrução (contada no perfil, se houver). */
+    int lerPalavra(int enderecoByte) {
+        int valor = memoria.lerPalavraPorByte(enderecoByte);
+        if (perfil != null) {
+            perfil.contarLeitura(enderecoByte);
+        }
+        return valor;
+    }
+
+    /** Leitura de um byte de dados (contada no perfil, se houver). */
+    int lerByte(int enderecoByte) {
+        int valor = memoria.lerByte(enderecoByte);
+        if (perfil != null) {
+            perfil.contarLeitura(enderecoByte);
         }
+        return valor;
+    }
+
+    /** Escrita de um byte de dados (contada no perfil, se houver). */
+    void escreverByte(int enderecoByte, int valor) {
+        memoria.escreverByte(enderecoByte, valor);
+        if (perfil != null) {
+            perfil.contarEscrita(enderecoByte);
+        }
+    }
+
+    /** Operando de 6 bytes das instruções de ponto flutuante; imediato vira a metade alta de F. */
+    long lerOperandoFlutuante(Instrucao inst, int proximoPC) {
+        int ea = calcularEnderecoEfetivo(inst, proximoPC);
+        if (inst.n == 0 && inst.i == 1) {
+            return (long) ea << 24;
+        }
+        if (inst.n == 1 && inst.i == 0) {
+            ea = lerPalavra(ea);
+        }
+        return lerFlutuante(ea);
+    }
+
+    long lerFlutuante(int enderecoByte) {
+        return (long) lerPalavra(enderecoByte) << 24 | lerPalavra(enderecoByte + 3);
+    }
+
+    void escreverFlutuante(int enderecoByte, long valor) {
+        escreverPalavra(enderecoByte, (int) (valor >>> 24));
+        escreverPalavra(enderecoByte + 3, (int) valor);
     }
 }
@@ -1,16 +1,90 @@
 package executor;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Memória do SIC/XE dividida em páginas de {@value #TAMANHO_PAGINA} bytes.
+ *
+ * Uma página só é alocada na primeira escrita; até lá as leituras caem numa
+ * página de zeros compartilhada por todas as memórias. Assim uma máquina com
+ * o espaço de endereçamento inteiro (1 MB) e um programa pequeno só paga
+ * pelas páginas escritas: 4 KB + 1 byte cada uma (mais 32 KB de cache de
+ * decodificação na {@link Maquina} para cada página que contém código).
+ *
+ * Acessos a palavra fazem uma única checagem de limites e, quando não
+ * atravessam a fronteira de página, um único acesso de int (big-endian) à
+ * página: a leitura pega 4 bytes e descarta o último, e por isso cada
+ * página tem um byte de folga no fim, sempre zero. Os que atravessam a
+ * fronteira caem no caminho byte a byte.
+ *
+ * {@link #capturar()} devolve uma {@link Imagem} que divide as páginas com a
+ * memória (copy-on-write): a próxima escrita numa página capturada copia a
+ * página antes. {@link #restaurar(Imagem)} só troca as páginas que mudaram.
+ */
 public class Memoria {
 
-    private final byte[] dados;
+    /**
+     * Notificado antes de qualquer escrita na memória. Usado pela Maquina
+     * para invalidar instruções já decodificadas (código automodificável).
+     */
+    public interface OuvinteEscrita {
+        void antesDeEscrever(int enderecoByte, int quantidadeBytes);
+    }
+
+    /** Espaço endereçável do SIC/XE: endereços de 20 bits (formato 4). */
+    public static final int TAMANHO_ENDERECAVEL = 1 << 20;
+
+    /**
+     * Palavras inteiras que cabem no espaço endereçável (1.048.575 bytes; o
+     * último endereço, FFFFF, sobra).
+     */
+    public static final int PALAVRAS_ENDERECAVEIS = TAMANHO_ENDERECAVEL / 3;
+
+    static final int BITS_PAGINA = 12;
+    static final int TAMANHO_PAGINA = 1 << BITS_PAGINA;
+    static final int MASCARA_PAGINA = TAMANHO_PAGINA - 1;
+
+    // byte de folga no fim de cada página, para ler a última palavra como int
+    private static final int FOLGA_PAGINA = 1;
+
+    // lida no lugar de qualquer página ainda não escrita; nunca é alterada
+    private static final byte[] PAGINA_ZERO = new byte[TAMANHO_PAGINA + FOLGA_PAGINA];
+
+    private static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle SHORT_BE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+
+    private final byte[][] paginas;
+    private final boolean[] compartilhada; // a página também pertence a uma Imagem: copiar antes de escrever
+    private final int tamanhoEmBytes;
+    private final int ultimoEnderecoPalavra; // tamanhoEmBytes - 3
     private final int numPalavras;
+    private int paginasAlocadas;
+    private OuvinteEscrita ouvinte;
+
+    // bytes observados durante uma execução (null = nenhum); ver PontosParada
+    private BitSet observadosLeitura;
+    private BitSet observadosEscrita;
+    private OuvinteObservacao ouvinteObservacao;
 
     public Memoria(int numPalavras) {
         if (numPalavras <= 0) {
             throw new IllegalArgumentException("Número de palavras deve ser positivo.");
         }
+        if (numPalavras > PALAVRAS_ENDERECAVEIS) {
+            throw new IllegalArgumentException(
+                "Número de palavras excede o espaço endereçável: " + numPalavras
+            );
+        }
         this.numPalavras = numPalavras;
-        this.dados = new byte[numPalavras * 3]; // 1 palavra = 3 bytes
+        this.tamanhoEmBytes = numPalavras * 3; // 1 palavra = 3 bytes
+        this.ultimoEnderecoPalavra = tamanhoEmBytes - 3;
+        this.paginas = new byte[(tamanhoEmBytes + TAMANHO_PAGINA - 1) >>> BITS_PAGINA][];
+        this.compartilhada = new boolean[paginas.length];
+        Arrays.fill(paginas, PAGINA_ZERO);
     }
 
     public int getNumPalavras() {
@@ -18,60 +92,341 @@ public class Memoria {
     }
 
     public int getTamanhoEmBytes() {
-        return dados.length;
+        return tamanhoEmBytes;
     }
 
-    public int lerPalavra(int enderecoPalavra) {
-        validarEnderecoPalavra(enderecoPalavra);
-        int base = enderecoPalavra * 3;
+    /** Quantas páginas já receberam escrita (e por isso ocupam memória de verdade). */
+    public int getPaginasAlocadas() {
+        return paginasAlocadas;
+    }
 
-        int b1 = Byte.toUnsignedInt(dados[base]);
-        int b2 = Byte.toUnsignedInt(dados[base + 1]);
-        int b3 = Byte.toUnsignedInt(dados[base + 2]);
+    public void setOuvinteEscrita(OuvinteEscrita ouvinte) {
+        this.ouvinte = ouvinte;
+    }
 
-        return (b1 << 16) | (b2 << 8) | b3;
+    /** Avisado quando uma leitura ou escrita de dados toca um byte observado. */
+    @FunctionalInterface
+    interface OuvinteObservacao {
+        void aoAcessar(int enderecoByte, boolean escrita);
     }
 
-    public void escreverPalavra(int enderecoPalavra, int valor) {
+    /** Liga (ou, com nulls, desliga) a observação de acessos; só a Maquina usa, durante uma execução. */
+    void observar(BitSet leitura, BitSet escrita, OuvinteObservacao ouvinte) {
+        this.observadosLeitura = leitura;
+        this.observadosEscrita = escrita;
+        this.ouvinteObservacao = ouvinte;
+    }
+
+    private void verificarObservados(BitSet observados, int enderecoByte, int quantidadeBytes, boolean escrita) {
+        int b = observados.nextSetBit(enderecoByte);
+        if (b >= 0 && b < enderecoByte + quantidadeBytes) {
+            ouvinteObservacao.aoAcessar(b, escrita);
+        }
+    }
+
+    private void notificarEscrita(int enderecoByte, int quantidadeBytes) {
+        if (ouvinte != null) {
+            ouvinte.antesDeEscrever(enderecoByte, quantidadeBytes);
+        }
+    }
+
+    /** Zera toda a memória devolvendo as páginas; o ouvinte é avisado uma vez só. */
+    public void limpar() {
+        notificarEscrita(0, tamanhoEmBytes);
+        Arrays.fill(paginas, PAGINA_ZERO);
+        Arrays.fill(compartilhada, false);
+        paginasAlocadas = 0;
+    }
+
+    // =========================
+    //  Imagens (snapshots)
+    // =========================
+
+    /** Conteúdo congelado de uma Memoria. Imutável; pode ser restaurado em várias memórias do mesmo tamanho. */
+    public static final class Imagem {
+        private final byte[][] paginas;
+        private final int paginasAlocadas;
+        private final int tamanhoEmBytes;
+
+        private Imagem(byte[][] paginas, int paginasAlocadas, int tamanhoEmBytes) {
+            this.paginas = paginas;
+            this.paginasAlocadas = paginasAlocadas;
+            this.tamanhoEmBytes = tamanhoEmBytes;
+        }
+
+        public int getTamanhoEmBytes() {
+            return tamanhoEmBytes;
+        }
+
+        public int lerByte(int enderecoByte) {
+            if (enderecoByte < 0 || enderecoByte >= tamanhoEmBytes) {
+                throw new IndexOutOfBoundsException("Endereço de byte inválido: " + enderecoByte);
+            }
+            return Byte.toUnsignedInt(paginas[enderecoByte >>> BITS_PAGINA][enderecoByte & MASCARA_PAGINA]);
+        }
+
+        /**
+         * Avisa cada trecho em que esta imagem difere de {@code anterior}, no
+         * máximo um por página, do primeiro ao último byte diferente. As
+         * páginas não escritas entre as duas capturas são a mesma instância
+         * (copy-on-write) e nem são comparadas, então o custo é proporcional
+         * ao que a execução tocou, não ao tamanho da memória.
+         */
+        public void compararCom(Imagem anterior, OuvinteDiferenca ouvinte) {
+            if (anterior.paginas.length != paginas.length) {
+                throw new IllegalArgumentException("Imagens de memórias de tamanhos diferentes.");
+            }
+            for (int i = 0; i < paginas.length; i++) {
+                compararPagina(i, anterior, ouvinte);
+            }
+        }
+
+        /** Como {@link #compararCom}, só para a página {@code i}. */
+        void compararPagina(int i, Imagem anterior, OuvinteDiferenca ouvinte) {
+            byte[] atual = paginas[i];
+            byte[] antes = anterior.paginas[i];
+            if (atual == antes) {
+                return;
+            }
+            int primeiro = Arrays.mismatch(atual, antes);
+            if (primeiro >= 0) {
+                int ultimo = ultimaDiferenca(atual, antes, primeiro);
+                ouvinte.trechoDiferente((i << BITS_PAGINA) + primeiro, ultimo - primeiro + 1);
+            }
+        }
+
+        int getNumPaginas() {
+            return paginas.length;
+        }
+
+        /**
+         * Página {@code i} (com o byte de folga), que nunca muda depois da
+         * captura; a mesma instância em duas imagens quer dizer mesmo conteúdo.
+         */
+        byte[] pagina(int i) {
+            return paginas[i];
+        }
+
+        /** A página nunca foi escrita (é a página de zeros compartilhada). */
+        boolean paginaVazia(int i) {
+            return paginas[i] == PAGINA_ZERO;
+        }
+    }
+
+    /** Recebe os trechos de {@link Imagem#compararCom}. */
+    @FunctionalInterface
+    public interface OuvinteDiferenca {
+        void trechoDiferente(int enderecoByte, int quantidadeBytes);
+    }
+
+    /** Captura o conteúdo atual sem copiar bytes: as páginas passam a ser copiadas na próxima escrita. */
+    public Imagem capturar() {
+        Arrays.fill(compartilhada, true);
+        return new Imagem(paginas.clone(), paginasAlocadas, tamanhoEmBytes);
+    }
+
+    /**
+     * Volta ao conteúdo da imagem. Páginas que não foram escritas desde a
+     * captura são a mesma instância e nem são comparadas; nas demais só o
+     * trecho que de fato difere é copiado e repassado ao ouvinte, para que
+     * caches de código sobre bytes intactos sobrevivam.
+     */
+    public void restaurar(Imagem imagem) {
+        if (imagem.paginas.length != paginas.length) {
+            throw new IllegalArgumentException("Imagem capturada de uma memória de outro tamanho.");
+        }
+        for (int i = 0; i < paginas.length; i++) {
+            byte[] atual = paginas[i];
+            byte[] salva = imagem.paginas[i];
+            if (atual == salva) {
+                continue;
+            }
+            int primeiro = Arrays.mismatch(atual, salva);
+            if (primeiro < 0) {
+                continue;
+            }
+            int ultimo = ultimaDiferenca(atual, salva, primeiro);
+            notificarEscrita((i << BITS_PAGINA) + primeiro, ultimo - primeiro + 1);
+
+            if (atual != PAGINA_ZERO && !compartilhada[i] && salva != PAGINA_ZERO) {
+                // página própria: copia só o trecho e evita uma nova cópia na próxima escrita
+                System.arraycopy(salva, primeiro, atual, primeiro, ultimo - primeiro + 1);
+            } else {
+                paginas[i] = salva;
+                compartilhada[i] = true;
+            }
+        }
+        paginasAlocadas = imagem.paginasAlocadas;
+    }
+
+    /** Último índice em que as páginas diferem, sabendo que diferem em {@code primeiro}. */
+    private static int ultimaDiferenca(byte[] a, byte[] b, int primeiro) {
+        final int trecho = 64;
+        int fim = TAMANHO_PAGINA;
+        while (fim - trecho > primeiro
+                && Arrays.mismatch(a, fim - trecho, fim, b, fim - trecho, fim) < 0) {
+            fim -= trecho;
+        }
+        int ultimo = fim - 1;
+        while (a[ultimo] == b[ultimo]) {
+            ultimo--;
+        }
+        return ultimo;
+    }
+
+    // =========================
+    //  Páginas
+    // =========================
+
+    private byte[] paginaParaEscrita(int indice) {
+        byte[] pagina = paginas[indice];
+        if (pagina == PAGINA_ZERO) {
+            pagina = new byte[TAMANHO_PAGINA + FOLGA_PAGINA];
+            paginas[indice] = pagina;
+            compartilhada[indice] = false;
+            paginasAlocadas++;
+        } else if (compartilhada[indice]) {
+            pagina = pagina.clone();
+            paginas[indice] = pagina;
+            compartilhada[indice] = false;
+        }
+        return pagina;
+    }
+
+    private int lerByteSemValidar(int enderecoByte) {
+        return Byte.toUnsignedInt(paginas[enderecoByte >>> BITS_PAGINA][enderecoByte & MASCARA_PAGINA]);
+    }
+
+    private void escreverByteSemValidar(int enderecoByte, int valor) {
+        paginaParaEscrita(enderecoByte >>> BITS_PAGINA)[enderecoByte & MASCARA_PAGINA] = (byte) valor;
+    }
+
+    // =========================
+    //  Acesso
+    // =========================
+
+    public int lerPalavra(int enderecoPalavra) {
         validarEnderecoPalavra(enderecoPalavra);
-        int base = enderecoPalavra * 3;
-        valor = valor & 0xFFFFFF;
+        return lerPalavraPorByte(enderecoPalavra * 3);
+    }
 
-        dados[base]     = (byte) ((valor >> 16) & 0xFF);
-        dados[base + 1] = (byte) ((valor >> 8)  & 0xFF);
-        dados[base + 2] = (byte) (valor & 0xFF);
+    public void escreverPalavra(int enderecoPalavra, int valor) {
+        validarEnderecoPalavra(enderecoPalavra);
+        escreverPalavraPorByte(enderecoPalavra * 3, valor);
     }
 
     public int lerByte(int enderecoByte) {
         validarEnderecoByte(enderecoByte);
-        return Byte.toUnsignedInt(dados[enderecoByte]);
+        if (observadosLeitura != null) {
+            verificarObservados(observadosLeitura, enderecoByte, 1, false);
+        }
+        return lerByteSemValidar(enderecoByte);
+    }
+
+    /** Leitura que não dispara observação: busca de instruções e ferramentas. */
+    int lerByteSemObservar(int enderecoByte) {
+        validarEnderecoByte(enderecoByte);
+        return lerByteSemValidar(enderecoByte);
     }
 
     public void escreverByte(int enderecoByte, int valor) {
         validarEnderecoByte(enderecoByte);
-        dados[enderecoByte] = (byte) (valor & 0xFF);
+        if (observadosEscrita != null) {
+            verificarObservados(observadosEscrita, enderecoByte, 1, true);
+        }
+        notificarEscrita(enderecoByte, 1);
+        escreverByteSemValidar(enderecoByte, valor & 0xFF);
     }
 
     public int lerPalavraPorByte(int enderecoByte) {
-        validarEnderecoByte(enderecoByte);
-        validarEnderecoByte(enderecoByte + 2);
+        if (observadosLeitura != null) {
+            validarEnderecoByte(enderecoByte);
+            verificarObservados(observadosLeitura, enderecoByte, 3, false);
+        }
+        return lerPalavraSemObservar(enderecoByte);
+    }
 
-        int b1 = Byte.toUnsignedInt(dados[enderecoByte]);
-        int b2 = Byte.toUnsignedInt(dados[enderecoByte + 1]);
-        int b3 = Byte.toUnsignedInt(dados[enderecoByte + 2]);
+    /** Como {@link #lerByteSemObservar}, para palavras. */
+    int lerPalavraSemObservar(int enderecoByte) {
+        validarEnderecoPalavraPorByte(enderecoByte);
+
+        int deslocamento = enderecoByte & MASCARA_PAGINA;
+        if (deslocamento <= TAMANHO_PAGINA - 3) {
+            // 4 bytes a partir do endereço; o quarto (da página ou da folga) é descartado
+            return (int) INT_BE.get(paginas[enderecoByte >>> BITS_PAGINA], deslocamento) >>> 8;
+        }
 
-        return (b1 << 16) | (b2 << 8) | b3;
+        // a palavra atravessa a fronteira de página
+        return (lerByteSemValidar(enderecoByte) << 16)
+             | (lerByteSemValidar(enderecoByte + 1) << 8)
+             |  lerByteSemValidar(enderecoByte + 2);
     }
 
     public void escreverPalavraPorByte(int enderecoByte, int valor) {
-        validarEnderecoByte(enderecoByte);
-        validarEnderecoByte(enderecoByte + 2);
+        validarEnderecoPalavraPorByte(enderecoByte);
 
         valor = valor & 0xFFFFFF;
+        if (observadosEscrita != null) {
+            verificarObservados(observadosEscrita, enderecoByte, 3, true);
+        }
+        notificarEscrita(enderecoByte, 3);
+
+        int deslocamento = enderecoByte & MASCARA_PAGINA;
+        if (deslocamento <= TAMANHO_PAGINA - 3) {
+            byte[] pagina = paginaParaEscrita(enderecoByte >>> BITS_PAGINA);
+            SHORT_BE.set(pagina, deslocamento, (short) (valor >> 8));
+            pagina[deslocamento + 2] = (byte) valor;
+            return;
+        }
+
+        escreverByteSemValidar(enderecoByte,     (valor >> 16) & 0xFF);
+        escreverByteSemValidar(enderecoByte + 1, (valor >> 8)  & 0xFF);
+        escreverByteSemValidar(enderecoByte + 2, valor & 0xFF);
+    }
+
+    /** Copia {@code origem} para a memória a partir de enderecoByte, página a página; o ouvinte é avisado uma vez. */
+    public void escreverBytes(int enderecoByte, byte[] origem) {
+        escreverBytes(enderecoByte, origem, 0, origem.length);
+    }
+
+    /** Como {@link #escreverBytes(int, byte[])}, usando só {@code quantidade} bytes de origem a partir de {@code inicio}. */
+    public void escreverBytes(int enderecoByte, byte[] origem, int inicio, int quantidade) {
+        if (quantidade == 0) {
+            return;
+        }
+        validarEnderecoByte(enderecoByte);
+        validarEnderecoByte(enderecoByte + quantidade - 1);
+        if (observadosEscrita != null) {
+            verificarObservados(observadosEscrita, enderecoByte, quantidade, true);
+        }
+        notificarEscrita(enderecoByte, quantidade);
 
-        dados[enderecoByte]     = (byte) ((valor >> 16) & 0xFF);
-        dados[enderecoByte + 1] = (byte) ((valor >> 8)  & 0xFF);
-        dados[enderecoByte + 2] = (byte) (valor & 0xFF);
+        int feitos = 0;
+        while (feitos < quantidade) {
+            int a = enderecoByte + feitos;
+            int deslocamento = a & MASCARA_PAGINA;
+            int n = Math.min(quantidade - feitos, TAMANHO_PAGINA - deslocamento);
+            System.arraycopy(origem, inicio + feitos, paginaParaEscrita(a >>> BITS_PAGINA), deslocamento, n);
+            feitos += n;
+        }
+    }
+
+    /** Preenche {@code destino} com os bytes a partir de enderecoByte. */
+    public void lerBytes(int enderecoByte, byte[] destino) {
+        if (destino.length == 0) {
+            return;
+        }
+        validarEnderecoByte(enderecoByte);
+        validarEnderecoByte(enderecoByte + destino.length - 1);
+
+        int feitos = 0;
+        while (feitos < destino.length) {
+            int a = enderecoByte + feitos;
+            int deslocamento = a & MASCARA_PAGINA;
+            int n = Math.min(destino.length - feitos, TAMANHO_PAGINA - deslocamento);
+            System.arraycopy(paginas[a >>> BITS_PAGINA], deslocamento, destino, feitos, n);
+            feitos += n;
+        }
     }
 
     private void validarEnderecoPalavra(int enderecoPalavra) {
@@ -82,8 +437,16 @@ public class Memoria {
         }
     }
 
+    /** Os 3 bytes a partir de enderecoByte, numa comparação só; a mensagem de erro é a de validarEnderecoByte. */
+    private void validarEnderecoPalavraPorByte(int enderecoByte) {
+        if ((enderecoByte | (ultimoEnderecoPalavra - enderecoByte)) < 0) {
+            validarEnderecoByte(enderecoByte);
+            validarEnderecoByte(enderecoByte + 2);
+        }
+    }
+
     private void validarEnderecoByte(int enderecoByte) {
-        if (enderecoByte < 0 || enderecoByte >= dados.length) {
+        if (enderecoByte < 0 || enderecoByte >= tamanhoEmBytes) {
             throw new IndexOutOfBoundsException(
                 "Endereço de byte inválido: " + enderecoByte
             );
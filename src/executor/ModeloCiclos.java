@@ -0,0 +1,175 @@
+package executor;
+
+import java.util.Arrays;
+
+/**
+ * Custo simulado das instruções, em ciclos, para a contagem de
+ * {@link Maquina#getCiclos()} (e por endereço no {@link Perfil}).
+ *
+ * O custo de uma instrução é a soma do custo do opcode, do formato (1 a 4),
+ * dos modos de endereçamento (imediato, indireto e indexado, pelos bits n, i
+ * e x) e de um custo por acesso à memória de dados. Os acessos são os
+ * nominais do operando: nenhum no imediato, dois no indireto (o ponteiro e
+ * o dado) e um nos demais, para instruções com operando em memória.
+ *
+ * Comparar rotinas com o mesmo modelo é determinístico, ao contrário do
+ * tempo do hospedeiro; os números não pretendem reproduzir uma máquina real.
+ * Cada instrução custa no máximo {@value #CUSTO_MAXIMO} ciclos.
+ */
+public final class ModeloCiclos {
+
+    public static final int CUSTO_MAXIMO = 255;
+
+    private final int[] porOpcode = new int[64];  // pelo opcode >>> 2
+    private final int[] porFormato = new int[5];  // 0 = instrução inválida, sempre 0
+    private int imediato;
+    private int indireto;
+    private int indexado;
+    private int porAcesso;
+
+    /** Modelo com tudo em zero. */
+    public ModeloCiclos() {
+    }
+
+    /**
+     * Um ciclo por instrução mais um por byte além do primeiro, dois por
+     * acesso à memória, um a mais com indexação; multiplicação, divisão e
+     * ponto flutuante custam mais.
+     */
+    public static ModeloCiclos padrao() {
+        ModeloCiclos modelo = new ModeloCiclos();
+        for (int op = 0; op < 256; op += 4) {
+            if (DescritorOpcode.de(op) != null) {
+                modelo.setCustoOpcode(op, 1);
+            }
+        }
+        modelo.setCustoOpcode(Opcode.MUL, 4);
+        modelo.setCustoOpcode(Opcode.MULR, 4);
+        modelo.setCustoOpcode(Opcode.DIV, 8);
+        modelo.setCustoOpcode(Opcode.DIVR, 8);
+        modelo.setCustoOpcode(Opcode.ADDF, 4);
+        modelo.setCustoOpcode(Opcode.SUBF, 4);
+        modelo.setCustoOpcode(Opcode.COMPF, 2);
+        modelo.setCustoOpcode(Opcode.MULF, 8);
+        modelo.setCustoOpcode(Opcode.DIVF, 16);
+        modelo.setCustoOpcode(Opcode.FLOAT, 2);
+        modelo.setCustoOpcode(Opcode.FIX, 2);
+        modelo.setCustoOpcode(Opcode.NORM, 2);
+        modelo.setCustoFormato(2, 1);
+        modelo.setCustoFormato(3, 2);
+        modelo.setCustoFormato(4, 3);
+        modelo.setCustoIndexado(1);
+        modelo.setCustoAcessoMemoria(2);
+        return modelo;
+    }
+
+    public void setCustoOpcode(int opcode, int ciclos) {
+        porOpcode[(opcode >>> 2) & 0x3F] = validar(ciclos);
+    }
+
+    public int getCustoOpcode(int opcode) {
+        return porOpcode[(opcode >>> 2) & 0x3F];
+    }
+
+    /** Custo adicional das instruções de formato 1, 2, 3 ou 4. */
+    public void setCustoFormato(int formato, int ciclos) {
+        if (formato < 1 || formato > 4) {
+            throw new IllegalArgumentException("Formato fora de 1..4: " + formato);
+        }
+        porFormato[formato] = validar(ciclos);
+    }
+
+    public int getCustoFormato(int formato) {
+        return porFormato[formato];
+    }
+
+    public void setCustoImediato(int ciclos) {
+        imediato = validar(ciclos);
+    }
+
+    public void setCustoIndireto(int ciclos) {
+        indireto = validar(ciclos);
+    }
+
+    public void setCustoIndexado(int ciclos) {
+        indexado = validar(ciclos);
+    }
+
+    /** Custo de cada acesso nominal à memória de dados. */
+    public void setCustoAcessoMemoria(int ciclos) {
+        porAcesso = validar(ciclos);
+    }
+
+    /**
+     * Tabela com o custo de cada combinação de opcode, formato, bits n e i e
+     * bit x (ver {@link #indice}); lança IllegalArgumentException se alguma
+     * instrução passar de {@value #CUSTO_MAXIMO} ciclos. A Maquina guarda a
+     * tabela e consulta uma vez por instrução decodificada.
+     */
+    int[] tabela() {
+        int[] tabela = new int[64 * 5 * 8];
+        for (int op = 0; op < 256; op += 4) {
+            DescritorOpcode descritor = DescritorOpcode.de(op);
+            if (descritor == null) {
+                continue;
+            }
+            for (int formato = 1; formato <= 4; formato++) {
+                for (int ni = 0; ni < 4; ni++) {
+                    for (int x = 0; x < 2; x++) {
+                        int custo = custo(descritor, formato, ni, x);
+                        if (custo > CUSTO_MAXIMO) {
+                            throw new IllegalArgumentException(String.format(
+                                    "%s custa %d ciclos, acima de %d", descritor.mnemonico, custo, CUSTO_MAXIMO));
+                        }
+                        tabela[indice(op, formato, ni, x)] = custo;
+                    }
+                }
+            }
+        }
+        return tabela;
+    }
+
+    static int indice(int opcode, int formato, int ni, int x) {
+        return ((((opcode >>> 2) & 0x3F) * 5 + formato) << 3) | ni << 1 | x;
+    }
+
+    private int custo(DescritorOpcode descritor, int formato, int ni, int x) {
+        int custo = porOpcode[descritor.opcode >>> 2] + porFormato[formato];
+        if (formato < 3) {
+            return custo;
+        }
+        boolean imediatoNi = ni == 1;
+        boolean indiretoNi = ni == 2;
+        if (imediatoNi) {
+            custo += imediato;
+        } else if (indiretoNi) {
+            custo += indireto;
+        }
+        if (x == 1) {
+            custo += indexado;
+        }
+        switch (descritor.operando) {
+            case MEMORIA:
+            case MEMORIA_BYTE:
+            case MEMORIA_FLUTUANTE:
+                custo += porAcesso * (imediatoNi ? 0 : indiretoNi ? 2 : 1);
+                break;
+            default:
+                break;
+        }
+        return custo;
+    }
+
+    private static int validar(int ciclos) {
+        if (ciclos < 0 || ciclos > CUSTO_MAXIMO) {
+            throw new IllegalArgumentException("Custo fora de 0.." + CUSTO_MAXIMO + ": " + ciclos);
+        }
+        return ciclos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ModeloCiclos[opcodes=%s, formatos=%s, imediato=%d, indireto=%d, indexado=%d, acesso=%d]",
+                Arrays.toString(porOpcode), Arrays.toString(porFormato), imediato, indireto, indexado, porAcesso);
+    }
+}
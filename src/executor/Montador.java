@@ -0,0 +1,976 @@
+package executor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Montador SIC/XE de dois passos, que gera o programa direto na
+ * {@link Memoria} da máquina (ou em registros H/T/M/E para o
+ * {@link CarregadorObjeto}), sem passar por programa.txt.
+ *
+ * Cada linha tem rótulo (começando na primeira coluna), operação e operando,
+ * separados por espaços; o que vem depois do operando e as linhas que
+ * começam com '.' são comentários. Além das instruções da tabela de opcodes,
+ * aceita START, END, BYTE (C'...' ou X'...'), WORD, RESB, RESW, BASE e
+ * NOBASE, o prefixo '+' do formato 4, '#' (imediato), '@' (indireto) e ",X".
+ * Operandos são expressões com números decimais, símbolos, '*' e os
+ * operadores + e -; o operando de START é hexadecimal.
+ *
+ * O primeiro passo divide as linhas e atribui os endereços, guardando os
+ * campos de cada linha em vetores de int; o segundo só percorre esses
+ * vetores. Os símbolos ficam numa tabela hash de endereçamento aberto sobre
+ * vetores de int e char, sem um objeto por símbolo.
+ *
+ * No formato 3 o montador tenta o deslocamento relativo ao PC, depois o
+ * relativo à base (com BASE ativo); valores absolutos vão direto. Este
+ * simulador estende o sinal do deslocamento em todos os modos (ver
+ * {@link Instrucao}), então o direto, o imediato e o relativo à base ficam em
+ * 0..2047; fora disso é preciso o formato 4. Pelo mesmo motivo a contagem de
+ * SHIFTL/SHIFTR é gravada como escrita, sem o "menos 1" do livro.
+ */
+public final class Montador {
+
+    /** Código montado, pronto para ir à memória ou virar programa objeto. */
+    public static final class Programa {
+        private static final int BYTES_POR_REGISTRO_T = 30;
+        private static final char[] DIGITOS = "0123456789ABCDEF".toCharArray();
+
+        private final String nome;
+        private final String origem;
+        private final int inicio;
+        private final byte[] codigo;           // de inicio até inicio + tamanho
+        private final int[] segmentos;         // pares [início, fim) de bytes gerados, relativos a inicio
+        private final int[] relocacoes;        // endereço << 4 | meios-bytes do campo
+        private final int enderecoExecucao;
+        private final int[] enderecos;         // linhas que ocupam memória, em ordem de endereço
+        private final int[] linhas;
+        private final TabelaSimbolos simbolos;
+
+        Programa(String nome, String origem, int inicio, byte[] codigo, int[] segmentos, int[] relocacoes,
+                 int enderecoExecucao, int[] enderecos, int[] linhas, TabelaSimbolos simbolos) {
+            this.nome = nome;
+            this.origem = origem;
+            this.inicio = inicio;
+            this.codigo = codigo;
+            this.segmentos = segmentos;
+            this.relocacoes = relocacoes;
+            this.enderecoExecucao = enderecoExecucao;
+            this.enderecos = enderecos;
+            this.linhas = linhas;
+            this.simbolos = simbolos;
+        }
+
+        /** Rótulo do START, ou "" sem ele. */
+        public String getNome() {
+            return nome;
+        }
+
+        public int getEnderecoInicial() {
+            return inicio;
+        }
+
+        public int getTamanho() {
+            return codigo.length;
+        }
+
+        /** Endereço do operando do END, ou o inicial se o END não tiver operando. */
+        public int getEnderecoExecucao() {
+            return enderecoExecucao;
+        }
+
+        /** Endereço do símbolo, ou -1 se ele não foi definido. */
+        public int getEnderecoSimbolo(String simbolo) {
+            int k = simbolos.buscar(simbolo.toCharArray(), 0, simbolo.length());
+            return k < 0 ? -1 : simbolos.valor(k);
+        }
+
+        /**
+         * Linha do fonte (a partir de 1) da instrução ou dado que ocupa o
+         * endereço, ou -1 se ele está fora do programa.
+         */
+        public int getLinha(int endereco) {
+            if (endereco < inicio || endereco >= inicio + codigo.length) {
+                return -1;
+            }
+            int k = Arrays.binarySearch(enderecos, endereco);
+            return linhas[k >= 0 ? k : -k - 2];
+        }
+
+        /** Endereço da linha do fonte, ou -1 se ela não ocupa memória. */
+        public int getEndereco(int linha) {
+            int k = Arrays.binarySearch(linhas, linha);
+            return k < 0 ? -1 : enderecos[k];
+        }
+
+        /**
+         * Escreve o código na memória da máquina, no endereço em que foi
+         * montado, e põe o PC no endereço de execução. As áreas de RESB e
+         * RESW não são tocadas.
+         */
+        public CarregadorObjeto.Resultado carregar(Maquina maquina) {
+            EventosJfr.Carregamento evento = new EventosJfr.Carregamento();
+            evento.begin();
+            Memoria memoria = maquina.getMemoria();
+            long bytes = 0;
+            for (int k = 0; k < segmentos.length; k += 2) {
+                memoria.escreverBytes(inicio + segmentos[k], codigo, segmentos[k], segmentos[k + 1] - segmentos[k]);
+                bytes += segmentos[k + 1] - segmentos[k];
+            }
+            maquina.getCpu().escrever(CPU.COD_PC, enderecoExecucao);
+            if (evento.shouldCommit()) {
+                evento.formato = "montador";
+                evento.origem = origem;
+                evento.palavras = (bytes + 2) / 3;
+                evento.bytes = bytes;
+                evento.commit();
+            }
+            return new CarregadorObjeto.Resultado(nome, inicio, codigo.length, enderecoExecucao);
+        }
+
+        /**
+         * Escreve o programa objeto em colunas fixas: H, um T para cada 30
+         * bytes (ou trecho sem RESB/RESW no meio), um M para cada endereço
+         * relativo de formato 4 ou WORD, e E.
+         */
+        public void escreverObjeto(Appendable saida) throws IOException {
+            StringBuilder registro = new StringBuilder(80);
+            registro.append('H');
+            String nomeH = nome.length() > 6 ? nome.substring(0, 6) : nome;
+            registro.append(nomeH);
+            for (int k = nomeH.length(); k < 6; k++) {
+                registro.append(' ');
+            }
+            hex(registro, inicio, 6);
+            hex(registro, codigo.length, 6);
+            saida.append(registro).append('\n');
+
+            for (int k = 0; k < segmentos.length; k += 2) {
+                for (int de = segmentos[k]; de < segmentos[k + 1]; de += BYTES_POR_REGISTRO_T) {
+                    int ate = Math.min(segmentos[k + 1], de + BYTES_POR_REGISTRO_T);
+                    registro.setLength(0);
+                    registro.append('T');
+                    hex(registro, inicio + de, 6);
+                    hex(registro, ate - de, 2);
+                    for (int b = de; b < ate; b++) {
+                        hex(registro, codigo[b] & 0xFF, 2);
+                    }
+                    saida.append(registro).append('\n');
+                }
+            }
+            for (int relocacao : relocacoes) {
+                registro.setLength(0);
+                registro.append('M');
+                hex(registro, relocacao >>> 4, 6);
+                hex(registro, relocacao & 0xF, 2);
+                saida.append(registro).append('\n');
+            }
+            registro.setLength(0);
+            registro.append('E');
+            hex(registro, enderecoExecucao, 6);
+            saida.append(registro).append('\n');
+        }
+
+        private static void hex(StringBuilder sb, int valor, int digitos) {
+            for (int k = digitos - 1; k >= 0; k--) {
+                sb.append(DIGITOS[(valor >>> (4 * k)) & 0xF]);
+            }
+        }
+    }
+
+    /**
+     * Nomes para int numa tabela hash de endereçamento aberto (sondagem
+     * linear). Os nomes são copiados para um único vetor de char; a tabela
+     * guarda o número da entrada mais 1 (0 = posição livre).
+     */
+    static final class TabelaSimbolos {
+        private int[] posicoes;
+        private int quantidade;
+        private int[] hashes;
+        private int[] inicios;
+        private int[] tamanhos;
+        private int[] valores;
+        private int[] linhas;
+        private char[] nomes;
+        private int caracteres;
+
+        TabelaSimbolos(int capacidade) {
+            int n = Integer.highestOneBit(Math.max(16, capacidade * 2 - 1));
+            posicoes = new int[n];
+            hashes = new int[capacidade];
+            inicios = new int[capacidade];
+            tamanhos = new int[capacidade];
+            valores = new int[capacidade];
+            linhas = new int[capacidade];
+            nomes = new char[capacidade * 8];
+        }
+
+        /** Número da entrada com o nome fonte[inicio, fim), ou -1. */
+        int buscar(char[] fonte, int inicio, int fim) {
+            int h = hash(fonte, inicio, fim);
+            int mascara = posicoes.length - 1;
+            for (int p = h & mascara; ; p = (p + 1) & mascara) {
+                int k = posicoes[p] - 1;
+                if (k < 0) {
+                    return -1;
+                }
+                if (hashes[k] == h && mesmoNome(k, fonte, inicio, fim)) {
+                    return k;
+                }
+            }
+        }
+
+        /** Acrescenta o nome, que não pode existir ainda; devolve o número da entrada. */
+        int definir(char[] fonte, int inicio, int fim, int valor, int linha) {
+            if (quantidade == hashes.length) {
+                int n = quantidade * 2;
+                hashes = Arrays.copyOf(hashes, n);
+                inicios = Arrays.copyOf(inicios, n);
+                tamanhos = Arrays.copyOf(tamanhos, n);
+                valores = Arrays.copyOf(valores, n);
+                linhas = Arrays.copyOf(linhas, n);
+            }
+            if (quantidade * 2 >= posicoes.length) {
+                redistribuir(posicoes.length * 2);
+            }
+            int tamanho = fim - inicio;
+            if (caracteres + tamanho > nomes.length) {
+                nomes = Arrays.copyOf(nomes, Math.max(nomes.length * 2, caracteres + tamanho));
+            }
+            System.arraycopy(fonte, inicio, nomes, caracteres, tamanho);
+
+            int k = quantidade++;
+            int h = hash(fonte, inicio, fim);
+            hashes[k] = h;
+            inicios[k] = caracteres;
+            tamanhos[k] = tamanho;
+            valores[k] = valor;
+            linhas[k] = linha;
+            caracteres += tamanho;
+            posicionar(k, h);
+            return k;
+        }
+
+        int valor(int k) {
+            return valores[k];
+        }
+
+        int linha(int k) {
+            return linhas[k];
+        }
+
+        private void redistribuir(int tamanho) {
+            posicoes = new int[tamanho];
+            for (int k = 0; k < quantidade; k++) {
+                posicionar(k, hashes[k]);
+            }
+        }
+
+        private void posicionar(int k, int h) {
+            int mascara = posicoes.length - 1;
+            int p = h & mascara;
+            while (posicoes[p] != 0) {
+                p = (p + 1) & mascara;
+            }
+            posicoes[p] = k + 1;
+        }
+
+        private boolean mesmoNome(int k, char[] fonte, int inicio, int fim) {
+            if (tamanhos[k] != fim - inicio) {
+                return false;
+            }
+            int base = inicios[k];
+            for (int c = 0; c < tamanhos[k]; c++) {
+                if (nomes[base + c] != fonte[inicio + c]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int hash(char[] fonte, int inicio, int fim) {
+            int h = 0;
+            for (int c = inicio; c < fim; c++) {
+                h = 31 * h + fonte[c];
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+
+    // diretivas: códigos negativos, para não colidir com os opcodes
+    private static final int START = -1;
+    private static final int END = -2;
+    private static final int BYTE = -3;
+    private static final int WORD = -4;
+    private static final int RESB = -5;
+    private static final int RESW = -6;
+    private static final int BASE = -7;
+    private static final int NOBASE = -8;
+
+    private static final int FORMATO_4 = 0x100; // junto do opcode no código da linha
+
+    /** Mnemônicos (em maiúsculas) para opcode ou diretiva. */
+    private static final TabelaSimbolos OPERACOES = new TabelaSimbolos(80);
+
+    static {
+        for (int op = 0; op < 256; op += 4) {
+            DescritorOpcode d = DescritorOpcode.de(op);
+            if (d != null) {
+                definirOperacao(d.mnemonico, op);
+            }
+        }
+        definirOperacao("START", START);
+        definirOperacao("END", END);
+        definirOperacao("BYTE", BYTE);
+        definirOperacao("WORD", WORD);
+        definirOperacao("RESB", RESB);
+        definirOperacao("RESW", RESW);
+        definirOperacao("BASE", BASE);
+        definirOperacao("NOBASE", NOBASE);
+    }
+
+    private static void definirOperacao(String nome, int codigo) {
+        OPERACOES.definir(nome.toCharArray(), 0, nome.length(), codigo, 0);
+    }
+
+    private final char[] fonte;
+    private final String origem;
+    private final TabelaSimbolos simbolos = new TabelaSimbolos(1024);
+    private final char[] maiusculas = new char[16];
+
+    // linhas com operação, guardadas pelo primeiro passo
+    private int linhasGuardadas;
+    private int[] numeroLinha = new int[1024];
+    private int[] inicioLinha = new int[1024];  // para calcular colunas
+    private int[] operacao = new int[1024];     // opcode (| FORMATO_4) ou diretiva
+    private int[] inicioOperando = new int[1024];
+    private int[] fimOperando = new int[1024];
+    private int[] endereco = new int[1024];
+    private int[] tamanho = new int[1024];
+
+    // estado do primeiro passo
+    private String nome = "";
+    private int inicio;
+    private int contador;
+    private boolean temStart;
+    private boolean terminou;
+    private int linhaEnd;
+    private int inicioLinhaEnd;
+    private int inicioOperandoEnd;
+    private int fimOperandoEnd;
+
+    // estado do segundo passo
+    private byte[] codigo;
+    private int[] segmentos = new int[16];
+    private int quantidadeSegmentos;     // em ints
+    private int[] relocacoes = new int[64];
+    private int quantidadeRelocacoes;
+    private boolean baseAtiva;
+    private int base;
+
+    // linha em análise e resultado da última expressão
+    private int linha;
+    private int inicioDaLinha;
+    private int valor;
+    private int relativos;
+
+    private Montador(char[] fonte, String origem) {
+        this.fonte = fonte;
+        this.origem = origem;
+    }
+
+    // =========================
+    //  Entradas
+    // =========================
+
+    /** Monta o fonte; erros saem como {@link ErroCarregamento}, com linha e coluna. */
+    public static Programa montar(String fonte) {
+        return montar(fonte.toCharArray(), "texto");
+    }
+
+    /** Monta o arquivo, lido como UTF-8. */
+    public static Programa montar(Path arquivo) throws IOException {
+        return montar(Files.readString(arquivo, StandardCharsets.UTF_8).toCharArray(), arquivo.toString());
+    }
+
+    private static Programa montar(char[] fonte, String origem) {
+        Montador m = new Montador(fonte, origem);
+        m.primeiroPasso();
+        return m.segundoPasso();
+    }
+
+    // =========================
+    //  Primeiro passo
+    // =========================
+
+    private void primeiroPasso() {
+        int i = 0;
+        int n = fonte.length;
+        while (i < n) {
+            int fim = i;
+            while (fim < n && fonte[fim] != '\n') {
+                fim++;
+            }
+            int proxima = fim + 1;
+            if (fim > i && fonte[fim - 1] == '\r') {
+                fim--;
+            }
+            linha++;
+            analisarLinha(i, fim);
+            i = proxima;
+        }
+    }
+
+    private void analisarLinha(int ini, int fim) {
+        inicioDaLinha = ini;
+        int pos = ini;
+        if (pos == fim || fonte[pos] == '.') {
+            return;
+        }
+
+        int inicioRotulo = pos;
+        while (pos < fim && !espaco(fonte[pos])) {
+            pos++;
+        }
+        int fimRotulo = pos;
+        pos = pularEspacos(pos, fim);
+        if (pos == fim || fonte[pos] == '.') {
+            if (fimRotulo > inicioRotulo) {
+                throw erro(inicioRotulo, "rótulo sem operação");
+            }
+            return;
+        }
+        if (terminou) {
+            throw erro(pos, "linha depois do END");
+        }
+
+        int inicioOp = pos;
+        boolean formato4 = fonte[pos] == '+';
+        if (formato4) {
+            pos++;
+        }
+        int inicioNome = pos;
+        while (pos < fim && !espaco(fonte[pos])) {
+            pos++;
+        }
+        int codigoOp = buscarOperacao(inicioNome, pos);
+        if (codigoOp == Integer.MIN_VALUE) {
+            throw erro(inicioOp, "operação desconhecida '" + new String(fonte, inicioOp, pos - inicioOp) + "'");
+        }
+        DescritorOpcode descritor = codigoOp >= 0 ? DescritorOpcode.de(codigoOp) : null;
+        if (formato4 && (descritor == null || descritor.formato != 3)) {
+            throw erro(inicioOp, "'+' só vale para instruções de formato 3/4");
+        }
+
+        pos = pularEspacos(pos, fim);
+        int inicioOpnd = pos;
+        if (pos < fim && fonte[pos] != '.') {
+            while (pos < fim && !espaco(fonte[pos])) {
+                if (fonte[pos] == '\'') {
+                    int aspas = pos++;
+                    while (pos < fim && fonte[pos] != '\'') {
+                        pos++;
+                    }
+                    if (pos == fim) {
+                        throw erro(aspas, "aspas sem fechamento");
+                    }
+                }
+                pos++;
+            }
+        }
+        int fimOpnd = pos;
+        if (descritor != null && descritor.operando == DescritorOpcode.Operando.NENHUM) {
+            fimOpnd = inicioOpnd; // o que vier depois é comentário
+        }
+
+        if (codigoOp == START) {
+            if (temStart || linhasGuardadas > 0 || simbolos.quantidade > 0) {
+                throw erro(inicioOp, "START depois do início do programa");
+            }
+            temStart = true;
+            nome = new String(fonte, inicioRotulo, fimRotulo - inicioRotulo);
+            inicio = inicioOpnd == fimOpnd ? 0 : numeroHex(inicioOpnd, fimOpnd);
+            contador = inicio;
+            return;
+        }
+        if (codigoOp == END) {
+            if (fimRotulo > inicioRotulo) {
+                throw erro(inicioRotulo, "END não leva rótulo");
+            }
+            terminou = true;
+            linhaEnd = linha;
+            inicioLinhaEnd = ini;
+            inicioOperandoEnd = inicioOpnd;
+            fimOperandoEnd = fimOpnd;
+            return;
+        }
+
+        if (fimRotulo > inicioRotulo) {
+            definirRotulo(inicioRotulo, fimRotulo);
+        }
+
+        int bytes;
+        switch (codigoOp) {
+            case BYTE: bytes = tamanhoByte(inicioOpnd, fimOpnd); break;
+            case WORD: bytes = 3; break;
+            case RESB: bytes = quantidadeReservada(inicioOpnd, fimOpnd, 1); break;
+            case RESW: bytes = quantidadeReservada(inicioOpnd, fimOpnd, 3); break;
+            case BASE: case NOBASE: bytes = 0; break;
+            default: bytes = formato4 ? 4 : descritor.formato; break;
+        }
+        if ((long) contador + bytes > Memoria.TAMANHO_ENDERECAVEL) {
+            throw erro(inicioOp, "programa passa do fim da memória");
+        }
+        guardar(formato4 ? codigoOp | FORMATO_4 : codigoOp, inicioOpnd, fimOpnd, bytes);
+        contador += bytes;
+    }
+
+    private void definirRotulo(int ini, int fim) {
+        if (!inicioDeSimbolo(fonte[ini])) {
+            throw erro(ini, "rótulo deve começar com letra");
+        }
+        for (int c = ini; c < fim; c++) {
+            if (!parteDeSimbolo(fonte[c])) {
+                throw erro(c, "caractere inválido em rótulo");
+            }
+        }
+        int k = simbolos.buscar(fonte, ini, fim);
+        if (k >= 0) {
+            throw erro(ini, "símbolo '" + new String(fonte, ini, fim - ini) + "' já definido na linha "
+                    + simbolos.linha(k));
+        }
+        simbolos.definir(fonte, ini, fim, contador, linha);
+    }
+
+    /** Código da operação (sem diferenciar maiúsculas), ou Integer.MIN_VALUE. */
+    private int buscarOperacao(int ini, int fim) {
+        int n = fim - ini;
+        if (n == 0 || n > maiusculas.length) {
+            return Integer.MIN_VALUE;
+        }
+        for (int c = 0; c < n; c++) {
+            maiusculas[c] = Character.toUpperCase(fonte[ini + c]);
+        }
+        int k = OPERACOES.buscar(maiusculas, 0, n);
+        return k < 0 ? Integer.MIN_VALUE : OPERACOES.valor(k);
+    }
+
+    private int tamanhoByte(int ini, int fim) {
+        if (fim - ini < 3 || fonte[ini + 1] != '\'' || fonte[fim - 1] != '\'') {
+            throw erro(ini, "BYTE espera C'...' ou X'...'");
+        }
+        int n = fim - ini - 3;
+        switch (Character.toUpperCase(fonte[ini])) {
+            case 'C':
+                if (n == 0) {
+                    throw erro(ini, "constante de caracteres vazia");
+                }
+                return n;
+            case 'X':
+                if (n == 0 || n % 2 != 0) {
+                    throw erro(ini, "constante hexadecimal precisa de um número par de dígitos");
+                }
+                return n / 2;
+            default:
+                throw erro(ini, "BYTE espera C'...' ou X'...'");
+        }
+    }
+
+    private int quantidadeReservada(int ini, int fim, int bytesPorItem) {
+        avaliar(ini, fim, contador, true);
+        if (relativos != 0 || valor < 0) {
+            throw erro(ini, "a quantidade reservada deve ser um valor absoluto não negativo");
+        }
+        long bytes = (long) valor * bytesPorItem;
+        if (bytes > Memoria.TAMANHO_ENDERECAVEL) {
+            throw erro(ini, "programa passa do fim da memória");
+        }
+        return (int) bytes;
+    }
+
+    private void guardar(int codigoOp, int ini, int fim, int bytes) {
+        int k = linhasGuardadas++;
+        if (k == numeroLinha.length) {
+            int n = k * 2;
+            numeroLinha = Arrays.copyOf(numeroLinha, n);
+            inicioLinha = Arrays.copyOf(inicioLinha, n);
+            operacao = Arrays.copyOf(operacao, n);
+            inicioOperando = Arrays.copyOf(inicioOperando, n);
+            fimOperando = Arrays.copyOf(fimOperando, n);
+            endereco = Arrays.copyOf(endereco, n);
+            tamanho = Arrays.copyOf(tamanho, n);
+        }
+        numeroLinha[k] = linha;
+        inicioLinha[k] = inicioDaLinha;
+        operacao[k] = codigoOp;
+        inicioOperando[k] = ini;
+        fimOperando[k] = fim;
+        endereco[k] = contador;
+        tamanho[k] = bytes;
+    }
+
+    // =========================
+    //  Segundo passo
+    // =========================
+
+    private Programa segundoPasso() {
+        codigo = new byte[contador - inicio];
+        int ocupadas = 0;
+        for (int k = 0; k < linhasGuardadas; k++) {
+            linha = numeroLinha[k];
+            inicioDaLinha = inicioLinha[k];
+            int op = operacao[k];
+            int ini = inicioOperando[k];
+            int fim = fimOperando[k];
+            int loc = endereco[k];
+            switch (op) {
+                case BYTE: gerarByte(loc, ini, fim); break;
+                case WORD: gerarWord(loc, ini, fim); break;
+                case RESB: case RESW: break;
+                case BASE:
+                    avaliar(ini, fim, loc, false);
+                    base = valor;
+                    baseAtiva = true;
+                    break;
+                case NOBASE: baseAtiva = false; break;
+                default: gerarInstrucao(loc, op, ini, fim); break;
+            }
+            if (tamanho[k] > 0) {
+                ocupadas++;
+            }
+        }
+
+        int execucao = inicio;
+        if (terminou && inicioOperandoEnd < fimOperandoEnd) {
+            linha = linhaEnd;
+            inicioDaLinha = inicioLinhaEnd;
+            avaliar(inicioOperandoEnd, fimOperandoEnd, contador, false);
+            execucao = valor & 0xFFFFF;
+        }
+
+        int[] enderecos = new int[ocupadas];
+        int[] linhas = new int[ocupadas];
+        for (int k = 0, j = 0; k < linhasGuardadas; k++) {
+            if (tamanho[k] > 0) {
+                enderecos[j] = endereco[k];
+                linhas[j++] = numeroLinha[k];
+            }
+        }
+        return new Programa(nome, origem, inicio, codigo,
+                Arrays.copyOf(segmentos, quantidadeSegmentos),
+                Arrays.copyOf(relocacoes, quantidadeRelocacoes),
+                execucao, enderecos, linhas, simbolos);
+    }
+
+    private void gerarInstrucao(int loc, int op, int ini, int fim) {
+        boolean formato4 = (op & FORMATO_4) != 0;
+        op &= 0xFF;
+        DescritorOpcode descritor = DescritorOpcode.de(op);
+        switch (descritor.formato) {
+            case 1:
+                emitir(loc, op, 1);
+                return;
+            case 2:
+                emitir(loc, (op << 8) | operandoFormato2(descritor, ini, fim), 2);
+                return;
+            default:
+                break;
+        }
+
+        if (descritor.operando == DescritorOpcode.Operando.NENHUM) { // RSUB
+            emitir(loc, formato4 ? (op | 3) << 24 | 1 << 20 : (op | 3) << 16, formato4 ? 4 : 3);
+            return;
+        }
+        if (ini == fim) {
+            throw erro(ini, "falta o operando de " + descritor.mnemonico);
+        }
+
+        int ni = 3;
+        if (fonte[ini] == '#') {
+            ni = 1;
+            ini++;
+        } else if (fonte[ini] == '@') {
+            ni = 2;
+            ini++;
+        }
+        int x = 0;
+        if (fim - ini >= 2 && fonte[fim - 2] == ',' && Character.toUpperCase(fonte[fim - 1]) == 'X') {
+            if (ni != 3) {
+                throw erro(fim - 2, "indexação não combina com '#' ou '@'");
+            }
+            x = 1;
+            fim -= 2;
+        }
+        int inicioExpressao = ini;
+        avaliar(ini, fim, loc, false);
+        exigirAbsolutoOuRelativo(inicioExpressao);
+
+        if (formato4) {
+            if (valor < 0 || valor > 0xFFFFF) {
+                throw erro(inicioExpressao, "endereço fora de 20 bits");
+            }
+            if (relativos == 1) {
+                relocar(loc + 1, 5);
+            }
+            emitir(loc, (op | ni) << 24 | x << 23 | 1 << 20 | valor, 4);
+            return;
+        }
+
+        // valores absolutos só vão direto: relativos ao PC eles mudariam com a relocação
+        int bp;
+        int disp;
+        if (relativos == 0) {
+            if (valor < 0 || valor > 2047) {
+                throw erro(inicioExpressao, "valor absoluto fora de 0..2047; use o formato 4 ('+')");
+            }
+            bp = 0;
+            disp = valor;
+        } else if (valor - (loc + 3) >= -2048 && valor - (loc + 3) <= 2047) {
+            bp = 1;
+            disp = (valor - (loc + 3)) & 0xFFF;
+        } else if (baseAtiva && valor - base >= 0 && valor - base <= 2047) {
+            bp = 2;
+            disp = valor - base;
+        } else {
+            throw erro(inicioExpressao, "operando fora do alcance do PC e da base; use o formato 4 ('+')");
+        }
+        emitir(loc, (op | ni) << 16 | x << 15 | bp << 13 | disp, 3);
+    }
+
+    /** Segundo byte de uma instrução de formato 2. */
+    private int operandoFormato2(DescritorOpcode descritor, int ini, int fim) {
+        int virgula = ini;
+        while (virgula < fim && fonte[virgula] != ',') {
+            virgula++;
+        }
+        switch (descritor.operando) {
+            case REGISTRADORES:
+                if (virgula == fim) {
+                    throw erro(ini, descritor.mnemonico + " espera r1,r2");
+                }
+                return registrador(ini, virgula) << 4 | registrador(virgula + 1, fim);
+            case REGISTRADOR:
+                return registrador(ini, fim) << 4;
+            case REGISTRADOR_E_CONTAGEM:
+                if (virgula == fim) {
+                    throw erro(ini, descritor.mnemonico + " espera r1,n");
+                }
+                return registrador(ini, virgula) << 4 | numeroDe4Bits(virgula + 1, fim);
+            case NUMERO:
+                return numeroDe4Bits(ini, fim) << 4;
+            default:
+                return 0;
+        }
+    }
+
+    private int registrador(int ini, int fim) {
+        if (fim - ini == 1) {
+            switch (Character.toUpperCase(fonte[ini])) {
+                case 'A': return CPU.COD_A;
+                case 'X': return CPU.COD_X;
+                case 'L': return CPU.COD_L;
+                case 'B': return CPU.COD_B;
+                case 'S': return CPU.COD_S;
+                case 'T': return CPU.COD_T;
+                case 'F': return 6;
+                default: break;
+            }
+        } else if (fim - ini == 2) {
+            char a = Character.toUpperCase(fonte[ini]);
+            char b = Character.toUpperCase(fonte[ini + 1]);
+            if (a == 'P' && b == 'C') {
+                return CPU.COD_PC;
+            }
+            if (a == 'S' && b == 'W') {
+                return CPU.COD_SW;
+            }
+        }
+        throw erro(ini, "registrador inválido '" + new String(fonte, ini, fim - ini) + "'");
+    }
+
+    private int numeroDe4Bits(int ini, int fim) {
+        avaliar(ini, fim, 0, false);
+        if (relativos != 0 || valor < 0 || valor > 15) {
+            throw erro(ini, "esperado um número de 0 a 15");
+        }
+        return valor;
+    }
+
+    private void gerarByte(int loc, int ini, int fim) {
+        int n = fim - ini - 3;
+        if (Character.toUpperCase(fonte[ini]) == 'C') {
+            for (int c = 0; c < n; c++) {
+                char ch = fonte[ini + 2 + c];
+                if (ch > 0xFF) {
+                    throw erro(ini + 2 + c, "caractere fora de um byte");
+                }
+                emitir(loc + c, ch, 1);
+            }
+        } else {
+            for (int c = 0; c < n; c += 2) {
+                int alto = Character.digit(fonte[ini + 2 + c], 16);
+                int baixo = Character.digit(fonte[ini + 3 + c], 16);
+                if (alto < 0 || baixo < 0) {
+                    throw erro(ini + 2 + c, "dígito hexadecimal inválido");
+                }
+                emitir(loc + c / 2, alto << 4 | baixo, 1);
+            }
+        }
+    }
+
+    private void gerarWord(int loc, int ini, int fim) {
+        avaliar(ini, fim, loc, false);
+        exigirAbsolutoOuRelativo(ini);
+        if (valor < -0x800000 || valor > 0xFFFFFF) {
+            throw erro(ini, "valor fora de 24 bits");
+        }
+        if (relativos == 1) {
+            relocar(loc, 6);
+        }
+        emitir(loc, valor & 0xFFFFFF, 3);
+    }
+
+    private void exigirAbsolutoOuRelativo(int ini) {
+        if (relativos != 0 && relativos != 1) {
+            throw erro(ini, "expressão não é nem absoluta nem relativa ao programa");
+        }
+    }
+
+    /** Grava os bytes (big-endian) e estende o segmento atual ou abre outro depois de um RESB/RESW. */
+    private void emitir(int loc, int valorBytes, int bytes) {
+        int rel = loc - inicio;
+        for (int k = bytes - 1; k >= 0; k--) {
+            codigo[rel + bytes - 1 - k] = (byte) (valorBytes >>> (8 * k));
+        }
+        if (quantidadeSegmentos > 0 && segmentos[quantidadeSegmentos - 1] == rel) {
+            segmentos[quantidadeSegmentos - 1] = rel + bytes;
+            return;
+        }
+        if (quantidadeSegmentos == segmentos.length) {
+            segmentos = Arrays.copyOf(segmentos, quantidadeSegmentos * 2);
+        }
+        segmentos[quantidadeSegmentos++] = rel;
+        segmentos[quantidadeSegmentos++] = rel + bytes;
+    }
+
+    private void relocar(int loc, int meiosBytes) {
+        if (quantidadeRelocacoes == relocacoes.length) {
+            relocacoes = Arrays.copyOf(relocacoes, quantidadeRelocacoes * 2);
+        }
+        relocacoes[quantidadeRelocacoes++] = loc << 4 | meiosBytes;
+    }
+
+    // =========================
+    //  Expressões
+    // =========================
+
+    /**
+     * Avalia fonte[ini, fim) em {@link #valor}, contando em {@link #relativos}
+     * os termos relativos ao programa (com sinal). No primeiro passo só
+     * símbolos já definidos são aceitos.
+     */
+    private void avaliar(int ini, int fim, int loc, boolean primeiroPasso) {
+        if (ini == fim) {
+            throw erro(ini, "falta a expressão");
+        }
+        long total = 0;
+        int rel = 0;
+        int pos = ini;
+        int sinal = 1;
+        if (fonte[pos] == '-' || fonte[pos] == '+') {
+            sinal = fonte[pos] == '-' ? -1 : 1;
+            pos++;
+        }
+        while (true) {
+            if (pos == fim) {
+                throw erro(pos, "falta um termo na expressão");
+            }
+            char c = fonte[pos];
+            if (c >= '0' && c <= '9') {
+                long n = 0;
+                while (pos < fim && fonte[pos] >= '0' && fonte[pos] <= '9') {
+                    n = n * 10 + (fonte[pos++] - '0');
+                    if (n > 0xFFFFFF) {
+                        throw erro(ini, "número fora de 24 bits");
+                    }
+                }
+                total += sinal * n;
+            } else if (c == '*') {
+                pos++;
+                total += sinal * (long) loc;
+                rel += sinal;
+            } else if (inicioDeSimbolo(c)) {
+                int inicioSimbolo = pos;
+                while (pos < fim && parteDeSimbolo(fonte[pos])) {
+                    pos++;
+                }
+                int k = simbolos.buscar(fonte, inicioSimbolo, pos);
+                if (k < 0) {
+                    throw erro(inicioSimbolo, "símbolo '" + new String(fonte, inicioSimbolo, pos - inicioSimbolo)
+                            + (primeiroPasso ? "' não definido antes desta linha" : "' não definido"));
+                }
+                total += sinal * (long) simbolos.valor(k);
+                rel += sinal;
+            } else {
+                throw erro(pos, "caractere inesperado '" + c + "' na expressão");
+            }
+            if (pos == fim) {
+                break;
+            }
+            if (fonte[pos] != '+' && fonte[pos] != '-') {
+                throw erro(pos, "esperado '+' ou '-' na expressão");
+            }
+            sinal = fonte[pos] == '-' ? -1 : 1;
+            pos++;
+        }
+        if (total < Integer.MIN_VALUE || total > Integer.MAX_VALUE) {
+            throw erro(ini, "valor da expressão fora do alcance");
+        }
+        valor = (int) total;
+        relativos = rel;
+    }
+
+    private int numeroHex(int ini, int fim) {
+        int v = 0;
+        for (int c = ini; c < fim; c++) {
+            int d = Character.digit(fonte[c], 16);
+            if (d < 0) {
+                throw erro(c, "dígito hexadecimal inválido");
+            }
+            v = v << 4 | d;
+            if (v >= Memoria.TAMANHO_ENDERECAVEL) {
+                throw erro(ini, "endereço inicial fora da memória");
+            }
+        }
+        return v;
+    }
+
+    // =========================
+    //  Auxiliares
+    // =========================
+
+    private static boolean espaco(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private int pularEspacos(int pos, int fim) {
+        while (pos < fim && espaco(fonte[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean inicioDeSimbolo(char c) {
+        return c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c == '_';
+    }
+
+    private static boolean parteDeSimbolo(char c) {
+        return inicioDeSimbolo(c) || c >= '0' && c <= '9' || c == '$';
+    }
+
+    private ErroCarregamento erro(int pos, String mensagem) {
+        return new ErroCarregamento(linha, pos - inicioDaLinha + 1, mensagem);
+    }
+}
@@ -0,0 +1,22 @@
+package executor;
+
+public enum MotivoParada {
+    /** Instrução "J *": salto incondicional para ela mesma. */
+    LACO_DE_PARADA,
+    /** RSUB com L = 0, ou seja, retorno para fora do programa. */
+    RETORNO_COM_L_ZERO,
+    /** SVC n: o programa chamou o supervisor (ver {@link Maquina#getCodigoChamadaSupervisor()}). */
+    CHAMADA_AO_SUPERVISOR,
+    /** O número máximo de passos pedido foi executado. */
+    LIMITE_DE_PASSOS,
+    /** O prazo de tempo (relógio de parede) se esgotou. */
+    PRAZO_ESGOTADO,
+    /** O PC chegou a um ponto de parada (e a condição dele, se houver, valeu). */
+    PONTO_DE_PARADA,
+    /** A última instrução leu ou escreveu memória observada. */
+    MEMORIA_OBSERVADA,
+    /** Uma condição de parada sem endereço passou a valer. */
+    CONDICAO_DE_PARADA,
+    /** Ao voltar: não há passos anteriores no histórico. */
+    INICIO_DO_HISTORICO
+}
@@ -0,0 +1,705 @@
+package executor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Motor de execução por blocos básicos ("threaded code").
+ *
+ * Um bloco começa em qualquer endereço alcançado pelo PC e termina no
+ * primeiro J/JEQ/JGT/JLT/JSUB/RSUB (ou ao atingir {@link #MAX_INSTRUCOES}).
+ * Cada instrução é traduzida uma única vez para um objeto {@link Operacao}
+ * com o modo de endereçamento, os registradores e o deslocamento já
+ * resolvidos; depois disso o bloco roda sem voltar à decodificação.
+ *
+ * O resultado arquitetural é o mesmo do interpretador da {@link Maquina}:
+ * o PC só é gravado no fim do bloco (ou no endereço da instrução que lançou
+ * exceção) e escritas sobre código traduzido descartam os blocos.
+ *
+ * No modo compilado, cada bloco conta suas execuções e, ao chegar a
+ * {@link #LIMIAR_COMPILACAO}, é entregue ao {@link CompiladorBlocos}. Uma
+ * exceção dentro do código compilado devolve o bloco ao modo traduzido e
+ * impede que aquele endereço seja compilado de novo.
+ */
+class MotorBlocos {
+
+    static final int MAX_INSTRUCOES = 64;
+    static final int LIMIAR_COMPILACAO = 200;
+
+    // lugar de um PC cuja primeira instrução não se traduz (TD/RD/WD, ponto
+    // flutuante, SVC...): as visitas seguintes vão direto ao interpretador
+    private static final Bloco SEM_TRADUCAO =
+            new Bloco(new Operacao[0], new Instrucao[0], new int[0], new int[1], false, -1, -1, -1);
+
+    private final Maquina maquina;
+    private final CPU cpu;
+    private final Memoria memoria;
+
+    private final Bloco[][] blocos;        // pelo PC de início, em páginas da Memoria
+    private final BitSet codigoTraduzido = new BitSet(); // bytes cobertos por algum bloco
+    private boolean invalidado;
+    private int instrucoesAntesDaFalha; // em voltas completas, informadas por falhouCompilado
+
+    private final boolean compilar;
+    private final BitSet naoCompilar = new BitSet(); // blocos que já falharam quando compilados
+
+    MotorBlocos(Maquina maquina, boolean compilar) {
+        this.maquina = maquina;
+        this.cpu = maquina.getCpu();
+        this.memoria = maquina.getMemoria();
+        this.blocos = new Bloco[(memoria.getTamanhoEmBytes() + Memoria.MASCARA_PAGINA) >>> Memoria.BITS_PAGINA][];
+        this.compilar = compilar;
+    }
+
+    // =========================
+    //  Laço principal
+    // =========================
+
+    ResultadoExecucao executar(long maxPassos, long prazoNanos) {
+        long inicio = System.nanoTime();
+        boolean temPrazo = prazoNanos > 0;
+        long proximaConsulta = 0;
+        long passos = 0;
+        long ciclosAntes = maquina.getCiclos();
+        MotivoParada motivo = MotivoParada.LIMITE_DE_PASSOS;
+
+        while (passos < maxPassos) {
+            if (temPrazo && passos >= proximaConsulta) {
+                proximaConsulta = passos + Maquina.PASSOS_ENTRE_CONSULTAS_RELOGIO;
+                if (System.nanoTime() - inicio >= prazoNanos) {
+                    motivo = MotivoParada.PRAZO_ESGOTADO;
+                    break;
+                }
+            }
+
+            int pc = cpu.ler(CPU.COD_PC);
+            Bloco bloco = null;
+            if (pc < memoria.getTamanhoEmBytes()) {
+                Bloco[] pagina = blocos[pc >>> Memoria.BITS_PAGINA];
+                bloco = (pagina != null) ? pagina[pc & Memoria.MASCARA_PAGINA] : null;
+                if (bloco == null) {
+                    bloco = traduzir(pc);
+                }
+            }
+
+            // sem bloco (instrução inválida, não traduzível ou fora da memória) ou
+            // sem passos suficientes para o bloco inteiro: uma instrução pelo interpretador
+            if (bloco == null || bloco == SEM_TRADUCAO || bloco.operacoes.length > maxPassos - passos) {
+                MotivoParada parada = maquina.passoVerificandoParada();
+                passos++;
+                if (parada != null) {
+                    motivo = parada;
+                    break;
+                }
+                continue;
+            }
+
+            if (bloco.compilado != null) {
+                long limite = maxPassos - passos;
+                if (temPrazo) {
+                    limite = Math.min(limite, Math.max(bloco.operacoes.length, proximaConsulta - passos));
+                }
+                int feitas = executarCompilado(bloco, (int) Math.min(limite, Integer.MAX_VALUE));
+                passos += feitas;
+                somarCiclos(bloco, feitas);
+            } else {
+                int feitas = executarBloco(bloco);
+                passos += feitas;
+                somarCiclos(bloco, feitas);
+                if (compilar && !invalidado && ++bloco.execucoes == LIMIAR_COMPILACAO && !naoCompilar.get(pc)) {
+                    bloco.compilado = CompiladorBlocos.compilar(
+                            bloco.instrucoes, bloco.pcs, bloco.terminaEmDesvio, bloco.pcSeguinte);
+                }
+            }
+
+            if (!invalidado) {
+                MotivoParada parada = maquina.verificarParada(bloco.opcodeFinal, bloco.pcFinal);
+                if (parada != null) {
+                    motivo = parada;
+                    break;
+                }
+            }
+        }
+
+        return new ResultadoExecucao(motivo, passos, System.nanoTime() - inicio, maquina.getCiclos() - ciclosAntes);
+    }
+
+    /**
+     * Ciclos de {@code feitas} instruções do bloco a partir do início; o
+     * código compilado pode ter repetido o bloco inteiro várias vezes.
+     */
+    private void somarCiclos(Bloco bloco, int feitas) {
+        int[] ate = bloco.ciclosAte;
+        int n = bloco.operacoes.length;
+        if (ate[n] != 0) {
+            maquina.somarCiclos((long) (feitas / n) * ate[n] + ate[feitas % n]);
+        }
+    }
+
+    /** Executa o bloco e devolve quantas instruções rodaram. */
+    private int executarBloco(Bloco bloco) {
+        Operacao[] ops = bloco.operacoes;
+        invalidado = false;
+        int i = 0;
+        try {
+            for (; i < ops.length; i++) {
+                if (ops[i].executar()) {
+                    // a instrução escreveu sobre código traduzido: o restante
+                    // do bloco pode não valer mais
+                    cpu.escrever(CPU.COD_PC, ops[i].proximoPC);
+                    return i + 1;
+                }
+            }
+        } catch (RuntimeException e) {
+            cpu.escrever(CPU.COD_PC, ops[i].pc);
+            somarCiclos(bloco, i + 1); // como no interpretador, a instrução que falhou conta
+            throw e;
+        }
+        if (!bloco.terminaEmDesvio) {
+            cpu.escrever(CPU.COD_PC, bloco.pcSeguinte);
+        }
+        return ops.length;
+    }
+
+    private int executarCompilado(Bloco bloco, int limite) {
+        invalidado = false;
+        try {
+            return bloco.compilado.executar(cpu, memoria, this, limite);
+        } catch (RuntimeException e) {
+            // o código gerado já gravou o estado com o PC na instrução que falhou
+            int falhou = Arrays.binarySearch(bloco.pcs, cpu.ler(CPU.COD_PC));
+            if (falhou >= 0) {
+                somarCiclos(bloco, instrucoesAntesDaFalha + falhou + 1);
+            }
+            bloco.compilado = null;
+            naoCompilar.set(bloco.pcs[0]);
+            throw e;
+        }
+    }
+
+    // =========================
+    //  Invalidação
+    // =========================
+
+    /** Chamado pelo código compilado que lançou exceção, com as instruções das voltas completas. */
+    void falhouCompilado(int instrucoesExecutadas) {
+        instrucoesAntesDaFalha = instrucoesExecutadas;
+    }
+
+    /** Consultado pelo código compilado depois de cada escrita na memória. */
+    boolean codigoInvalidado() {
+        return invalidado;
+    }
+
+    /** Chamado pela Maquina antes de cada escrita na memória. */
+    void aoEscrever(int enderecoByte, int quantidadeBytes) {
+        int marcado = codigoTraduzido.nextSetBit(Math.max(0, enderecoByte));
+        if (marcado >= 0 && marcado < enderecoByte + quantidadeBytes) {
+            descartarTudo();
+        }
+    }
+
+    /** Escrita sobre código é rara: descartar todos os blocos é mais simples que rastrear dependências. */
+    void descartarTudo() {
+        Arrays.fill(blocos, null);
+        codigoTraduzido.clear();
+        invalidado = true;
+    }
+
+    // =========================
+    //  Tradução
+    // =========================
+
+    private Bloco traduzir(int pcInicial) {
+        List<Operacao> ops = new ArrayList<>();
+        List<Instrucao> instrucoes = new ArrayList<>();
+        int pc = pcInicial;
+        boolean terminaEmDesvio = false;
+        int opcodeFinal = -1;
+        int pcFinal = pcInicial;
+
+        while (ops.size() < MAX_INSTRUCOES) {
+            Instrucao inst;
+            try {
+                inst = Instrucao.decodificar(memoria, pc);
+            } catch (IndexOutOfBoundsException e) {
+                break; // o interpretador acusa o erro quando chegar lá
+            }
+            Operacao op = criarOperacao(inst, pc, (pc + inst.tamanhoBytes) & 0xFFFFFF);
+            if (op == null) {
+                break; // opcode não suportado: idem
+            }
+            ops.add(op);
+            instrucoes.add(inst);
+            opcodeFinal = inst.opcode;
+            pcFinal = pc;
+            pc = op.proximoPC;
+
+            if (terminaBloco(inst.opcode)) {
+                terminaEmDesvio = true;
+                break;
+            }
+        }
+
+        if (ops.isEmpty()) {
+            // a instrução pode virar outra se alguém escrever sobre ela
+            codigoTraduzido.set(pcInicial, Math.min(pcInicial + 4, memoria.getTamanhoEmBytes()));
+            guardar(pcInicial, SEM_TRADUCAO);
+            return SEM_TRADUCAO;
+        }
+
+        codigoTraduzido.set(pcInicial, Math.max(pcInicial, Math.min(pc, memoria.getTamanhoEmBytes())));
+
+        Operacao[] operacoes = ops.toArray(new Operacao[0]);
+        int[] pcs = new int[operacoes.length];
+        int[] ciclosAte = new int[operacoes.length + 1];
+        for (int k = 0; k < pcs.length; k++) {
+            pcs[k] = operacoes[k].pc;
+            ciclosAte[k + 1] = ciclosAte[k] + maquina.custoCiclos(instrucoes.get(k));
+        }
+        Bloco bloco = new Bloco(operacoes, instrucoes.toArray(new Instrucao[0]), pcs, ciclosAte,
+                terminaEmDesvio, pc, opcodeFinal, pcFinal);
+        guardar(pcInicial, bloco);
+        return bloco;
+    }
+
+    private void guardar(int pcInicial, Bloco bloco) {
+        Bloco[] pagina = blocos[pcInicial >>> Memoria.BITS_PAGINA];
+        if (pagina == null) {
+            pagina = new Bloco[Memoria.TAMANHO_PAGINA];
+            blocos[pcInicial >>> Memoria.BITS_PAGINA] = pagina;
+        }
+        pagina[pcInicial & Memoria.MASCARA_PAGINA] = bloco;
+    }
+
+    private static boolean terminaBloco(int opcode) {
+        switch (opcode) {
+            case Opcode.J: case Opcode.JEQ: case Opcode.JGT: case Opcode.JLT:
+            case Opcode.JSUB: case Opcode.RSUB:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private Operacao criarOperacao(Instrucao inst, int pc, int proximoPC) {
+        switch (inst.opcode) {
+            case Opcode.LDA:  return new Carga(inst, pc, proximoPC, CPU.COD_A);
+            case Opcode.LDX:  return new Carga(inst, pc, proximoPC, CPU.COD_X);
+            case Opcode.LDL:  return new Carga(inst, pc, proximoPC, CPU.COD_L);
+            case Opcode.LDB:  return new Carga(inst, pc, proximoPC, CPU.COD_B);
+            case Opcode.LDS:  return new Carga(inst, pc, proximoPC, CPU.COD_S);
+            case Opcode.LDT:  return new Carga(inst, pc, proximoPC, CPU.COD_T);
+
+            case Opcode.STA:  return new Armazena(inst, pc, proximoPC, CPU.COD_A);
+            case Opcode.STX:  return new Armazena(inst, pc, proximoPC, CPU.COD_X);
+            case Opcode.STL:  return new Armazena(inst, pc, proximoPC, CPU.COD_L);
+            case Opcode.STB:  return new Armazena(inst, pc, proximoPC, CPU.COD_B);
+            case Opcode.STS:  return new Armazena(inst, pc, proximoPC, CPU.COD_S);
+            case Opcode.STT:  return new Armazena(inst, pc, proximoPC, CPU.COD_T);
+
+            case Opcode.ADD:  return new Soma(inst, pc, proximoPC);
+            case Opcode.SUB:  return new Subtrai(inst, pc, proximoPC);
+            case Opcode.MUL:  return new Multiplica(inst, pc, proximoPC);
+            case Opcode.DIV:  return new Divide(inst, pc, proximoPC);
+            case Opcode.AND:  return new E(inst, pc, proximoPC);
+            case Opcode.OR:   return new Ou(inst, pc, proximoPC);
+            case Opcode.COMP: return new Compara(inst, pc, proximoPC);
+            case Opcode.TIX:  return new Tix(inst, pc, proximoPC);
+            case Opcode.LDCH: return new Ldch(inst, pc, proximoPC);
+            case Opcode.STCH: return new Stch(inst, pc, proximoPC);
+
+            case Opcode.J:    return new Salto(inst, pc, proximoPC);
+            case Opcode.JEQ:  return new SaltoCondicional(inst, pc, proximoPC, 0);
+            case Opcode.JGT:  return new SaltoCondicional(inst, pc, proximoPC, 1);
+            case Opcode.JLT:  return new SaltoCondicional(inst, pc, proximoPC, -1);
+            case Opcode.JSUB: return new Subrotina(inst, pc, proximoPC);
+            case Opcode.RSUB: return new Retorno(pc, proximoPC);
+
+            case Opcode.ADDR:
+            case Opcode.SUBR:
+            case Opcode.MULR:
+            case Opcode.DIVR:
+            case Opcode.COMPR:
+            case Opcode.RMO:
+                if (!CPU.codigoGeral(inst.r1) || !CPU.codigoGeral(inst.r2)) {
+                    return new Nada(pc, proximoPC);
+                }
+                return new Registradores(inst.opcode, pc, proximoPC, inst.r1, inst.r2);
+
+            case Opcode.SHIFTL:
+            case Opcode.SHIFTR:
+                if (!CPU.codigoGeral(inst.r1) || (inst.r2 & 0x0F) == 0) {
+                    return new Nada(pc, proximoPC);
+                }
+                return new Deslocamento(inst.opcode == Opcode.SHIFTL, pc, proximoPC, inst.r1, inst.r2 & 0x0F);
+
+            case Opcode.CLEAR:
+                if (!CPU.codigoGeral(inst.r1)) {
+                    return new Nada(pc, proximoPC);
+                }
+                return new Limpa(pc, proximoPC, inst.r1);
+
+            case Opcode.TIXR:
+                return new Tixr(pc, proximoPC, inst.r1);
+
+            default:
+                return null;
+        }
+    }
+
+    // =========================
+    //  Bloco e operações
+    // =========================
+
+    private static final class Bloco {
+        final Operacao[] operacoes;
+        final Instrucao[] instrucoes; // guardadas para o compilador
+        final int[] pcs;
+        final int[] ciclosAte;         // ciclos das k primeiras instruções, para k = 0..n
+        final boolean terminaEmDesvio; // se false, o PC segue para pcSeguinte
+        final int pcSeguinte;
+        final int opcodeFinal;
+        final int pcFinal;
+
+        int execucoes;
+        CodigoCompilado compilado;
+
+        Bloco(Operacao[] operacoes, Instrucao[] instrucoes, int[] pcs, int[] ciclosAte,
+              boolean terminaEmDesvio, int pcSeguinte, int opcodeFinal, int pcFinal) {
+            this.operacoes = operacoes;
+            this.instrucoes = instrucoes;
+            this.pcs = pcs;
+            this.ciclosAte = ciclosAte;
+            this.terminaEmDesvio = terminaEmDesvio;
+            this.pcSeguinte = pcSeguinte;
+            this.opcodeFinal = opcodeFinal;
+            this.pcFinal = pcFinal;
+        }
+    }
+
+    private abstract class Operacao {
+        final int pc;
+        final int proximoPC;
+
+        Operacao(int pc, int proximoPC) {
+            this.pc = pc;
+            this.proximoPC = proximoPC;
+        }
+
+        /** Executa a instrução; devolve true se ela invalidou os blocos traduzidos. */
+        abstract boolean executar();
+    }
+
+    /**
+     * Endereçamento de uma instrução de formato 3/4 resolvido na tradução:
+     * só B e X (quando usados) ficam para o tempo de execução, como em
+     * Maquina.calcularEnderecoEfetivo. Também usado pelo CompiladorBlocos.
+     */
+    static final class Endereco {
+        final int constante;
+        final boolean usaBase;
+        final boolean indexado;
+        final int modo; // MODO_SIMPLES, MODO_IMEDIATO ou MODO_INDIRETO
+
+        Endereco(Instrucao inst, int proximoPC) {
+            if (inst.formato == 3) {
+                if (inst.p == 1) {
+                    constante = proximoPC + inst.disp;
+                    usaBase = false;
+                } else if (inst.b == 1) {
+                    constante = inst.disp;
+                    usaBase = true;
+                } else {
+                    constante = inst.disp & 0xFFFFF;
+                    usaBase = false;
+                }
+            } else {
+                int addr = inst.disp & 0xFFFFF;
+                usaBase = inst.b == 1;
+                constante = (!usaBase && inst.p == 1) ? proximoPC + addr : addr;
+            }
+            indexado = inst.x == 1;
+
+            if (inst.n == 0 && inst.i == 1) {
+                modo = MODO_IMEDIATO;
+            } else if (inst.n == 1 && inst.i == 0) {
+                modo = MODO_INDIRETO;
+            } else {
+                modo = MODO_SIMPLES;
+            }
+        }
+    }
+
+    static final int MODO_SIMPLES = 0;
+    static final int MODO_IMEDIATO = 1;
+    static final int MODO_INDIRETO = 2;
+
+    private abstract class OperacaoMemoria extends Operacao {
+        final int constante;
+        final boolean usaBase;
+        final boolean indexado;
+        final int modo;
+
+        OperacaoMemoria(Instrucao inst, int pc, int proximoPC) {
+            super(pc, proximoPC);
+            Endereco e = new Endereco(inst, proximoPC);
+            constante = e.constante;
+            usaBase = e.usaBase;
+            indexado = e.indexado;
+            modo = e.modo;
+        }
+
+        final int enderecoEfetivo() {
+            int ea = constante;
+            if (usaBase) ea += cpu.ler(CPU.COD_B);
+            if (indexado) ea += cpu.ler(CPU.COD_X);
+            return ea & 0xFFFFFF;
+        }
+
+        final int operando() {
+            int ea = enderecoEfetivo();
+            switch (modo) {
+                case MODO_IMEDIATO: return ea;
+                case MODO_INDIRETO: return memoria.lerPalavraPorByte(memoria.lerPalavraPorByte(ea));
+                default:            return memoria.lerPalavraPorByte(ea);
+            }
+        }
+
+        /** Onde um armazenamento escreve ou um desvio vai: no modo indireto, a palavra no endereço efetivo. */
+        final int alvo() {
+            int ea = enderecoEfetivo();
+            return modo == MODO_INDIRETO ? memoria.lerPalavraPorByte(ea) : ea;
+        }
+    }
+
+    private final class Carga extends OperacaoMemoria {
+        final int reg;
+        Carga(Instrucao inst, int pc, int proximoPC, int reg) { super(inst, pc, proximoPC); this.reg = reg; }
+        boolean executar() {
+            cpu.escrever(reg, operando());
+            return false;
+        }
+    }
+
+    private final class Armazena extends OperacaoMemoria {
+        final int reg;
+        Armazena(Instrucao inst, int pc, int proximoPC, int reg) { super(inst, pc, proximoPC); this.reg = reg; }
+        boolean executar() {
+            memoria.escreverPalavraPorByte(alvo(), cpu.ler(reg));
+            return invalidado;
+        }
+    }
+
+    private final class Soma extends OperacaoMemoria {
+        Soma(Instrucao inst, int pc, int proximoPC) { super(inst, pc, proximoPC); }
+        boolean executar() {
+            cpu.escrever(CPU.COD_A, cpu.lerComSinal(CPU.COD_A) + operando());
+            return false;
+        }
+    }
+
+    private final class Subtrai extends OperacaoMemoria {
+        Subtrai(Instrucao inst, int pc, int proximoPC) { super(inst, pc, proximoPC); }
+        boolean executar() {
+            cpu.escrever(CPU.COD_A, cpu.lerComSinal(CPU.COD_A) - operando());
+            return false;
+        }
+    }
+
+    private final class Multiplica extends OperacaoMemoria {
+        Multiplica(Instrucao inst, int pc, int proximoPC) { super(inst, pc, proximoPC); }
+        boolean executar() {
+            cpu.escrever(CPU.COD_A, cpu.lerComSinal(CPU.COD_A) * operando());
+            return false;
+        }
+    }
+
+    private final class Divide extends OperacaoMemoria {
+        Divide(Instrucao inst, int pc, int proximoPC) { super(inst, pc, proximoPC); }
+        boolean executar() {
+            int operando = operando();
+            if (operando == 0) {
+                throw new ArithmeticException("Divisão por zero em DIV");
+            }
+            cpu.escrever(CPU.COD_A, cpu.lerComSinal(CPU.COD_A) / operando);
+            return false;
+        }
+    }
+
+    private final class E extends OperacaoMemoria {
+        E(Instrucao inst, int pc, int proximoPC) { super(inst, pc, proximoPC); }
+        boolean executar() {
+            cpu.escrever(CPU.COD_A, cpu.ler(CPU.COD_A) & (operando() & 0xFFFFFF));
+            return false;
+        }
+    }
+
+    private final class Ou extends OperacaoMemoria {
+        Ou(Instrucao inst, int pc, int proximoPC) { super(inst, pc, proximoPC); }
+        boolean executar() {
+            cpu.escrever(CPU.COD_A, cpu.ler(CPU.COD_A) | (operando() & 0xFFFFFF));
+            return false;
+        }
+    }
+
+    private final class Compara extends OperacaoMemoria {
+        Compara(Instrucao inst, int pc, int proximoPC) { super(inst, pc, proximoPC); }
+        boolean executar() {
+            cpu.setCCFromCompare(cpu.lerComSinal(CPU.COD_A) - operando());
+            return false;
+        }
+    }
+
+    /** TIX lê sempre a palavra em m, como no interpretador. */
+    private final class Tix extends OperacaoMemoria {
+        Tix(Instrucao inst, int pc, int proximoPC) { super(inst, pc, proximoPC); }
+        boolean executar() {
+            int m = memoria.lerPalavraPorByte(enderecoEfetivo());
+            cpu.escrever(CPU.COD_X, cpu.lerComSinal(CPU.COD_X) + 1);
+            cpu.setCCFromCompare(cpu.lerComSinal(CPU.COD_X) - m);
+            return false;
+        }
+    }
+
+    private final class Ldch extends OperacaoMemoria {
+        Ldch(Instrucao inst, int pc, int proximoPC) { super(inst, pc, proximoPC); }
+        boolean executar() {
+            int byteLido = memoria.lerByte(enderecoEfetivo());
+            cpu.escrever(CPU.COD_A, (cpu.ler(CPU.COD_A) & 0xFFFF00) | (byteLido & 0xFF));
+            return false;
+        }
+    }
+
+    private final class Stch extends OperacaoMemoria {
+        Stch(Instrucao inst, int pc, int proximoPC) { super(inst, pc, proximoPC); }
+        boolean executar() {
+            memoria.escreverByte(alvo(), cpu.ler(CPU.COD_A) & 0xFF);
+            return invalidado;
+        }
+    }
+
+    private final class Salto extends OperacaoMemoria {
+        Salto(Instrucao inst, int pc, int proximoPC) { super(inst, pc, proximoPC); }
+        boolean executar() {
+            cpu.escrever(CPU.COD_PC, alvo());
+            return false;
+        }
+    }
+
+    private final class SaltoCondicional extends OperacaoMemoria {
+        final int ccEsperado;
+        SaltoCondicional(Instrucao inst, int pc, int proximoPC, int ccEsperado) {
+            super(inst, pc, proximoPC);
+            this.ccEsperado = ccEsperado;
+        }
+        boolean executar() {
+            cpu.escrever(CPU.COD_PC, cpu.getCC() == ccEsperado ? alvo() : proximoPC);
+            return false;
+        }
+    }
+
+    private final class Subrotina extends OperacaoMemoria {
+        Subrotina(Instrucao inst, int pc, int proximoPC) { super(inst, pc, proximoPC); }
+        boolean executar() {
+            int alvo = alvo();
+            cpu.escrever(CPU.COD_L, proximoPC);
+            cpu.escrever(CPU.COD_PC, alvo);
+            return false;
+        }
+    }
+
+    private final class Retorno extends Operacao {
+        Retorno(int pc, int proximoPC) { super(pc, proximoPC); }
+        boolean executar() {
+            cpu.escrever(CPU.COD_PC, cpu.ler(CPU.COD_L));
+            return false;
+        }
+    }
+
+    /** ADDR/SUBR/MULR/DIVR/COMPR/RMO com registradores já validados. */
+    private final class Registradores extends Operacao {
+        final int opcode, r1, r2;
+        Registradores(int opcode, int pc, int proximoPC, int r1, int r2) {
+            super(pc, proximoPC);
+            this.opcode = opcode;
+            this.r1 = r1;
+            this.r2 = r2;
+        }
+        boolean executar() {
+            switch (opcode) {
+                case Opcode.ADDR:
+                    cpu.escrever(r2, cpu.lerComSinal(r2) + cpu.lerComSinal(r1));
+                    break;
+                case Opcode.SUBR:
+                    cpu.escrever(r2, cpu.lerComSinal(r2) - cpu.lerComSinal(r1));
+                    break;
+                case Opcode.MULR:
+                    cpu.escrever(r2, cpu.lerComSinal(r2) * cpu.lerComSinal(r1));
+                    break;
+                case Opcode.DIVR: {
+                    int divisor = cpu.lerComSinal(r1);
+                    if (divisor == 0) {
+                        throw new ArithmeticException("Divisão por zero em DIVR");
+                    }
+                    cpu.escrever(r2, cpu.lerComSinal(r2) / divisor);
+                    break;
+                }
+                case Opcode.COMPR:
+                    cpu.setCCFromCompare(cpu.lerComSinal(r1) - cpu.lerComSinal(r2));
+                    break;
+                default: // RMO
+                    cpu.escrever(r2, cpu.ler(r1));
+                    break;
+            }
+            return false;
+        }
+    }
+
+    private final class Deslocamento extends Operacao {
+        final boolean esquerda;
+        final int reg, n;
+        Deslocamento(boolean esquerda, int pc, int proximoPC, int reg, int n) {
+            super(pc, proximoPC);
+            this.esquerda = esquerda;
+            this.reg = reg;
+            this.n = n;
+        }
+        boolean executar() {
+            int v = cpu.ler(reg);
+            cpu.escrever(reg, esquerda ? (v << n) : (v >>> n));
+            return false;
+        }
+    }
+
+    private final class Limpa extends Operacao {
+        final int reg;
+        Limpa(int pc, int proximoPC, int reg) { super(pc, proximoPC); this.reg = reg; }
+        boolean executar() {
+            cpu.escrever(reg, 0);
+            return false;
+        }
+    }
+
+    private final class Tixr extends Operacao {
+        final int reg;
+        Tixr(int pc, int proximoPC, int reg) { super(pc, proximoPC); this.reg = reg; }
+        boolean executar() {
+            cpu.escrever(CPU.COD_X, cpu.lerComSinal(CPU.COD_X) + 1);
+            if (CPU.codigoGeral(reg)) {
+                cpu.setCCFromCompare(cpu.lerComSinal(CPU.COD_X) - cpu.lerComSinal(reg));
+            }
+            return false;
+        }
+    }
+
+    /** Formato 2 com registrador inválido: o interpretador só avança o PC. */
+    private final class Nada extends Operacao {
+        Nada(int pc, int proximoPC) { super(pc, proximoPC); }
+        boolean executar() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package executor;
+
+/** Estratégia usada por {@link Maquina#executar(long, long)}. */
+public enum MotorExecucao {
+    /** Busca, decodifica e despacha uma instrução por vez. */
+    INTERPRETADOR,
+    /** Traduz blocos básicos uma vez para cadeias de operações pré-resolvidas. */
+    BLOCOS,
+    /**
+     * Como BLOCOS, mas os blocos executados muitas vezes são compilados para
+     * bytecode da JVM (ver CompiladorBlocos).
+     */
+    COMPILADO
+}
@@ -35,6 +35,24 @@ public interface Opcode {
     int STT   = 0x84; // m..m+2 ← (T)
     int RSUB  = 0x4C; // PC ← L
 
+    // ponto flutuante (registrador F de 48 bits)
+    int LDF   = 0x70; // F ← (m..m+5)
+    int STF   = 0x80; // m..m+5 ← (F)
+    int ADDF  = 0x58; // F ← F + (m..m+5)
+    int SUBF  = 0x5C; // F ← F - (m..m+5)
+    int MULF  = 0x60; // F ← F * (m..m+5)
+    int DIVF  = 0x64; // F ← F / (m..m+5)
+    int COMPF = 0x88; // F : (m..m+5) (CC)
+
+    // sistema e E/S
+    int LPS   = 0xD0; // carrega o estado do processador de m
+    int STI   = 0xD4; // temporizador ← (m..m+2)
+    int RD    = 0xD8; // A(byte direito) ← dispositivo (m)
+    int WD    = 0xDC; // dispositivo (m) ← A(byte direito)
+    int TD    = 0xE0; // testa o dispositivo (m) (CC)
+    int STSW  = 0xE8; // m..m+2 ← (SW)
+    int SSK   = 0xEC; // chave de proteção de m ← (A)
+
     int ADDR  = 0x90; // r2 ← r2 + r1
     int SUBR  = 0x94; // r2 ← r2 - r1
     int MULR  = 0x98; // r2 ← r2 * r1
@@ -46,4 +64,13 @@ public interface Opcode {
     int RMO    = 0xAC; // r2 ← r1
     int CLEAR  = 0xB4; // r1 ← 0
     int TIXR   = 0xB8; // X ← X+1; X : r1 (CC)
+    int SVC    = 0xB0; // chamada ao supervisor n
+
+    // formato 1
+    int FLOAT = 0xC0; // F ← A (convertido)
+    int FIX   = 0xC4; // A ← F (convertido, truncado)
+    int NORM  = 0xC8; // F ← F normalizado
+    int SIO   = 0xF0; // inicia o canal de E/S (A)
+    int HIO   = 0xF4; // para o canal de E/S (A)
+    int TIO   = 0xF8; // testa o canal de E/S (A) (CC)
 }
@@ -0,0 +1,337 @@
+package executor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Contadores de execução, ligados com {@link Maquina#setPerfil}.
+ *
+ * Conta a execução por endereço de instrução e por opcode, os desvios
+ * tomados e não tomados de JEQ/JGT/JLT e as leituras e escritas de dados
+ * por região de memória. Tudo fica em arrays primitivos; os contadores por
+ * endereço são paginados como a {@link Memoria} e só as páginas que têm
+ * código executado são alocadas.
+ *
+ * Por passo só o contador do endereço é incrementado: guarda-se ao lado o
+ * opcode que está lá, e os totais por opcode são somados na consulta. Se o
+ * código for modificado e o opcode de um endereço mudar, as execuções já
+ * contadas continuam atribuídas ao opcode antigo.
+ *
+ * Um Perfil pode acumular várias execuções (e até várias máquinas), mas não
+ * deve ser usado por duas threads ao mesmo tempo.
+ */
+public final class Perfil {
+
+    /** Tamanho de uma região para as contagens de leitura e escrita. */
+    public static final int TAMANHO_REGIAO = Memoria.TAMANHO_PAGINA;
+
+    private static final int PAGINAS =
+            (Memoria.PALAVRAS_ENDERECAVEIS * 3 + Memoria.MASCARA_PAGINA) >>> Memoria.BITS_PAGINA;
+
+    // por endereço de instrução, em páginas de Memoria.TAMANHO_PAGINA
+    private final long[][] porEndereco = new long[PAGINAS][];
+    private final byte[][] opcodePorEndereco = new byte[PAGINAS][];  // opcode da última execução
+    private final long[][] tomadosPorEndereco = new long[PAGINAS][]; // só páginas com desvios
+    private final long[][] ciclosPorEndereco = new long[PAGINAS][];  // só com ModeloCiclos na máquina
+
+    // correção dos totais por opcode quando o opcode de um endereço muda
+    private final long[] ajustePorOpcode = new long[256];
+    private final long[] tomadosPorOpcode = new long[256];
+
+    private final long[] leituras = new long[PAGINAS];
+    private final long[] escritas = new long[PAGINAS];
+
+    // =========================
+    //  Contagem (chamada pela Maquina)
+    // =========================
+
+    void contarInstrucao(int pc, int opcode, int ciclos) {
+        int p = pc >>> Memoria.BITS_PAGINA;
+        int i = pc & Memoria.MASCARA_PAGINA;
+        long[] pagina = porEndereco[p];
+        if (pagina == null) {
+            pagina = alocarPagina(p);
+        }
+        byte[] opcodes = opcodePorEndereco[p];
+        if (opcodes[i] != (byte) opcode) {
+            // primeira execução (a contagem é 0) ou código modificado
+            ajustePorOpcode[opcodes[i] & 0xFF] += pagina[i];
+            ajustePorOpcode[opcode] -= pagina[i];
+            opcodes[i] = (byte) opcode;
+        }
+        pagina[i]++;
+        if (ciclos != 0) {
+            long[] paginaCiclos = ciclosPorEndereco[p];
+            if (paginaCiclos == null) {
+                paginaCiclos = new long[Memoria.TAMANHO_PAGINA];
+                ciclosPorEndereco[p] = paginaCiclos;
+            }
+            paginaCiclos[i] += ciclos;
+        }
+    }
+
+    /** Chamado para JEQ/JGT/JLT que desviaram. */
+    void contarDesvioTomado(int pc, int opcode) {
+        tomadosPorOpcode[opcode]++;
+        int p = pc >>> Memoria.BITS_PAGINA;
+        long[] pagina = tomadosPorEndereco[p];
+        if (pagina == null) {
+            pagina = new long[Memoria.TAMANHO_PAGINA];
+            tomadosPorEndereco[p] = pagina;
+        }
+        pagina[pc & Memoria.MASCARA_PAGINA]++;
+    }
+
+    void contarLeitura(int enderecoByte) {
+        leituras[enderecoByte >>> Memoria.BITS_PAGINA]++;
+    }
+
+    void contarEscrita(int enderecoByte) {
+        escritas[enderecoByte >>> Memoria.BITS_PAGINA]++;
+    }
+
+    private long[] alocarPagina(int p) {
+        porEndereco[p] = new long[Memoria.TAMANHO_PAGINA];
+        opcodePorEndereco[p] = new byte[Memoria.TAMANHO_PAGINA];
+        return porEndereco[p];
+    }
+
+    /** Zera todos os contadores. */
+    public void zerar() {
+        Arrays.fill(porEndereco, null);
+        Arrays.fill(opcodePorEndereco, null);
+        Arrays.fill(tomadosPorEndereco, null);
+        Arrays.fill(ciclosPorEndereco, null);
+        Arrays.fill(ajustePorOpcode, 0);
+        Arrays.fill(tomadosPorOpcode, 0);
+        Arrays.fill(leituras, 0);
+        Arrays.fill(escritas, 0);
+    }
+
+    // =========================
+    //  Consultas
+    // =========================
+
+    /** Total de instruções executadas. */
+    public long getInstrucoes() {
+        long total = 0;
+        for (long n : totaisPorOpcode()) {
+            total += n;
+        }
+        return total;
+    }
+
+    /** Execuções de um opcode (uma das constantes de {@link Opcode}). */
+    public long getExecucoes(int opcode) {
+        return totaisPorOpcode()[opcode & 0xFF];
+    }
+
+    private long[] totaisPorOpcode() {
+        long[] totais = ajustePorOpcode.clone();
+        for (int p = 0; p < PAGINAS; p++) {
+            long[] pagina = porEndereco[p];
+            if (pagina == null) {
+                continue;
+            }
+            byte[] opcodes = opcodePorEndereco[p];
+            for (int i = 0; i < pagina.length; i++) {
+                totais[opcodes[i] & 0xFF] += pagina[i];
+            }
+        }
+        return totais;
+    }
+
+    /** Quantas vezes a instrução no endereço foi executada. */
+    public long getExecucoesNoEndereco(int pc) {
+        long[] pagina = pagina(porEndereco, pc);
+        return pagina == null ? 0 : pagina[pc & Memoria.MASCARA_PAGINA];
+    }
+
+    /** Opcode da instrução no endereço na última vez que ela foi executada, ou -1. */
+    public int getOpcodeNoEndereco(int pc) {
+        if (getExecucoesNoEndereco(pc) == 0) {
+            return -1;
+        }
+        return opcodePorEndereco[pc >>> Memoria.BITS_PAGINA][pc & Memoria.MASCARA_PAGINA] & 0xFF;
+    }
+
+    /** Desvios tomados de um opcode de desvio condicional (JEQ, JGT, JLT). */
+    public long getTomados(int opcode) {
+        return tomadosPorOpcode[opcode & 0xFF];
+    }
+
+    public long getNaoTomados(int opcode) {
+        return desvioCondicional(opcode) ? getExecucoes(opcode) - tomadosPorOpcode[opcode] : 0;
+    }
+
+    /** Desvios tomados pela instrução no endereço (0 se não for JEQ/JGT/JLT). */
+    public long getTomadosNoEndereco(int pc) {
+        long[] pagina = pagina(tomadosPorEndereco, pc);
+        return pagina == null ? 0 : pagina[pc & Memoria.MASCARA_PAGINA];
+    }
+
+    public long getNaoTomadosNoEndereco(int pc) {
+        return desvioCondicional(getOpcodeNoEndereco(pc))
+                ? getExecucoesNoEndereco(pc) - getTomadosNoEndereco(pc) : 0;
+    }
+
+    /** Ciclos simulados das instruções no endereço (ver {@link Maquina#setModeloCiclos}). */
+    public long getCiclosNoEndereco(int pc) {
+        long[] pagina = pagina(ciclosPorEndereco, pc);
+        return pagina == null ? 0 : pagina[pc & Memoria.MASCARA_PAGINA];
+    }
+
+    /** Ciclos simulados das instruções com endereço em [inicioByte, fimByte). */
+    public long getCiclos(int inicioByte, int fimByte) {
+        long total = 0;
+        for (int a = Math.max(0, inicioByte); a < fimByte; ) {
+            int p = a >>> Memoria.BITS_PAGINA;
+            if (p >= PAGINAS) {
+                break;
+            }
+            int fimPagina = Math.min(fimByte, (p + 1) << Memoria.BITS_PAGINA);
+            long[] pagina = ciclosPorEndereco[p];
+            if (pagina != null) {
+                for (int i = a & Memoria.MASCARA_PAGINA; i <= ((fimPagina - 1) & Memoria.MASCARA_PAGINA); i++) {
+                    total += pagina[i];
+                }
+            }
+            a = fimPagina;
+        }
+        return total;
+    }
+
+    /** Total de ciclos simulados. */
+    public long getCiclos() {
+        return getCiclos(0, PAGINAS << Memoria.BITS_PAGINA);
+    }
+
+    /** Número de regiões de {@value #TAMANHO_REGIAO} bytes; a região de um endereço é endereco / TAMANHO_REGIAO. */
+    public int getRegioes() {
+        return PAGINAS;
+    }
+
+    /** Leituras de dados (palavras ou bytes) na região. */
+    public long getLeituras(int regiao) {
+        return leituras[regiao];
+    }
+
+    /** Escritas de dados (palavras ou bytes) na região. */
+    public long getEscritas(int regiao) {
+        return escritas[regiao];
+    }
+
+    /** Os endereços de instrução mais executados, do mais para o menos executado. */
+    public int[] enderecosMaisExecutados(int quantidade) {
+        List<Integer> executados = new ArrayList<>();
+        for (int p = 0; p < PAGINAS; p++) {
+            long[] pagina = porEndereco[p];
+            if (pagina == null) {
+                continue;
+            }
+            for (int i = 0; i < pagina.length; i++) {
+                if (pagina[i] != 0) {
+                    executados.add((p << Memoria.BITS_PAGINA) | i);
+                }
+            }
+        }
+        executados.sort((a, b) -> Long.compare(getExecucoesNoEndereco(b), getExecucoesNoEndereco(a)));
+        int n = Math.min(quantidade, executados.size());
+        int[] resultado = new int[n];
+        for (int i = 0; i < n; i++) {
+            resultado[i] = executados.get(i);
+        }
+        return resultado;
+    }
+
+    // =========================
+    //  Relatório
+    // =========================
+
+    /** Relatório em texto: opcodes, os endereços mais executados e as regiões de memória usadas. */
+    public String relatorio(int linhasPorSecao) {
+        long[] porOpcode = totaisPorOpcode();
+        long instrucoes = 0;
+        for (long n : porOpcode) {
+            instrucoes += n;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Instruções executadas: %d%n", instrucoes));
+        long ciclos = getCiclos();
+        if (ciclos != 0) {
+            sb.append(String.format("Ciclos simulados: %d (%.2f por instrução)%n", ciclos, (double) ciclos / instrucoes));
+        }
+
+        sb.append(String.format("%n-- Por opcode --%n"));
+        List<Integer> opcodes = new ArrayList<>();
+        for (int op = 0; op < 256; op++) {
+            if (porOpcode[op] != 0) {
+                opcodes.add(op);
+            }
+        }
+        opcodes.sort((a, b) -> Long.compare(porOpcode[b], porOpcode[a]));
+        for (int i = 0; i < Math.min(linhasPorSecao, opcodes.size()); i++) {
+            int op = opcodes.get(i);
+            sb.append(String.format("%-7s %12d  %5.1f%%", nome(op), porOpcode[op], percentual(porOpcode[op], instrucoes)));
+            if (desvioCondicional(op)) {
+                sb.append(String.format("  tomados %d, não tomados %d",
+                        tomadosPorOpcode[op], porOpcode[op] - tomadosPorOpcode[op]));
+            }
+            sb.append(String.format("%n"));
+        }
+
+        sb.append(String.format("%n-- Endereços mais executados --%n"));
+        for (int pc : enderecosMaisExecutados(linhasPorSecao)) {
+            long n = getExecucoesNoEndereco(pc);
+            int op = getOpcodeNoEndereco(pc);
+            sb.append(String.format("%06X  %-7s %12d  %5.1f%%", pc, nome(op), n, percentual(n, instrucoes)));
+            if (desvioCondicional(op)) {
+                sb.append(String.format("  tomados %d, não tomados %d",
+                        getTomadosNoEndereco(pc), getNaoTomadosNoEndereco(pc)));
+            }
+            sb.append(String.format("%n"));
+        }
+
+        sb.append(String.format("%n-- Memória por região de %d bytes --%n", TAMANHO_REGIAO));
+        List<Integer> regioes = new ArrayList<>();
+        for (int r = 0; r < PAGINAS; r++) {
+            if (leituras[r] + escritas[r] != 0) {
+                regioes.add(r);
+            }
+        }
+        regioes.sort((a, b) -> Long.compare(leituras[b] + escritas[b], leituras[a] + escritas[a]));
+        for (int i = 0; i < Math.min(linhasPorSecao, regioes.size()); i++) {
+            int r = regioes.get(i);
+            sb.append(String.format("%06X-%06X  leituras %12d  escritas %12d%n",
+                    r * TAMANHO_REGIAO, (r + 1) * TAMANHO_REGIAO - 1, leituras[r], escritas[r]));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return relatorio(10);
+    }
+
+    private static double percentual(long n, long total) {
+        return total == 0 ? 0 : 100.0 * n / total;
+    }
+
+    private static long[] pagina(long[][] paginas, int endereco) {
+        int p = endereco >>> Memoria.BITS_PAGINA;
+        return p < paginas.length ? paginas[p] : null;
+    }
+
+    static boolean desvioCondicional(int opcode) {
+        return opcode == Opcode.JEQ || opcode == Opcode.JGT || opcode == Opcode.JLT;
+    }
+
+    /** Mnemônico do opcode, tirado de {@link DescritorOpcode}. */
+    static String nome(int opcode) {
+        DescritorOpcode descritor = DescritorOpcode.de(opcode);
+        return descritor != null && descritor.opcode == opcode
+                ? descritor.mnemonico : String.format("0x%02X", opcode);
+    }
+}
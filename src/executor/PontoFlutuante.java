@@ -0,0 +1,52 @@
+package executor;
+
+/**
+ * Conversão entre o formato de ponto flutuante do SIC/XE (48 bits) e double.
+ *
+ * Bit 47 é o sinal, bits 46..36 o expoente com excesso de 1024 e bits 35..0
+ * a fração: o valor é 0.fração × 2^(expoente - 1024), com o bit mais alto da
+ * fração ligado (normalizado) ou tudo zero. As operações são feitas em
+ * double, que tem mais precisão que os 36 bits da fração, e o resultado é
+ * truncado de volta.
+ */
+final class PontoFlutuante {
+
+    private static final int BITS_FRACAO = 36;
+    private static final long MASCARA_FRACAO = (1L << BITS_FRACAO) - 1;
+    private static final int EXCESSO = 1024;
+    private static final int EXPOENTE_MAXIMO = 2047;
+
+    private PontoFlutuante() {
+    }
+
+    static double paraDouble(long valor) {
+        long fracao = valor & MASCARA_FRACAO;
+        if (fracao == 0) {
+            return 0.0;
+        }
+        int expoente = (int) (valor >>> BITS_FRACAO) & EXPOENTE_MAXIMO;
+        double modulo = Math.scalb((double) fracao, expoente - EXCESSO - BITS_FRACAO);
+        return (valor >>> 47 & 1) != 0 ? -modulo : modulo;
+    }
+
+    /** Valor normalizado e truncado; estouro lança ArithmeticException, valores pequenos demais viram zero. */
+    static long deDouble(double valor) {
+        if (Double.isNaN(valor) || Double.isInfinite(valor)) {
+            throw new ArithmeticException("Estouro de ponto flutuante");
+        }
+        if (valor == 0) {
+            return 0;
+        }
+        double modulo = Math.abs(valor);
+        int expoente = Math.getExponent(modulo) + 1 + EXCESSO; // modulo = 0.1xxx × 2^(expoente - 1024)
+        if (expoente > EXPOENTE_MAXIMO) {
+            throw new ArithmeticException("Estouro de ponto flutuante");
+        }
+        long fracao = (long) Math.scalb(modulo, BITS_FRACAO - (expoente - EXCESSO));
+        if (expoente < 0 || fracao >>> (BITS_FRACAO - 1) == 0) {
+            return 0; // abaixo do menor valor normalizado
+        }
+        long sinal = valor < 0 ? 1L << 47 : 0;
+        return sinal | (long) expoente << BITS_FRACAO | fracao;
+    }
+}
@@ -0,0 +1,242 @@
+package executor;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pontos de parada de uma {@link Maquina}: endereços de instrução, trechos de
+ * memória observados (leitura e/ou escrita) e condições sobre a CPU.
+ *
+ * Os endereços de instrução ficam num {@link BitSet} consultado depois de
+ * cada passo; um endereço pode ter uma {@link CondicaoParada}, avaliada só
+ * quando o PC chega nele. Os trechos observados ficam em outros dois
+ * BitSets, que a {@link Memoria} consulta nos seus acessos durante a
+ * execução. Condições sem endereço são avaliadas a cada passo.
+ *
+ * A execução para depois da instrução que disparou o ponto: num ponto de
+ * parada, o PC fica no endereço marcado, antes de executá-lo; numa
+ * observação, logo depois da instrução que leu ou escreveu. Chamar
+ * {@link Maquina#executar} de novo continua dali. Um ponto no PC em que a
+ * execução começa (o de entrada, por exemplo) para antes do primeiro passo,
+ * a não ser que a execução anterior tenha parado nesse mesmo ponto.
+ *
+ * Com algum ponto ativo a máquina usa o interpretador; sem nenhum, o custo
+ * é zero.
+ */
+public final class PontosParada {
+
+    private static final CondicaoParada[] SEM_CONDICOES = new CondicaoParada[0];
+
+    private final BitSet enderecos = new BitSet();
+    private final Map<Integer, CondicaoParada> condicoesPorEndereco = new HashMap<>();
+    private final BitSet observadosLeitura = new BitSet();
+    private final BitSet observadosEscrita = new BitSet();
+    private CondicaoParada[] condicoes = SEM_CONDICOES;
+    private boolean habilitados = true;
+
+    // último acesso observado
+    private boolean acessoPendente;
+    private int enderecoAcessado = -1;
+    private boolean acessoFoiEscrita;
+
+    // PC em que a última execução (ou passo) deixou a máquina; a próxima sai dele sem parar
+    private int pcParado = -1;
+
+    // =========================
+    //  Pontos de parada
+    // =========================
+
+    /** Para quando o PC chegar ao endereço. */
+    public void adicionar(int enderecoByte) {
+        enderecos.set(enderecoByte);
+        condicoesPorEndereco.remove(enderecoByte);
+    }
+
+    /** Para quando o PC chegar ao endereço e a condição valer. */
+    public void adicionar(int enderecoByte, CondicaoParada condicao) {
+        enderecos.set(enderecoByte);
+        condicoesPorEndereco.put(enderecoByte, condicao);
+    }
+
+    public void remover(int enderecoByte) {
+        enderecos.clear(enderecoByte);
+        condicoesPorEndereco.remove(enderecoByte);
+    }
+
+    public boolean contem(int enderecoByte) {
+        return enderecos.get(enderecoByte);
+    }
+
+    /** Condição do ponto no endereço, ou null se ele é incondicional (ou não existe). */
+    public CondicaoParada getCondicao(int enderecoByte) {
+        return condicoesPorEndereco.get(enderecoByte);
+    }
+
+    /** Endereços com ponto de parada, em ordem crescente. */
+    public int[] getEnderecos() {
+        return enderecos.stream().toArray();
+    }
+
+    // =========================
+    //  Observação de memória
+    // =========================
+
+    /** Para depois de qualquer instrução que leia algum byte do trecho. */
+    public void observarLeitura(int enderecoByte, int quantidadeBytes) {
+        observadosLeitura.set(enderecoByte, enderecoByte + quantidadeBytes);
+    }
+
+    /** Para depois de qualquer instrução que escreva algum byte do trecho. */
+    public void observarEscrita(int enderecoByte, int quantidadeBytes) {
+        observadosEscrita.set(enderecoByte, enderecoByte + quantidadeBytes);
+    }
+
+    public void pararDeObservar(int enderecoByte, int quantidadeBytes) {
+        observadosLeitura.clear(enderecoByte, enderecoByte + quantidadeBytes);
+        observadosEscrita.clear(enderecoByte, enderecoByte + quantidadeBytes);
+    }
+
+    public boolean observaLeitura(int enderecoByte) {
+        return observadosLeitura.get(enderecoByte);
+    }
+
+    public boolean observaEscrita(int enderecoByte) {
+        return observadosEscrita.get(enderecoByte);
+    }
+
+    /** Primeiro byte observado tocado pela última parada por observação, ou -1. */
+    public int getEnderecoAcessado() {
+        return enderecoAcessado;
+    }
+
+    /** Se o último acesso observado foi uma escrita (senão, leitura). */
+    public boolean isAcessoEscrita() {
+        return acessoFoiEscrita;
+    }
+
+    // =========================
+    //  Condições
+    // =========================
+
+    /** Para depois de qualquer passo em que a condição valer. */
+    public void adicionarCondicao(CondicaoParada condicao) {
+        condicoes = Arrays.copyOf(condicoes, condicoes.length + 1);
+        condicoes[condicoes.length - 1] = condicao;
+    }
+
+    public void removerCondicao(CondicaoParada condicao) {
+        for (int i = 0; i < condicoes.length; i++) {
+            if (condicoes[i] == condicao) {
+                CondicaoParada[] novas = new CondicaoParada[condicoes.length - 1];
+                System.arraycopy(condicoes, 0, novas, 0, i);
+                System.arraycopy(condicoes, i + 1, novas, i, novas.length - i);
+                condicoes = novas;
+                return;
+            }
+        }
+    }
+
+    // =========================
+    //  Geral
+    // =========================
+
+    /** Remove todos os pontos, observações e condições. */
+    public void limpar() {
+        enderecos.clear();
+        condicoesPorEndereco.clear();
+        observadosLeitura.clear();
+        observadosEscrita.clear();
+        condicoes = SEM_CONDICOES;
+    }
+
+    /** Desabilitados, os pontos continuam guardados mas não param a execução. */
+    public void setHabilitados(boolean habilitados) {
+        this.habilitados = habilitados;
+    }
+
+    public boolean isHabilitados() {
+        return habilitados;
+    }
+
+    /** true se há algo a verificar durante a execução. */
+    boolean ativos() {
+        return habilitados && (!enderecos.isEmpty() || condicoes.length != 0
+                || !observadosLeitura.isEmpty() || !observadosEscrita.isEmpty());
+    }
+
+    /** Liga a observação na memória para uma execução (e {@link #desligar} depois). */
+    void ligar(Memoria memoria) {
+        acessoPendente = false;
+        memoria.observar(observadosLeitura.isEmpty() ? null : observadosLeitura,
+                observadosEscrita.isEmpty() ? null : observadosEscrita,
+                this::aoAcessar);
+    }
+
+    void desligar(Memoria memoria) {
+        memoria.observar(null, null, null);
+    }
+
+    private void aoAcessar(int enderecoByte, boolean escrita) {
+        if (!acessoPendente) {
+            acessoPendente = true;
+            enderecoAcessado = enderecoByte;
+            acessoFoiEscrita = escrita;
+        }
+    }
+
+    /**
+     * Chamado antes do primeiro passo de uma execução: o ponto de parada no
+     * PC atual, salvo se a execução anterior deixou a máquina nele (então
+     * está saindo dele).
+     */
+    MotivoParada verificarPartida(CPU cpu) {
+        int pc = cpu.ler(CPU.COD_PC);
+        boolean retomando = pc == pcParado;
+        pcParado = -1;
+        return retomando ? null : verificarEndereco(pc, cpu);
+    }
+
+    /**
+     * Chamado ao fim de toda execução, passo ou volta, com os pontos de
+     * parada ativos ou não: um passo com eles desabilitados que cai num
+     * ponto de parada também não faz a execução seguinte parar ali sem andar.
+     */
+    void terminarExecucao(CPU cpu) {
+        pcParado = cpu.ler(CPU.COD_PC);
+    }
+
+    /** O estado foi trocado fora de uma execução: o ponto de parada no PC volta a valer na partida. */
+    void esquecerTermino() {
+        pcParado = -1;
+    }
+
+    /** Chamado depois de cada passo; devolve o motivo se a execução deve parar. */
+    MotivoParada verificar(CPU cpu) {
+        if (acessoPendente) {
+            acessoPendente = false;
+            return MotivoParada.MEMORIA_OBSERVADA;
+        }
+        MotivoParada parada = verificarEndereco(cpu.ler(CPU.COD_PC), cpu);
+        if (parada != null) {
+            return parada;
+        }
+        for (CondicaoParada condicao : condicoes) {
+            if (condicao.avaliar(cpu)) {
+                return MotivoParada.CONDICAO_DE_PARADA;
+            }
+        }
+        return null;
+    }
+
+    private MotivoParada verificarEndereco(int pc, CPU cpu) {
+        if (enderecos.get(pc)) {
+            CondicaoParada condicao = condicoesPorEndereco.get(pc);
+            if (condicao == null || condicao.avaliar(cpu)) {
+                return MotivoParada.PONTO_DE_PARADA;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,250 @@
+package executor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gravador de rastro de execução, ligado com {@link Maquina#setRastreador}.
+ *
+ * A cada passo a Maquina acrescenta um registro de tamanho fixo
+ * ({@value #CAMPOS} ints: PC, opcode, endereço efetivo, registradores e CC
+ * depois do passo, e os bytes escritos na memória, se houve) num anel
+ * pré-alocado. Uma thread de fundo esvazia o anel e grava no arquivo só o
+ * que mudou em relação ao registro anterior, em varints, por um
+ * {@link FileChannel}. O anel tem um único produtor (a thread que executa a
+ * máquina) e um único consumidor, então basta um par de contadores atômicos.
+ * Se o anel enche, quem executa espera o gravador.
+ *
+ * O arquivo é lido de volta por {@link LeitorRastro}.
+ */
+public final class Rastreador implements AutoCloseable {
+
+    static final int MAGICO = 0x53585254; // "SXRT"
+    static final int VERSAO = 2;
+
+    // campos de um registro no anel
+    static final int CAMPO_PC = 0;
+    static final int CAMPO_OPCODE = 1;
+    static final int CAMPO_EA = 2;           // -1 se a instrução não calcula endereço
+    static final int CAMPO_REG0 = 3;         // A..T em 3..8
+    static final int CAMPO_PC_DEPOIS = 9;
+    static final int CAMPO_CC = 10;
+    static final int CAMPO_MEM_ENDERECO = 11;
+    static final int CAMPO_MEM_BYTES = 12;   // 0 = sem escrita neste passo
+    static final int CAMPO_MEM_VALOR = 13;   // 32 bits baixos dos bytes escritos
+    static final int CAMPO_MEM_VALOR_ALTO = 14;
+    static final int CAMPOS = 15;
+
+    /** Quantos bytes escritos num passo cabem num registro (STF escreve 6). */
+    static final int MAX_BYTES_ESCRITOS = 8;
+
+    // bits da máscara gravada no arquivo
+    static final int MUDOU_OPCODE = 1;
+    static final int MUDOU_EA = 1 << 1;
+    static final int MUDOU_REG0 = 1 << 2;    // A..T nos bits 2..7
+    static final int MUDOU_CC = 1 << 8;
+    static final int ESCREVEU_MEMORIA = 1 << 9;
+
+    private static final int CAPACIDADE_PADRAO = 1 << 16;
+    private static final int TAMANHO_BUFFER_ARQUIVO = 64 * 1024;
+    private static final int LIBERAR_A_CADA = 1024; // o gravador devolve espaço no anel a cada tantos registros
+
+    private final int[] anel;
+    private final int mascaraAnel;
+    private final AtomicLong escritos = new AtomicLong(); // só o produtor incrementa
+    private final AtomicLong lidos = new AtomicLong();    // só o gravador incrementa
+    private long lidosConhecidos;                         // cópia do produtor, para não ler o atômico sempre
+
+    private final FileChannel canal;
+    private final Thread gravador;
+    private volatile boolean fechando;
+    private volatile IOException falha;
+
+    public Rastreador(Path arquivo) throws IOException {
+        this(arquivo, CAPACIDADE_PADRAO);
+    }
+
+    /** @param capacidadeRegistros tamanho do anel em registros (arredondado para potência de 2) */
+    public Rastreador(Path arquivo, int capacidadeRegistros) throws IOException {
+        int capacidade = Integer.highestOneBit(Math.max(2, capacidadeRegistros - 1)) << 1;
+        this.anel = new int[capacidade * CAMPOS];
+        this.mascaraAnel = capacidade - 1;
+        this.canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.gravador = new Thread(this::gravar, "sicxe-rastro");
+        this.gravador.setDaemon(true);
+        this.gravador.start();
+    }
+
+    /** Quantos passos já foram registrados. */
+    public long getRegistros() {
+        return escritos.get();
+    }
+
+    // =========================
+    //  Produtor (thread da máquina)
+    // =========================
+
+    /** Chamado pela Maquina depois de cada passo. */
+    void registrar(int pc, int opcode, int enderecoEfetivo, int[] banco, int cc,
+                   int enderecoEscrito, int bytesEscritos, long valorEscrito) {
+        long n = escritos.get();
+        if (n - lidosConhecidos > mascaraAnel) {
+            esperarEspaco(n);
+        }
+        int i = (int) (n & mascaraAnel) * CAMPOS;
+        int[] r = anel;
+        r[i + CAMPO_PC] = pc;
+        r[i + CAMPO_OPCODE] = opcode;
+        r[i + CAMPO_EA] = enderecoEfetivo;
+        for (int k = CPU.COD_A; k <= CPU.COD_T; k++) {
+            r[i + CAMPO_REG0 + k] = banco[k];
+        }
+        r[i + CAMPO_PC_DEPOIS] = banco[CPU.COD_PC];
+        r[i + CAMPO_CC] = cc;
+        r[i + CAMPO_MEM_ENDERECO] = enderecoEscrito;
+        r[i + CAMPO_MEM_BYTES] = bytesEscritos;
+        r[i + CAMPO_MEM_VALOR] = (int) valorEscrito;
+        r[i + CAMPO_MEM_VALOR_ALTO] = (int) (valorEscrito >>> 32);
+        escritos.lazySet(n + 1); // publica o registro
+    }
+
+    private void esperarEspaco(long n) {
+        while (n - (lidosConhecidos = lidos.get()) > mascaraAnel) {
+            if (falha != null) {
+                throw new UncheckedIOException("Falha gravando o rastro", falha);
+            }
+            if (!gravador.isAlive()) {
+                throw new IllegalStateException("Rastreador já fechado");
+            }
+            LockSupport.parkNanos(10_000);
+        }
+    }
+
+    // =========================
+    //  Consumidor (thread do gravador)
+    // =========================
+
+    private void gravar() {
+        ByteBuffer saida = ByteBuffer.allocateDirect(TAMANHO_BUFFER_ARQUIVO);
+        int[] anterior = new int[CAMPOS];
+        anterior[CAMPO_EA] = -1;
+        long lidosLocal = 0;
+        try {
+            saida.putInt(MAGICO).put((byte) VERSAO);
+            while (true) {
+                long disponiveis = escritos.get();
+                if (disponiveis == lidosLocal) {
+                    if (fechando && escritos.get() == lidosLocal) {
+                        break;
+                    }
+                    LockSupport.parkNanos(50_000);
+                    continue;
+                }
+                while (lidosLocal < disponiveis) {
+                    if (saida.remaining() < CAMPOS * 5 + 4) {
+                        descarregar(saida);
+                    }
+                    codificar(saida, (int) (lidosLocal & mascaraAnel) * CAMPOS, anterior);
+                    lidosLocal++;
+                    if ((lidosLocal & (LIBERAR_A_CADA - 1)) == 0) {
+                        lidos.lazySet(lidosLocal);
+                    }
+                }
+                lidos.lazySet(lidosLocal);
+            }
+            descarregar(saida);
+        } catch (IOException e) {
+            falha = e;
+        }
+    }
+
+    /** Grava o registro em i como diferença para o anterior, que é atualizado. */
+    private void codificar(ByteBuffer saida, int i, int[] anterior) {
+        int[] r = anel;
+        int mascara = 0;
+        if (r[i + CAMPO_OPCODE] != anterior[CAMPO_OPCODE]) mascara |= MUDOU_OPCODE;
+        if (r[i + CAMPO_EA] != anterior[CAMPO_EA]) mascara |= MUDOU_EA;
+        for (int k = CPU.COD_A; k <= CPU.COD_T; k++) {
+            if (r[i + CAMPO_REG0 + k] != anterior[CAMPO_REG0 + k]) mascara |= MUDOU_REG0 << k;
+        }
+        if (r[i + CAMPO_CC] != anterior[CAMPO_CC]) mascara |= MUDOU_CC;
+        if (r[i + CAMPO_MEM_BYTES] != 0) mascara |= ESCREVEU_MEMORIA;
+
+        escreverVarint(saida, mascara);
+        escreverVarint(saida, zigzag(r[i + CAMPO_PC] - anterior[CAMPO_PC_DEPOIS]));
+        escreverVarint(saida, zigzag(r[i + CAMPO_PC_DEPOIS] - r[i + CAMPO_PC]));
+        if ((mascara & MUDOU_OPCODE) != 0) saida.put((byte) r[i + CAMPO_OPCODE]);
+        if ((mascara & MUDOU_EA) != 0) escreverVarint(saida, zigzag(r[i + CAMPO_EA] - anterior[CAMPO_EA]));
+        for (int k = CPU.COD_A; k <= CPU.COD_T; k++) {
+            if ((mascara & (MUDOU_REG0 << k)) != 0) {
+                escreverVarint(saida, zigzag(r[i + CAMPO_REG0 + k] - anterior[CAMPO_REG0 + k]));
+            }
+        }
+        if ((mascara & MUDOU_CC) != 0) saida.put((byte) r[i + CAMPO_CC]);
+        if ((mascara & ESCREVEU_MEMORIA) != 0) {
+            escreverVarint(saida, zigzag(r[i + CAMPO_MEM_ENDERECO] - anterior[CAMPO_MEM_ENDERECO]));
+            int bytes = r[i + CAMPO_MEM_BYTES];
+            long valor = ((long) r[i + CAMPO_MEM_VALOR_ALTO] << 32) | (r[i + CAMPO_MEM_VALOR] & 0xFFFFFFFFL);
+            saida.put((byte) bytes);
+            for (int k = bytes - 1; k >= 0; k--) {
+                saida.put((byte) (valor >>> (8 * k)));
+            }
+            anterior[CAMPO_MEM_ENDERECO] = r[i + CAMPO_MEM_ENDERECO];
+        }
+
+        anterior[CAMPO_PC] = r[i + CAMPO_PC];
+        anterior[CAMPO_OPCODE] = r[i + CAMPO_OPCODE];
+        anterior[CAMPO_EA] = r[i + CAMPO_EA];
+        System.arraycopy(r, i + CAMPO_REG0, anterior, CAMPO_REG0, CPU.COD_T + 1);
+        anterior[CAMPO_PC_DEPOIS] = r[i + CAMPO_PC_DEPOIS];
+        anterior[CAMPO_CC] = r[i + CAMPO_CC];
+    }
+
+    private void descarregar(ByteBuffer saida) throws IOException {
+        saida.flip();
+        while (saida.hasRemaining()) {
+            canal.write(saida);
+        }
+        saida.clear();
+    }
+
+    static int zigzag(int v) {
+        return (v << 1) ^ (v >> 31);
+    }
+
+    static int deszigzag(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void escreverVarint(ByteBuffer saida, int v) {
+        while ((v & ~0x7F) != 0) {
+            saida.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        saida.put((byte) v);
+    }
+
+    /** Espera o gravador esvaziar o anel e fecha o arquivo. */
+    @Override
+    public void close() throws IOException {
+        fechando = true;
+        LockSupport.unpark(gravador);
+        try {
+            gravador.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            canal.close();
+        }
+        if (falha != null) {
+            throw falha;
+        }
+    }
+}
@@ -1,15 +1,20 @@
 package executor;
 
+/**
+ * Visão de um registrador da CPU. O valor mora no banco de registradores da
+ * {@link CPU}; esta classe existe para a interface gráfica e para quem
+ * prefere acessar os registradores pelo nome.
+ */
 public class Registrador {
 
     private final String nome;
     private final int codigo;
-    private int valor24bits;
+    private final CPU cpu;
 
-    public Registrador(String nome, int codigo) {
+    Registrador(String nome, int codigo, CPU cpu) {
         this.nome = nome;
         this.codigo = codigo;
-        this.valor24bits = 0;
+        this.cpu = cpu;
     }
 
     public String getNome() {
@@ -21,24 +26,30 @@ public class Registrador {
     }
 
     public int getValor() {
-        int v = valor24bits & 0xFFFFFF;
-        // se o bit de sinal (bit 23) estiver 1, estende o sinal para 32 bits
-        if ((v & 0x800000) != 0) {
-            v |= 0xFF000000;
+        if (codigo == CPU.COD_SW) {
+            return cpu.getCC();
         }
-        return v;
+        return cpu.lerComSinal(codigo);
     }
 
     public int getValorUnsigned() {
-        return valor24bits & 0xFFFFFF;
+        if (codigo == CPU.COD_SW) {
+            return cpu.getCC() & 0xFFFFFF;
+        }
+        return cpu.ler(codigo);
     }
 
     public void setValor(int novoValor) {
-        this.valor24bits = novoValor & 0xFFFFFF;
+        if (codigo == CPU.COD_SW) {
+            // estende o sinal de 24 bits para que -1 continue sendo "menor"
+            cpu.setCCFromCompare((novoValor << 8) >> 8);
+            return;
+        }
+        cpu.escrever(codigo, novoValor);
     }
 
     public void limpar() {
-        this.valor24bits = 0;
+        setValor(0);
     }
 
     @Override
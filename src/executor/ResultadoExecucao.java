@@ -0,0 +1,51 @@
+package executor;
+
+public class ResultadoExecucao {
+
+    private final MotivoParada motivo;
+    private final long passosExecutados;
+    private final long nanosDecorridos;
+    private final long ciclos;
+
+    public ResultadoExecucao(MotivoParada motivo, long passosExecutados, long nanosDecorridos) {
+        this(motivo, passosExecutados, nanosDecorridos, 0);
+    }
+
+    public ResultadoExecucao(MotivoParada motivo, long passosExecutados, long nanosDecorridos, long ciclos) {
+        this.motivo = motivo;
+        this.passosExecutados = passosExecutados;
+        this.nanosDecorridos = nanosDecorridos;
+        this.ciclos = ciclos;
+    }
+
+    public MotivoParada getMotivo() {
+        return motivo;
+    }
+
+    public long getPassosExecutados() {
+        return passosExecutados;
+    }
+
+    public long getNanosDecorridos() {
+        return nanosDecorridos;
+    }
+
+    /**
+     * Ciclos simulados nesta execução, pelo {@link ModeloCiclos} da máquina
+     * (0 sem modelo; negativo ao voltar com {@link Maquina#voltar}).
+     */
+    public long getCiclos() {
+        return ciclos;
+    }
+
+    /** true se o programa chegou ao fim (J * ou RSUB com L = 0). */
+    public boolean terminou() {
+        return motivo == MotivoParada.LACO_DE_PARADA || motivo == MotivoParada.RETORNO_COM_L_ZERO;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s após %d passos (%.3f ms)",
+                motivo, passosExecutados, nanosDecorridos / 1_000_000.0);
+    }
+}
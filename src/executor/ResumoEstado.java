@@ -0,0 +1,200 @@
+package executor;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Resumo (hash de 64 bits) do estado de uma {@link Maquina}, obtido com
+ * {@link Maquina#resumir()}: duas máquinas com o mesmo resumo têm, salvo
+ * colisão, os mesmos registradores, F, CC e memória. Ciclos e passos não
+ * entram.
+ *
+ * A memória é resumida numa árvore de Merkle: cada folha é o hash de uma
+ * página de {@value Memoria#TAMANHO_PAGINA} bytes e cada nó interno combina
+ * os dois filhos. O resumo final combina a raiz com o hash dos
+ * registradores. Só as páginas que mudaram desde o resumo anterior são
+ * lidas: uma página não escrita entre duas capturas continua sendo a mesma
+ * instância (copy-on-write, ver {@link Memoria#capturar()}), e a folha e os
+ * nós acima dela são copiados do resumo anterior.
+ *
+ * {@link #diferencas} desce só pelos nós que diferem, então localiza as
+ * páginas diferentes em tempo logarítmico por página, e só compara bytes
+ * dentro delas. O hash não é criptográfico; serve para comparar execuções,
+ * não para resistir a quem fabrica colisões.
+ */
+public final class ResumoEstado {
+
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long SEMENTE = 0x9E3779B97F4A7C15L;
+    private static final long M1 = 0xBF58476D1CE4E5B9L;
+    private static final long M2 = 0x94D049BB133111EBL;
+
+    private static final long RESUMO_PAGINA_VAZIA = resumirPagina(new byte[Memoria.TAMANHO_PAGINA]);
+
+    private final Instantaneo estado;
+    private final long[] arvore;   // nó k tem filhos 2k e 2k+1; folhas a partir de folhas()
+    private final long registradores;
+    private final long valor;
+
+    private ResumoEstado(Instantaneo estado, long[] arvore, long registradores) {
+        this.estado = estado;
+        this.arvore = arvore;
+        this.registradores = registradores;
+        this.valor = combinar(registradores, arvore[1]);
+    }
+
+    /**
+     * Resume o instantâneo reaproveitando as páginas que ele divide com o
+     * instantâneo de {@code anterior} (que pode ser null).
+     */
+    static ResumoEstado de(Instantaneo estado, ResumoEstado anterior) {
+        Memoria.Imagem imagem = estado.memoria;
+        int paginas = imagem.getNumPaginas();
+        int folhas = Integer.highestOneBit(Math.max(1, paginas * 2 - 1));
+
+        long[] arvore;
+        if (anterior != null && anterior.estado.memoria.getNumPaginas() == paginas) {
+            Memoria.Imagem antes = anterior.estado.memoria;
+            arvore = anterior.arvore.clone();
+            for (int i = 0; i < paginas; i++) {
+                if (imagem.pagina(i) == antes.pagina(i)) {
+                    continue;
+                }
+                int k = folhas + i;
+                long h = resumirPagina(imagem, i);
+                if (arvore[k] == h) {
+                    continue;
+                }
+                arvore[k] = h;
+                for (k >>>= 1; k >= 1; k >>>= 1) {
+                    arvore[k] = combinar(arvore[2 * k], arvore[2 * k + 1]);
+                }
+            }
+        } else {
+            arvore = new long[2 * folhas];
+            for (int i = 0; i < paginas; i++) {
+                arvore[folhas + i] = resumirPagina(imagem, i);
+            }
+            for (int k = folhas - 1; k >= 1; k--) {
+                arvore[k] = combinar(arvore[2 * k], arvore[2 * k + 1]);
+            }
+        }
+        return new ResumoEstado(estado, arvore, resumirRegistradores(estado));
+    }
+
+    /** O resumo do estado inteiro. */
+    public long getValor() {
+        return valor;
+    }
+
+    /** Só a raiz da árvore da memória. */
+    public long getValorMemoria() {
+        return arvore[1];
+    }
+
+    /** Só registradores, F e CC. */
+    public long getValorRegistradores() {
+        return registradores;
+    }
+
+    /** O estado resumido; pode ser restaurado com {@link Maquina#restaurar(Instantaneo)}. */
+    public Instantaneo getInstantaneo() {
+        return estado;
+    }
+
+    /**
+     * O que difere entre este estado e {@code outro}: registradores e, na
+     * memória, um trecho por página diferente (do primeiro ao último byte que
+     * difere). As duas máquinas precisam ter memórias do mesmo tamanho.
+     */
+    public DiferencaEstado diferencas(ResumoEstado outro) {
+        if (outro.arvore.length != arvore.length
+                || outro.estado.memoria.getNumPaginas() != estado.memoria.getNumPaginas()) {
+            throw new IllegalArgumentException("Estados de memórias de tamanhos diferentes.");
+        }
+        int registradoresDiferentes = 0;
+        if (outro.registradores != registradores) {
+            for (int r = 0; r < estado.registradores.length; r++) {
+                if (estado.registradores[r] != outro.estado.registradores[r]) {
+                    registradoresDiferentes |= 1 << r;
+                }
+            }
+            if (estado.f != outro.estado.f) {
+                registradoresDiferentes |= DiferencaEstado.BIT_F;
+            }
+            if (estado.getCC() != outro.estado.getCC()) {
+                registradoresDiferentes |= DiferencaEstado.BIT_CC;
+            }
+        }
+        DiferencaEstado.Construtor trechos = new DiferencaEstado.Construtor();
+        if (outro.arvore[1] != arvore[1]) {
+            descer(1, outro, trechos);
+        }
+        return trechos.construir(registradoresDiferentes);
+    }
+
+    private void descer(int k, ResumoEstado outro, DiferencaEstado.Construtor trechos) {
+        if (arvore[k] == outro.arvore[k]) {
+            return;
+        }
+        int folhas = arvore.length / 2;
+        if (k >= folhas) {
+            int pagina = k - folhas;
+            if (pagina < estado.memoria.getNumPaginas()) {
+                estado.memoria.compararPagina(pagina, outro.estado.memoria, trechos);
+            }
+            return;
+        }
+        descer(2 * k, outro, trechos);
+        descer(2 * k + 1, outro, trechos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016X", valor);
+    }
+
+    // =========================
+    //  Hashes
+    // =========================
+
+    private static long resumirPagina(Memoria.Imagem imagem, int i) {
+        return imagem.paginaVazia(i) ? RESUMO_PAGINA_VAZIA : resumirPagina(imagem.pagina(i));
+    }
+
+    /** Os {@value Memoria#TAMANHO_PAGINA} bytes da página, 8 de cada vez (a folga fica de fora). */
+    private static long resumirPagina(byte[] pagina) {
+        long h = SEMENTE;
+        for (int k = 0; k < Memoria.TAMANHO_PAGINA; k += 8) {
+            h = Long.rotateLeft(h ^ ((long) LONG_LE.get(pagina, k) * M1), 31) * M2;
+        }
+        return misturar(h);
+    }
+
+    private static long resumirRegistradores(Instantaneo estado) {
+        long h = SEMENTE;
+        for (int r : estado.registradores) {
+            h = Long.rotateLeft(h ^ (r * M1), 31) * M2;
+        }
+        h = Long.rotateLeft(h ^ (estado.f * M1), 31) * M2;
+        h = Long.rotateLeft(h ^ (estado.getCC() * M1), 31) * M2;
+        return misturar(h);
+    }
+
+    /** Não comutativo: trocar os filhos muda o pai. */
+    private static long combinar(long esquerda, long direita) {
+        return misturar(esquerda * M1 + Long.rotateLeft(direita, 29) + SEMENTE);
+    }
+
+    /** Finalização do MurmurHash3 (64 bits). */
+    private static long misturar(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
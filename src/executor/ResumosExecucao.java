@@ -0,0 +1,167 @@
+package executor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Resumos do estado ({@link ResumoEstado#getValor()}) a cada N passos de uma
+ * execução: no início, a cada intervalo e onde o programa parou. Gravados
+ * contra uma execução de referência (ou lidos do arquivo dela), localizam a
+ * primeira janela de passos em que as duas divergem sem comparar rastros; o
+ * estado no fim dessa janela, resumido nas duas máquinas, diz com
+ * {@link ResumoEstado#diferencas} quais registradores e trechos de memória
+ * diferem.
+ *
+ * O arquivo tem uma linha por resumo, "passo resumo" (decimal e 16 dígitos
+ * hexadecimais); linhas começando com '#' são comentários.
+ */
+public final class ResumosExecucao {
+
+    private final long intervalo;
+    private long[] passos = new long[64];
+    private long[] valores = new long[64];
+    private int quantidade;
+    private ResultadoExecucao resultado;
+    private ResumoEstado ultimo;
+
+    private ResumosExecucao(long intervalo) {
+        if (intervalo <= 0) {
+            throw new IllegalArgumentException("Intervalo deve ser positivo: " + intervalo);
+        }
+        this.intervalo = intervalo;
+    }
+
+    /**
+     * Executa até o programa parar ou até maxPassos, resumindo o estado a
+     * cada {@code intervalo} passos. Entre um resumo e outro a execução é uma
+     * chamada normal a {@link Maquina#executar(long)}, no motor da máquina.
+     */
+    public static ResumosExecucao gravar(Maquina maquina, long intervalo, long maxPassos) {
+        ResumosExecucao r = new ResumosExecucao(intervalo);
+        long inicio = System.nanoTime();
+        long feitos = 0;
+        long ciclos = 0;
+        MotivoParada motivo = MotivoParada.LIMITE_DE_PASSOS;
+
+        r.ultimo = maquina.resumir();
+        r.acrescentar(0, r.ultimo.getValor());
+        while (feitos < maxPassos) {
+            ResultadoExecucao parcial = maquina.executar(Math.min(intervalo, maxPassos - feitos));
+            feitos += parcial.getPassosExecutados();
+            ciclos += parcial.getCiclos();
+            r.ultimo = maquina.resumir();
+            r.acrescentar(feitos, r.ultimo.getValor());
+            if (parcial.getMotivo() != MotivoParada.LIMITE_DE_PASSOS) {
+                motivo = parcial.getMotivo();
+                break;
+            }
+        }
+        r.resultado = new ResultadoExecucao(motivo, feitos, System.nanoTime() - inicio, ciclos);
+        return r;
+    }
+
+    /** Lê resumos gravados com {@link #escrever}; o intervalo é o passo do segundo resumo. */
+    public static ResumosExecucao ler(Path arquivo) throws IOException {
+        long[] ps = new long[64];
+        long[] vs = new long[64];
+        int n = 0;
+        int linha = 0;
+        try (BufferedReader leitor = Files.newBufferedReader(arquivo, StandardCharsets.US_ASCII)) {
+            for (String texto; (texto = leitor.readLine()) != null; ) {
+                linha++;
+                texto = texto.trim();
+                if (texto.isEmpty() || texto.startsWith("#")) {
+                    continue;
+                }
+                int espaco = texto.indexOf(' ');
+                try {
+                    if (espaco < 0) {
+                        throw new NumberFormatException();
+                    }
+                    if (n == ps.length) {
+                        ps = Arrays.copyOf(ps, n * 2);
+                        vs = Arrays.copyOf(vs, n * 2);
+                    }
+                    ps[n] = Long.parseLong(texto.substring(0, espaco));
+                    vs[n] = Long.parseUnsignedLong(texto.substring(espaco + 1).trim(), 16);
+                    n++;
+                } catch (NumberFormatException e) {
+                    throw new ErroCarregamento(linha, 1, "esperado \"passo resumo\"");
+                }
+            }
+        }
+        ResumosExecucao r = new ResumosExecucao(n > 1 && ps[1] > 0 ? ps[1] : 1);
+        for (int k = 0; k < n; k++) {
+            r.acrescentar(ps[k], vs[k]);
+        }
+        return r;
+    }
+
+    public void escrever(Appendable saida) throws IOException {
+        saida.append("# resumos do estado a cada ").append(Long.toString(intervalo)).append(" passos\n");
+        for (int k = 0; k < quantidade; k++) {
+            saida.append(Long.toString(passos[k])).append(' ')
+                 .append(String.format("%016X", valores[k])).append('\n');
+        }
+    }
+
+    /**
+     * Índice do primeiro resumo que difere (no valor ou no passo) entre as
+     * duas execuções, ou -1 se são iguais. Se uma acabou antes, o índice é o
+     * primeiro que só a outra tem. A janela divergente vai de
+     * {@code getPasso(k - 1)} (exclusive) a {@code getPasso(k)}.
+     */
+    public int primeiraDivergencia(ResumosExecucao outra) {
+        int k = Arrays.mismatch(valores, 0, quantidade, outra.valores, 0, outra.quantidade);
+        int j = Arrays.mismatch(passos, 0, quantidade, outra.passos, 0, outra.quantidade);
+        if (k < 0) {
+            return j;
+        }
+        return j < 0 ? k : Math.min(k, j);
+    }
+
+    public long getIntervalo() {
+        return intervalo;
+    }
+
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    public long getPasso(int k) {
+        if (k < 0 || k >= quantidade) {
+            throw new IndexOutOfBoundsException("Resumo inexistente: " + k);
+        }
+        return passos[k];
+    }
+
+    public long getResumo(int k) {
+        if (k < 0 || k >= quantidade) {
+            throw new IndexOutOfBoundsException("Resumo inexistente: " + k);
+        }
+        return valores[k];
+    }
+
+    /** Resultado da execução inteira; null se os resumos foram lidos de arquivo. */
+    public ResultadoExecucao getResultado() {
+        return resultado;
+    }
+
+    /** Estado resumido no fim da execução; null se os resumos foram lidos de arquivo. */
+    public ResumoEstado getUltimoResumo() {
+        return ultimo;
+    }
+
+    private void acrescentar(long passo, long valor) {
+        if (quantidade == passos.length) {
+            passos = Arrays.copyOf(passos, quantidade * 2);
+            valores = Arrays.copyOf(valores, quantidade * 2);
+        }
+        passos[quantidade] = passo;
+        valores[quantidade++] = valor;
+    }
+}
@@ -0,0 +1,78 @@
+package executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/** O {@link CarregadorHex} lendo de buffers: palavras carregadas e linhas rejeitadas. */
+class CarregadorHexTest {
+
+    @Test
+    void carregaUmaPalavraPorLinha() {
+        Maquina maquina = new Maquina(1024);
+        long palavras = carregar(maquina, "000102\r\n  ABCDEF\t\n\n   \nfedcba", 0x30);
+        assertEquals(3, palavras);
+        assertEquals(0x30, maquina.getCpu().ler(CPU.COD_PC));
+        assertEquals(0x000102, palavra(maquina, 0x30));
+        assertEquals(0xABCDEF, palavra(maquina, 0x33));
+        assertEquals(0xFEDCBA, palavra(maquina, 0x36));
+        assertEquals(0, palavra(maquina, 0x39));
+    }
+
+    @Test
+    void carregaMaisDeUmBlocoDeSaida() {
+        // mais palavras que um bloco de escrita na memória, para passar pelo descarregamento
+        StringBuilder fonte = new StringBuilder();
+        for (int k = 0; k < 5000; k++) {
+            fonte.append(String.format("%06X\n", k));
+        }
+        Maquina maquina = new Maquina(8192);
+        assertEquals(5000, carregar(maquina, fonte.toString(), 0));
+        assertEquals(0, palavra(maquina, 0));
+        assertEquals(4095, palavra(maquina, 3 * 4095));
+        assertEquals(4096, palavra(maquina, 3 * 4096));
+        assertEquals(4999, palavra(maquina, 3 * 4999));
+    }
+
+    @Test
+    void rejeitaLinhasInvalidas() {
+        assertErro("000000\n  00G000\n", 2, 5, "dígito hexadecimal inválido 'G'");
+        assertErro("000000\n000000\n  12345\n", 3, 3, "esperados 6 dígitos");
+        assertErro("1234567\n", 1, 1, "encontrados 7 caracteres");
+        assertErro("00 000\n", 1, 3, "dígito hexadecimal inválido ' '");
+    }
+
+    @Test
+    void rejeitaPalavraForaDaMemoria() {
+        // Maquina(2): 6 bytes, então a terceira palavra não cabe
+        Maquina maquina = new Maquina(2);
+        ErroCarregamento e = assertThrows(ErroCarregamento.class,
+                () -> carregar(maquina, "111111\n222222\n333333\n", 0));
+        assertEquals(3, e.getLinha());
+        assertEquals(1, e.getColuna());
+        assertTrue(e.getMessage().contains("fora da memória"), e.getMessage());
+        // as palavras anteriores ao erro ficam na memória
+        assertEquals(0x111111, palavra(maquina, 0));
+        assertEquals(0x222222, palavra(maquina, 3));
+    }
+
+    private static void assertErro(String fonte, long linha, int coluna, String trecho) {
+        ErroCarregamento e = assertThrows(ErroCarregamento.class, () -> carregar(new Maquina(1024), fonte, 0));
+        assertEquals(linha, e.getLinha(), e.getMessage());
+        assertEquals(coluna, e.getColuna(), e.getMessage());
+        assertTrue(e.getMessage().contains(trecho), e.getMessage());
+    }
+
+    private static long carregar(Maquina maquina, String fonte, int endereco) {
+        return CarregadorHex.carregar(maquina, ByteBuffer.wrap(fonte.getBytes(StandardCharsets.US_ASCII)), endereco);
+    }
+
+    private static int palavra(Maquina maquina, int endereco) {
+        return maquina.getMemoria().lerPalavraPorByte(endereco);
+    }
+}
@@ -0,0 +1,112 @@
+package executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/** O {@link CarregadorObjeto} lendo de buffers: relocação e registros rejeitados. */
+class CarregadorObjetoTest {
+
+    // início do COPY do Beck (Fig. 2.8): dois +JSUB e um WORD relocáveis
+    private static final String COPY =
+              "HCOPY  000000000030\n"
+            + "T0000001017202D69202D4B101036032026290000\n"
+            + "T00002A06000010000020\n"
+            + "M00000705+COPY\n"
+            + "M00002A06\n"
+            + "M00002D06-COPY\n"
+            + "E000000\n";
+
+    @Test
+    void carregaSemRelocacaoNoEnderecoDoCabecalho() {
+        Maquina maquina = new Maquina(4096);
+        CarregadorObjeto.Resultado r = carregar(maquina, COPY, CarregadorObjeto.ENDERECO_DO_CABECALHO);
+        assertEquals("COPY", r.getNome());
+        assertEquals(0, r.getEnderecoCarga());
+        assertEquals(0x30, r.getTamanho());
+        assertEquals(0x4B1010, palavra(maquina, 0x0006));
+        assertEquals(0x36, byteEm(maquina, 0x0009));
+        assertEquals(0x000010, palavra(maquina, 0x002A));
+    }
+
+    @Test
+    void relocaOsCamposDosRegistrosM() {
+        Maquina maquina = new Maquina(4096);
+        CarregadorObjeto.Resultado r = carregar(maquina, COPY, 0x2000);
+        assertEquals(0x2000, r.getEnderecoCarga());
+        assertEquals(0x2000, r.getEnderecoExecucao());
+        assertEquals(0x2000, maquina.getCpu().ler(CPU.COD_PC));
+
+        // +JSUB RDREC: só os 5 meios-bytes do endereço mudam, "4B1" fica
+        assertEquals(0x4B1030, palavra(maquina, 0x2006));
+        assertEquals(0x36, byteEm(maquina, 0x2009));
+        // o que não tem registro M é copiado como está
+        assertEquals(0x17202D, palavra(maquina, 0x2000));
+        assertEquals(0x032026, palavra(maquina, 0x200A));
+        // M sem símbolo soma, "+COPY" soma e "-COPY" subtrai o deslocamento
+        assertEquals(0x002010, palavra(maquina, 0x202A));
+        assertEquals((0x000020 - 0x2000) & 0xFFFFFF, palavra(maquina, 0x202D));
+    }
+
+    @Test
+    void relocaEntreDoisEnderecosNaoNulos() {
+        String objeto =
+                  "H^PROG^001000^000007\n"
+                + "T^001000^07^03101004^001004\n"
+                + "M^001001^05^+PROG\n"
+                + "M^001004^06\n"
+                + "E^001004\n";
+        Maquina maquina = new Maquina(4096);
+        CarregadorObjeto.Resultado r = carregar(maquina, objeto, 0x2400);
+        assertEquals("PROG", r.getNome());
+        assertEquals(0x2404, r.getEnderecoExecucao());
+        assertEquals(0x031024, palavra(maquina, 0x2400));
+        assertEquals(0x04, byteEm(maquina, 0x2403));
+        assertEquals(0x002404, palavra(maquina, 0x2404));
+    }
+
+    @Test
+    void rejeitaRegistrosInvalidos() {
+        assertErro("HCOPY  000000000003\nT00000003ZZ0000\nE000000\n", 2, 10, "dígito hexadecimal inválido 'Z'");
+        assertErro("T00000003000000\nHCOPY  000000000003\n", 1, 1, "registro antes do registro H");
+        assertErro("HCOPY  000000000003\nE000000\nT00000003000000\n", 3, 1, "registro depois do registro E");
+        assertErro("HCOPY  000000000003\nX\n", 2, 1, "tipo de registro desconhecido");
+        assertErro("HCOPY  000000000003\nHCOPY  000000000003\n", 2, 2, "registro H repetido");
+        assertErro("HCOPY  000000000003\nM00000005+OUTRO\n", 2, 11, "símbolo externo não suportado");
+        assertErro("HCOPY  000000000003\nT0000000300000000\n", 2, 16, "conteúdo a mais");
+        assertErro("\n\nE000000\n", 3, 1, "registro antes do registro H");
+        assertErro("\n", 1, 1, "sem registro H");
+    }
+
+    @Test
+    void rejeitaProgramaForaDaMemoria() {
+        // Maquina(16): 48 bytes
+        assertErro("HCOPY  000000000040\n", 1, 20, "não cabe");
+        assertErro("HCOPY  000000000003\nT00002E06000000000000\n", 2, 22, "registro T fora da memória");
+        assertErro("HCOPY  000000000003\nM00003003\n", 2, 10, "registro M fora da memória");
+    }
+
+    private static void assertErro(String objeto, long linha, int coluna, String trecho) {
+        ErroCarregamento e = assertThrows(ErroCarregamento.class, () -> carregar(new Maquina(16), objeto, 0));
+        assertEquals(linha, e.getLinha(), e.getMessage());
+        assertEquals(coluna, e.getColuna(), e.getMessage());
+        assertTrue(e.getMessage().contains(trecho), e.getMessage());
+    }
+
+    private static CarregadorObjeto.Resultado carregar(Maquina maquina, String objeto, int base) {
+        return CarregadorObjeto.carregar(maquina, ByteBuffer.wrap(objeto.getBytes(StandardCharsets.US_ASCII)), base);
+    }
+
+    private static int palavra(Maquina maquina, int endereco) {
+        return maquina.getMemoria().lerPalavraPorByte(endereco);
+    }
+
+    private static int byteEm(Maquina maquina, int endereco) {
+        return maquina.getMemoria().lerByte(endereco);
+    }
+}
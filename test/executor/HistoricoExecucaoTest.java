@@ -0,0 +1,51 @@
+package executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Execução reversa com {@link Maquina#voltar}: pelo anel e, quando os passos
+ * já saíram dele, refazendo o caminho a partir de um instantâneo.
+ */
+class HistoricoExecucaoTest {
+
+    private static final String LACO =
+              "LACO    START   0\n"
+            + "INICIO  LDA     VALOR\n"
+            + "        ADD     #1\n"
+            + "        STA     VALOR\n"
+            + "        STA     COPIA\n"
+            + "        J       INICIO\n"
+            + "VALOR   WORD    0\n"
+            + "COPIA   WORD    0\n"
+            + "        END     INICIO\n";
+
+    private static final long PASSOS = 200;
+    private static final long VOLTA = 50;
+
+    @Test
+    void voltaAlemDoAnelComLeituraObservada() {
+        Montador.Programa programa = Montador.montar(LACO);
+        int valor = programa.getEnderecoSimbolo("VALOR");
+
+        // anel pequeno: só os últimos passos cabem nele, o resto é refeito
+        Maquina maquina = new Maquina(1024);
+        programa.carregar(maquina);
+        maquina.setHistorico(new HistoricoExecucao(64, 16, 100));
+        assertEquals(PASSOS, maquina.executar(PASSOS).getPassosExecutados());
+
+        // cada passo refeito lê VALOR, mas refazer não é parar
+        maquina.getPontosParada().observarLeitura(valor, 3);
+        ResultadoExecucao r = maquina.voltar(VOLTA, 0);
+        assertEquals(MotivoParada.LIMITE_DE_PASSOS, r.getMotivo());
+        assertEquals(VOLTA, r.getPassosExecutados());
+
+        Maquina referencia = new Maquina(1024);
+        programa.carregar(referencia);
+        referencia.executar(PASSOS - VOLTA);
+        DiferencaEstado diferenca = referencia.resumir().diferencas(maquina.resumir());
+        assertTrue(diferenca.vazia(), diferenca::toString);
+    }
+}
@@ -0,0 +1,169 @@
+package executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * O {@link Montador} sobre o programa COPY da Fig. 2.5 do Beck, cujo código
+ * objeto é byte a byte o da Fig. 2.8 (os registros T daqui cortam a cada 30
+ * bytes, não entre instruções), e os erros com linha e coluna.
+ */
+class MontadorTest {
+
+    private static final String COPY =
+              "COPY    START   0\n"
+            + "FIRST   STL     RETADR\n"
+            + "        LDB     #LENGTH\n"
+            + "        BASE    LENGTH\n"
+            + "CLOOP   +JSUB   RDREC\n"
+            + "        LDA     LENGTH\n"
+            + "        COMP    #0\n"
+            + "        JEQ     ENDFIL\n"
+            + "        +JSUB   WRREC\n"
+            + "        J       CLOOP\n"
+            + "ENDFIL  LDA     EOF\n"
+            + "        STA     BUFFER\n"
+            + "        LDA     #3\n"
+            + "        STA     LENGTH\n"
+            + "        +JSUB   WRREC\n"
+            + "        J       @RETADR\n"
+            + "EOF     BYTE    C'EOF'\n"
+            + "RETADR  RESW    1\n"
+            + "LENGTH  RESW    1\n"
+            + "BUFFER  RESB    4096\n"
+            + ".\n"
+            + "RDREC   CLEAR   X\n"
+            + "        CLEAR   A\n"
+            + "        CLEAR   S\n"
+            + "        +LDT    #4096\n"
+            + "RLOOP   TD      INPUT\n"
+            + "        JEQ     RLOOP\n"
+            + "        RD      INPUT\n"
+            + "        COMPR   A,S\n"
+            + "        JEQ     EXIT\n"
+            + "        STCH    BUFFER,X\n"
+            + "        TIXR    T\n"
+            + "        JLT     RLOOP\n"
+            + "EXIT    STX     LENGTH\n"
+            + "        RSUB\n"
+            + "INPUT   BYTE    X'F1'\n"
+            + ".\n"
+            + "WRREC   CLEAR   X\n"
+            + "        LDT     LENGTH\n"
+            + "WLOOP   TD      OUTPUT\n"
+            + "        JEQ     WLOOP\n"
+            + "        LDCH    BUFFER,X\n"
+            + "        WD      OUTPUT\n"
+            + "        TIXR    T\n"
+            + "        JLT     WLOOP\n"
+            + "        RSUB\n"
+            + "OUTPUT  BYTE    X'05'\n"
+            + "        END     FIRST\n";
+
+    private static final String OBJETO_COPY =
+              "HCOPY  000000001077\n"
+            + "T0000001E17202D69202D4B1010360320262900003320074B10105D3F2FEC0320100F\n"
+            + "T00001E1220160100030F200D4B10105D3E2003454F46\n"
+            + "T0010361EB410B400B44075101000E32019332FFADB2013A00433200857C003B8503B\n"
+            + "T0010541E2FEA1340004F0000F1B410774000E32011332FFA53C003DF2008B8503B2F\n"
+            + "T00107205EF4F000005\n"
+            + "M00000705\n"
+            + "M00001405\n"
+            + "M00002705\n"
+            + "E000000\n";
+
+    @Test
+    void montaOCopyDoLivro() throws IOException {
+        Montador.Programa programa = Montador.montar(COPY);
+        assertEquals("COPY", programa.getNome());
+        assertEquals(0, programa.getEnderecoInicial());
+        assertEquals(0x1077, programa.getTamanho());
+        assertEquals(0x1036, programa.getEnderecoSimbolo("RDREC"));
+        assertEquals(-1, programa.getEnderecoSimbolo("NADA"));
+
+        StringBuilder objeto = new StringBuilder();
+        programa.escreverObjeto(objeto);
+        assertEquals(OBJETO_COPY, objeto.toString());
+    }
+
+    @Test
+    void mapaEntreLinhasEEnderecos() {
+        Montador.Programa programa = Montador.montar(COPY);
+        assertEquals(0x0000, programa.getEndereco(2));     // FIRST STL
+        assertEquals(0x0006, programa.getEndereco(5));     // +JSUB, depois do BASE
+        assertEquals(0x0036, programa.getEndereco(20));    // BUFFER RESB
+        assertEquals(0x1036, programa.getEndereco(22));    // RDREC
+        assertEquals(-1, programa.getEndereco(1));         // START
+        assertEquals(-1, programa.getEndereco(4));         // BASE
+        assertEquals(-1, programa.getEndereco(21));        // comentário
+
+        assertEquals(2, programa.getLinha(0x0000));
+        assertEquals(5, programa.getLinha(0x0009));        // último byte do +JSUB
+        assertEquals(20, programa.getLinha(0x0800));       // dentro do BUFFER
+        assertEquals(22, programa.getLinha(0x1037));
+        assertEquals(47, programa.getLinha(0x1076));       // OUTPUT
+        assertEquals(-1, programa.getLinha(0x1077));
+    }
+
+    @Test
+    void escolheEntrePcEBase() {
+        Maquina maquina = new Maquina(2048);
+        Montador.montar(COPY).carregar(maquina);
+        assertEquals(0x032026, palavra(maquina, 0x000A));   // LDA LENGTH: relativo ao PC
+        assertEquals(0x57C003, palavra(maquina, 0x104E));   // STCH BUFFER,X: longe do PC, relativo à base
+        assertEquals(0x3E2003, palavra(maquina, 0x002A));   // J @RETADR: indireto, relativo ao PC
+
+        // sem a base, BUFFER fica fora do alcance
+        ErroCarregamento e = assertThrows(ErroCarregamento.class,
+                () -> Montador.montar(COPY.replace("        BASE    LENGTH\n", "        NOBASE\n")));
+        assertEquals(31, e.getLinha());
+        assertEquals(17, e.getColuna());
+    }
+
+    @Test
+    void registrosMSoParaEnderecosRelativos() throws IOException {
+        String fonte =
+                  "REL     START   100\n"
+                + "INICIO  +LDA    DADO\n"
+                + "        +LDA    #4000\n"
+                + "DADO    WORD    DADO\n"
+                + "        WORD    DADO-INICIO\n"
+                + "        WORD    7\n"
+                + "        END     INICIO\n";
+        StringBuilder objeto = new StringBuilder();
+        Montador.montar(fonte).escreverObjeto(objeto);
+        assertEquals(
+                  "HREL   000100000011\n"
+                + "T000100110310010801100FA0000108000008000007\n"
+                + "M00010105\n"
+                + "M00010806\n"
+                + "E000100\n",
+                objeto.toString());
+    }
+
+    @Test
+    void errosTrazemLinhaEColuna() {
+        assertErro("        LDA     NADA\n", 1, 17, "símbolo 'NADA' não definido");
+        assertErro("A       WORD    1\nA       WORD    2\n", 2, 1, "já definido na linha 1");
+        assertErro("        LDA     #1\n        XYZ     1\n", 2, 9, "operação desconhecida 'XYZ'");
+        assertErro("        LDA     #4096\n", 1, 18, "use o formato 4");
+        assertErro("        LDA     @P,X\nP       WORD    0\n", 1, 19, "indexação não combina");
+        assertErro("        BYTE    X'F'\n", 1, 17, "número par de dígitos");
+    }
+
+    private static void assertErro(String fonte, long linha, int coluna, String trecho) {
+        ErroCarregamento e = assertThrows(ErroCarregamento.class, () -> Montador.montar(fonte));
+        assertEquals(linha, e.getLinha(), e.getMessage());
+        assertEquals(coluna, e.getColuna(), e.getMessage());
+        assertTrue(e.getMessage().contains(trecho), e.getMessage());
+    }
+
+    private static int palavra(Maquina maquina, int endereco) {
+        return maquina.getMemoria().lerPalavraPorByte(endereco);
+    }
+}
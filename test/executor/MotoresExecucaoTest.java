@@ -0,0 +1,207 @@
+package executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Teste diferencial dos motores: programas aleatórios, montados com o
+ * {@link Montador}, rodam no INTERPRETADOR, em BLOCOS e COMPILADO, e as três
+ * máquinas precisam parar pelo mesmo motivo (ou com a mesma exceção), no
+ * mesmo passo, com os mesmos registradores, F, CC e memória (comparados com
+ * {@link ResumoEstado#diferencas}).
+ *
+ * Cada programa é um laço de {@value #VOLTAS} voltas, acima do limiar de
+ * compilação do {@link MotorBlocos}, sobre um corpo com cargas e
+ * armazenamentos em todos os modos de endereçamento, aritmética inteira e
+ * de ponto flutuante, desvios diretos e indiretos para a frente e escritas
+ * sobre o próprio código. Quando um motor diverge, a mensagem traz a semente e o fonte.
+ */
+class MotoresExecucaoTest {
+
+    private static final int PROGRAMAS = 200;
+    private static final int VOLTAS = 400;
+    private static final long MAX_PASSOS = 1_000_000;
+    private static final int PALAVRAS_MEMORIA = 4096;
+
+    private static final int PALAVRAS_DADOS = 200;
+    private static final int BYTES_LIVRES = 1200;   // depois das palavras iniciais, para os acessos indexados
+    private static final int PONTEIROS = 4;
+
+    private static final String[] ESCRITOS = { "A", "S", "T", "B", "L" };    // X é o contador do laço
+    private static final String[] LIDOS = { "A", "X", "S", "T", "B", "L" };
+
+    @Test
+    void motoresConcordamEmProgramasAleatorios() {
+        for (int semente = 1; semente <= PROGRAMAS; semente++) {
+            String fonte = gerarPrograma(new Random(semente));
+            Montador.Programa programa = Montador.montar(fonte);
+
+            Execucao referencia = executar(programa, MotorExecucao.INTERPRETADOR);
+            for (MotorExecucao motor : new MotorExecucao[] { MotorExecucao.BLOCOS, MotorExecucao.COMPILADO }) {
+                Execucao outra = executar(programa, motor);
+                String contexto = "semente " + semente + ", motor " + motor + "\n" + fonte;
+                assertEquals(referencia.desfecho, outra.desfecho, contexto);
+                DiferencaEstado diferenca = referencia.estado.diferencas(outra.estado);
+                assertTrue(diferenca.vazia(), () -> "diferem: " + diferenca + "; " + contexto);
+            }
+        }
+    }
+
+    // =========================
+    //  Execução
+    // =========================
+
+    private static final class Execucao {
+        final String desfecho;
+        final ResumoEstado estado;
+
+        Execucao(String desfecho, ResumoEstado estado) {
+            this.desfecho = desfecho;
+            this.estado = estado;
+        }
+    }
+
+    private static Execucao executar(Montador.Programa programa, MotorExecucao motor) {
+        Maquina maquina = new Maquina(PALAVRAS_MEMORIA, motor);
+        programa.carregar(maquina);
+        String desfecho;
+        try {
+            ResultadoExecucao r = maquina.executar(MAX_PASSOS);
+            desfecho = r.getMotivo() + " em " + r.getPassosExecutados() + " passos";
+        } catch (RuntimeException e) {
+            desfecho = e.getClass().getName() + ": " + e.getMessage();
+        }
+        return new Execucao(desfecho, maquina.resumir());
+    }
+
+    // =========================
+    //  Gerador de programas
+    // =========================
+
+    private static String gerarPrograma(Random r) {
+        int tamanho = 20 + r.nextInt(40);
+        String[] corpo = new String[tamanho];
+        boolean[] imediatoAlteravel = new boolean[tamanho];
+        StringBuilder ponteirosDesvio = new StringBuilder();
+        for (int i = 0; i < tamanho; i++) {
+            corpo[i] = gerarInstrucao(r, i, tamanho, ponteirosDesvio);
+            imediatoAlteravel[i] = corpo[i].startsWith("LD") && corpo[i].contains("#");
+        }
+        // escritas sobre o código: trocam o byte baixo do imediato de uma carga, antes ou depois no corpo
+        boolean[] alterado = new boolean[tamanho];
+        for (int k = r.nextInt(3); k > 0; k--) {
+            int alvo = r.nextInt(tamanho);
+            int onde = r.nextInt(tamanho);
+            if (imediatoAlteravel[alvo] && onde != alvo && !alterado[onde]) {
+                alterado[alvo] = true;
+                imediatoAlteravel[onde] = false;
+                corpo[onde] = linha("STCH", "I" + alvo + "+2");
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("ALEAT   START   0\n");
+        sb.append("INICIO  LDX     #0\n");
+        for (int i = 0; i < tamanho; i++) {
+            sb.append(String.format("%-8s%s\n", "I" + i, corpo[i]));
+        }
+        sb.append(String.format("%-8sTIX     VOLTAS\n", "I" + tamanho));
+        sb.append("        JLT     I0\n");
+        sb.append("FIM     J       FIM\n");
+        sb.append("VOLTAS  WORD    ").append(VOLTAS).append('\n');
+        sb.append(ponteirosDesvio);
+        for (int p = 0; p < PONTEIROS; p++) {
+            sb.append(String.format("PTR%d    WORD    DADOS+%d\n", p, 3 * r.nextInt(PALAVRAS_DADOS)));
+        }
+        sb.append("DADOS   WORD    ").append(r.nextInt(1 << 24)).append('\n');
+        for (int k = 1; k < PALAVRAS_DADOS; k++) {
+            sb.append("        WORD    ").append(r.nextInt(1 << 24)).append('\n');
+        }
+        sb.append("        RESB    ").append(BYTES_LIVRES).append('\n');
+        sb.append("        END     INICIO\n");
+        return sb.toString();
+    }
+
+    /** A instrução {@code i} do corpo; um desvio indireto deixa o seu ponteiro em {@code ponteirosDesvio}. */
+    private static String gerarInstrucao(Random r, int i, int tamanho, StringBuilder ponteirosDesvio) {
+        switch (r.nextInt(12)) {
+            case 0: case 1:
+                return linha("LD" + escolher(r, ESCRITOS), operandoLeitura(r));
+            case 2:
+                return linha("ST" + escolher(r, LIDOS), operandoEscrita(r, 3));
+            case 3:
+                return r.nextBoolean()
+                        ? linha("LDCH", operandoLeitura(r))
+                        : linha("STCH", operandoEscrita(r, 1));
+            case 4: case 5:
+                return r.nextInt(8) == 0
+                        ? linha("DIV", "#" + (1 + r.nextInt(255)))
+                        : linha(escolher(r, "ADD", "SUB", "MUL", "AND", "OR", "COMP"), operandoLeitura(r));
+            case 6: case 7:
+                // DIVR raro: com registradores zerados por CLEAR, quase sempre divide por zero
+                return linha(r.nextInt(20) == 0 ? "DIVR" : escolher(r, "ADDR", "SUBR", "MULR", "COMPR", "RMO"),
+                        escolher(r, LIDOS) + "," + escolher(r, ESCRITOS));
+            case 8:
+                return r.nextBoolean()
+                        ? linha(escolher(r, "SHIFTL", "SHIFTR"), escolher(r, ESCRITOS) + "," + (1 + r.nextInt(15)))
+                        : linha("CLEAR", escolher(r, ESCRITOS));
+            case 9: {
+                String destino = "I" + (i + 1 + r.nextInt(tamanho - i));
+                if (r.nextInt(3) == 0) {
+                    ponteirosDesvio.append(String.format("%-8sWORD    %s\n", "JP" + i, destino));
+                    destino = "@JP" + i;
+                }
+                return linha(escolher(r, "J", "JEQ", "JGT", "JLT"), destino);
+            }
+            case 10:
+                switch (r.nextInt(4)) {
+                    case 0: return linha("LDF", enderecoDados(r, 6));
+                    case 1: return linha("STF", enderecoDados(r, 6));
+                    case 2: return linha(escolher(r, "ADDF", "SUBF", "MULF", "COMPF"), enderecoDados(r, 6));
+                    default: return escolher(r, "FLOAT", "FIX");
+                }
+            default:
+                return linha("COMP", operandoLeitura(r));
+        }
+    }
+
+    /** Operação e operando alinhados; um '+' no operando pede o formato 4. */
+    private static String linha(String operacao, String operando) {
+        return operando.startsWith("+")
+                ? String.format("%-8s%s", "+" + operacao, operando.substring(1))
+                : String.format("%-8s%s", operacao, operando);
+    }
+
+    /** Imediato, direto, indexado, indireto ou formato 4. */
+    private static String operandoLeitura(Random r) {
+        switch (r.nextInt(5)) {
+            case 0: return "#" + r.nextInt(256);
+            case 1: return enderecoDados(r, 3);
+            case 2: return "DADOS+" + r.nextInt(3 * PALAVRAS_DADOS) + ",X";
+            case 3: return "@PTR" + r.nextInt(PONTEIROS);
+            default: return "+" + enderecoDados(r, 3);
+        }
+    }
+
+    /** Direto, indexado, indireto ou formato 4. */
+    private static String operandoEscrita(Random r, int bytes) {
+        switch (r.nextInt(4)) {
+            case 0: return "DADOS+" + r.nextInt(3 * PALAVRAS_DADOS) + ",X";
+            case 1: return "+" + enderecoDados(r, bytes);
+            case 2: return "@PTR" + r.nextInt(PONTEIROS);
+            default: return enderecoDados(r, bytes);
+        }
+    }
+
+    private static String enderecoDados(Random r, int bytes) {
+        return "DADOS+" + r.nextInt(3 * PALAVRAS_DADOS - bytes + 1);
+    }
+
+    private static String escolher(Random r, String... opcoes) {
+        return opcoes[r.nextInt(opcoes.length)];
+    }
+}
@@ -0,0 +1,67 @@
+package executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/** Pontos de parada no PC em que a execução começa. */
+class PontosParadaTest {
+
+    private static final String PROGRAMA =
+              "PP      START   0\n"
+            + "INICIO  LDA     #1\n"
+            + "MEIO    ADD     #2\n"
+            + "        STA     SOMA\n"
+            + "FIM     J       FIM\n"
+            + "SOMA    RESW    1\n"
+            + "        END     INICIO\n";
+
+    @Test
+    void paraNoPontoDoPcInicial() {
+        Montador.Programa programa = Montador.montar(PROGRAMA);
+        Maquina maquina = new Maquina(1024);
+        programa.carregar(maquina);
+        maquina.getPontosParada().adicionar(programa.getEnderecoSimbolo("INICIO"));
+
+        ResultadoExecucao r = maquina.executar(100);
+        assertEquals(MotivoParada.PONTO_DE_PARADA, r.getMotivo());
+        assertEquals(0, r.getPassosExecutados());
+
+        // retomando, sai do ponto em que parou
+        r = maquina.executar(100);
+        assertEquals(MotivoParada.LACO_DE_PARADA, r.getMotivo());
+    }
+
+    @Test
+    void passoComPontosDesabilitadosNaoPrendeAExecucaoSeguinte() {
+        Montador.Programa programa = Montador.montar(PROGRAMA);
+        Maquina maquina = new Maquina(1024);
+        programa.carregar(maquina);
+        int meio = programa.getEnderecoSimbolo("MEIO");
+        PontosParada pontos = maquina.getPontosParada();
+        pontos.adicionar(meio);
+
+        // como o "Passo" da interface: um passo sem pontos de parada, caindo em MEIO
+        pontos.setHabilitados(false);
+        maquina.executar(1);
+        pontos.setHabilitados(true);
+        assertEquals(meio, maquina.getCpu().ler(CPU.COD_PC));
+
+        ResultadoExecucao r = maquina.executar(100);
+        assertEquals(MotivoParada.LACO_DE_PARADA, r.getMotivo());
+        assertEquals(3, r.getPassosExecutados());
+    }
+
+    @Test
+    void restaurarVoltaAValerOPontoDaPartida() {
+        Montador.Programa programa = Montador.montar(PROGRAMA);
+        Maquina maquina = new Maquina(1024);
+        programa.carregar(maquina);
+        Instantaneo inicial = maquina.capturar();
+        maquina.getPontosParada().adicionar(programa.getEnderecoSimbolo("INICIO"));
+
+        assertEquals(MotivoParada.PONTO_DE_PARADA, maquina.executar(100).getMotivo());
+        maquina.restaurar(inicial);
+        assertEquals(MotivoParada.PONTO_DE_PARADA, maquina.executar(100).getMotivo());
+    }
+}
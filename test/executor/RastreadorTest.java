@@ -0,0 +1,94 @@
+package executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Ida e volta do rastro: o que o {@link Rastreador} grava, o
+ * {@link LeitorRastro} lê igual ao que o interpretador faz passo a passo.
+ */
+class RastreadorTest {
+
+    // escritas de 1 (STCH), 3 (STA/STX/STT) e 6 bytes (STF), desvios e CC
+    private static final String PROGRAMA =
+              "RASTRO  START   0\n"
+            + "INICIO  LDX     #0\n"
+            + "        LDT     #5\n"
+            + "LACO    LDA     VALOR\n"
+            + "        ADD     #7\n"
+            + "        STA     VALOR\n"
+            + "        STCH    TEXTO,X\n"
+            + "        FLOAT\n"
+            + "        STF     REAL\n"
+            + "        SUB     #100\n"
+            + "        COMP    #0\n"
+            + "        JLT     SEGUE\n"
+            + "        STX     CONTA\n"
+            + "SEGUE   TIXR    T\n"
+            + "        JLT     LACO\n"
+            + "        STT     CONTA\n"
+            + "FIM     J       FIM\n"
+            + "VALOR   WORD    40\n"
+            + "CONTA   WORD    0\n"
+            + "TEXTO   RESB    8\n"
+            + "REAL    RESB    6\n"
+            + "        END     INICIO\n";
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void leitorDevolveOQueOInterpretadorFez() throws IOException {
+        Montador.Programa programa = Montador.montar(PROGRAMA);
+        Path arquivo = diretorio.resolve("rastro.bin");
+
+        Maquina rastreada = new Maquina(1024);
+        programa.carregar(rastreada);
+        long passos;
+        try (Rastreador rastreador = new Rastreador(arquivo)) {
+            rastreada.setRastreador(rastreador);
+            passos = rastreada.executar(10_000).getPassosExecutados();
+            rastreada.setRastreador(null);
+        }
+
+        Maquina referencia = new Maquina(1024);
+        programa.carregar(referencia);
+        CPU cpu = referencia.getCpu();
+        int[] tamanhosVistos = new int[Rastreador.MAX_BYTES_ESCRITOS + 1];
+        try (LeitorRastro leitor = new LeitorRastro(arquivo)) {
+            for (long passo = 0; passo < passos; passo++) {
+                String contexto = "passo " + passo;
+                assertTrue(leitor.proximo(), contexto);
+                assertEquals(passo, leitor.getPasso(), contexto);
+                assertEquals(cpu.ler(CPU.COD_PC), leitor.getPc(), contexto);
+
+                referencia.passo();
+
+                for (int r = CPU.COD_A; r <= CPU.COD_T; r++) {
+                    assertEquals(cpu.ler(r), leitor.getRegistrador(r), contexto + ", registrador " + r);
+                }
+                assertEquals(cpu.ler(CPU.COD_PC), leitor.getRegistrador(CPU.COD_PC), contexto);
+                assertEquals(cpu.getCC(), leitor.getCC(), contexto);
+
+                int bytes = leitor.getBytesEscritos();
+                tamanhosVistos[bytes]++;
+                long valor = 0;
+                for (int k = 0; k < bytes; k++) {
+                    valor = valor << 8 | referencia.getMemoria().lerByte(leitor.getEnderecoEscrito() + k);
+                }
+                assertEquals(valor, leitor.getValorEscrito(), contexto);
+            }
+            assertFalse(leitor.proximo());
+        }
+
+        assertTrue(tamanhosVistos[0] > 0 && tamanhosVistos[1] > 0 && tamanhosVistos[3] > 0 && tamanhosVistos[6] > 0);
+        assertEquals(programa.getEnderecoSimbolo("FIM"), cpu.ler(CPU.COD_PC));
+    }
+}
@@ -0,0 +1,127 @@
+package executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/** {@link ResumoEstado}, {@link DiferencaEstado} e {@link ResumosExecucao}. */
+class ResumoEstadoTest {
+
+    @Test
+    void resumoIncrementalIgualAoCompleto() {
+        Maquina maquina = new Maquina(65536); // 48 páginas
+        Memoria memoria = maquina.getMemoria();
+        ResumoEstado vazio = maquina.resumir();
+        assertEquals(completo(maquina), vazio.getValor());
+
+        memoria.escreverPalavraPorByte(0x0000, 0x123456);
+        memoria.escreverPalavraPorByte(0x1FFF, 0xABCDEF);   // atravessa duas páginas
+        memoria.escreverByte(0x2F000, 0x7F);                // última página
+        maquina.getCpu().escrever(CPU.COD_A, 42);
+        ResumoEstado escrito = maquina.resumir();
+        assertEquals(completo(maquina), escrito.getValor());
+        assertNotEquals(vazio.getValor(), escrito.getValor());
+
+        // página escrita de volta com o mesmo conteúdo: outra instância, mesmo resumo
+        Instantaneo antes = maquina.capturar();
+        memoria.escreverByte(0x10000, 1);
+        assertEquals(completo(maquina), maquina.resumir().getValor());
+        memoria.escreverByte(0x10000, 0);
+        assertEquals(escrito.getValor(), maquina.resumir().getValor());
+
+        // restaurar troca páginas e registradores
+        maquina.restaurar(vazio.getInstantaneo());
+        assertEquals(vazio.getValor(), maquina.resumir().getValor());
+        assertEquals(completo(maquina), vazio.getValor());
+        maquina.restaurar(antes);
+        assertEquals(escrito.getValor(), maquina.resumir().getValor());
+        assertEquals(completo(maquina), escrito.getValor());
+    }
+
+    @Test
+    void diferencasDizemPaginaETrecho() {
+        Maquina a = new Maquina(4096); // 3 páginas
+        Maquina b = new Maquina(4096);
+        for (Maquina m : new Maquina[] { a, b }) {
+            m.getMemoria().escreverPalavraPorByte(0x0100, 0x010203);
+            m.getCpu().escrever(CPU.COD_A, 7);
+        }
+        assertTrue(a.resumir().diferencas(b.resumir()).vazia());
+
+        b.getMemoria().escreverByte(0x0010, 0xFF);
+        b.getMemoria().escreverByte(0x0020, 0xFF);          // mesma página: um trecho de 0x10 a 0x20
+        b.getMemoria().escreverPalavraPorByte(0x2005, 0x0000AA);   // só o último byte muda
+        b.getCpu().escrever(CPU.COD_X, 1);
+        b.getCpu().setCCFromCompare(1);
+
+        DiferencaEstado d = a.resumir().diferencas(b.resumir());
+        assertFalse(d.vazia());
+        assertEquals(2, d.getQuantidadeTrechos());
+        assertEquals(0x0010, d.getEnderecoTrecho(0));
+        assertEquals(0x11, d.getTamanhoTrecho(0));
+        assertEquals(0x2007, d.getEnderecoTrecho(1));
+        assertEquals(1, d.getTamanhoTrecho(1));
+        assertTrue(d.registradorDiferente(CPU.COD_X));
+        assertFalse(d.registradorDiferente(CPU.COD_A));
+        assertTrue(d.ccDiferente());
+        assertFalse(d.fDiferente());
+    }
+
+    private static final String LEITURA =
+              "LER     START   0\n"
+            + "INICIO  LDX     #0\n"
+            + "LACO    RD      DEV\n"
+            + "        STCH    DADOS,X\n"
+            + "        TIX     LIMITE\n"
+            + "        JLT     LACO\n"
+            + "FIM     J       FIM\n"
+            + "DEV     BYTE    X'F1'\n"
+            + "LIMITE  WORD    40\n"
+            + "DADOS   RESB    40\n"
+            + "        END     INICIO\n";
+
+    @Test
+    void primeiraDivergenciaNaJanelaDoPassoQueMudou() {
+        Montador.Programa programa = Montador.montar(LEITURA);
+        byte[] entrada = new byte[40];
+        Arrays.fill(entrada, (byte) 'a');
+        byte[] alterada = entrada.clone();
+        alterada[17] = 'b'; // lido pelo RD do passo 1 + 4 * 17 = 69
+
+        Maquina referencia = maquinaLendo(programa, entrada);
+        Maquina outra = maquinaLendo(programa, alterada);
+        ResumosExecucao r1 = ResumosExecucao.gravar(referencia, 10, 1000);
+        ResumosExecucao r2 = ResumosExecucao.gravar(outra, 10, 1000);
+        assertEquals(MotivoParada.LACO_DE_PARADA, r1.getResultado().getMotivo());
+        assertEquals(r1.getQuantidade(), r2.getQuantidade());
+
+        int k = r1.primeiraDivergencia(r2);
+        assertEquals(7, k);
+        assertEquals(60, r1.getPasso(k - 1));
+        assertEquals(70, r1.getPasso(k));
+        assertEquals(-1, r1.primeiraDivergencia(ResumosExecucao.gravar(maquinaLendo(programa, entrada), 10, 1000)));
+
+        // no fim só o byte guardado difere
+        DiferencaEstado d = r1.getUltimoResumo().diferencas(r2.getUltimoResumo());
+        assertEquals(1, d.getQuantidadeTrechos());
+        assertEquals(programa.getEnderecoSimbolo("DADOS") + 17, d.getEnderecoTrecho(0));
+        assertEquals(1, d.getTamanhoTrecho(0));
+        assertFalse(d.registradorDiferente(CPU.COD_A));
+    }
+
+    private static Maquina maquinaLendo(Montador.Programa programa, byte[] entrada) {
+        Maquina maquina = new Maquina(1024);
+        programa.carregar(maquina);
+        maquina.getDispositivos().conectar(0xF1, new DispositivoMemoria(entrada));
+        return maquina;
+    }
+
+    private static long completo(Maquina maquina) {
+        return ResumoEstado.de(maquina.capturar(), null).getValor();
+    }
+}